@@ -41,8 +41,10 @@ import de.ugoe.cs.cpdp.dataprocessing.ISetWiseProcessingStrategy;
 import de.ugoe.cs.cpdp.dataprocessing.IVersionProcessingStrategy;
 import de.ugoe.cs.cpdp.dataselection.IPointWiseDataselectionStrategy;
 import de.ugoe.cs.cpdp.dataselection.ISetWiseDataselectionStrategy;
+import de.ugoe.cs.cpdp.eval.CVWekaEvaluation;
 import de.ugoe.cs.cpdp.eval.IEvaluationStrategy;
 import de.ugoe.cs.cpdp.eval.IResultStorage;
+import de.ugoe.cs.cpdp.loader.AbstractFolderLoader;
 import de.ugoe.cs.cpdp.loader.IVersionLoader;
 import de.ugoe.cs.cpdp.training.ISetWiseTestdataAwareTrainingStrategy;
 import de.ugoe.cs.cpdp.training.ISetWiseTrainingStrategy;
@@ -189,6 +191,12 @@ public class ExperimentConfiguration extends DefaultHandler {
      */
     private String executionStrategyParameters = null;
 
+    /**
+     * indicates, if the result storages of the configuration file are instantiated; false for
+     * copies, which share the result storages of the original configuration
+     */
+    private final boolean createResultStorages;
+
     /**
      * Constructor. Creates a new configuration from a given file.
      * 
@@ -210,6 +218,23 @@ public class ExperimentConfiguration extends DefaultHandler {
      *             thrown if there is an error creating the configuration
      */
     public ExperimentConfiguration(File file) throws ExperimentConfigurationException {
+        this(file, true);
+    }
+
+    /**
+     * Constructor. Creates a new configuration from a given file.
+     * 
+     * @param file
+     *            handle of the file from the configuration is loaded.
+     * @param createResultStorages
+     *            if false, the result storages defined in the file are not instantiated
+     * @throws ExperimentConfigurationException
+     *             thrown if there is an error creating the configuration
+     */
+    private ExperimentConfiguration(File file, boolean createResultStorages)
+        throws ExperimentConfigurationException
+    {
+        this.createResultStorages = createResultStorages;
         this.loaders = new LinkedList<>();
         this.versionFilters = new LinkedList<>();
         this.testVersionFilters = new LinkedList<>();
@@ -263,6 +288,23 @@ public class ExperimentConfiguration extends DefaultHandler {
         }
     }
 
+    /**
+     * Creates a copy of the configuration by parsing the configuration file again. All components
+     * of the experiment, e.g., the trainers and evaluators, are newly instantiated and can
+     * therefore be used independently of this configuration. Only the result storages are shared
+     * with this configuration; they are not instantiated again, because storages like the
+     * {@link de.ugoe.cs.cpdp.eval.MySQLResultStorage} hold shared resources until they are closed.
+     * 
+     * @return copy of the configuration
+     * @throws ExperimentConfigurationException
+     *             thrown if there is an error creating the configuration
+     */
+    public ExperimentConfiguration copy() throws ExperimentConfigurationException {
+        ExperimentConfiguration copy = new ExperimentConfiguration(this.configFile, false);
+        copy.resultStorages = this.resultStorages;
+        return copy;
+    }
+
     /**
      * returns the name of the experiment
      * 
@@ -490,6 +532,15 @@ public class ExperimentConfiguration extends DefaultHandler {
                     loader.setClassType(classType);
                 }
                 loader.setParameter(attributes.getValue("param"));
+                String binaryCache = attributes.getValue("binarycache");
+                if (binaryCache != null) {
+                    if (!(loader instanceof AbstractFolderLoader)) {
+                        throw new SAXException("binary cache not supported by loader: " +
+                            attributes.getValue("name"));
+                    }
+                    ((AbstractFolderLoader) loader)
+                        .setBinaryCache(Boolean.parseBoolean(binaryCache));
+                }
                 this.loaders.add(loader);
 
                 // TODO location as relative
@@ -602,8 +653,19 @@ public class ExperimentConfiguration extends DefaultHandler {
             else if (qName.equalsIgnoreCase("eval")) {
                 final IEvaluationStrategy evaluator = (IEvaluationStrategy) Class
                     .forName("de.ugoe.cs.cpdp.eval." + attributes.getValue("name")).getDeclaredConstructor().newInstance();
+                String seed = attributes.getValue("seed");
+                if (seed != null) {
+                    if (!(evaluator instanceof CVWekaEvaluation)) {
+                        throw new SAXException("seed not supported by evaluator: " +
+                            attributes.getValue("name"));
+                    }
+                    ((CVWekaEvaluation) evaluator).setSeed(Long.parseLong(seed));
+                }
                 this.evaluators.add(evaluator);
             }
+            else if (qName.equalsIgnoreCase("storage") && !this.createResultStorages) {
+                // copies use the result storages of the original configuration
+            }
             else if (qName.equalsIgnoreCase("storage")) {
                 IResultStorage resultStorage;
                 String param = attributes.getValue("param");
@@ -644,7 +706,8 @@ public class ExperimentConfiguration extends DefaultHandler {
                     if (relative) {
                         path = this.configFile.getParentFile().getPath() + "/" + path;
                     }
-                    addConfigurations(new ExperimentConfiguration(path));
+                    addConfigurations(new ExperimentConfiguration(new File(path),
+                                                                  this.createResultStorages));
                 }
                 catch (ExperimentConfigurationException e) {
                     throw new SAXException("Could not load partial configuration: " + path, e);
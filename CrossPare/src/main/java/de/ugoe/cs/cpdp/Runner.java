@@ -17,6 +17,8 @@ package de.ugoe.cs.cpdp;
 import java.io.File;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.util.LinkedHashSet;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -33,6 +35,7 @@ import org.apache.logging.log4j.core.config.builder.api.ConfigurationBuilderFact
 import org.apache.logging.log4j.core.config.builder.api.RootLoggerComponentBuilder;
 import org.apache.logging.log4j.core.config.builder.impl.BuiltConfiguration;
 
+import de.ugoe.cs.cpdp.eval.IResultStorage;
 import de.ugoe.cs.cpdp.execution.IExecutionStrategy;
 
 /**
@@ -68,6 +71,16 @@ public class Runner {
      */
     private static final Logger LOGGER = LogManager.getLogger("main");
 
+    /**
+     * result storages of all started experiments; closed when the JVM shuts down
+     */
+    private static final Set<IResultStorage> RESULT_STORAGES = new LinkedHashSet<>();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(Runner::closeResultStorages,
+                                                        "CloseResultStorages"));
+    }
+
     /**
      * Main class. The arguments are {@link ExperimentConfiguration} files. Each experiment is
      * started in a separate thread. The number of concurrently running threads is the number of
@@ -101,6 +114,25 @@ public class Runner {
         catch (InterruptedException e) {
             e.printStackTrace();
         }
+        closeResultStorages();
+    }
+
+    /**
+     * Closes the result storages of all started experiments, i.e., writes all results that are
+     * not yet stored. Called after all experiments are finished and when the JVM shuts down.
+     */
+    public static void closeResultStorages() {
+        synchronized (RESULT_STORAGES) {
+            for (IResultStorage storage : RESULT_STORAGES) {
+                try {
+                    storage.close();
+                }
+                catch (RuntimeException e) {
+                    LOGGER.error("Failure closing result storage " + storage.getClass().getName(), e);
+                }
+            }
+            RESULT_STORAGES.clear();
+        }
     }
 
     /**
@@ -140,6 +172,9 @@ public class Runner {
                     ((IParameterizable) experiment).setParameter(config.getExecutionStrategyParameters());
                 }
                 
+                synchronized (RESULT_STORAGES) {
+                    RESULT_STORAGES.addAll(config.getResultStorages());
+                }
                 threadPool.execute(experiment);
             }
             catch (NoSuchMethodException e) {
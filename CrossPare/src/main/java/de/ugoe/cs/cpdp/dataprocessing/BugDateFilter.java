@@ -7,6 +7,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import de.ugoe.cs.cpdp.versions.SoftwareVersion;
+import de.ugoe.cs.cpdp.versions.SparseBugMatrix;
 import weka.core.Instances;
 
 /**
@@ -31,27 +32,30 @@ public class BugDateFilter implements IVersionProcessingStrategy {
 	 */
 	@Override
 	public void apply(SoftwareVersion testversion, SoftwareVersion trainversion) {
-		if (testversion.getReleaseDate() == null || trainversion.getBugMatrix()==null) {
+		if (testversion.getReleaseDate() == null || trainversion.getBugMatrixReadOnly()==null) {
 			LOGGER.warn("BugDateFilter does nothing because release date or bug matrix is not available");
 			return;
 		}
 		LocalDateTime releaseDate = testversion.getReleaseDate();
 		
-		Instances bugMatrix = trainversion.getBugMatrix();
+		SparseBugMatrix bugMatrix = trainversion.getSparseBugMatrixReadOnly();
 
 		Instances traindata = trainversion.getInstances();
 
-		int[] bugCounts = new int[traindata.size()];
-		for (int j = 0; j < bugMatrix.numAttributes(); j++) {
-			String attributeName = bugMatrix.attribute(j).name();
+		DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+		boolean[] fixedBeforeRelease = new boolean[bugMatrix.numBugs()];
+		for (int j = 0; j < bugMatrix.numBugs(); j++) {
+			String attributeName = bugMatrix.bugId(j);
 			String bugfixDate = attributeName.substring(attributeName.lastIndexOf("_") + 1);
-			DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 			LocalDateTime bugDate = LocalDateTime.parse(bugfixDate, formatter);
-			if (releaseDate.compareTo(bugDate) > 0) {
-				for (int i = 0; i < bugMatrix.size(); i++) {
-					if (bugMatrix.get(i).value(j) > 0) {
-						bugCounts[i]++;
-					}
+			fixedBeforeRelease[j] = releaseDate.compareTo(bugDate) > 0;
+		}
+		// only the non-zero values of the bug matrix are visited
+		int[] bugCounts = new int[traindata.size()];
+		for (int i = 0; i < bugMatrix.numRows(); i++) {
+			for (int k = bugMatrix.rowStart(i); k < bugMatrix.rowEnd(i); k++) {
+				if (fixedBeforeRelease[bugMatrix.columnAt(k)] && bugMatrix.valueAt(k) > 0) {
+					bugCounts[i]++;
 				}
 			}
 		}
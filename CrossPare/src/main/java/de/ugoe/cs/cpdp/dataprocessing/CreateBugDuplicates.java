@@ -79,7 +79,8 @@ public class CreateBugDuplicates implements ISetWiseProcessingStrategy, IProcess
                 Instance copy = new DenseInstance(data.get(i));
                 data.add(copy);
                 if (bugmatrix != null) {
-                    Instance bugcopy = new DenseInstance(bugmatrix.get(i));
+                    // keeps sparse rows of the bug matrix sparse
+                    Instance bugcopy = (Instance) bugmatrix.get(i).copy();
                     bugmatrix.add(bugcopy);
                 }
                 if (efforts != null) {
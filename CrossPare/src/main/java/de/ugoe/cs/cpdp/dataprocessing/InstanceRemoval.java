@@ -15,6 +15,7 @@
 package de.ugoe.cs.cpdp.dataprocessing;
 
 import java.util.Arrays;
+import java.util.BitSet;
 
 import org.apache.commons.collections4.list.SetUniqueList;
 
@@ -49,8 +50,9 @@ public class InstanceRemoval implements ISetWiseProcessingStrategy, IProcessesin
 
     @SuppressWarnings("boxing")
     private void removeInstances(SoftwareVersion version) {
-        Instances ilist = version.getInstances();
-        for (int i = ilist.size() - 1; i >= 0; i--) {
+        Instances ilist = version.getInstancesReadOnly();
+        BitSet kept = new BitSet(ilist.size());
+        for (int i = 0; i < ilist.size(); i++) {
             Boolean matchFound[] = new Boolean[this.condList.length];
             int j = 0;
             System.out.println("");
@@ -61,19 +63,11 @@ public class InstanceRemoval implements ISetWiseProcessingStrategy, IProcessesin
             }
             // remove Instance only if every condition is true (the Boolean array does not contain
             // any false)
-            if (!Arrays.asList(matchFound).contains(false)) {
-                ilist.delete(i);
-                if (version.getBugMatrix() != null) {
-                    version.getBugMatrix().delete(i);
-                }
-                if (version.getEfforts() != null) {
-                    version.getEfforts().remove(i);
-                }
-                if (version.getNumBugs() != null) {
-                    version.getNumBugs().remove(i);
-                }
+            if (Arrays.asList(matchFound).contains(false)) {
+                kept.set(i);
             }
         }
+        version.retainRows(kept);
     }
 
     @Override
@@ -16,6 +16,7 @@ package de.ugoe.cs.cpdp.dataprocessing;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 
 import de.ugoe.cs.cpdp.versions.SoftwareVersion;
@@ -93,25 +94,18 @@ public class NominalAttributeFilter implements IProcessesingStrategy {
         }
 
         // Go through all instances and check if nominal attribute equals
-        for (int j = traindata.numInstances() - 1; j >= 0; j--) {
+        BitSet kept = new BitSet(traindata.numInstances());
+        for (int j = 0; j < traindata.numInstances(); j++) {
             Instance wekaInstance = traindata.get(j);
 
             // delete all instances where nominal attribute has the value of one of the parameter
-            if (indexOfnominalAttributeValues
+            if (!indexOfnominalAttributeValues
                 .contains(wekaInstance.value(indexOfConfidenceAttribute)))
             {
-                traindata.delete(j);
-                if (trainversion.getBugMatrix() != null) {
-                    trainversion.getBugMatrix().delete(j);
-                }
-                if (trainversion.getEfforts() != null) {
-                    trainversion.getEfforts().remove(j);
-                }
-                if (trainversion.getNumBugs() != null) {
-                    trainversion.getNumBugs().remove(j);
-                }
+                kept.set(j);
             }
         }
+        trainversion.retainRows(kept);
     }
 
 }
@@ -69,7 +69,7 @@ public abstract class AbstractCharacteristicSelection implements ISetWiseDatasel
     {
         // setup weka Instances for clustering
         final ArrayList<Attribute> atts = new ArrayList<>();
-        Instances testdata = testversion.getInstances();
+        Instances testdata = testversion.getInstancesReadOnly();
 
         final Attribute classAtt = testdata.classAttribute();
         for (int i = 0; i < testdata.numAttributes(); i++) {
@@ -119,7 +119,7 @@ public abstract class AbstractCharacteristicSelection implements ISetWiseDatasel
         data.add(new DenseInstance(1.0, instanceValues));
 
         for (SoftwareVersion trainversion : trainversionSet) {
-            Instances traindata = trainversion.getInstances();
+            Instances traindata = trainversion.getInstancesReadOnly();
             instanceValues = new double[atts.size()];
             for (int i = 0; i < traindata.numAttributes(); i++) {
                 Attribute dataAtt = traindata.attribute(i);
@@ -14,9 +14,8 @@
 
 package de.ugoe.cs.cpdp.dataselection;
 
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
+import java.util.BitSet;
 
 import de.ugoe.cs.cpdp.versions.SoftwareVersion;
 import weka.core.Instances;
@@ -70,20 +69,7 @@ public class CLIFF implements IPointWiseDataselectionStrategy {
      * @return version of the CLIFF-filtered data
      */
     protected SoftwareVersion applyCLIFF(SoftwareVersion version) {
-        Instances data = version.getInstances();
-        Instances bugMatrix = null;
-        List<Double> efforts = null;
-        List<Double> numBugs = null;
-        if (version.getEfforts() != null) {
-            efforts = new ArrayList<>();
-        }
-        if (version.getNumBugs() != null) {
-            numBugs = new ArrayList<>();
-        }
-        if (version.getBugMatrix() != null) {
-            bugMatrix = new Instances(version.getBugMatrix());
-            bugMatrix.clear();
-        }
+        Instances data = version.getInstancesReadOnly();
         final double[][] powerAttributes = new double[data.size()][data.numAttributes()];
         final double[] powerEntity = new double[data.size()];
 
@@ -127,24 +113,13 @@ public class CLIFF implements IPointWiseDataselectionStrategy {
         Arrays.sort(sortedPower);
         double cutOff = sortedPower[(int) (data.numInstances() * (1 - this.percentage))];
 
-        Instances selected = new Instances(data);
-        selected.delete();
+        final BitSet selected = new BitSet(data.numInstances());
         for (int i = 0; i < data.numInstances(); i++) {
             if (powerEntity[i] >= cutOff) {
-                selected.add(data.instance(i));
-                if (bugMatrix != null) {
-                    bugMatrix.add(version.getBugMatrix().instance(i));
-                }
-                if (efforts != null) {
-                    efforts.add(version.getEfforts().get(i));
-                }
-                if (numBugs != null) {
-                    numBugs.add(version.getNumBugs().get(i));
-                }
+                selected.set(i);
             }
         }
-        return new SoftwareVersion(version.getDataset(), version.getProject(), version.getVersion(), selected,
-                bugMatrix, efforts, numBugs, version.getReleaseDate(), null);
+        return version.selectRows(selected);
     }
 
     /**
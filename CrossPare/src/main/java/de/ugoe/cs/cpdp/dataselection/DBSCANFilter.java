@@ -56,45 +56,16 @@ public class DBSCANFilter implements IPointWiseDataselectionStrategy {
      */
     @Override
     public SoftwareVersion apply(SoftwareVersion testversion, SoftwareVersion trainversion) {
-        Instances traindata = trainversion.getInstances();
-        Instances testdata = testversion.getInstances();
-        Instances filteredTraindata = new Instances(traindata);
-        Instances bugMatrix = null;
-        List<Double> efforts = null;
-        List<Double> numBugs = null;
-        if (trainversion.getEfforts() != null) {
-            efforts = new ArrayList<>();
-        }
-        if (trainversion.getNumBugs() != null) {
-            numBugs = new ArrayList<>();
-        }
-        filteredTraindata.clear();
-        if (trainversion.getBugMatrix() != null) {
-            bugMatrix = new Instances(trainversion.getBugMatrix());
-            bugMatrix.clear();
-        }
+        Instances traindata = trainversion.getInstancesReadOnly();
+        Instances testdata = testversion.getInstancesReadOnly();
+        final List<Integer> selectedIndex = new ArrayList<>();
 
-        double[][] data =
-            new double[testdata.size() + traindata.size()][testdata.numAttributes() - 1];
+        double[][] data = new double[testdata.size() + traindata.size()][];
         int classIndex = testdata.classIndex();
-        for (int i = 0; i < testdata.size(); i++) {
-            int k = 0;
-            for (int j = 0; j < testdata.numAttributes(); j++) {
-                if (j != classIndex) {
-                    data[i][k] = testdata.get(i).value(j);
-                    k++;
-                }
-            }
-        }
-        for (int i = 0; i < traindata.size(); i++) {
-            int k = 0;
-            for (int j = 0; j < traindata.numAttributes(); j++) {
-                if (j != classIndex) {
-                    data[i + testdata.size()][k] = traindata.get(i).value(j);
-                    k++;
-                }
-            }
-        }
+        System.arraycopy(testversion.getColumnarInstancesReadOnly().toRows(classIndex), 0, data, 0,
+                         testdata.size());
+        System.arraycopy(trainversion.getColumnarInstancesReadOnly().toRows(classIndex), 0, data,
+                         testdata.size(), traindata.size());
         DatabaseConnection dbc = new ArrayAdapterDatabaseConnection(data);
         Database db = new StaticArrayDatabase(dbc, null);
         db.initialize();
@@ -121,24 +92,14 @@ public class DBSCANFilter implements IPointWiseDataselectionStrategy {
                         clusterIter.internalGetIndex() - testdata.size() - firstInternalIndex;
                     if (internalIndex >= 0) {
                         // index belongs to a training instance
-                        filteredTraindata.add(traindata.get(internalIndex));
-                        if (bugMatrix != null) {
-                            bugMatrix.add(trainversion.getBugMatrix().instance(internalIndex));
-                        }
-                        if (efforts != null) {
-                            efforts.add(trainversion.getEfforts().get(internalIndex));
-                        }
-                        if (numBugs != null) {
-                            numBugs.add(trainversion.getNumBugs().get(internalIndex));
-                        }
+                        selectedIndex.add(internalIndex);
                     }
                 }
 
             }
         }
 
-        return new SoftwareVersion(trainversion.getDataset(), trainversion.getProject(), trainversion.getVersion(),
-                filteredTraindata, bugMatrix, efforts, numBugs, trainversion.getReleaseDate(), null);
+        return trainversion.selectRows(selectedIndex.stream().mapToInt(Integer::intValue).toArray());
     }
 
 }
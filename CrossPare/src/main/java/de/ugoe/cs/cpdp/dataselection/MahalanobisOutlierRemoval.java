@@ -14,6 +14,8 @@
 
 package de.ugoe.cs.cpdp.dataselection;
 
+import java.util.BitSet;
+
 import org.apache.commons.math3.linear.BlockRealMatrix;
 import org.apache.commons.math3.linear.LUDecomposition;
 import org.apache.commons.math3.linear.RealMatrix;
@@ -82,7 +84,7 @@ public class MahalanobisOutlierRemoval
      *            software version of the data where the outliers are removed
      */
     private void applyMahalanobisDistancesRemoval(SoftwareVersion version) {
-        Instances data = version.getInstances();
+        Instances data = version.getInstancesReadOnly();
         RealMatrix values = new BlockRealMatrix(data.size(), data.numAttributes() - 1);
         for (int i = 0; i < data.size(); i++) {
             values.setRow(i, WekaUtils.instanceValues(data.get(i)));
@@ -106,23 +108,17 @@ public class MahalanobisOutlierRemoval
             }
         }
 
-        for (int i = data.size() - 1; i >= 0; i--) {
+        BitSet inliers = new BitSet(data.size());
+        for (int i = 0; i < data.size(); i++) {
             double distance =
                 mahalanobisDistance(inverseCovariance, WekaUtils.instanceValues(data.get(i)),
                                     meanValues);
-            if (distance > this.epsilon) {
-                data.remove(i);
-                if (version.getBugMatrix() != null) {
-                    version.getBugMatrix().remove(i);
-                }
-                if (version.getEfforts() != null) {
-                    version.getEfforts().remove(i);
-                }
-                if (version.getNumBugs() != null) {
-                    version.getInstances().remove(i);
-                }
+            // negated comparison keeps instances with undefined (NaN) distances
+            if (!(distance > this.epsilon)) {
+                inliers.set(i);
             }
         }
+        version.retainRows(inliers);
     }
 
     /**
@@ -14,11 +14,10 @@
 
 package de.ugoe.cs.cpdp.dataselection;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.TreeSet;
+import java.util.stream.IntStream;
 
-import de.ugoe.cs.cpdp.util.WekaUtils;
+import de.ugoe.cs.cpdp.util.HammingEncoding;
 import de.ugoe.cs.cpdp.versions.SoftwareVersion;
 import weka.core.Instances;
 
@@ -26,6 +25,10 @@ import weka.core.Instances;
  * <p>
  * Relevancy filter after Ryu et al., 2015b.
  * </p>
+ * <p>
+ * The Hamming distances are computed with a {@link HammingEncoding} of the training data. The
+ * closest training instances of the test instances are determined in parallel.
+ * </p>
  * 
  * @author Steffen Herbold
  */
@@ -65,53 +68,18 @@ public class NeighborhoodFilter implements IPointWiseDataselectionStrategy {
      */
     @SuppressWarnings("boxing")
     private static SoftwareVersion applyNeighborhoodFilter(SoftwareVersion testversion, SoftwareVersion trainversion) {
-        Instances testdata = testversion.getInstances();
-        Instances traindata = trainversion.getInstances();
-        Instances bugMatrix = null;
-        List<Double> efforts = null;
-        List<Double> numBugs = null;
-        if (trainversion.getEfforts() != null) {
-            efforts = new ArrayList<>();
-        }
-        if (trainversion.getNumBugs() != null) {
-            numBugs = new ArrayList<>();
-        }
-        if (trainversion.getBugMatrix() != null) {
-            bugMatrix = new Instances(trainversion.getBugMatrix());
-            bugMatrix.clear();
-        }
+        Instances testdata = testversion.getInstancesReadOnly();
+        Instances traindata = trainversion.getInstancesReadOnly();
+        final HammingEncoding encodedTraindata = new HammingEncoding(traindata);
+        final int[][] closestInstances = new int[testdata.size()][];
+        IntStream.range(0, testdata.size()).parallel().forEach(i -> closestInstances[i] =
+            encodedTraindata.closest(encodedTraindata.encode(testdata.get(i))));
         TreeSet<Integer> selectedInstances = new TreeSet<>();
-        for (int i = 0; i < testdata.size(); i++) {
-            double minHam = Double.MAX_VALUE;
-            for (int j = 0; j < traindata.size(); j++) {
-                double distance = WekaUtils.hammingDistance(testdata.get(i), traindata.get(j));
-                if (distance < minHam) {
-                    minHam = distance;
-                }
-            }
-            for (int j = 0; j < traindata.size(); j++) {
-                double distance = WekaUtils.hammingDistance(testdata.get(i), traindata.get(j));
-                if (distance <= minHam) {
-                    selectedInstances.add(j);
-                }
+        for (int[] closest : closestInstances) {
+            for (int j : closest) {
+                selectedInstances.add(j);
             }
         }
-        Instances selectedTraindata = new Instances(testdata);
-        selectedTraindata.clear();
-        for (Integer index : selectedInstances) {
-            selectedTraindata.add(traindata.instance(index));
-            if (bugMatrix != null) {
-                bugMatrix.add(trainversion.getBugMatrix().instance(index));
-            }
-            if (efforts != null) {
-                efforts.add(trainversion.getEfforts().get(index));
-            }
-            if (numBugs != null) {
-                numBugs.add(trainversion.getNumBugs().get(index));
-            }
-
-        }
-        return new SoftwareVersion(trainversion.getDataset(), trainversion.getProject(), trainversion.getVersion(),
-                selectedTraindata, bugMatrix, efforts, numBugs, trainversion.getReleaseDate(), null);
+        return trainversion.selectRows(selectedInstances.stream().mapToInt(Integer::intValue).toArray());
     }
 }
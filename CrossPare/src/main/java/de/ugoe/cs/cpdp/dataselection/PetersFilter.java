@@ -17,13 +17,13 @@ package de.ugoe.cs.cpdp.dataselection;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.stream.IntStream;
 
 import org.apache.commons.collections4.list.SetUniqueList;
 import org.apache.commons.math3.util.MathArrays;
 
+import de.ugoe.cs.cpdp.util.KDTree;
 import de.ugoe.cs.cpdp.versions.SoftwareVersion;
-import weka.core.Attribute;
-import weka.core.Instance;
 import weka.core.Instances;
 
 /**
@@ -31,6 +31,10 @@ import weka.core.Instances;
  * <br>
  * <br>
  * This filter does not work, the paper has been withdrawn.
+ * <br>
+ * <br>
+ * The closest test instances of the training instances are determined in parallel with a
+ * {@link KDTree} over the test data.
  * 
  * @author Steffen Herbold
  */
@@ -52,63 +56,24 @@ public class PetersFilter implements IPointWiseDataselectionStrategy {
     @SuppressWarnings("boxing")
     @Override
     public SoftwareVersion apply(SoftwareVersion testversion, SoftwareVersion trainversion) {
-        Instances traindata = trainversion.getInstances();
-        Instances testdata = testversion.getInstances();
-        Instances bugMatrix = null;
-        List<Double> efforts = null;
-        List<Double> numBugs = null;
-        if (trainversion.getEfforts() != null) {
-            efforts = new ArrayList<>();
-        }
-        if (trainversion.getNumBugs() != null) {
-            numBugs = new ArrayList<>();
-        }
-        if (trainversion.getBugMatrix() != null) {
-            bugMatrix = new Instances(trainversion.getBugMatrix());
-            bugMatrix.delete();
-        }
-        final Attribute classAttribute = testdata.classAttribute();
-
-        final double[][] testDoubles =
-            new double[testdata.numInstances()][testdata.numAttributes()];
-        for (int i = 0; i < testdata.numInstances(); i++) {
-            Instance instance = testdata.instance(i);
-            int tmp = 0;
-            for (int j = 0; j < testdata.numAttributes(); j++) {
-                if (testdata.attribute(j) != classAttribute) {
-                    testDoubles[i][tmp++] = instance.value(j);
-                }
-            }
-        }
-
+        Instances traindata = trainversion.getInstancesReadOnly();
+        Instances testdata = testversion.getInstancesReadOnly();
+        final int classIndex = testdata.classIndex();
+        final double[][] testDoubles = testversion.getColumnarInstancesReadOnly().toRows(classIndex);
         final double[][] trainDoubles =
-            new double[traindata.numInstances()][testdata.numAttributes()];
-        for (int i = 0; i < traindata.numInstances(); i++) {
-            Instance instance = traindata.instance(i);
-            int tmp = 0;
-            for (int j = 0; j < testdata.numAttributes(); j++) {
-                if (testdata.attribute(j) != classAttribute) {
-                    trainDoubles[i][tmp++] = instance.value(j);
-                }
-            }
-        }
+            trainversion.getColumnarInstancesReadOnly().toRows(classIndex);
 
         final List<List<Integer>> fanList = new ArrayList<>(testdata.numInstances());
         for (int i = 0; i < testdata.numInstances(); i++) {
             fanList.add(new LinkedList<Integer>());
         }
 
+        final KDTree testIndex = new KDTree(testDoubles);
+        final int[] minIndexes = new int[traindata.numInstances()];
+        IntStream.range(0, traindata.numInstances()).parallel()
+            .forEach(i -> minIndexes[i] = Math.max(0, testIndex.nearest(trainDoubles[i])));
         for (int i = 0; i < traindata.numInstances(); i++) {
-            double minDistance = Double.MAX_VALUE;
-            int minIndex = 0;
-            for (int j = 0; j < testdata.numInstances(); j++) {
-                double distance = MathArrays.distance(trainDoubles[i], testDoubles[j]);
-                if (distance < minDistance) {
-                    minDistance = distance;
-                    minIndex = j;
-                }
-            }
-            fanList.get(minIndex).add(i);
+            fanList.get(minIndexes[i]).add(i);
         }
 
         final SetUniqueList<Integer> selectedIndex =
@@ -128,22 +93,7 @@ public class PetersFilter implements IPointWiseDataselectionStrategy {
             }
         }
 
-        final Instances selected = new Instances(testdata);
-        selected.delete();
-        for (Integer i : selectedIndex) {
-            selected.add(traindata.instance(i));
-            if (bugMatrix != null) {
-                bugMatrix.add(trainversion.getBugMatrix().instance(i));
-            }
-            if (efforts != null) {
-                efforts.add(trainversion.getEfforts().get(i));
-            }
-            if (numBugs != null) {
-                numBugs.add(trainversion.getNumBugs().get(i));
-            }
-        }
-        return new SoftwareVersion(trainversion.getDataset(), trainversion.getProject(), trainversion.getVersion(),
-                selected, bugMatrix, efforts, numBugs, trainversion.getReleaseDate(), null);
+        return trainversion.selectRows(selectedIndex.stream().mapToInt(Integer::intValue).toArray());
     }
 
 }
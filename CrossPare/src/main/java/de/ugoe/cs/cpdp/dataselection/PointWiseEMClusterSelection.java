@@ -72,21 +72,8 @@ public class PointWiseEMClusterSelection implements IPointWiseDataselectionStrat
     @SuppressWarnings("boxing")
     @Override
     public SoftwareVersion apply(SoftwareVersion testversion, SoftwareVersion trainversion) {
-        Instances traindata = trainversion.getInstances();
-        Instances testdata = testversion.getInstances();
-        Instances bugMatrix = null;
-        List<Double> efforts = null;
-        List<Double> numBugs = null;
-        if (trainversion.getEfforts() != null) {
-            efforts = new ArrayList<>();
-        }
-        if (trainversion.getNumBugs() != null) {
-            numBugs = new ArrayList<>();
-        }
-        if (trainversion.getBugMatrix() != null) {
-            bugMatrix = new Instances(trainversion.getBugMatrix());
-            bugMatrix.delete();
-        }
+        Instances traindata = trainversion.getInstancesReadOnly();
+        Instances testdata = testversion.getInstancesReadOnly();
         // final Attribute classAttribute = testdata.classAttribute();
 
         final List<Integer> selectedCluster =
@@ -96,7 +83,7 @@ public class PointWiseEMClusterSelection implements IPointWiseDataselectionStrat
         Instances train = new Instances(traindata);
         Instances test = new Instances(testdata);
 
-        Instances selected = null;
+        final List<Integer> selectedIndex = new ArrayList<>();
 
         try {
             // remove class attribute from traindata
@@ -150,8 +137,6 @@ public class PointWiseEMClusterSelection implements IPointWiseDataselectionStrat
             // int add the traindata
             // of this cluster to our returned traindata
             int cnumber;
-            selected = new Instances(traindata);
-            selected.delete();
 
             for (int j = 0; j < ctrain.numInstances(); j++) {
                 // get the cluster number from the attributes
@@ -162,16 +147,7 @@ public class PointWiseEMClusterSelection implements IPointWiseDataselectionStrat
                 // String.format("instance "+j+" is in cluster: "+cnumber));
                 if (selectedCluster.contains(cnumber)) {
                     // this only works if the index does not change
-                    selected.add(traindata.get(j));
-                    if (bugMatrix != null) {
-                        bugMatrix.add(trainversion.getBugMatrix().instance(j));
-                    }
-                    if (efforts != null) {
-                        efforts.add(trainversion.getEfforts().get(j));
-                    }
-                    if (numBugs != null) {
-                        numBugs.add(trainversion.getNumBugs().get(j));
-                    }
+                    selectedIndex.add(j);
                     // check for differences, just one attribute, we are pretty sure the index does
                     // not change
                     if (traindata.get(j).value(3) != ctrain.get(j).value(3)) {
@@ -182,14 +158,13 @@ public class PointWiseEMClusterSelection implements IPointWiseDataselectionStrat
             }
 
             LOGGER.debug(String.format("that leaves us with: " +
-                selected.numInstances() + " traindata instances from " + traindata.numInstances()));
+                selectedIndex.size() + " traindata instances from " + traindata.numInstances()));
         }
         catch (Exception e) {
             throw new RuntimeException("error in pointwise em", e);
         }
 
-        return new SoftwareVersion(trainversion.getDataset(), trainversion.getProject(), trainversion.getVersion(),
-                selected, bugMatrix, efforts, numBugs, trainversion.getReleaseDate(), null);
+        return trainversion.selectRows(selectedIndex.stream().mapToInt(Integer::intValue).toArray());
     }
 
 }
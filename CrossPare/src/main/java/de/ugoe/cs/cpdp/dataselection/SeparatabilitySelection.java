@@ -74,10 +74,10 @@ public class SeparatabilitySelection implements ISetWiseDataselectionStrategy {
         // calculate distances between testdata and traindata
         final double[] distances = new double[trainversionSet.size()];
 
-        Instances testdata = testversion.getInstances();
+        Instances testdata = testversion.getInstancesReadOnly();
         int i = 0;
         for (SoftwareVersion trainversion : trainversionSet) {
-            Instances traindata = trainversion.getInstances();
+            Instances traindata = trainversion.getInstancesReadOnly();
             double distance = 0.0;
             for (int rep = 0; rep < this.maxRep; rep++) {
                 // sample instances
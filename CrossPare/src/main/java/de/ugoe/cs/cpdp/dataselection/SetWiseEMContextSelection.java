@@ -153,7 +153,7 @@ public class SetWiseEMContextSelection implements ISetWiseDataselectionStrategy
     protected Instances getContextFactors(SoftwareVersion testversion,
                                           SetUniqueList<SoftwareVersion> trainversionSet)
     {   
-        Instances testdata = testversion.getInstances();
+        Instances testdata = testversion.getInstancesReadOnly();
 
         // setup weka Instances for clustering
         final ArrayList<Attribute> atts = new ArrayList<>();
@@ -179,7 +179,7 @@ public class SetWiseEMContextSelection implements ISetWiseDataselectionStrategy
 
         // now for the projects of the training stet
         for (SoftwareVersion trainversion : trainversionSet) {
-            Instances traindata = trainversion.getInstances();
+            Instances traindata = trainversion.getInstancesReadOnly();
             instanceValues = new double[atts.size()]; // ohne das hier immer dieselben werte?!
             i = 0;
             for (String pcf : this.project_context_factors) {
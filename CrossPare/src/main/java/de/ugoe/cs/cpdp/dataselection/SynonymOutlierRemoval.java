@@ -14,6 +14,8 @@
 
 package de.ugoe.cs.cpdp.dataselection;
 
+import java.util.BitSet;
+
 import de.ugoe.cs.cpdp.versions.SoftwareVersion;
 import weka.core.Instances;
 
@@ -57,7 +59,7 @@ public class SynonymOutlierRemoval implements IPointWiseDataselectionStrategy {
      *            version of the data from which the outliers are removed.
      */
     public static void applySynonymRemoval(SoftwareVersion trainversion) {
-        Instances traindata = trainversion.getInstances();
+        Instances traindata = trainversion.getInstancesReadOnly();
         double minDistance[][] = new double[traindata.size()][traindata.numAttributes() - 1];
         double minDistanceAttribute[] = new double[traindata.numAttributes() - 1];
         double distance;
@@ -85,23 +87,16 @@ public class SynonymOutlierRemoval implements IPointWiseDataselectionStrategy {
                 }
             }
         }
-        for (int i = traindata.size() - 1; i >= 0; i--) {
+        BitSet synonyms = new BitSet(traindata.size());
+        for (int i = 0; i < traindata.size(); i++) {
             boolean hasClosest = false;
             for (int j = 0; !hasClosest && j < traindata.numAttributes(); j++) {
                 hasClosest = minDistance[i][j] <= minDistanceAttribute[j];
             }
-            if (!hasClosest) {
-                traindata.remove(i);
-                if (trainversion.getBugMatrix() != null) {
-                    trainversion.getBugMatrix().remove(i);
-                }
-                if (trainversion.getEfforts() != null) {
-                    trainversion.getEfforts().remove(i);
-                }
-                if (trainversion.getNumBugs() != null) {
-                    trainversion.getNumBugs().remove(i);
-                }
+            if (hasClosest) {
+                synonyms.set(i);
             }
         }
+        trainversion.retainRows(synonyms);
     }
 }
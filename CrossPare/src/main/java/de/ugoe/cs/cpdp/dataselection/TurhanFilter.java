@@ -14,27 +14,38 @@
 
 package de.ugoe.cs.cpdp.dataselection;
 
-import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.stream.IntStream;
 
 import org.apache.commons.collections4.list.SetUniqueList;
 import org.apache.commons.math3.util.MathArrays;
 
 import de.ugoe.cs.cpdp.util.ArrayUtils;
+import de.ugoe.cs.cpdp.util.KDTree;
 import de.ugoe.cs.cpdp.versions.SoftwareVersion;
-import weka.core.Attribute;
-import weka.core.Instance;
 import weka.core.Instances;
 
 /**
  * Filter according to B. Turhan, T. Menzies, A. Bener, and J. Die Stefano: On the relative value of
  * cross-company and within company defect prediction
+ * <p>
+ * The neighbors are determined with {@link KDTree}s over blocks of the training data. The training
+ * data is visited in the same order as by a linear scan and only the instances that are closer
+ * than the current k-th neighbor are considered. Hence, the selected instances, including the
+ * handling of ties, are the same as with a linear scan. The neighbors of the test instances are
+ * determined in parallel.
+ * </p>
  * 
  * @author Steffen Herbold
  */
 public class TurhanFilter implements IPointWiseDataselectionStrategy {
 
+    /**
+     * number of training instances in each block of the index
+     */
+    private static final int BLOCK_SIZE = 1024;
+
     /**
      * number of neighbors that are selected
      */
@@ -58,57 +69,59 @@ public class TurhanFilter implements IPointWiseDataselectionStrategy {
     @SuppressWarnings("boxing")
     @Override
     public SoftwareVersion apply(SoftwareVersion testversion, SoftwareVersion trainversion) {
-        Instances traindata = trainversion.getInstances();
-        Instances testdata = testversion.getInstances();
-        Instances bugMatrix = null;
-        List<Double> efforts = null;
-        List<Double> numBugs = null;
-        if (trainversion.getEfforts() != null) {
-            efforts = new ArrayList<>();
-        }
-        if (trainversion.getNumBugs() != null) {
-            numBugs = new ArrayList<>();
-        }
-        if (trainversion.getBugMatrix() != null) {
-            bugMatrix = new Instances(trainversion.getBugMatrix());
-            bugMatrix.clear();
-        }
-        final Attribute classAttribute = testdata.classAttribute();
-
+        Instances traindata = trainversion.getInstancesReadOnly();
+        Instances testdata = testversion.getInstancesReadOnly();
         final List<Integer> selectedIndex = SetUniqueList.setUniqueList(new LinkedList<Integer>());
 
+        final int classIndex = testdata.classIndex();
         final double[][] trainDoubles =
-            new double[traindata.numInstances()][testdata.numAttributes()];
-
-        for (int i = 0; i < traindata.numInstances(); i++) {
-            Instance instance = traindata.instance(i);
-            int tmp = 0;
-            for (int j = 0; j < testdata.numAttributes(); j++) {
-                if (testdata.attribute(j) != classAttribute) {
-                    trainDoubles[i][tmp++] = instance.value(j);
-                }
-            }
+            trainversion.getColumnarInstancesReadOnly().toRows(classIndex);
+        final double[][] testDoubles = testversion.getColumnarInstancesReadOnly().toRows(classIndex);
+
+        final KDTree[] blocks = new KDTree[(traindata.numInstances() + BLOCK_SIZE - 1) / BLOCK_SIZE];
+        for (int b = 0; b < blocks.length; b++) {
+            blocks[b] = new KDTree(trainDoubles, b * BLOCK_SIZE,
+                                   Math.min(traindata.numInstances(), (b + 1) * BLOCK_SIZE));
         }
 
-        for (int i = 0; i < testdata.numInstances(); i++) {
-            Instance testIntance = testdata.instance(i);
-            double[] targetVector = new double[testdata.numAttributes() - 1];
-            int tmp = 0;
-            for (int j = 0; j < testdata.numAttributes(); j++) {
-                if (testdata.attribute(j) != classAttribute) {
-                    targetVector[tmp++] = testIntance.value(j);
-                }
+        final int[][] closestIndexes = new int[testdata.numInstances()][];
+        IntStream.range(0, testdata.numInstances()).parallel()
+            .forEach(i -> closestIndexes[i] = closest(testDoubles[i], trainDoubles, blocks));
+        for (int[] closestIndex : closestIndexes) {
+            for (int index : closestIndex) {
+                selectedIndex.add(index);
             }
+        }
 
-            double farthestClosestDistance = Double.MAX_VALUE;
-            int farthestClosestIndex = 0;
-            double[] closestDistances = new double[this.k];
-            for (int m = 0; m < closestDistances.length; m++) {
-                closestDistances[m] = Double.MAX_VALUE;
-            }
-            int[] closestIndex = new int[this.k];
+        return trainversion.selectRows(selectedIndex.stream().mapToInt(Integer::intValue).toArray());
+    }
 
-            for (int n = 0; n < traindata.numInstances(); n++) {
+    /**
+     * <p>
+     * Determines the k closest training instances of a test instance. The training instances are
+     * visited block by block in the order of the data. In each block, only the instances that are
+     * closer than the current farthest neighbor are visited.
+     * </p>
+     *
+     * @param targetVector
+     *            the test instance
+     * @param trainDoubles
+     *            the training data
+     * @param blocks
+     *            index of the training data
+     * @return indices of the closest training instances
+     */
+    private int[] closest(double[] targetVector, double[][] trainDoubles, KDTree[] blocks) {
+        double farthestClosestDistance = Double.MAX_VALUE;
+        int farthestClosestIndex = 0;
+        double[] closestDistances = new double[this.k];
+        for (int m = 0; m < closestDistances.length; m++) {
+            closestDistances[m] = Double.MAX_VALUE;
+        }
+        int[] closestIndex = new int[this.k];
+
+        for (KDTree block : blocks) {
+            for (int n : block.withinDistance(targetVector, farthestClosestDistance)) {
                 double distance = MathArrays.distance(targetVector, trainDoubles[n]);
 
                 if (distance < farthestClosestDistance) {
@@ -119,27 +132,8 @@ public class TurhanFilter implements IPointWiseDataselectionStrategy {
                     farthestClosestDistance = closestDistances[farthestClosestIndex];
                 }
             }
-            for (int index : closestIndex) {
-                selectedIndex.add(index);
-            }
-        }
-
-        final Instances selected = new Instances(testdata);
-        selected.delete();
-        for (Integer i : selectedIndex) {
-            selected.add(traindata.instance(i));
-            if (bugMatrix != null) {
-                bugMatrix.add(trainversion.getBugMatrix().instance(i));
-            }
-            if (efforts != null) {
-                efforts.add(trainversion.getEfforts().get(i));
-            }
-            if (numBugs != null) {
-                numBugs.add(trainversion.getNumBugs().get(i));
-            }
         }
-        return new SoftwareVersion(trainversion.getDataset(), trainversion.getProject(), trainversion.getVersion(),
-                selected, bugMatrix, efforts, numBugs, trainversion.getReleaseDate(), null);
+        return closestIndex;
     }
 
 }
@@ -17,6 +17,7 @@ package de.ugoe.cs.cpdp.eval;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.PrintWriter;
+import java.io.Writer;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -25,6 +26,8 @@ import de.ugoe.cs.cpdp.training.ITrainer;
 import de.ugoe.cs.cpdp.training.IWekaCompatibleTrainer;
 import weka.classifiers.Classifier;
 import weka.classifiers.Evaluation;
+import weka.core.BatchPredictor;
+import weka.core.Instance;
 import weka.core.Instances;
 
 /**
@@ -68,9 +71,11 @@ public abstract class AbstractWekaEvaluation implements IEvaluationStrategy {
     private PrintWriter output = new PrintWriter(System.out);
 
     /**
-     * flag that defines if the output is the system out
+     * flag that defines if the output is owned by the evaluation, i.e., if it is closed when the
+     * output is replaced; false for the system out and writers passed to
+     * {@link #setOutput(Writer, String)}
      */
-    private boolean outputIsSystemOut = true;
+    private boolean ownsOutput = false;
 
     /**
      * name of the configuration
@@ -89,6 +94,28 @@ public abstract class AbstractWekaEvaluation implements IEvaluationStrategy {
      */
     protected abstract Evaluation createEvaluator(Instances testdata, Classifier classifier);
 
+    /**
+     * Creates the Weka evaluator based on the predictions of the classifier for the test data.
+     * The default implementation ignores the predictions and calls
+     * {@link #createEvaluator(Instances, Classifier)}. Evaluators that evaluate the classifier on
+     * the test data should override this method to avoid predicting the test data again.
+     * 
+     * @param testdata
+     *            test data
+     * @param classifier
+     *            classifier used
+     * @param distributions
+     *            predicted class distributions of the classifier for the test data, as computed by
+     *            {@link #distributionsForInstances(Classifier, Instances)}
+     * @return evaluator
+     */
+    protected Evaluation createEvaluator(Instances testdata,
+                                         Classifier classifier,
+                                         double[][] distributions)
+    {
+        return createEvaluator(testdata, classifier);
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -232,14 +259,17 @@ public abstract class AbstractWekaEvaluation implements IEvaluationStrategy {
         Iterator<ExperimentResult> resultIter = experimentResults.iterator();
         while (classifierIter.hasNext()) {
             Classifier classifier = classifierIter.next();
-            eval = createEvaluator(testdata, classifier);
-            effortEval = new EffortMetricCalculator(testdata, classifier, efforts, numBugs);
-            costBoundaryEval = new CostBoundaryCalculator(testdata, classifier, efforts, bugMatrix, eval, 0.0);
-            costBoundaryEvalImp10 = new CostBoundaryCalculator(testdata, classifier, efforts, bugMatrix, eval, 0.1);
-            costBoundaryEvalImp20 = new CostBoundaryCalculator(testdata, classifier, efforts, bugMatrix, eval, 0.2);
-            costBoundaryEvalImp30 = new CostBoundaryCalculator(testdata, classifier, efforts, bugMatrix, eval, 0.3);
-            costBoundaryEvalImp40 = new CostBoundaryCalculator(testdata, classifier, efforts, bugMatrix, eval, 0.4);
-            costBoundaryEvalImp50 = new CostBoundaryCalculator(testdata, classifier, efforts, bugMatrix, eval, 0.5);
+            // the test data is only predicted once, all metrics are based on the same predictions
+            double[][] distributions = distributionsForInstances(classifier, testdata);
+            eval = createEvaluator(testdata, classifier, distributions);
+            effortEval = new EffortMetricCalculator(testdata, distributions, efforts, numBugs);
+            // the bug matrix is only scanned once, the other levels are derived from its counts
+            costBoundaryEval = new CostBoundaryCalculator(testdata, distributions, efforts, bugMatrix, eval, 0.0);
+            costBoundaryEvalImp10 = costBoundaryEval.withProbQAFailure(0.1);
+            costBoundaryEvalImp20 = costBoundaryEval.withProbQAFailure(0.2);
+            costBoundaryEvalImp30 = costBoundaryEval.withProbQAFailure(0.3);
+            costBoundaryEvalImp40 = costBoundaryEval.withProbQAFailure(0.4);
+            costBoundaryEvalImp50 = costBoundaryEval.withProbQAFailure(0.5);
                         
             double pf =
                 eval.numFalsePositives(1) / (eval.numFalsePositives(1) + eval.numTrueNegatives(1));
@@ -471,17 +501,17 @@ public abstract class AbstractWekaEvaluation implements IEvaluationStrategy {
      */
     @Override
     public void setParameter(String parameters) {
-        if (this.output != null && !this.outputIsSystemOut) {
+        if (this.output != null && this.ownsOutput) {
             this.output.close();
         }
         if ("system.out".equals(parameters) || "".equals(parameters)) {
             this.output = new PrintWriter(System.out);
-            this.outputIsSystemOut = true;
+            this.ownsOutput = false;
         }
         else {
             try {
                 this.output = new PrintWriter(new FileOutputStream(parameters));
-                this.outputIsSystemOut = false;
+                this.ownsOutput = true;
                 int filenameStart = parameters.lastIndexOf('/') + 1;
                 int filenameEnd = parameters.lastIndexOf('.');
                 this.configurationName = parameters.substring(filenameStart, filenameEnd);
@@ -492,6 +522,22 @@ public abstract class AbstractWekaEvaluation implements IEvaluationStrategy {
         }
     }
     
+    /*
+     * (non-Javadoc)
+     * 
+     * @see de.ugoe.cs.cpdp.eval.IEvaluationStrategy#setOutput(java.io.Writer, java.lang.String)
+     */
+    @SuppressWarnings("hiding")
+    @Override
+    public void setOutput(Writer output, String configurationName) {
+        if (this.output != null && this.ownsOutput) {
+            this.output.close();
+        }
+        this.output = new PrintWriter(output);
+        this.ownsOutput = false;
+        this.configurationName = configurationName;
+    }
+
     /**
      * <p>
      * Calculates the normalized expected cost of misclassification through a ratio
@@ -507,4 +553,44 @@ public abstract class AbstractWekaEvaluation implements IEvaluationStrategy {
         return (eval.numFalsePositives(1)+factor*eval.numFalseNegatives(1))/
                 (eval.numInstances());
     }
+
+    /**
+     * <p>
+     * Predicts the class distributions of the test data. The predictions are made in the same way
+     * as by {@link Evaluation#evaluateModel(Classifier, Instances, Object...)}, i.e., the class
+     * values are hidden from the classifier and batch prediction is used if the classifier
+     * implements it more efficiently.
+     * </p>
+     *
+     * @param classifier
+     *            the classifier
+     * @param testdata
+     *            the test data
+     * @return class distribution for each instance of the test data
+     */
+    public static double[][] distributionsForInstances(Classifier classifier, Instances testdata) {
+        try {
+            if (classifier instanceof BatchPredictor &&
+                ((BatchPredictor) classifier).implementsMoreEfficientBatchPrediction())
+            {
+                Instances classMissing = new Instances(testdata);
+                for (Instance instance : classMissing) {
+                    instance.setClassMissing();
+                }
+                return ((BatchPredictor) classifier).distributionsForInstances(classMissing);
+            }
+            double[][] distributions = new double[testdata.numInstances()][];
+            for (int i = 0; i < testdata.numInstances(); i++) {
+                Instance classMissing = (Instance) testdata.instance(i).copy();
+                classMissing.setDataset(testdata);
+                classMissing.setClassMissing();
+                distributions[i] = classifier.distributionForInstance(classMissing);
+            }
+            return distributions;
+        }
+        catch (Exception e) {
+            throw new RuntimeException("unexpected error during the prediction of the test data",
+                                       e);
+        }
+    }
 }
@@ -14,42 +14,253 @@
 
 package de.ugoe.cs.cpdp.eval;
 
-import java.io.PrintStream;
+import java.util.IdentityHashMap;
+import java.util.Map;
 import java.util.Random;
+import java.util.stream.IntStream;
 
-import org.apache.commons.io.output.NullOutputStream;
-
+import de.ugoe.cs.cpdp.util.SilenceableErrorStream;
+import weka.classifiers.AbstractClassifier;
 import weka.classifiers.Classifier;
 import weka.classifiers.Evaluation;
+import weka.classifiers.misc.InputMappedClassifier;
 import weka.core.Instances;
 
 /**
+ * <p>
  * Implements the {@link AbstractWekaEvaluation} for 10-fold cross validation.
+ * </p>
+ * <p>
+ * The folds are the same as the folds of
+ * {@link Evaluation#crossValidateModel(Classifier, Instances, int, Random, Object...)}. Each fold
+ * is trained and predicted with its own copy of the classifier in parallel. Afterwards, the
+ * predictions of the folds are added to the evaluation in the order of the folds, i.e., the
+ * evaluation is the same as the evaluation of the sequential cross validation. Output of the
+ * classifiers to {@link System#err} is discarded.
+ * </p>
+ * <p>
+ * Execution strategies may also predict the folds themselves, e.g., to schedule the folds of
+ * many classifiers in a shared thread pool. In this case, they create a {@link CrossValidation}
+ * with {@link #createCrossValidation(Instances)}, predict all folds, and pass the cross validation
+ * to the evaluator with {@link #setCrossValidation(Classifier, CrossValidation)} before the
+ * evaluation is applied.
+ * </p>
+ * <p>
+ * The seed of the random split into the folds is defined with {@link #setSeed(long)}, e.g., by
+ * the attribute <code>seed</code> of the evaluator in the experiment configuration. Without seed,
+ * the split is random.
+ * </p>
  * 
  * @author Steffen Herbold
  */
 public class CVWekaEvaluation extends AbstractWekaEvaluation {
 
+    /**
+     * number of folds
+     */
+    public static final int NUM_FOLDS = 10;
+
+    /**
+     * seed of the split into the folds; null if the split is random
+     */
+    private Long seed = null;
+
+    /**
+     * cross validations that were predicted by the execution strategy for the next evaluation of
+     * the classifiers
+     */
+    private final Map<Classifier, CrossValidation> crossValidations = new IdentityHashMap<>();
+
+    /**
+     * <p>
+     * Split of a data set into the folds of a cross validation together with the predictions of a
+     * classifier for the test data of each fold.
+     * </p>
+     * 
+     * @author jvdmosel
+     */
+    public static class CrossValidation {
+
+        /**
+         * training data of the folds
+         */
+        private final Instances[] trainFolds = new Instances[NUM_FOLDS];
+
+        /**
+         * test data of the folds
+         */
+        private final Instances[] testFolds = new Instances[NUM_FOLDS];
+
+        /**
+         * predicted class distributions for the test data of the folds; null for folds that
+         * are not yet predicted
+         */
+        private final double[][][] distributions = new double[NUM_FOLDS][][];
+
+        /**
+         * Constructor. Randomizes and splits the data in the same way as
+         * {@link Evaluation#crossValidateModel(Classifier, Instances, int, Random, Object...)}.
+         * 
+         * @param testdata
+         *            data for the cross validation
+         * @param random
+         *            random number generator for the split
+         */
+        private CrossValidation(Instances testdata, Random random) {
+            final Instances data = new Instances(testdata);
+            data.randomize(random);
+            if (data.classAttribute().isNominal()) {
+                data.stratify(NUM_FOLDS);
+            }
+            for (int fold = 0; fold < NUM_FOLDS; fold++) {
+                this.trainFolds[fold] = data.trainCV(NUM_FOLDS, fold, random);
+                this.testFolds[fold] = data.testCV(NUM_FOLDS, fold);
+            }
+        }
+
+        /**
+         * <p>
+         * Trains a copy of the classifier with the training data of a fold and predicts the test
+         * data of the fold. The folds are independent of each other and may be predicted
+         * concurrently. Output of the classifier to {@link System#err} is discarded.
+         * </p>
+         * 
+         * @param classifier
+         *            the classifier; only copies of the classifier are trained
+         * @param fold
+         *            index of the fold
+         */
+        public void predict(Classifier classifier, int fold) {
+            try {
+                this.distributions[fold] = SilenceableErrorStream.silenced(() -> {
+                    final Classifier copiedClassifier = AbstractClassifier.makeCopy(classifier);
+                    copiedClassifier.buildClassifier(this.trainFolds[fold]);
+                    return distributionsForInstances(copiedClassifier, this.testFolds[fold]);
+                });
+            }
+            catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        /**
+         * <p>
+         * Creates the evaluation from the predictions of all folds. The predictions are added in
+         * the order of the folds.
+         * </p>
+         * 
+         * @param testdata
+         *            data for the cross validation
+         * @return evaluation
+         * @throws Exception
+         *             thrown if the evaluation fails
+         */
+        private Evaluation evaluate(Instances testdata) throws Exception {
+            final Evaluation eval = new Evaluation(testdata);
+            for (int fold = 0; fold < NUM_FOLDS; fold++) {
+                if (this.distributions[fold] == null) {
+                    throw new IllegalStateException("fold " + fold + " has not been predicted");
+                }
+                eval.setPriors(this.trainFolds[fold]);
+                for (int i = 0; i < this.testFolds[fold].numInstances(); i++) {
+                    eval.evaluationForSingleInstance(this.distributions[fold][i],
+                                                     this.testFolds[fold].instance(i), true);
+                }
+            }
+            return eval;
+        }
+    }
+
+    /**
+     * <p>
+     * Defines the seed of the random split into the folds.
+     * </p>
+     * 
+     * @param seed
+     *            the seed
+     */
+    @SuppressWarnings({ "boxing", "hiding" })
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * <p>
+     * Checks if the folds of the cross validation of a classifier can be predicted independently
+     * of the evaluation with a {@link CrossValidation}. This is not possible for
+     * {@link InputMappedClassifier}s, because their evaluation requires the mapping of the test
+     * data.
+     * </p>
+     * 
+     * @param classifier
+     *            the classifier
+     * @return true if the folds can be predicted with a {@link CrossValidation}
+     */
+    public static boolean isFoldwise(Classifier classifier) {
+        return !(classifier instanceof InputMappedClassifier);
+    }
+
+    /**
+     * <p>
+     * Splits the data into the folds of a cross validation. The split uses the seed of the
+     * evaluation, if defined.
+     * </p>
+     * 
+     * @param testdata
+     *            data for the cross validation
+     * @return the cross validation without predictions
+     */
+    @SuppressWarnings("boxing")
+    public CrossValidation createCrossValidation(Instances testdata) {
+        return new CrossValidation(testdata,
+                                   this.seed == null ? new Random() : new Random(this.seed));
+    }
+
+    /**
+     * <p>
+     * Defines the cross validation that is used for the next evaluation of a classifier instead of
+     * a new cross validation. All folds of the cross validation must be predicted with the
+     * classifier.
+     * </p>
+     * 
+     * @param classifier
+     *            the classifier
+     * @param crossValidation
+     *            the predicted cross validation
+     */
+    public void setCrossValidation(Classifier classifier, CrossValidation crossValidation) {
+        this.crossValidations.put(classifier, crossValidation);
+    }
+
     /*
      * @see de.ugoe.cs.cpdp.eval.AbstractWekaEvaluation#createEvaluator(weka.core.Instances,
      * weka.classifiers.Classifier)
      */
+    @SuppressWarnings("boxing")
     @Override
     protected Evaluation createEvaluator(Instances testdata, Classifier classifier) {
-        PrintStream errStr = System.err;
-        try(PrintStream nullStream = new PrintStream(new NullOutputStream());) {
-            System.setErr(nullStream);
-            try {
+        try {
+            if (!isFoldwise(classifier)) {
                 final Evaluation eval = new Evaluation(testdata);
-                eval.crossValidateModel(classifier, testdata, 10, new Random());
+                final Random random = this.seed == null ? new Random() : new Random(this.seed);
+                SilenceableErrorStream.silenced(() -> {
+                    eval.crossValidateModel(classifier, testdata, NUM_FOLDS, random);
+                    return null;
+                });
                 return eval;
             }
-            catch (Exception e) {
-                throw new RuntimeException(e);
-            }
-            finally {
-                System.setErr(errStr);
+
+            CrossValidation crossValidation = this.crossValidations.remove(classifier);
+            if (crossValidation == null) {
+                final CrossValidation newCrossValidation = createCrossValidation(testdata);
+                IntStream.range(0, NUM_FOLDS).parallel()
+                    .forEach(fold -> newCrossValidation.predict(classifier, fold));
+                crossValidation = newCrossValidation;
             }
+            return crossValidation.evaluate(testdata);
+        }
+        catch (Exception e) {
+            throw new RuntimeException(e);
         }
     }
 
@@ -2,9 +2,8 @@ package de.ugoe.cs.cpdp.eval;
 
 import java.util.List;
 
-import org.apache.commons.math3.stat.StatUtils;
-
-import weka.classifiers.AbstractClassifier;
+import de.ugoe.cs.cpdp.util.DoubleList;
+import de.ugoe.cs.cpdp.versions.SparseBugMatrix;
 import weka.classifiers.Classifier;
 import weka.classifiers.Evaluation;
 import weka.core.Instances;
@@ -23,59 +22,68 @@ public class CostBoundaryCalculator {
 	
 	private final double bugCountFalse;
 	
+	// number of instances affected by each bug
+	private final int[] numAffected;
+	
+	// true for each bug whose affected instances are all predicted as defective
+	private final boolean[] found;
+	
 	private final double bugFound;
 	
 	private final double bugMiss;
 	
 	public CostBoundaryCalculator(Instances testdata, Classifier classifier, List<Double> efforts, Instances bugMatrix, Evaluation eval, double probQAFailure) {
+		this(testdata,
+		     (efforts != null && bugMatrix != null) ? AbstractWekaEvaluation.distributionsForInstances(classifier, testdata) : null,
+		     efforts, bugMatrix, eval, probQAFailure);
+	}
+	
+	public CostBoundaryCalculator(Instances testdata, double[][] distributions, List<Double> efforts, Instances bugMatrix, Evaluation eval, double probQAFailure) {
+		this(testdata, distributions, efforts, bugMatrix != null ? new SparseBugMatrix(bugMatrix) : null, eval, probQAFailure);
+	}
+	
+	// consumes the bug matrix in sparse form, e.g., the cached bug matrix of a version
+	public CostBoundaryCalculator(Instances testdata, double[][] distributions, List<Double> efforts, SparseBugMatrix bugMatrix, Evaluation eval, double probQAFailure) {
 		this.eval = eval;
 		this.probQAFailure = probQAFailure;
 		
-        double[][] distributions;
         double effortTrueTmp = 0.0;
         double effortFalseTmp = 0.0;
         double bugCountTrueTmp = 0.0;
         double bugCountFalseTmp = 0.0;
-        double bugFoundTmp = 0.0;
-        double bugMissTmp = 0.0;
+        int[] numAffectedTmp = new int[0];
+        boolean[] foundTmp = new boolean[0];
         
         if(efforts!=null && bugMatrix!=null) {
-	        try {
-	            distributions = ((AbstractClassifier) classifier).distributionsForInstances(testdata);
-	        }
-	        catch (Exception e) {
-	            throw new RuntimeException("unexpected error during the evaluation of the review effort",
-	                                       e);
-	        }
+        	// single pass over the non-zero values of the bug matrix
+        	final double[] instanceEfforts = DoubleList.toDoubleArray(efforts);
+        	numAffectedTmp = new int[bugMatrix.numBugs()];
+        	int[] numPredicted = new int[bugMatrix.numBugs()];
 	        for (int i = 0; i < testdata.numInstances(); i++) {
-	        	double curBugCount = StatUtils.sum(bugMatrix.get(i).toDoubleArray());
-	        	if( distributions[i][1]>distributions[i][0] ) {
-	        		effortTrueTmp += efforts.get(i);
+	        	boolean predictedTrue = distributions[i][1]>distributions[i][0];
+	        	double curBugCount = bugMatrix.bugCount(i);
+	        	for (int k = bugMatrix.rowStart(i); k < bugMatrix.rowEnd(i); k++) {
+	        		if (bugMatrix.valueAt(k)>0.0) {
+	        			int j = bugMatrix.columnAt(k);
+	        			numAffectedTmp[j]++;
+	        			if (predictedTrue) {
+	        				numPredicted[j]++;
+	        			}
+	        		}
+	        	}
+	        	if( predictedTrue ) {
+	        		effortTrueTmp += instanceEfforts[i];
 	        		bugCountTrueTmp += curBugCount;
 	        		
 	        	} else {
-	        		effortFalseTmp += efforts.get(i);
+	        		effortFalseTmp += instanceEfforts[i];
 	        		bugCountFalseTmp += curBugCount;
 	        	}
 	        }
 	        
-	        
-	        for (int j=0; j<bugMatrix.numAttributes(); j++) {
-	        	int numPredicted = 0;
-	        	int numAffected = 0;
-	            for (int i = 0; i < testdata.numInstances(); i++) {
-	            	if (bugMatrix.get(i).value(j)>0.0) {
-	            		numAffected++;
-	        			if (distributions[i][1]>distributions[i][0]) {
-	        				numPredicted++;
-	        			}
-	            	}
-	            }
-	            if (numPredicted<numAffected) {
-	            	bugMissTmp += Math.pow(1-probQAFailure, numAffected);
-	            } else {
-	            	bugFoundTmp += Math.pow(1-probQAFailure, numAffected);
-	            }
+	        foundTmp = new boolean[numAffectedTmp.length];
+	        for (int j=0; j<numAffectedTmp.length; j++) {
+	        	foundTmp[j] = numPredicted[j]>=numAffectedTmp[j];
 	        }
         }
         
@@ -83,8 +91,50 @@ public class CostBoundaryCalculator {
         this.effortFalse = effortFalseTmp;
         this.bugCountTrue = bugCountTrueTmp;
         this.bugCountFalse = bugCountFalseTmp;
-        this.bugFound = bugFoundTmp;
-        this.bugMiss = bugMissTmp;
+        this.numAffected = numAffectedTmp;
+        this.found = foundTmp;
+        this.bugFound = bugSum(true);
+        this.bugMiss = bugSum(false);
+	}
+	
+	// derives the calculator for another probability of QA failures from the counts of this calculator
+	private CostBoundaryCalculator(CostBoundaryCalculator counts, double probQAFailure) {
+		this.eval = counts.eval;
+		this.probQAFailure = probQAFailure;
+		this.effortTrue = counts.effortTrue;
+		this.effortFalse = counts.effortFalse;
+		this.bugCountTrue = counts.bugCountTrue;
+		this.bugCountFalse = counts.bugCountFalse;
+		this.numAffected = counts.numAffected;
+		this.found = counts.found;
+		this.bugFound = bugSum(true);
+		this.bugMiss = bugSum(false);
+	}
+	
+	public CostBoundaryCalculator withProbQAFailure(double probQAFailure) {
+		return new CostBoundaryCalculator(this, probQAFailure);
+	}
+	
+	public CostBoundaryCalculator[] withProbQAFailures(double... probQAFailures) {
+		CostBoundaryCalculator[] calculators = new CostBoundaryCalculator[probQAFailures.length];
+		for (int l=0; l<probQAFailures.length; l++) {
+			calculators[l] = withProbQAFailure(probQAFailures[l]);
+		}
+		return calculators;
+	}
+	
+	public double getProbQAFailure() {
+		return probQAFailure;
+	}
+	
+	private double bugSum(boolean foundBugs) {
+		double sum = 0.0;
+		for (int j=0; j<numAffected.length; j++) {
+			if (found[j]==foundBugs) {
+				sum += Math.pow(1-probQAFailure, numAffected[j]);
+			}
+		}
+		return sum;
 	}
 
 	public double getLowerConst1to1() {
@@ -14,11 +14,9 @@
 
 package de.ugoe.cs.cpdp.eval;
 
-import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
 
-import weka.classifiers.AbstractClassifier;
+import de.ugoe.cs.cpdp.util.DoubleList;
 import weka.classifiers.Classifier;
 import weka.core.Instances;
 
@@ -26,15 +24,21 @@ import weka.core.Instances;
  * <p>
  * Implements a template method for effort metric calculations
  * </p>
+ * <p>
+ * The instances are sorted once by their score. Afterwards, the cumulative effort and bugs of the
+ * sorted instances are stored as prefix sums, such that each metric is determined by a binary
+ * search for the cutoff. Thus, the metrics can also be calculated for arbitrary effort and bug
+ * cutoffs, e.g., with {@link #getNofb(double)} or {@link #getReli(double)}.
+ * </p>
  * 
  * @author Steffen Herbold
  */
 public class EffortMetricCalculator {
 
     /**
-     * sorted scores for the test data
+     * number of instances of the test data; -1 if the efforts are not defined
      */
-    final ScoreEffortPair[] scores;
+    final int numInstances;
 
     /**
      * total sum of effort of the test data
@@ -46,6 +50,47 @@ public class EffortMetricCalculator {
      */
     final double totalBugs;
 
+    /**
+     * relative effort of the first k instances in the order of the scores at index k
+     */
+    private final double[] relativeEffort;
+
+    /**
+     * maximal sum of the relative effort of the first k+1 instances and the relative effort of the
+     * k-th instance for the first k instances; used to find the effort cutoffs
+     */
+    private final double[] effortThreshold;
+
+    /**
+     * bugs of the first k instances in the order of the scores at index k
+     */
+    private final double[] bugsFound;
+
+    /**
+     * relative bugs of the first k instances in the order of the scores at index k
+     */
+    private final double[] relativeBugsFound;
+
+    /**
+     * maximal relative bugs of the first k instances; used to find the bug cutoffs
+     */
+    private final double[] bugThreshold;
+
+    /**
+     * AUCEC value
+     */
+    private final double aucec;
+
+    /**
+     * number of bugs in instances that are predicted as defect-prone
+     */
+    private final double nofbPredicted;
+
+    /**
+     * number of bugs in instances that are not predicted as defect-prone
+     */
+    private final double nofbMissed;
+
     /**
      * <p>
      * Creates a new instance.
@@ -59,68 +104,225 @@ public class EffortMetricCalculator {
      *            the effort information for each instance in the test data
      * @param numBugs
      *            the bug counts for each instance in the test data
-     * @return value of the effort metric if efforts defined, -1 otherwise
      */
     public EffortMetricCalculator(Instances testdata,
                                   Classifier classifier,
                                   List<Double> efforts,
                                   List<Double> numBugs)
+    {
+        this(testdata,
+             (efforts == null) ? null
+                 : AbstractWekaEvaluation.distributionsForInstances(classifier, testdata),
+             efforts, numBugs);
+    }
+
+    /**
+     * <p>
+     * Creates a new instance based on predictions that were already made for the test data.
+     * </p>
+     *
+     * @param testdata
+     *            the test data
+     * @param distributions
+     *            predicted class distributions for each instance in the test data
+     * @param efforts
+     *            the effort information for each instance in the test data
+     * @param numBugs
+     *            the bug counts for each instance in the test data
+     */
+    @SuppressWarnings("boxing")
+    public EffortMetricCalculator(Instances testdata,
+                                  double[][] distributions,
+                                  List<Double> efforts,
+                                  List<Double> numBugs)
     {
         if (efforts == null) {
             // do not initialize
-            scores = null;
-            totalEffort = -1;
-            totalBugs = -1;
+            this.numInstances = -1;
+            this.totalEffort = -1;
+            this.totalBugs = -1;
+            this.relativeEffort = null;
+            this.effortThreshold = null;
+            this.bugsFound = null;
+            this.relativeBugsFound = null;
+            this.bugThreshold = null;
+            this.aucec = -1;
+            this.nofbPredicted = -1;
+            this.nofbMissed = -1;
+            return;
         }
-        else {
-            this.scores = new ScoreEffortPair[testdata.size()];
-            double tmpTotalEffort = 0.0d;
-            double tmpTotalBugs = 0;
-            double[][] distributions;
-            try {
-                distributions = ((AbstractClassifier) classifier).distributionsForInstances(testdata);
+
+        this.numInstances = testdata.numInstances();
+        final double[] scores = new double[this.numInstances];
+        final double[] instanceEfforts = DoubleList.toDoubleArray(efforts);
+        final double[] instanceBugs = DoubleList.toDoubleArray(numBugs);
+        double tmpTotalEffort = 0.0d;
+        double tmpTotalBugs = 0;
+        for (int i = 0; i < this.numInstances; i++) {
+            scores[i] = distributions[i][1];
+            tmpTotalEffort += instanceEfforts[i];
+            tmpTotalBugs += instanceBugs[i];
+        }
+        this.totalEffort = tmpTotalEffort;
+        this.totalBugs = tmpTotalBugs;
+
+        // sort by score (descending), in case of equal scores use size (ascending)
+        final int[] order = sortedOrder(scores, instanceEfforts);
+
+        this.relativeEffort = new double[this.numInstances + 1];
+        this.effortThreshold = new double[this.numInstances];
+        this.bugsFound = new double[this.numInstances + 1];
+        this.relativeBugsFound = new double[this.numInstances + 1];
+        this.bugThreshold = new double[this.numInstances];
+        double tmpAucec = 0.0;
+        double tmpNofbPredicted = 0.0;
+        double tmpNofbMissed = 0.0;
+        double maxEffortThreshold = Double.NEGATIVE_INFINITY;
+        double maxBugThreshold = Double.NEGATIVE_INFINITY;
+        for (int k = 0; k < this.numInstances; k++) {
+            final int i = order[k];
+            final double curRelativeEffort = instanceEfforts[i] / this.totalEffort;
+            final double curRelativeBugsFound = instanceBugs[i] / this.totalBugs;
+
+            // NaN values are skipped, because all later sums are NaN as well
+            if (this.relativeBugsFound[k] > maxBugThreshold) {
+                maxBugThreshold = this.relativeBugsFound[k];
             }
-            catch (Exception e) {
-                throw new RuntimeException("unexpected error during the evaluation of the review effort",
-                                           e);
+            this.bugThreshold[k] = maxBugThreshold;
+
+            this.relativeEffort[k + 1] = this.relativeEffort[k] + curRelativeEffort;
+            this.bugsFound[k + 1] = this.bugsFound[k] + instanceBugs[i];
+            this.relativeBugsFound[k + 1] = this.relativeBugsFound[k] + curRelativeBugsFound;
+
+            // an instance is only reviewed if the effort is not greater than the cutoff if the
+            // instance is taken into account twice
+            final double curEffortThreshold = this.relativeEffort[k + 1] + curRelativeEffort;
+            if (curEffortThreshold > maxEffortThreshold) {
+                maxEffortThreshold = curEffortThreshold;
             }
-            for (int i = 0; i < testdata.numInstances(); i++) {
-                double curEffort = efforts.get(i);
-                double curScore = distributions[i][1];
-                double curClass = distributions[i][1]>distributions[i][0] ? 1.0 : 0.0;
-                double curBugCount = numBugs.get(i);
-                this.scores[i] = new ScoreEffortPair(curScore, curClass, curEffort, curBugCount);
-                tmpTotalEffort += curEffort;
-                tmpTotalBugs += curBugCount;
+            this.effortThreshold[k] = maxEffortThreshold;
+
+            tmpAucec += curRelativeEffort * this.relativeBugsFound[k + 1]; // simple Riemann integral
+            if (distributions[i][1] > distributions[i][0]) {
+                tmpNofbPredicted += instanceBugs[i];
+            }
+            else {
+                tmpNofbMissed += instanceBugs[i];
             }
-            this.totalEffort = tmpTotalEffort;
-            this.totalBugs = tmpTotalBugs;
-            // sort by score (descending), in case of equal scores use size (ascending)
-            Arrays.sort(scores, Collections.reverseOrder());
         }
+        this.aucec = tmpAucec;
+        this.nofbPredicted = tmpNofbPredicted;
+        this.nofbMissed = tmpNofbMissed;
     }
 
     /**
-     * Calculates AUCEC, i.e., a ROC curve of relative bugs found vs relative review effort
+     * <p>
+     * Sorts the instances by score (descending), in case of equal scores by effort (ascending).
+     * Instances with equal score and effort keep their order.
+     * </p>
      *
-     * @return AUCEC value
+     * @param scores
+     *            the scores of the instances
+     * @param efforts
+     *            the efforts of the instances
+     * @return indices of the instances in sorted order
      */
-    public double getAUCEC() {
-        if( scores==null ) {
+    private static int[] sortedOrder(double[] scores, double[] efforts) {
+        final int size = scores.length;
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        // stable bottom-up merge sort
+        int[] buffer = new int[size];
+        for (int width = 1; width < size; width *= 2) {
+            for (int low = 0; low < size; low += 2 * width) {
+                final int mid = Math.min(low + width, size);
+                final int high = Math.min(low + 2 * width, size);
+                int left = low;
+                int right = mid;
+                for (int k = low; k < high; k++) {
+                    if (left < mid &&
+                        (right >= high || compare(scores, efforts, order[left], order[right]) <= 0))
+                    {
+                        buffer[k] = order[left++];
+                    }
+                    else {
+                        buffer[k] = order[right++];
+                    }
+                }
+            }
+            final int[] tmp = order;
+            order = buffer;
+            buffer = tmp;
+        }
+        return order;
+    }
+
+    /**
+     * <p>
+     * Compares two instances for {@link #sortedOrder(double[], double[])}.
+     * </p>
+     *
+     * @param scores
+     *            the scores of the instances
+     * @param efforts
+     *            the efforts of the instances
+     * @param first
+     *            index of the first instance
+     * @param second
+     *            index of the second instance
+     * @return negative value if the first instance is sorted before the second instance,
+     *         positive value if it is sorted after the second instance, 0 if they are equal
+     */
+    private static int compare(double[] scores, double[] efforts, int first, int second) {
+        if (scores[second] > scores[first] ||
+            (scores[second] == scores[first] && efforts[second] < efforts[first]))
+        {
+            return 1;
+        }
+        if (scores[second] < scores[first] ||
+            (scores[second] == scores[first] && efforts[second] > efforts[first]))
+        {
             return -1;
         }
-        // Calculate the Riemann integral
-        // y-axis = relative number of bugs found
-        // x-axis = relative effort related overall project size
-        double aucec = 0.0;
-        double relativeBugsFound = 0.0;
-        for (ScoreEffortPair score : scores) {
-            double curRelativeEffort = score.getEffort() / totalEffort;
-            double curRelativeBugsFound = score.getBugCount() / totalBugs;
-            relativeBugsFound += curRelativeBugsFound;
-            aucec += curRelativeEffort * relativeBugsFound; // simple Riemann integral
+        return 0;
+    }
+
+    /**
+     * <p>
+     * Determines the first index whose value is greater than the cutoff.
+     * </p>
+     *
+     * @param values
+     *            ascending values
+     * @param cutoff
+     *            the cutoff
+     * @return index of the first value greater than the cutoff; length of the values if there is
+     *         none
+     */
+    private static int firstGreater(double[] values, double cutoff) {
+        int low = 0;
+        int high = values.length;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (values[mid] > cutoff) {
+                high = mid;
+            }
+            else {
+                low = mid + 1;
+            }
         }
-        return aucec;
+        return low;
+    }
+
+    /**
+     * Calculates AUCEC, i.e., a ROC curve of relative bugs found vs relative review effort
+     *
+     * @return AUCEC value
+     */
+    public double getAUCEC() {
+        return this.aucec;
     }
 
     /**
@@ -129,21 +331,21 @@ public class EffortMetricCalculator {
      * @return NofB20 value
      */
     public double getNofb20() {
-        if( scores==null ) {
+        return getNofb(0.2);
+    }
+
+    /**
+     * Calculate the number of bugs found if a percentage of the source code is reviewed.
+     *
+     * @param effortCutoff
+     *            relative effort that is reviewed
+     * @return number of bugs found
+     */
+    public double getNofb(double effortCutoff) {
+        if (this.bugsFound == null) {
             return -1;
         }
-        double bugsFound = 0.0;
-        double relativeEffort = 0.0;
-        for (ScoreEffortPair score : scores) {
-            double curRelativeEffort = score.getEffort() / totalEffort;
-            relativeEffort += curRelativeEffort;
-            if (relativeEffort + curRelativeEffort > 0.2) {
-                // if this next instance is taken into account, the effort will be greater than 20%
-                break;
-            }
-            bugsFound += score.getBugCount();
-        }
-        return bugsFound;
+        return this.bugsFound[firstGreater(this.effortThreshold, effortCutoff)];
     }
 
     /**
@@ -152,23 +354,21 @@ public class EffortMetricCalculator {
      * @return RelB20 value
      */
     public double getRelb20() {
-        if( scores==null ) {
-            return -1;
-        }
-        double relativeBugsFound = 0.0;
-        double relativeEffort = 0.0;
-        for (ScoreEffortPair score : scores) {
-            double curRelativeEffort = score.getEffort() / totalEffort;
-            double curRelativeBugsFound = score.getBugCount() / totalBugs;
-            relativeEffort += curRelativeEffort;
-            if (relativeEffort + curRelativeEffort > 0.2) {
-                // if this next instance is taken into account, the effort will be greater than 20%
-                break;
-            }
-            relativeBugsFound += curRelativeBugsFound;
+        return getRelb(0.2);
+    }
 
+    /**
+     * Calculate the percentage of bugs found if a percentage of the source code is reviewed.
+     *
+     * @param effortCutoff
+     *            relative effort that is reviewed
+     * @return percentage of bugs found
+     */
+    public double getRelb(double effortCutoff) {
+        if (this.relativeBugsFound == null) {
+            return -1;
         }
-        return relativeBugsFound;
+        return this.relativeBugsFound[firstGreater(this.effortThreshold, effortCutoff)];
     }
 
     /**
@@ -177,22 +377,21 @@ public class EffortMetricCalculator {
      * @return NofI80 value
      */
     public double getNofi80() {
-        if( scores==null ) {
-            return -1;
-        }
-        double relativeBugsFound = 0.0;
-        int numInstances = 0;
-        for (ScoreEffortPair score : scores) {
-            if (relativeBugsFound > 0.8) {
-                // already found 80% of bugs
-                break;
-            }
-            double curRelativeBugsFound = score.getBugCount() / totalBugs;
-            relativeBugsFound += curRelativeBugsFound;
+        return getNofi(0.8);
+    }
 
-            numInstances++;
+    /**
+     * Calculate the number of instances visited until a percentage of the bugs is found.
+     *
+     * @param bugCutoff
+     *            relative number of bugs that must be found
+     * @return number of instances visited
+     */
+    public double getNofi(double bugCutoff) {
+        if (this.bugThreshold == null) {
+            return -1;
         }
-        return numInstances;
+        return firstGreater(this.bugThreshold, bugCutoff);
     }
 
     /**
@@ -201,46 +400,44 @@ public class EffortMetricCalculator {
      * @return RelI80 value
      */
     public double getReli80() {
-        if( scores==null ) {
-            return -1;
-        }
-        double relativeBugsFound = 0.0;
-        int numInstances = 0;
-        for (ScoreEffortPair score : scores) {
-            if (relativeBugsFound > 0.8) {
-                // already found 80% of bugs
-                break;
-            }
-            double curRelativeBugsFound = score.getBugCount() / totalBugs;
-            relativeBugsFound += curRelativeBugsFound;
+        return getReli(0.8);
+    }
 
-            numInstances++;
+    /**
+     * Calculate the percentage of instances visited until a percentage of the bugs is found.
+     * 
+     * @param bugCutoff
+     *            relative number of bugs that must be found
+     * @return percentage of instances visited
+     */
+    public double getReli(double bugCutoff) {
+        if (this.bugThreshold == null) {
+            return -1;
         }
-        return numInstances / (double) scores.length;
+        return firstGreater(this.bugThreshold, bugCutoff) / (double) this.numInstances;
     }
 
     /**
      * Calculate the percentage of effort invested until 80 percent of the bugs are found.
      * 
-     * @return
+     * @return RelE80 value
      */
     public double getRele80() {
-        if( scores==null ) {
+        return getRele(0.8);
+    }
+
+    /**
+     * Calculate the percentage of effort invested until a percentage of the bugs is found.
+     * 
+     * @param bugCutoff
+     *            relative number of bugs that must be found
+     * @return percentage of effort invested
+     */
+    public double getRele(double bugCutoff) {
+        if (this.bugThreshold == null) {
             return -1;
         }
-        double relativeBugsFound = 0.0;
-        double relativeEffort = 0.0;
-        for (ScoreEffortPair score : scores) {
-            if (relativeBugsFound > 0.8) {
-                // already found 80% of bugs
-                break;
-            }
-            double curRelativeEffort = score.getEffort() / totalEffort;
-            double curRelativeBugsFound = score.getBugCount() / totalBugs;
-            relativeBugsFound += curRelativeBugsFound;
-            relativeEffort += curRelativeEffort;
-        }
-        return relativeEffort;
+        return this.relativeEffort[firstGreater(this.bugThreshold, bugCutoff)];
     }
     
     /**
@@ -248,16 +445,10 @@ public class EffortMetricCalculator {
      * Number of bugs that are found if the classification is used, i.e., all instances are reviewed that are predicted as defect-prone.
      * </p>
      *
-     * @return
+     * @return number of bugs found; -1 if the efforts are not defined
      */
     public double getNofBPredicted() {
-        double nofbPredicted = 0.0;
-        for( ScoreEffortPair score : scores ) {
-            if(score.getClassification()==1.0) {
-                nofbPredicted += score.getBugCount();
-            }
-        }
-        return nofbPredicted;
+        return this.nofbPredicted;
     }
     
     /**
@@ -265,98 +456,9 @@ public class EffortMetricCalculator {
      * Number of bugs that are missed if the classification is used, i.e., all instances are reviewed that are predicted as defect-prone.
      * </p>
      *
-     * @return
+     * @return number of bugs missed; -1 if the efforts are not defined
      */
     public double getNofBMissed() {
-        double nofbMissed = 0.0;
-        for( ScoreEffortPair score : scores ) {
-            if(score.getClassification()!=1.0) {
-                nofbMissed += score.getBugCount();
-            }
-        }
-        return nofbMissed;
-    }
-
-    /**
-     * <p>
-     * Helper class for effort metric calculation
-     * </p>
-     * 
-     * @author Steffen Herbold
-     */
-    private static class ScoreEffortPair implements Comparable<ScoreEffortPair> {
-
-        /**
-         * Defect prediction score of the pair
-         */
-        private final double score;
-        
-        /**
-         * Classification of the pair
-         */
-        private final double classification;
-
-        /**
-         * Associated review effort
-         */
-        private final double effort;
-
-        /**
-         * Class of the instance
-         */
-        private final double bugCount;
-
-        @SuppressWarnings("hiding")
-        public ScoreEffortPair(double score, double classification, double effort, double bugCount) {
-            this.score = score;
-            this.classification = classification;
-            this.effort = effort;
-            this.bugCount = bugCount;
-        }
-
-        public double getClassification() {
-            return classification;
-        }
-        
-        /**
-         * @return the effort
-         */
-        public double getEffort() {
-            return effort;
-        }
-
-        /**
-         * @return the actual class
-         */
-        public double getBugCount() {
-            return bugCount;
-        }
-
-        /*
-         * (non-Javadoc)
-         * 
-         * @see java.lang.Comparable#compareTo(java.lang.Object)
-         */
-        @Override
-        public int compareTo(ScoreEffortPair other) {
-            if (score > other.score || (score == other.score && effort < other.effort)) {
-                return 1;
-            }
-            if (score < other.score || (score == other.score && effort > other.effort)) {
-                return -1;
-            }
-            return 0;
-        }
-
-        /*
-         * (non-Javadoc)
-         * 
-         * @see java.lang.Object#toString()
-         */
-        @Override
-        public String toString() {
-            return "score=" + score + ", effort=" + effort + ", bugCount=" + bugCount;
-        }
-
+        return this.nofbMissed;
     }
 }
@@ -14,6 +14,7 @@
 
 package de.ugoe.cs.cpdp.eval;
 
+import java.io.Writer;
 import java.util.List;
 
 import de.ugoe.cs.cpdp.IParameterizable;
@@ -57,4 +58,16 @@ public interface IEvaluationStrategy extends IParameterizable {
                Instances bugMatrix,
                boolean writeHeader,
                List<IResultStorage> storages);
+
+    /**
+     * Sets the writer for the results. In contrast to {@link #setParameter(String)}, the writer
+     * is not closed by the evaluation strategy. This allows to collect the results in memory,
+     * e.g., if multiple test versions are evaluated concurrently.
+     *
+     * @param output
+     *            writer for the results
+     * @param configurationName
+     *            name of the configuration
+     */
+    void setOutput(Writer output, String configurationName);
 }
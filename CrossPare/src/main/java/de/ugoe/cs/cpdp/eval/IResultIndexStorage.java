@@ -0,0 +1,40 @@
+// Copyright 2015 Georg-August-Universität Göttingen, Germany
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package de.ugoe.cs.cpdp.eval;
+
+/**
+ * <p>
+ * Extension of {@link IResultStorage} for storages that can load the number of stored results of
+ * an experiment at once into an in-memory index. Once the results of an experiment are loaded,
+ * {@link #containsResult(String, String, String)} is answered from the index for this
+ * experiment, and the index is updated by {@link #addResult(ExperimentResult)}. The index does not
+ * cover {@link #containsHeterogeneousResult(String, String, String, String)}.
+ * </p>
+ *
+ * @author jvdmosel
+ */
+public interface IResultIndexStorage extends IResultStorage {
+
+    /**
+     * <p>
+     * Loads the number of stored results for all products and classifiers of an experiment into
+     * the index. Nothing happens if the results of the experiment are already loaded.
+     * </p>
+     *
+     * @param experimentName
+     *            name of the experiment
+     */
+    public void preloadResults(String experimentName);
+}
@@ -68,4 +68,12 @@ public interface IResultStorage {
                                            String productName,
                                            String classifierName,
                                            String trainProductName);
+
+    /**
+     * <p>
+     * Closes the storage. All results that were added before are stored before the method
+     * returns.
+     * </p>
+     */
+    public void close();
 }
@@ -0,0 +1,242 @@
+// Copyright 2015 Georg-August-Universität Göttingen, Germany
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package de.ugoe.cs.cpdp.eval;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Semaphore;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.mysql.jdbc.jdbc2.optional.MysqlDataSource;
+
+/**
+ * <p>
+ * Bounded pool of connections to a MySQL database. At most the configured number of connections
+ * is open at the same time; {@link #getConnection()} blocks if all connections are in use.
+ * </p>
+ * <p>
+ * The connections returned by the pool are returned to the pool when they are closed, i.e., they
+ * can be used with try-with-resources like normal JDBC connections.
+ * </p>
+ *
+ * @author jvdmosel
+ */
+public class MySQLConnectionPool {
+
+    /**
+     * Reference to the logger
+     */
+    private static final Logger LOGGER = LogManager.getLogger("main");
+
+    /**
+     * timeout in seconds for the validation of idle connections
+     */
+    private static final int VALIDATION_TIMEOUT = 2;
+
+    /**
+     * data source used to open new connections
+     */
+    private final MysqlDataSource dataSource;
+
+    /**
+     * permits for open connections
+     */
+    private final Semaphore permits;
+
+    /**
+     * connections that are open but currently not used
+     */
+    private final Deque<Connection> idleConnections = new ArrayDeque<>();
+
+    /**
+     * true if the pool is closed
+     */
+    private boolean closed = false;
+
+    /**
+     * <p>
+     * Creates a new connection pool. Batched statements are rewritten to multi-row inserts and
+     * prepared statements are cached by the driver.
+     * </p>
+     *
+     * @param url
+     *            JDBC URL of the database
+     * @param user
+     *            user of the database
+     * @param password
+     *            password of the user
+     * @param maxConnections
+     *            maximal number of open connections
+     */
+    public MySQLConnectionPool(String url, String user, String password, int maxConnections) {
+        this.dataSource = new MysqlDataSource();
+        this.dataSource.setUser(user);
+        this.dataSource.setPassword(password);
+        this.dataSource.setUrl(url);
+        this.dataSource.setRewriteBatchedStatements(true);
+        this.dataSource.setCachePrepStmts(true);
+        this.permits = new Semaphore(Math.max(1, maxConnections), true);
+    }
+
+    /**
+     * <p>
+     * Returns a connection from the pool. Idle connections are reused if they are still valid.
+     * Otherwise, a new connection is opened. Blocks until a connection is available. The
+     * connection must be closed to return it to the pool.
+     * </p>
+     *
+     * @return connection to the database
+     * @throws SQLException
+     *             thrown if no connection could be opened or the pool is closed
+     */
+    public Connection getConnection() throws SQLException {
+        try {
+            this.permits.acquire();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("interrupted while waiting for a database connection", e);
+        }
+        try {
+            Connection connection = null;
+            while (connection == null) {
+                Connection idle;
+                synchronized (this.idleConnections) {
+                    if (this.closed) {
+                        throw new SQLException("connection pool is closed");
+                    }
+                    idle = this.idleConnections.pollFirst();
+                }
+                if (idle == null) {
+                    connection = this.dataSource.getConnection();
+                }
+                else if (idle.isValid(VALIDATION_TIMEOUT)) {
+                    connection = idle;
+                }
+                else {
+                    closeQuietly(idle);
+                }
+            }
+            return pooled(connection);
+        }
+        catch (SQLException | RuntimeException e) {
+            this.permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * <p>
+     * Closes the pool and all idle connections. Connections that are currently used are closed
+     * when they are returned to the pool.
+     * </p>
+     */
+    public void close() {
+        synchronized (this.idleConnections) {
+            this.closed = true;
+            for (Connection connection : this.idleConnections) {
+                closeQuietly(connection);
+            }
+            this.idleConnections.clear();
+        }
+    }
+
+    /**
+     * <p>
+     * Returns a connection to the pool.
+     * </p>
+     *
+     * @param connection
+     *            the connection
+     */
+    private void release(Connection connection) {
+        try {
+            synchronized (this.idleConnections) {
+                if (!this.closed && !connection.isClosed()) {
+                    this.idleConnections.addFirst(connection);
+                    return;
+                }
+            }
+            closeQuietly(connection);
+        }
+        catch (SQLException e) {
+            closeQuietly(connection);
+        }
+        finally {
+            this.permits.release();
+        }
+    }
+
+    /**
+     * <p>
+     * Wraps a connection such that closing it returns it to the pool.
+     * </p>
+     *
+     * @param connection
+     *            the physical connection
+     * @return wrapped connection
+     */
+    private Connection pooled(Connection connection) {
+        final boolean[] released = new boolean[]
+            { false };
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]
+            { Connection.class }, (proxy, method, args) -> {
+                synchronized (released) {
+                    if ("close".equals(method.getName())) {
+                        if (!released[0]) {
+                            released[0] = true;
+                            release(connection);
+                        }
+                        return null;
+                    }
+                    if ("isClosed".equals(method.getName()) && released[0]) {
+                        return true;
+                    }
+                    if (released[0]) {
+                        throw new SQLException("connection was already returned to the pool");
+                    }
+                }
+                try {
+                    return method.invoke(connection, args);
+                }
+                catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            });
+    }
+
+    /**
+     * <p>
+     * Closes a connection and ignores all errors.
+     * </p>
+     *
+     * @param connection
+     *            the connection
+     */
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        }
+        catch (SQLException e) {
+            LOGGER.debug("could not close database connection: " + e.getMessage());
+        }
+    }
+}
@@ -16,26 +16,42 @@ package de.ugoe.cs.cpdp.eval;
 
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import com.mysql.jdbc.jdbc2.optional.MysqlDataSource;
-
 /**
  * <p>
  * Implements a storage of experiment results in a MySQL database.
  * </p>
+ * <p>
+ * The results are written asynchronously: {@link #addResult(ExperimentResult)} only adds the
+ * result to a queue and a background thread writes the queued results in batches. All storages
+ * that use the same database share a bounded connection pool and all storages that use the same
+ * results table share the background writer. Results that are still queued are written when the
+ * storage is closed with {@link #close()}. Hence, {@link #containsResult(String, String, String)}
+ * may not yet count results that were added shortly before, unless the results of the experiment
+ * were loaded into the in-memory index with {@link #preloadResults(String)}.
+ * </p>
  * 
  * @author Steffen Herbold
  */
-public class MySQLResultStorage implements IResultStorage {
+public class MySQLResultStorage implements IResultIndexStorage {
 
 	/**
      * Reference to the logger
@@ -50,7 +66,33 @@ public class MySQLResultStorage implements IResultStorage {
     /**
      * Connection pool for the data base.
      */
-    private MysqlDataSource connectionPool = null;
+    private final SharedConnectionPool connectionPool;
+
+    /**
+     * Background writer for the results.
+     */
+    private final ResultWriter writer;
+
+    /**
+     * true if the storage is closed
+     */
+    private boolean closed = false;
+
+    /**
+     * Connection pools shared between all storages; the key is the URL and user of the database
+     */
+    private static final Map<String, SharedConnectionPool> CONNECTION_POOLS = new HashMap<>();
+
+    /**
+     * Background writers shared between all storages; the key is the URL and user of the
+     * database and the name of the results table
+     */
+    private static final Map<String, ResultWriter> RESULT_WRITERS = new HashMap<>();
+
+    /**
+     * Lock for the shared connection pools and writers
+     */
+    private static final Object SHARED_LOCK = new Object();
     
     /**
      * Create table if it does not exist
@@ -92,6 +134,9 @@ public class MySQLResultStorage implements IResultStorage {
      * <li>db.pass = crosspare</li>
      * <li>db.results.tablename = results</li>
      * <li>db.results.createtable = false</li>
+     * <li>db.pool.size = 4</li>
+     * <li>db.batch.size = 100</li>
+     * </ul>
      * </p>
      * 
      * @param parameterFile
@@ -114,35 +159,40 @@ public class MySQLResultStorage implements IResultStorage {
         String dbPass = dbProperties.getProperty("db.pass", "crosspare");
         this.resultsTableName = dbProperties.getProperty("db.results.tablename", "results");
         this.createTableIfNotExists = Boolean.parseBoolean(dbProperties.getProperty("db.results.createtable", "false"));;
-        connectToDB(dbHost, dbPort, dbName, dbUser, dbPass);
+        int poolSize = Integer.parseInt(dbProperties.getProperty("db.pool.size", "4"));
+        int batchSize = Integer.parseInt(dbProperties.getProperty("db.batch.size", "100"));
+        String dbUrl = "jdbc:mysql://" + dbHost + ":" + dbPort + "/" + dbName;
+        synchronized (SHARED_LOCK) {
+            this.connectionPool = CONNECTION_POOLS.computeIfAbsent(dbUrl + "|" + dbUser,
+                k -> new SharedConnectionPool(connectToDB(dbUrl, dbUser, dbPass, poolSize)));
+            this.connectionPool.users++;
+            this.writer = RESULT_WRITERS.computeIfAbsent(dbUrl + "|" + dbUser + "|" + this.resultsTableName,
+                k -> new ResultWriter(this.connectionPool.pool, this.resultsTableName, batchSize));
+            this.writer.users++;
+        }
     }
 
     /**
      * <p>
-     * Sets up the database connection
+     * Sets up the database connection pool
      * </p>
      *
-     * @param dbHost
-     *            host of the database
-     * @param dbPort
-     *            port of the database
-     * @param dbName
-     *            name of the database
+     * @param dbUrl
+     *            JDBC URL of the database
      * @param dbUser
      *            user of the database
      * @param dbPass
      *            password of the user
+     * @param poolSize
+     *            maximal number of concurrent connections
+     * @return the connection pool
      */
-    private void connectToDB(String dbHost,
-                             String dbPort,
-                             String dbName,
-                             String dbUser,
-                             String dbPass)
+    private static MySQLConnectionPool connectToDB(String dbUrl,
+                                                   String dbUser,
+                                                   String dbPass,
+                                                   int poolSize)
     {
-        this.connectionPool = new MysqlDataSource();
-        this.connectionPool.setUser(dbUser);
-        this.connectionPool.setPassword(dbPass);
-        this.connectionPool.setUrl("jdbc:mysql://" + dbHost + ":" + dbPort + "/" + dbName);
+        return new MySQLConnectionPool(dbUrl, dbUser, dbPass, poolSize);
     }
 
     /*
@@ -155,8 +205,97 @@ public class MySQLResultStorage implements IResultStorage {
     	// create the results table if required
     	checkIfCreateTable();
     	
+        if (this.closed) {
+            LOGGER.error("result storage is already closed, result for " + result.getProductName() +
+                " is not stored");
+            return;
+        }
+        this.writer.add(result);
+        Map<List<String>, Integer> counts = this.writer.resultIndex.get(result.getConfigurationName());
+        if (counts != null) {
+            counts.merge(List.of(result.getProductName(), result.getClassifier()), 1, Integer::sum);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see de.ugoe.cs.cpdp.eval.IResultIndexStorage#preloadResults(java.lang.String)
+     */
+    @Override
+    public void preloadResults(String experimentName) {
+        checkIfCreateTable();
+
+        synchronized (this.writer.resultIndex) {
+            if (this.writer.resultIndex.containsKey(experimentName)) {
+                return;
+            }
+            // queued results must be in the table before it is queried
+            this.writer.flush();
+            String preparedSql = "SELECT productName, classifier, COUNT(*) as cnt FROM " +
+                this.resultsTableName + " WHERE configurationName=? GROUP BY productName, classifier";
+            try(Connection connection = this.connectionPool.pool.getConnection();
+                PreparedStatement stmt = connection.prepareStatement(preparedSql);) {
+                stmt.setString(1, experimentName);
+                Map<List<String>, Integer> counts = new ConcurrentHashMap<>();
+                try(ResultSet results = stmt.executeQuery();) {
+                    while (results.next()) {
+                        counts.put(List.of(results.getString("productName"),
+                                           results.getString("classifier")),
+                                   results.getInt("cnt"));
+                    }
+                }
+                this.writer.resultIndex.put(experimentName, counts);
+                LOGGER.debug("loaded " + counts.size() + " result counts for " + experimentName);
+            }
+            catch (SQLException e) {
+                LOGGER.error("Problem with MySQL connection: \n");
+                LOGGER.error("SQLException: " + e.getMessage() + "\n");
+                LOGGER.error("SQLState: " + e.getSQLState() + "\n");
+                LOGGER.error("VendorError: " + e.getErrorCode() + "\n");
+            }
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see de.ugoe.cs.cpdp.eval.IResultStorage#close()
+     */
+    @Override
+    public void close() {
+        synchronized (SHARED_LOCK) {
+            if (this.closed) {
+                return;
+            }
+            this.closed = true;
+        }
+        this.writer.flush();
+        synchronized (SHARED_LOCK) {
+            if (--this.writer.users == 0) {
+                RESULT_WRITERS.values().remove(this.writer);
+                this.writer.stop();
+            }
+            if (--this.connectionPool.users == 0) {
+                CONNECTION_POOLS.values().remove(this.connectionPool);
+                this.connectionPool.pool.close();
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * Creates the SQL statement for inserting a result.
+     * </p>
+     *
+     * @param resultsTableName
+     *            name of the results table
+     * @return SQL statement with placeholders for all values of a result
+     */
+    @SuppressWarnings("hiding")
+    private static String insertStatement(String resultsTableName) {
         StringBuilder preparedSql = new StringBuilder();
-        preparedSql.append("INSERT INTO " + this.resultsTableName + " (");
+        preparedSql.append("INSERT INTO " + resultsTableName + " (");
         preparedSql.append("`configurationName`,");
         preparedSql.append("`productName`,");
         preparedSql.append("`classifier`,");
@@ -266,127 +405,130 @@ public class MySQLResultStorage implements IResultStorage {
         	preparedSql.append("?,");
         }
         preparedSql.append("?)");
+        return preparedSql.toString();
+    }
 
-        try(PreparedStatement stmt = this.connectionPool.getConnection().prepareStatement(preparedSql.toString());) {
-        	int i=1;
-            stmt.setString(i++, result.getConfigurationName());
-            stmt.setString(i++, result.getProductName());
-            stmt.setString(i++, result.getClassifier());
-            stmt.setInt(i++, result.getSizeTestData());
-            stmt.setInt(i++, result.getSizeTrainingData());
-            stmt.setDouble(i++, result.getError());
-            stmt.setDouble(i++, result.getRecall());
-            stmt.setDouble(i++, result.getPrecision());
-            stmt.setDouble(i++, result.getFscore());
-            stmt.setDouble(i++, result.getGscore());
-            stmt.setDouble(i++, result.getMcc());
-            stmt.setDouble(i++, result.getAuc());
-            stmt.setDouble(i++, result.getBalance());
-            stmt.setDouble(i++, result.getAucec());
-            stmt.setDouble(i++, result.getNofb20());
-            stmt.setDouble(i++, result.getRelb20());
-            stmt.setDouble(i++, result.getNofi80());
-            stmt.setDouble(i++, result.getReli80());
-            stmt.setDouble(i++, result.getRele80());
-            stmt.setDouble(i++, result.getNecm15());
-            stmt.setDouble(i++, result.getNecm20());
-            stmt.setDouble(i++, result.getNecm25());
-            stmt.setDouble(i++, result.getNofbPredicted());
-            stmt.setDouble(i++, result.getNofbMissed());
-            stmt.setDouble(i++, result.getTpr());
-            stmt.setDouble(i++, result.getTnr());
-            stmt.setDouble(i++, result.getFpr());
-            stmt.setDouble(i++, result.getFnr());
-            stmt.setDouble(i++, result.getTp());
-            stmt.setDouble(i++, result.getFn());
-            stmt.setDouble(i++, result.getTn());
-            stmt.setDouble(i++, result.getFp());
-            stmt.setDouble(i++, result.getLowerConst1to1());
-            stmt.setDouble(i++, result.getUpperConst1to1());
-            stmt.setDouble(i++, result.getLowerConst1toM());
-            stmt.setDouble(i++, result.getUpperConst1toM());
-            stmt.setDouble(i++, result.getLowerConstNtoM());
-            stmt.setDouble(i++, result.getUpperConstNtoM());
-            stmt.setDouble(i++, result.getLowerSize1to1());
-            stmt.setDouble(i++, result.getUpperSize1to1());
-            stmt.setDouble(i++, result.getLowerSize1toM());
-            stmt.setDouble(i++, result.getUpperSize1toM());
-            stmt.setDouble(i++, result.getLowerSizeNtoM());
-            stmt.setDouble(i++, result.getUpperSizeNtoM());
-            stmt.setDouble(i++, result.getLowerConst1to1Imp10());
-            stmt.setDouble(i++, result.getUpperConst1to1Imp10());
-            stmt.setDouble(i++, result.getLowerConst1toMImp10());
-            stmt.setDouble(i++, result.getUpperConst1toMImp10());
-            stmt.setDouble(i++, result.getLowerConstNtoMImp10());
-            stmt.setDouble(i++, result.getUpperConstNtoMImp10());
-            stmt.setDouble(i++, result.getLowerSize1to1Imp10());
-            stmt.setDouble(i++, result.getUpperSize1to1Imp10());
-            stmt.setDouble(i++, result.getLowerSize1toMImp10());
-            stmt.setDouble(i++, result.getUpperSize1toMImp10());
-            stmt.setDouble(i++, result.getLowerSizeNtoMImp10());
-            stmt.setDouble(i++, result.getUpperSizeNtoMImp10());
-            stmt.setDouble(i++, result.getLowerConst1to1Imp20());
-            stmt.setDouble(i++, result.getUpperConst1to1Imp20());
-            stmt.setDouble(i++, result.getLowerConst1toMImp20());
-            stmt.setDouble(i++, result.getUpperConst1toMImp20());
-            stmt.setDouble(i++, result.getLowerConstNtoMImp20());
-            stmt.setDouble(i++, result.getUpperConstNtoMImp20());
-            stmt.setDouble(i++, result.getLowerSize1to1Imp20());
-            stmt.setDouble(i++, result.getUpperSize1to1Imp20());
-            stmt.setDouble(i++, result.getLowerSize1toMImp20());
-            stmt.setDouble(i++, result.getUpperSize1toMImp20());
-            stmt.setDouble(i++, result.getLowerSizeNtoMImp20());
-            stmt.setDouble(i++, result.getUpperSizeNtoMImp20());
-            stmt.setDouble(i++, result.getLowerConst1to1Imp30());
-            stmt.setDouble(i++, result.getUpperConst1to1Imp30());
-            stmt.setDouble(i++, result.getLowerConst1toMImp30());
-            stmt.setDouble(i++, result.getUpperConst1toMImp30());
-            stmt.setDouble(i++, result.getLowerConstNtoMImp30());
-            stmt.setDouble(i++, result.getUpperConstNtoMImp30());
-            stmt.setDouble(i++, result.getLowerSize1to1Imp30());
-            stmt.setDouble(i++, result.getUpperSize1to1Imp30());
-            stmt.setDouble(i++, result.getLowerSize1toMImp30());
-            stmt.setDouble(i++, result.getUpperSize1toMImp30());
-            stmt.setDouble(i++, result.getLowerSizeNtoMImp30());
-            stmt.setDouble(i++, result.getUpperSizeNtoMImp30());
-            stmt.setDouble(i++, result.getLowerConst1to1Imp40());
-            stmt.setDouble(i++, result.getUpperConst1to1Imp40());
-            stmt.setDouble(i++, result.getLowerConst1toMImp40());
-            stmt.setDouble(i++, result.getUpperConst1toMImp40());
-            stmt.setDouble(i++, result.getLowerConstNtoMImp40());
-            stmt.setDouble(i++, result.getUpperConstNtoMImp40());
-            stmt.setDouble(i++, result.getLowerSize1to1Imp40());
-            stmt.setDouble(i++, result.getUpperSize1to1Imp40());
-            stmt.setDouble(i++, result.getLowerSize1toMImp40());
-            stmt.setDouble(i++, result.getUpperSize1toMImp40());
-            stmt.setDouble(i++, result.getLowerSizeNtoMImp40());
-            stmt.setDouble(i++, result.getUpperSizeNtoMImp40());
-            stmt.setDouble(i++, result.getLowerConst1to1Imp50());
-            stmt.setDouble(i++, result.getUpperConst1to1Imp50());
-            stmt.setDouble(i++, result.getLowerConst1toMImp50());
-            stmt.setDouble(i++, result.getUpperConst1toMImp50());
-            stmt.setDouble(i++, result.getLowerConstNtoMImp50());
-            stmt.setDouble(i++, result.getUpperConstNtoMImp50());
-            stmt.setDouble(i++, result.getLowerSize1to1Imp50());
-            stmt.setDouble(i++, result.getUpperSize1to1Imp50());
-            stmt.setDouble(i++, result.getLowerSize1toMImp50());
-            stmt.setDouble(i++, result.getUpperSize1toMImp50());
-            stmt.setDouble(i++, result.getLowerSizeNtoMImp50());
-            stmt.setDouble(i++, result.getUpperSizeNtoMImp50());
-            
-
-            int qryResult = stmt.executeUpdate();
-            if (qryResult < 1) {
-            	LOGGER.error("Insert failed.");
-            }
-        }
-        catch (SQLException e) {
-        	LOGGER.error("Problem with MySQL connection: ");
-        	LOGGER.error("SQLException: " + e.getMessage());
-        	LOGGER.error("SQLState: " + e.getSQLState());
-        	LOGGER.error("VendorError: " + e.getErrorCode());
-            return;
-        }
+    /**
+     * <p>
+     * Sets the values of a result as parameters of the insert statement.
+     * </p>
+     *
+     * @param stmt
+     *            the insert statement
+     * @param result
+     *            the result
+     * @throws SQLException
+     *             thrown if a parameter cannot be set
+     * @see #insertStatement(String)
+     */
+    private static void setParameters(PreparedStatement stmt, ExperimentResult result)
+        throws SQLException
+    {
+        int i=1;
+        stmt.setString(i++, result.getConfigurationName());
+        stmt.setString(i++, result.getProductName());
+        stmt.setString(i++, result.getClassifier());
+        stmt.setInt(i++, result.getSizeTestData());
+        stmt.setInt(i++, result.getSizeTrainingData());
+        stmt.setDouble(i++, result.getError());
+        stmt.setDouble(i++, result.getRecall());
+        stmt.setDouble(i++, result.getPrecision());
+        stmt.setDouble(i++, result.getFscore());
+        stmt.setDouble(i++, result.getGscore());
+        stmt.setDouble(i++, result.getMcc());
+        stmt.setDouble(i++, result.getAuc());
+        stmt.setDouble(i++, result.getBalance());
+        stmt.setDouble(i++, result.getAucec());
+        stmt.setDouble(i++, result.getNofb20());
+        stmt.setDouble(i++, result.getRelb20());
+        stmt.setDouble(i++, result.getNofi80());
+        stmt.setDouble(i++, result.getReli80());
+        stmt.setDouble(i++, result.getRele80());
+        stmt.setDouble(i++, result.getNecm15());
+        stmt.setDouble(i++, result.getNecm20());
+        stmt.setDouble(i++, result.getNecm25());
+        stmt.setDouble(i++, result.getNofbPredicted());
+        stmt.setDouble(i++, result.getNofbMissed());
+        stmt.setDouble(i++, result.getTpr());
+        stmt.setDouble(i++, result.getTnr());
+        stmt.setDouble(i++, result.getFpr());
+        stmt.setDouble(i++, result.getFnr());
+        stmt.setDouble(i++, result.getTp());
+        stmt.setDouble(i++, result.getFn());
+        stmt.setDouble(i++, result.getTn());
+        stmt.setDouble(i++, result.getFp());
+        stmt.setDouble(i++, result.getLowerConst1to1());
+        stmt.setDouble(i++, result.getUpperConst1to1());
+        stmt.setDouble(i++, result.getLowerConst1toM());
+        stmt.setDouble(i++, result.getUpperConst1toM());
+        stmt.setDouble(i++, result.getLowerConstNtoM());
+        stmt.setDouble(i++, result.getUpperConstNtoM());
+        stmt.setDouble(i++, result.getLowerSize1to1());
+        stmt.setDouble(i++, result.getUpperSize1to1());
+        stmt.setDouble(i++, result.getLowerSize1toM());
+        stmt.setDouble(i++, result.getUpperSize1toM());
+        stmt.setDouble(i++, result.getLowerSizeNtoM());
+        stmt.setDouble(i++, result.getUpperSizeNtoM());
+        stmt.setDouble(i++, result.getLowerConst1to1Imp10());
+        stmt.setDouble(i++, result.getUpperConst1to1Imp10());
+        stmt.setDouble(i++, result.getLowerConst1toMImp10());
+        stmt.setDouble(i++, result.getUpperConst1toMImp10());
+        stmt.setDouble(i++, result.getLowerConstNtoMImp10());
+        stmt.setDouble(i++, result.getUpperConstNtoMImp10());
+        stmt.setDouble(i++, result.getLowerSize1to1Imp10());
+        stmt.setDouble(i++, result.getUpperSize1to1Imp10());
+        stmt.setDouble(i++, result.getLowerSize1toMImp10());
+        stmt.setDouble(i++, result.getUpperSize1toMImp10());
+        stmt.setDouble(i++, result.getLowerSizeNtoMImp10());
+        stmt.setDouble(i++, result.getUpperSizeNtoMImp10());
+        stmt.setDouble(i++, result.getLowerConst1to1Imp20());
+        stmt.setDouble(i++, result.getUpperConst1to1Imp20());
+        stmt.setDouble(i++, result.getLowerConst1toMImp20());
+        stmt.setDouble(i++, result.getUpperConst1toMImp20());
+        stmt.setDouble(i++, result.getLowerConstNtoMImp20());
+        stmt.setDouble(i++, result.getUpperConstNtoMImp20());
+        stmt.setDouble(i++, result.getLowerSize1to1Imp20());
+        stmt.setDouble(i++, result.getUpperSize1to1Imp20());
+        stmt.setDouble(i++, result.getLowerSize1toMImp20());
+        stmt.setDouble(i++, result.getUpperSize1toMImp20());
+        stmt.setDouble(i++, result.getLowerSizeNtoMImp20());
+        stmt.setDouble(i++, result.getUpperSizeNtoMImp20());
+        stmt.setDouble(i++, result.getLowerConst1to1Imp30());
+        stmt.setDouble(i++, result.getUpperConst1to1Imp30());
+        stmt.setDouble(i++, result.getLowerConst1toMImp30());
+        stmt.setDouble(i++, result.getUpperConst1toMImp30());
+        stmt.setDouble(i++, result.getLowerConstNtoMImp30());
+        stmt.setDouble(i++, result.getUpperConstNtoMImp30());
+        stmt.setDouble(i++, result.getLowerSize1to1Imp30());
+        stmt.setDouble(i++, result.getUpperSize1to1Imp30());
+        stmt.setDouble(i++, result.getLowerSize1toMImp30());
+        stmt.setDouble(i++, result.getUpperSize1toMImp30());
+        stmt.setDouble(i++, result.getLowerSizeNtoMImp30());
+        stmt.setDouble(i++, result.getUpperSizeNtoMImp30());
+        stmt.setDouble(i++, result.getLowerConst1to1Imp40());
+        stmt.setDouble(i++, result.getUpperConst1to1Imp40());
+        stmt.setDouble(i++, result.getLowerConst1toMImp40());
+        stmt.setDouble(i++, result.getUpperConst1toMImp40());
+        stmt.setDouble(i++, result.getLowerConstNtoMImp40());
+        stmt.setDouble(i++, result.getUpperConstNtoMImp40());
+        stmt.setDouble(i++, result.getLowerSize1to1Imp40());
+        stmt.setDouble(i++, result.getUpperSize1to1Imp40());
+        stmt.setDouble(i++, result.getLowerSize1toMImp40());
+        stmt.setDouble(i++, result.getUpperSize1toMImp40());
+        stmt.setDouble(i++, result.getLowerSizeNtoMImp40());
+        stmt.setDouble(i++, result.getUpperSizeNtoMImp40());
+        stmt.setDouble(i++, result.getLowerConst1to1Imp50());
+        stmt.setDouble(i++, result.getUpperConst1to1Imp50());
+        stmt.setDouble(i++, result.getLowerConst1toMImp50());
+        stmt.setDouble(i++, result.getUpperConst1toMImp50());
+        stmt.setDouble(i++, result.getLowerConstNtoMImp50());
+        stmt.setDouble(i++, result.getUpperConstNtoMImp50());
+        stmt.setDouble(i++, result.getLowerSize1to1Imp50());
+        stmt.setDouble(i++, result.getUpperSize1to1Imp50());
+        stmt.setDouble(i++, result.getLowerSize1toMImp50());
+        stmt.setDouble(i++, result.getUpperSize1toMImp50());
+        stmt.setDouble(i++, result.getLowerSizeNtoMImp50());
+        stmt.setDouble(i++, result.getUpperSizeNtoMImp50());
     }
 
     /*
@@ -398,9 +540,14 @@ public class MySQLResultStorage implements IResultStorage {
     public int containsResult(String experimentName, String productName, String classifierName) {
     	checkIfCreateTable();
     	
+        Map<List<String>, Integer> counts = this.writer.resultIndex.get(experimentName);
+        if (counts != null) {
+            return counts.getOrDefault(List.of(productName, classifierName), 0);
+        }
         String preparedSql = "SELECT COUNT(*) as cnt FROM " + this.resultsTableName +
             " WHERE configurationName=? AND productName=? AND classifier=?";
-        try(PreparedStatement stmt = this.connectionPool.getConnection().prepareStatement(preparedSql);) {
+        try(Connection connection = this.connectionPool.pool.getConnection();
+            PreparedStatement stmt = connection.prepareStatement(preparedSql);) {
             stmt.setString(1, experimentName);
             stmt.setString(2, productName);
             stmt.setString(3, classifierName);
@@ -427,8 +574,8 @@ public class MySQLResultStorage implements IResultStorage {
      */
     public boolean doesResultsTableExist() {
         boolean exists = false;
-        try {
-            DatabaseMetaData meta = this.connectionPool.getConnection().getMetaData();
+        try(Connection connection = this.connectionPool.pool.getConnection();) {
+            DatabaseMetaData meta = connection.getMetaData();
             try(ResultSet res = meta.getTables(null, null, this.resultsTableName, null);) {
                 exists = res.next();
             }
@@ -571,7 +718,8 @@ public class MySQLResultStorage implements IResultStorage {
             "`upperSizeNtoMImp50` double DEFAULT NULL," +
             "PRIMARY KEY (`idresults`)" +
             ") ENGINE=InnoDB AUTO_INCREMENT=77777 DEFAULT CHARSET=utf8;";
-        try(Statement stmt = this.connectionPool.getConnection().createStatement();) { 
+        try(Connection connection = this.connectionPool.pool.getConnection();
+            Statement stmt = connection.createStatement();) { 
             stmt.execute(sql);
             LOGGER.info("Created new table " + this.resultsTableName);
         }
@@ -593,4 +741,295 @@ public class MySQLResultStorage implements IResultStorage {
         return 0;
     }
 
+    /**
+     * <p>
+     * Connection pool that is shared between storages.
+     * </p>
+     * 
+     * @author jvdmosel
+     */
+    private static class SharedConnectionPool {
+
+        /**
+         * the pool
+         */
+        private final MySQLConnectionPool pool;
+
+        /**
+         * number of storages that use the pool
+         */
+        private int users = 0;
+
+        /**
+         * Constructor. Creates a new SharedConnectionPool.
+         *
+         * @param pool
+         *            the pool
+         */
+        private SharedConnectionPool(MySQLConnectionPool pool) {
+            this.pool = pool;
+        }
+    }
+
+    /**
+     * <p>
+     * Background writer that inserts queued results in batches. The writer keeps a connection
+     * and the prepared insert statement while there are results to write.
+     * </p>
+     * 
+     * @author jvdmosel
+     */
+    private static class ResultWriter implements Runnable {
+
+        /**
+         * maximal number of queued results; {@link #add(ExperimentResult)} blocks if the queue is
+         * full
+         */
+        private static final int QUEUE_CAPACITY = 10000;
+
+        /**
+         * connection pool used by the writer
+         */
+        private final MySQLConnectionPool pool;
+
+        /**
+         * SQL statement for the insertion of results
+         */
+        private final String insertSql;
+
+        /**
+         * maximal number of results that are inserted with one batch
+         */
+        private final int batchSize;
+
+        /**
+         * queued results
+         */
+        private final BlockingQueue<ExperimentResult> queue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+
+        /**
+         * number of results that were added to the writer
+         */
+        private long numAdded = 0;
+
+        /**
+         * number of results that were processed by the writer, either successfully or not
+         */
+        private long numProcessed = 0;
+
+        /**
+         * number of stored results per experiment, product, and classifier for all experiments
+         * that were preloaded with {@link MySQLResultStorage#preloadResults(String)}
+         */
+        private final Map<String, Map<List<String>, Integer>> resultIndex = new ConcurrentHashMap<>();
+
+        /**
+         * number of storages that use the writer
+         */
+        private int users = 0;
+
+        /**
+         * thread of the writer; null if not yet started
+         */
+        private Thread thread = null;
+
+        /**
+         * true if the writer shall stop once all results are written
+         */
+        private volatile boolean stopped = false;
+
+        /**
+         * Constructor. Creates a new ResultWriter.
+         *
+         * @param pool
+         *            connection pool used by the writer
+         * @param resultsTableName
+         *            name of the results table
+         * @param batchSize
+         *            maximal number of results that are inserted with one batch
+         */
+        private ResultWriter(MySQLConnectionPool pool, String resultsTableName, int batchSize) {
+            this.pool = pool;
+            this.insertSql = insertStatement(resultsTableName);
+            this.batchSize = Math.max(1, batchSize);
+        }
+
+        /**
+         * <p>
+         * Adds a result to the queue of the writer and starts the writer thread if required.
+         * </p>
+         *
+         * @param result
+         *            the result
+         */
+        private void add(ExperimentResult result) {
+            synchronized (this) {
+                if (this.thread == null) {
+                    this.thread = new Thread(this, "MySQLResultWriter");
+                    this.thread.setDaemon(true);
+                    this.thread.start();
+                }
+                this.numAdded++;
+            }
+            try {
+                this.queue.put(result);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                processed(1);
+                LOGGER.error("interrupted while queuing result for " + result.getProductName());
+            }
+        }
+
+        /**
+         * <p>
+         * Waits until all results that were added so far are written.
+         * </p>
+         */
+        private synchronized void flush() {
+            final long target = this.numAdded;
+            while (this.numProcessed < target && this.thread != null && this.thread.isAlive()) {
+                try {
+                    wait();
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    LOGGER.error("interrupted while waiting for the results to be written");
+                    return;
+                }
+            }
+        }
+
+        /**
+         * <p>
+         * Stops the writer after all queued results are written.
+         * </p>
+         */
+        private void stop() {
+            this.stopped = true;
+            Thread writerThread;
+            synchronized (this) {
+                writerThread = this.thread;
+            }
+            if (writerThread != null) {
+                try {
+                    writerThread.join();
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        /**
+         * <p>
+         * Marks results as processed and notifies threads that wait in {@link #flush()}.
+         * </p>
+         *
+         * @param count
+         *            number of processed results
+         */
+        private synchronized void processed(int count) {
+            this.numProcessed += count;
+            notifyAll();
+        }
+
+        /*
+         * (non-Javadoc)
+         * 
+         * @see java.lang.Runnable#run()
+         */
+        @Override
+        public void run() {
+            final List<ExperimentResult> batch = new ArrayList<>(this.batchSize);
+            Connection connection = null;
+            PreparedStatement stmt = null;
+            try {
+                while (!this.stopped || !this.queue.isEmpty()) {
+                    ExperimentResult first;
+                    try {
+                        first = this.queue.poll(1, TimeUnit.SECONDS);
+                    }
+                    catch (InterruptedException e) {
+                        continue;
+                    }
+                    if (first == null) {
+                        // nothing to do, release the connection
+                        closeQuietly(stmt, connection);
+                        stmt = null;
+                        connection = null;
+                        continue;
+                    }
+                    batch.add(first);
+                    this.queue.drainTo(batch, this.batchSize - 1);
+                    try {
+                        if (connection == null) {
+                            connection = this.pool.getConnection();
+                            stmt = connection.prepareStatement(this.insertSql);
+                        }
+                        for (ExperimentResult result : batch) {
+                            setParameters(stmt, result);
+                            stmt.addBatch();
+                        }
+                        int[] qryResults = stmt.executeBatch();
+                        for (int qryResult : qryResults) {
+                            if (qryResult == 0) {
+                                LOGGER.error("Insert failed.");
+                            }
+                        }
+                    }
+                    catch (SQLException e) {
+                        LOGGER.error("Problem with MySQL connection, " + batch.size() +
+                            " results were not stored: ");
+                        LOGGER.error("SQLException: " + e.getMessage());
+                        LOGGER.error("SQLState: " + e.getSQLState());
+                        LOGGER.error("VendorError: " + e.getErrorCode());
+                        // the connection may be broken, use a new one for the next batch
+                        closeQuietly(stmt, connection);
+                        stmt = null;
+                        connection = null;
+                    }
+                    finally {
+                        processed(batch.size());
+                        batch.clear();
+                    }
+                }
+            }
+            finally {
+                closeQuietly(stmt, connection);
+                synchronized (this) {
+                    notifyAll();
+                }
+            }
+        }
+
+        /**
+         * <p>
+         * Closes the statement and returns the connection to the pool.
+         * </p>
+         *
+         * @param stmt
+         *            the statement (may be null)
+         * @param connection
+         *            the connection (may be null)
+         */
+        private static void closeQuietly(PreparedStatement stmt, Connection connection) {
+            try {
+                if (stmt != null) {
+                    stmt.close();
+                }
+            }
+            catch (SQLException e) {
+                LOGGER.debug("could not close statement: " + e.getMessage());
+            }
+            try {
+                if (connection != null) {
+                    connection.close();
+                }
+            }
+            catch (SQLException e) {
+                LOGGER.debug("could not return connection: " + e.getMessage());
+            }
+        }
+    }
 }
@@ -16,6 +16,7 @@ package de.ugoe.cs.cpdp.eval;
 
 import weka.classifiers.Classifier;
 import weka.classifiers.Evaluation;
+import weka.classifiers.misc.InputMappedClassifier;
 import weka.core.Instances;
 
 /**
@@ -41,4 +42,29 @@ public class NormalWekaEvaluation extends AbstractWekaEvaluation {
             throw new RuntimeException(e);
         }
     }
+
+    /*
+     * @see de.ugoe.cs.cpdp.eval.AbstractWekaEvaluation#createEvaluator(weka.core.Instances,
+     * weka.classifiers.Classifier, double[][])
+     */
+    @Override
+    protected Evaluation createEvaluator(Instances testdata,
+                                         Classifier classifier,
+                                         double[][] distributions)
+    {
+        if (classifier instanceof InputMappedClassifier) {
+            // the evaluation of mapped classifiers requires the mapping of the test data
+            return createEvaluator(testdata, classifier);
+        }
+        try {
+            final Evaluation eval = new Evaluation(testdata);
+            for (int i = 0; i < testdata.numInstances(); i++) {
+                eval.evaluationForSingleInstance(distributions[i], testdata.instance(i), true);
+            }
+            return eval;
+        }
+        catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
 }
@@ -15,6 +15,7 @@
 package de.ugoe.cs.cpdp.execution;
 
 import java.io.File;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
@@ -24,13 +25,14 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import de.ugoe.cs.cpdp.ExperimentConfiguration;
+import de.ugoe.cs.cpdp.IParameterizable;
 import de.ugoe.cs.cpdp.dataprocessing.IProcessesingStrategy;
 import de.ugoe.cs.cpdp.dataprocessing.ISetWiseProcessingStrategy;
 import de.ugoe.cs.cpdp.dataprocessing.IVersionProcessingStrategy;
 import de.ugoe.cs.cpdp.dataselection.IPointWiseDataselectionStrategy;
 import de.ugoe.cs.cpdp.dataselection.ISetWiseDataselectionStrategy;
 import de.ugoe.cs.cpdp.eval.IEvaluationStrategy;
-import de.ugoe.cs.cpdp.loader.IVersionLoader;
+import de.ugoe.cs.cpdp.loader.VersionCache;
 import de.ugoe.cs.cpdp.training.ISetWiseTestdataAwareTrainingStrategy;
 import de.ugoe.cs.cpdp.training.ISetWiseTrainingStrategy;
 import de.ugoe.cs.cpdp.training.ITestAwareTrainingStrategy;
@@ -73,7 +75,7 @@ import de.ugoe.cs.cpdp.versions.SoftwareVersion;
  * 
  * @author Steffen Herbold
  */
-public abstract class AbstractCrossProjectExperiment implements IExecutionStrategy {
+public abstract class AbstractCrossProjectExperiment implements IExecutionStrategy, IParameterizable {
 
 	/**
      * Reference to the logger
@@ -85,6 +87,11 @@ public abstract class AbstractCrossProjectExperiment implements IExecutionStrate
      */
     protected final ExperimentConfiguration config;
 
+    /**
+     * number of test versions that are executed in parallel
+     */
+    private int numThreads = 1;
+
     /**
      * Constructor. Creates a new experiment based on a configuration.
      * 
@@ -118,184 +125,310 @@ public abstract class AbstractCrossProjectExperiment implements IExecutionStrate
      * 
      * @see Runnable#run()
      */
-    @SuppressWarnings("boxing")
     @Override
     public void run() {
-        final List<SoftwareVersion> versions = new LinkedList<>();
+        final List<SoftwareVersion> versions = VersionCache.acquire(this.config.getLoaders());
+        try {
+            CrosspareUtils.filterVersions(versions, this.config.getVersionFilters());
+            CrosspareUtils.preloadResults(this.config);
+        
+            // sort versions
+            Collections.sort(versions);
+
+            // the filters are only evaluated once
+            final BitSet testVersions =
+                CrosspareUtils.matchingVersions(versions, this.config.getTestVersionFilters());
+            final BitSet trainingVersions =
+                CrosspareUtils.matchingVersions(versions, this.config.getTrainingVersionFilters());
 
-        for (IVersionLoader loader : this.config.getLoaders()) {
-            versions.addAll(loader.load());
+            if (this.numThreads > 1) {
+                runParallel(versions, testVersions, trainingVersions);
+            }
+            else {
+                runSequential(versions, testVersions, trainingVersions);
+            }
         }
-        
-        CrosspareUtils.filterVersions(versions, this.config.getVersionFilters());
-        
+        finally {
+            VersionCache.release(this.config.getLoaders());
+        }
+    }
+
+    /**
+     * Sets the parameters of the execution strategy. The parameters are blank-separated. The
+     * parameter <code>threads:n</code> defines that up to n test versions are executed in
+     * parallel. All other parameters are passed to {@link #setStrategyParameter(String)}.
+     * 
+     * @param parameters
+     *            parameters of the execution strategy
+     */
+    @Override
+    public void setParameter(String parameters) {
+        if (parameters == null) {
+            return;
+        }
+        this.numThreads = ParallelExecution.numThreads(parameters);
+        setStrategyParameter(ParallelExecution.otherParameters(parameters));
+    }
+
+    /**
+     * Sets parameters that are specific for the execution strategy. The default implementation
+     * ignores the parameters.
+     * 
+     * @param parameters
+     *            parameters of the execution strategy without the general parameters
+     */
+    protected void setStrategyParameter(String parameters) {
+        // no specific parameters by default
+    }
+
+    /**
+     * Executes the experiment for one test version after another.
+     * 
+     * @param versions
+     *            all software versions in the data set
+     * @param testVersions
+     *            indices of the test versions
+     * @param trainingVersions
+     *            indices of the versions that pass the training version filters
+     */
+    private void runSequential(List<SoftwareVersion> versions,
+                               BitSet testVersions,
+                               BitSet trainingVersions)
+    {
         boolean writeHeader = true;
         int versionCount = 1;
-        int testVersionCount = 0;
-
-        for (SoftwareVersion testVersion : versions) {
-            if (CrosspareUtils.isVersion(testVersion, versions, this.config.getTestVersionFilters())) {
-                testVersionCount++;
+        int testVersionCount = testVersions.cardinality();
+        String resultsFile =
+            this.config.getResultsPath() + "/" + this.config.getExperimentName() + ".csv";
+        for (int i = 0; i < versions.size(); i++) {
+            SoftwareVersion testVersion = versions.get(i);
+            if (testVersions.get(i)) {
+                if (runTestVersion(this.config, testVersion, versions, trainingVersions,
+                                   versionCount, testVersionCount, writeHeader, resultsFile))
+                {
+                    writeHeader = false;
+                }
+                versionCount++;
             }
         }
+    }
 
-        // sort versions
-        Collections.sort(versions);
+    /**
+     * Executes the experiment for all test versions concurrently with a
+     * {@link ParallelExecution}. The results are written to the results file in the order of the
+     * test versions.
+     * 
+     * @param versions
+     *            all software versions in the data set
+     * @param testVersions
+     *            indices of the test versions
+     * @param trainingVersions
+     *            indices of the versions that pass the training version filters
+     */
+    private void runParallel(List<SoftwareVersion> versions,
+                             BitSet testVersions,
+                             BitSet trainingVersions)
+    {
+        LOGGER.info(String.format("[%s] executing up to %d test versions in parallel",
+                                  this.config.getExperimentName(), this.numThreads));
+        final ParallelExecution execution = new ParallelExecution(this.config, this.numThreads);
+        int versionCount = 1;
+        int testVersionCount = testVersions.cardinality();
+        for (int i = 0; i < versions.size(); i++) {
+            SoftwareVersion testVersion = versions.get(i);
+            if (testVersions.get(i)) {
+                final int currentVersionCount = versionCount;
+                execution.submit(taskConfig -> runTestVersion(taskConfig, testVersion, versions,
+                                                              trainingVersions,
+                                                              currentVersionCount,
+                                                              testVersionCount, true, null));
+                versionCount++;
+            }
+        }
+        execution.writeResults();
+    }
 
-        for (SoftwareVersion testVersion : versions) {
-            if (CrosspareUtils.isVersion(testVersion, versions, this.config.getTestVersionFilters())) {
-                LOGGER.info(String.format("[%s] [%02d/%02d] %s: starting",
-                                              this.config.getExperimentName(), versionCount,
-                                              testVersionCount, testVersion.getVersion()));
-                int numResultsAvailable = CrosspareUtils.resultsAvailable(testVersion, this.config);
-                if (numResultsAvailable >= this.config.getRepetitions()) {
-                	LOGGER.info(String.format("[%s] [%02d/%02d] %s: results already available; skipped",
-                                this.config.getExperimentName(), versionCount, testVersionCount,
-                                testVersion.getVersion()));
-                    versionCount++;
-                    continue;
-                }
+    /**
+     * Executes the steps of the experiment described in the class comment for a single test
+     * version.
+     * 
+     * @param experimentConfig
+     *            configuration whose components are used
+     * @param testVersion
+     *            test version
+     * @param versions
+     *            all software versions in the data set
+     * @param trainingVersions
+     *            indices of the versions that pass the training version filters
+     * @param versionCount
+     *            index of the test version (only used for logging)
+     * @param testVersionCount
+     *            number of test versions (only used for logging)
+     * @param writeHeader
+     *            if true, the header of the results is written
+     * @param resultsFile
+     *            file to which the evaluators write the results in case the header is written;
+     *            if null, the output of the evaluators is not changed
+     * @return true if the evaluators were applied, false if the test version was skipped
+     */
+    @SuppressWarnings("boxing")
+    private boolean runTestVersion(ExperimentConfiguration experimentConfig,
+                                   SoftwareVersion testVersion,
+                                   List<SoftwareVersion> versions,
+                                   BitSet trainingVersions,
+                                   int versionCount,
+                                   int testVersionCount,
+                                   boolean writeHeader,
+                                   String resultsFile)
+    {
+        LOGGER.info(String.format("[%s] [%02d/%02d] %s: starting",
+                                      experimentConfig.getExperimentName(), versionCount,
+                                      testVersionCount, testVersion.getVersion()));
+        int numResultsAvailable = CrosspareUtils.resultsAvailable(testVersion, experimentConfig);
+        if (numResultsAvailable >= experimentConfig.getRepetitions()) {
+        	LOGGER.info(String.format("[%s] [%02d/%02d] %s: results already available; skipped",
+                        experimentConfig.getExperimentName(), versionCount, testVersionCount,
+                        testVersion.getVersion()));
+            return false;
+        }
 
-                // Setup testdata and training data                
-                SoftwareVersion testversion = new SoftwareVersion(testVersion);
-                SetUniqueList<SoftwareVersion> trainversionSet =
-                    SetUniqueList.setUniqueList(new LinkedList<SoftwareVersion>());
-                for (SoftwareVersion trainingVersion : versions) {
-                    if (CrosspareUtils.isVersion(trainingVersion, versions, this.config.getTrainingVersionFilters())) {
-                        if (trainingVersion != testversion) {
-                            if (isTrainingVersion(trainingVersion, testversion, versions)) {
-                                SoftwareVersion trainversion = new SoftwareVersion(trainingVersion);
-                            	for(IVersionProcessingStrategy processor : this.config.getTrainingVersionProcessors()) {
-                            		processor.apply(testversion, trainversion);
-                            	}
-                                trainversionSet.add(trainversion);
-                            }
-                        }
+        // Setup testdata and training data                
+        SoftwareVersion testversion = new SoftwareVersion(testVersion);
+        SetUniqueList<SoftwareVersion> trainversionSet =
+            SetUniqueList.setUniqueList(new LinkedList<SoftwareVersion>());
+        for (int i = 0; i < versions.size(); i++) {
+            SoftwareVersion trainingVersion = versions.get(i);
+            if (trainingVersions.get(i)) {
+                if (trainingVersion != testversion) {
+                    if (isTrainingVersion(trainingVersion, testversion, versions)) {
+                        SoftwareVersion trainversion = new SoftwareVersion(trainingVersion);
+                    	for(IVersionProcessingStrategy processor : experimentConfig.getTrainingVersionProcessors()) {
+                    		processor.apply(testversion, trainversion);
+                    	}
+                        trainversionSet.add(trainversion);
                     }
                 }
-                if (trainversionSet.isEmpty()) {
-                	LOGGER.warn(String
-                                    .format("[%s] [%02d/%02d] %s: no training data this product; skipped",
-                                            this.config.getExperimentName(), versionCount, testVersionCount,
-                                            testVersion.getVersion()));
-                    versionCount++;
-                    continue;
-                }
+            }
+        }
+        if (trainversionSet.isEmpty()) {
+        	LOGGER.warn(String
+                            .format("[%s] [%02d/%02d] %s: no training data this product; skipped",
+                                    experimentConfig.getExperimentName(), versionCount, testVersionCount,
+                                    testVersion.getVersion()));
+            return false;
+        }
 
-                for (ISetWiseProcessingStrategy processor : this.config.getSetWisePreprocessors()) {
-                	LOGGER.info(String.format("[%s] [%02d/%02d] %s: applying setwise preprocessor %s",
-                                this.config.getExperimentName(), versionCount, testVersionCount,
-                                testVersion.getVersion(), processor.getClass().getName()));
-                    processor.apply(testversion, trainversionSet);
-                }
-                for (ISetWiseDataselectionStrategy dataselector : this.config
-                    .getSetWiseSelectors())
-                {
-                	LOGGER.info(String.format("[%s] [%02d/%02d] %s: applying setwise selection %s",
-                                               this.config.getExperimentName(), versionCount,
-                                               testVersionCount, testVersion.getVersion(),
-                                               dataselector.getClass().getName()));
-                    dataselector.apply(testversion, trainversionSet);
-                }
-                for (ISetWiseProcessingStrategy processor : this.config
-                    .getSetWisePostprocessors())
-                {
-                	LOGGER.info(String.format("[%s] [%02d/%02d] %s: applying setwise postprocessor %s",
-                                this.config.getExperimentName(), versionCount, testVersionCount,
-                                testVersion.getVersion(), processor.getClass().getName()));
-                    processor.apply(testversion, trainversionSet);
-                }
-                for (ISetWiseTrainingStrategy setwiseTrainer : this.config.getSetWiseTrainers()) {
-                	LOGGER.info(String.format("[%s] [%02d/%02d] %s: applying setwise trainer %s",
-                                               this.config.getExperimentName(), versionCount,
-                                               testVersionCount, testVersion.getVersion(),
-                                               setwiseTrainer.getName()));
-                    setwiseTrainer.apply(trainversionSet);
-                }
-                for (ISetWiseTestdataAwareTrainingStrategy setwiseTestdataAwareTrainer : this.config
-                    .getSetWiseTestdataAwareTrainers())
-                {
-                	LOGGER.info(String.format("[%s] [%02d/%02d] %s: applying testdata aware setwise trainer %s",
-                                this.config.getExperimentName(), versionCount, testVersionCount,
-                                testVersion.getVersion(), setwiseTestdataAwareTrainer.getName()));
-                    setwiseTestdataAwareTrainer.apply(trainversionSet, testversion);
-                }
-                SoftwareVersion trainversion = CrosspareUtils.makeSingleVersionSet(trainversionSet);
-                for (IProcessesingStrategy processor : this.config.getPreProcessors()) {
-                	LOGGER.info(String.format("[%s] [%02d/%02d] %s: applying preprocessor %s",
-                                                  this.config.getExperimentName(), versionCount,
-                                                  testVersionCount, testVersion.getVersion(),
-                                                  processor.getClass().getName()));
-                    processor.apply(testversion, trainversion);
-                }
-                for (IPointWiseDataselectionStrategy dataselector : this.config
-                    .getPointWiseSelectors())
-                {
-                	LOGGER.info(String.format("[%s] [%02d/%02d] %s: applying pointwise selection %s",
-                                this.config.getExperimentName(), versionCount, testVersionCount,
-                                testVersion.getVersion(), dataselector.getClass().getName()));
-                    trainversion = dataselector.apply(testversion, trainversion);
-                }
-                for (IProcessesingStrategy processor : this.config.getPostProcessors()) {
-                	LOGGER.info(String.format("[%s] [%02d/%02d] %s: applying setwise postprocessor %s",
-                                this.config.getExperimentName(), versionCount, testVersionCount,
-                                testVersion.getVersion(), processor.getClass().getName()));
-                    processor.apply(testversion, trainversion);
-                }
-                for (ITrainingStrategy trainer : this.config.getTrainers()) {
-                	LOGGER.info(String.format("[%s] [%02d/%02d] %s: applying trainer %s",
-                                                  this.config.getExperimentName(), versionCount,
-                                                  testVersionCount, testVersion.getVersion(),
-                                                  trainer.getName()));
-                    trainer.apply(trainversion);
-                }
-                for (ITestAwareTrainingStrategy trainer : this.config.getTestAwareTrainers()) {
-                	LOGGER.info(String.format("[%s] [%02d/%02d] %s: applying trainer %s",
-                                                  this.config.getExperimentName(), versionCount,
-                                                  testVersionCount, testVersion.getVersion(),
-                                                  trainer.getName()));
-                    trainer.apply(testversion, trainversion);
-                }
-                File resultsDir = new File(this.config.getResultsPath());
-                if (!resultsDir.exists()) {
-                    resultsDir.mkdir();
-                }
-                for (IEvaluationStrategy evaluator : this.config.getEvaluators()) {
-                	LOGGER.info(String.format("[%s] [%02d/%02d] %s: applying evaluator %s",
-                                                  this.config.getExperimentName(), versionCount,
-                                                  testVersionCount, testVersion.getVersion(),
-                                                  evaluator.getClass().getName()));
-                    List<ITrainer> allTrainers = new LinkedList<>();
-                    for (ISetWiseTrainingStrategy setwiseTrainer : this.config
-                        .getSetWiseTrainers())
-                    {
-                        allTrainers.add(setwiseTrainer);
-                    }
-                    for (ISetWiseTestdataAwareTrainingStrategy setwiseTestdataAwareTrainer : this.config
-                        .getSetWiseTestdataAwareTrainers())
-                    {
-                        allTrainers.add(setwiseTestdataAwareTrainer);
-                    }
-                    for (ITrainingStrategy trainer : this.config.getTrainers()) {
-                        allTrainers.add(trainer);
-                    }
-                    for (ITestAwareTrainingStrategy trainer : this.config.getTestAwareTrainers()) {
-                        allTrainers.add(trainer);
-                    }
-                    if (writeHeader) {
-                        evaluator.setParameter(this.config.getResultsPath() + "/" +
-                            this.config.getExperimentName() + ".csv");
-                    }
-                    evaluator.apply(testversion.getInstances(), trainversion.getInstances(), allTrainers,
-                            testversion.getEfforts(), testversion.getNumBugs(), testversion.getBugMatrix(), writeHeader,
-                            this.config.getResultStorages());
-                    writeHeader = false;
-                }
-                LOGGER.info(String.format("[%s] [%02d/%02d] %s: finished",
-                                              this.config.getExperimentName(), versionCount,
-                                              testVersionCount, testVersion.getVersion()));
-                versionCount++;
+        for (ISetWiseProcessingStrategy processor : experimentConfig.getSetWisePreprocessors()) {
+        	LOGGER.info(String.format("[%s] [%02d/%02d] %s: applying setwise preprocessor %s",
+                        experimentConfig.getExperimentName(), versionCount, testVersionCount,
+                        testVersion.getVersion(), processor.getClass().getName()));
+            processor.apply(testversion, trainversionSet);
+        }
+        for (ISetWiseDataselectionStrategy dataselector : experimentConfig
+            .getSetWiseSelectors())
+        {
+        	LOGGER.info(String.format("[%s] [%02d/%02d] %s: applying setwise selection %s",
+                                       experimentConfig.getExperimentName(), versionCount,
+                                       testVersionCount, testVersion.getVersion(),
+                                       dataselector.getClass().getName()));
+            dataselector.apply(testversion, trainversionSet);
+        }
+        for (ISetWiseProcessingStrategy processor : experimentConfig
+            .getSetWisePostprocessors())
+        {
+        	LOGGER.info(String.format("[%s] [%02d/%02d] %s: applying setwise postprocessor %s",
+                        experimentConfig.getExperimentName(), versionCount, testVersionCount,
+                        testVersion.getVersion(), processor.getClass().getName()));
+            processor.apply(testversion, trainversionSet);
+        }
+        for (ISetWiseTrainingStrategy setwiseTrainer : experimentConfig.getSetWiseTrainers()) {
+        	LOGGER.info(String.format("[%s] [%02d/%02d] %s: applying setwise trainer %s",
+                                       experimentConfig.getExperimentName(), versionCount,
+                                       testVersionCount, testVersion.getVersion(),
+                                       setwiseTrainer.getName()));
+            setwiseTrainer.apply(trainversionSet);
+        }
+        for (ISetWiseTestdataAwareTrainingStrategy setwiseTestdataAwareTrainer : experimentConfig
+            .getSetWiseTestdataAwareTrainers())
+        {
+        	LOGGER.info(String.format("[%s] [%02d/%02d] %s: applying testdata aware setwise trainer %s",
+                        experimentConfig.getExperimentName(), versionCount, testVersionCount,
+                        testVersion.getVersion(), setwiseTestdataAwareTrainer.getName()));
+            setwiseTestdataAwareTrainer.apply(trainversionSet, testversion);
+        }
+        SoftwareVersion trainversion = CrosspareUtils.makeSingleVersionSet(trainversionSet);
+        for (IProcessesingStrategy processor : experimentConfig.getPreProcessors()) {
+        	LOGGER.info(String.format("[%s] [%02d/%02d] %s: applying preprocessor %s",
+                                          experimentConfig.getExperimentName(), versionCount,
+                                          testVersionCount, testVersion.getVersion(),
+                                          processor.getClass().getName()));
+            processor.apply(testversion, trainversion);
+        }
+        for (IPointWiseDataselectionStrategy dataselector : experimentConfig
+            .getPointWiseSelectors())
+        {
+        	LOGGER.info(String.format("[%s] [%02d/%02d] %s: applying pointwise selection %s",
+                        experimentConfig.getExperimentName(), versionCount, testVersionCount,
+                        testVersion.getVersion(), dataselector.getClass().getName()));
+            trainversion = dataselector.apply(testversion, trainversion);
+        }
+        for (IProcessesingStrategy processor : experimentConfig.getPostProcessors()) {
+        	LOGGER.info(String.format("[%s] [%02d/%02d] %s: applying setwise postprocessor %s",
+                        experimentConfig.getExperimentName(), versionCount, testVersionCount,
+                        testVersion.getVersion(), processor.getClass().getName()));
+            processor.apply(testversion, trainversion);
+        }
+        for (ITrainingStrategy trainer : experimentConfig.getTrainers()) {
+        	LOGGER.info(String.format("[%s] [%02d/%02d] %s: applying trainer %s",
+                                          experimentConfig.getExperimentName(), versionCount,
+                                          testVersionCount, testVersion.getVersion(),
+                                          trainer.getName()));
+            trainer.apply(trainversion);
+        }
+        for (ITestAwareTrainingStrategy trainer : experimentConfig.getTestAwareTrainers()) {
+        	LOGGER.info(String.format("[%s] [%02d/%02d] %s: applying trainer %s",
+                                          experimentConfig.getExperimentName(), versionCount,
+                                          testVersionCount, testVersion.getVersion(),
+                                          trainer.getName()));
+            trainer.apply(testversion, trainversion);
+        }
+        File resultsDir = new File(experimentConfig.getResultsPath());
+        if (!resultsDir.exists()) {
+            resultsDir.mkdir();
+        }
+        for (IEvaluationStrategy evaluator : experimentConfig.getEvaluators()) {
+        	LOGGER.info(String.format("[%s] [%02d/%02d] %s: applying evaluator %s",
+                                          experimentConfig.getExperimentName(), versionCount,
+                                          testVersionCount, testVersion.getVersion(),
+                                          evaluator.getClass().getName()));
+            List<ITrainer> allTrainers = new LinkedList<>();
+            for (ISetWiseTrainingStrategy setwiseTrainer : experimentConfig
+                .getSetWiseTrainers())
+            {
+                allTrainers.add(setwiseTrainer);
+            }
+            for (ISetWiseTestdataAwareTrainingStrategy setwiseTestdataAwareTrainer : experimentConfig
+                .getSetWiseTestdataAwareTrainers())
+            {
+                allTrainers.add(setwiseTestdataAwareTrainer);
+            }
+            for (ITrainingStrategy trainer : experimentConfig.getTrainers()) {
+                allTrainers.add(trainer);
+            }
+            for (ITestAwareTrainingStrategy trainer : experimentConfig.getTestAwareTrainers()) {
+                allTrainers.add(trainer);
+            }
+            if (writeHeader && resultsFile != null) {
+                evaluator.setParameter(resultsFile);
             }
+            evaluator.apply(testversion.getInstances(), trainversion.getInstances(), allTrainers,
+                    testversion.getEfforts(), testversion.getNumBugs(), testversion.getBugMatrix(), writeHeader,
+                    experimentConfig.getResultStorages());
+            writeHeader = false;
         }
+        LOGGER.info(String.format("[%s] [%02d/%02d] %s: finished",
+                                      experimentConfig.getExperimentName(), versionCount,
+                                      testVersionCount, testVersion.getVersion()));
+        return true;
     }
 }
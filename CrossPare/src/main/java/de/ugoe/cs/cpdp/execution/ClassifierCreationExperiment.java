@@ -25,7 +25,7 @@ import de.ugoe.cs.cpdp.ExperimentConfiguration;
 import de.ugoe.cs.cpdp.dataprocessing.IProcessesingStrategy;
 import de.ugoe.cs.cpdp.dataselection.IPointWiseDataselectionStrategy;
 import de.ugoe.cs.cpdp.eval.IEvaluationStrategy;
-import de.ugoe.cs.cpdp.loader.IVersionLoader;
+import de.ugoe.cs.cpdp.loader.VersionCache;
 import de.ugoe.cs.cpdp.training.ITrainer;
 import de.ugoe.cs.cpdp.training.ITrainingStrategy;
 import de.ugoe.cs.cpdp.training.IWekaCompatibleTrainer;
@@ -88,107 +88,106 @@ public class ClassifierCreationExperiment implements IExecutionStrategy {
     @SuppressWarnings("boxing")
     @Override
     public void run() {
-        final List<SoftwareVersion> versions = new LinkedList<>();
+        final List<SoftwareVersion> versions = VersionCache.acquire(this.config.getLoaders());
+        try {
+            boolean writeHeader = true;
 
-        boolean writeHeader = true;
-
-        for (IVersionLoader loader : this.config.getLoaders()) {
-            versions.addAll(loader.load());
-        }
+            File resultsDir = new File(this.config.getResultsPath());
+            if (!resultsDir.exists()) {
+                resultsDir.mkdir();
+            }
 
-        File resultsDir = new File(this.config.getResultsPath());
-        if (!resultsDir.exists()) {
-            resultsDir.mkdir();
-        }
+            int versionCount = 1;
+            for (SoftwareVersion testVersion : versions) {
 
-        int versionCount = 1;
-        for (SoftwareVersion testVersion : versions) {
+                // At first: traindata == testdata
+                SoftwareVersion testversion = new SoftwareVersion(testVersion);
+                SoftwareVersion trainversion = new SoftwareVersion(testVersion);
 
-            // At first: traindata == testdata
-            SoftwareVersion testversion = new SoftwareVersion(testVersion);
-            SoftwareVersion trainversion = new SoftwareVersion(testVersion);
+                // Give the dataset a new name
+                testversion.getInstances().setRelationName(testVersion.getProject());
 
-            // Give the dataset a new name
-            testversion.getInstances().setRelationName(testVersion.getProject());
+                for (IProcessesingStrategy processor : this.config.getPreProcessors()) {
+                    LOGGER.info(String.format("[%s] [%02d/%02d] %s: applying preprocessor %s",
+                                                  this.config.getExperimentName(), versionCount,
+                                                  versions.size(), testVersion.getProject(),
+                                                  processor.getClass().getName()));
+                    processor.apply(testversion, trainversion);
+                }
 
-            for (IProcessesingStrategy processor : this.config.getPreProcessors()) {
-                LOGGER.info(String.format("[%s] [%02d/%02d] %s: applying preprocessor %s",
-                                              this.config.getExperimentName(), versionCount,
-                                              versions.size(), testVersion.getProject(),
-                                              processor.getClass().getName()));
-                processor.apply(testversion, trainversion);
-            }
+                for (IPointWiseDataselectionStrategy dataselector : this.config
+                    .getPointWiseSelectors())
+                {
+                	LOGGER.info(String.format("[%s] [%02d/%02d] %s: applying pointwise selection %s",
+                                               this.config.getExperimentName(), versionCount,
+                                               versions.size(), testVersion.getProject(),
+                                               dataselector.getClass().getName()));
+                    trainversion = dataselector.apply(testversion, trainversion);
+                }
 
-            for (IPointWiseDataselectionStrategy dataselector : this.config
-                .getPointWiseSelectors())
-            {
-            	LOGGER.info(String.format("[%s] [%02d/%02d] %s: applying pointwise selection %s",
-                                           this.config.getExperimentName(), versionCount,
-                                           versions.size(), testVersion.getProject(),
-                                           dataselector.getClass().getName()));
-                trainversion = dataselector.apply(testversion, trainversion);
-            }
+                for (IProcessesingStrategy processor : this.config.getPostProcessors()) {
+                	LOGGER.info(String.format("[%s] [%02d/%02d] %s: applying setwise postprocessor %s",
+                                               this.config.getExperimentName(), versionCount,
+                                               versions.size(), testVersion.getProject(),
+                                               processor.getClass().getName()));
+                    processor.apply(testversion, trainversion);
+                }
 
-            for (IProcessesingStrategy processor : this.config.getPostProcessors()) {
-            	LOGGER.info(String.format("[%s] [%02d/%02d] %s: applying setwise postprocessor %s",
-                                           this.config.getExperimentName(), versionCount,
-                                           versions.size(), testVersion.getProject(),
-                                           processor.getClass().getName()));
-                processor.apply(testversion, trainversion);
-            }
+                // Trainerlist for evaluation later on
+                List<ITrainer> allTrainers = new LinkedList<>();
 
-            // Trainerlist for evaluation later on
-            List<ITrainer> allTrainers = new LinkedList<>();
+                for (ITrainingStrategy trainer : this.config.getTrainers()) {
 
-            for (ITrainingStrategy trainer : this.config.getTrainers()) {
+                    // Add trainer to list for evaluation
+                    allTrainers.add(trainer);
 
-                // Add trainer to list for evaluation
-                allTrainers.add(trainer);
+                    // Train classifier
+                    trainer.apply(trainversion);
 
-                // Train classifier
-                trainer.apply(trainversion);
+                    if (this.config.getSaveClassifier()) {
+                        // If classifier should be saved, train him and save him
+                        // be careful with typecasting here!
+                        IWekaCompatibleTrainer trainerToSave = (IWekaCompatibleTrainer) trainer;
+                        // Console.println(trainerToSave.getClassifier().toString());
+                        try {
+                            weka.core.SerializationHelper.write(resultsDir.getAbsolutePath() + "/" +
+                                trainer.getName() + "-" + testVersion.getProject(),
+                                                                trainerToSave.getClassifier());
+                        }
+                        catch (Exception e) {
+                            e.printStackTrace();
+                        }
 
-                if (this.config.getSaveClassifier()) {
-                    // If classifier should be saved, train him and save him
-                    // be careful with typecasting here!
-                    IWekaCompatibleTrainer trainerToSave = (IWekaCompatibleTrainer) trainer;
-                    // Console.println(trainerToSave.getClassifier().toString());
-                    try {
-                        weka.core.SerializationHelper.write(resultsDir.getAbsolutePath() + "/" +
-                            trainer.getName() + "-" + testVersion.getProject(),
-                                                            trainerToSave.getClassifier());
                     }
-                    catch (Exception e) {
-                        e.printStackTrace();
-                    }
-
                 }
-            }
 
-            for (IEvaluationStrategy evaluator : this.config.getEvaluators()) {
-            	LOGGER.info(String.format("[%s] [%02d/%02d] %s: applying evaluator %s",
-                                              this.config.getExperimentName(), versionCount,
-                                              versions.size(), testVersion.getProject(),
-                                              evaluator.getClass().getName()));
+                for (IEvaluationStrategy evaluator : this.config.getEvaluators()) {
+                	LOGGER.info(String.format("[%s] [%02d/%02d] %s: applying evaluator %s",
+                                                  this.config.getExperimentName(), versionCount,
+                                                  versions.size(), testVersion.getProject(),
+                                                  evaluator.getClass().getName()));
 
-                if (writeHeader) {
-                    evaluator.setParameter(this.config.getResultsPath() + "/" +
-                        this.config.getExperimentName() + ".csv");
+                    if (writeHeader) {
+                        evaluator.setParameter(this.config.getResultsPath() + "/" +
+                            this.config.getExperimentName() + ".csv");
+                    }
+                    evaluator.apply(testversion.getInstances(), trainversion.getInstances(), allTrainers,
+                            testversion.getEfforts(), testversion.getNumBugs(), testversion.getBugMatrix(), writeHeader,
+                            this.config.getResultStorages());
+                    writeHeader = false;
                 }
-                evaluator.apply(testversion.getInstances(), trainversion.getInstances(), allTrainers,
-                        testversion.getEfforts(), testversion.getNumBugs(), testversion.getBugMatrix(), writeHeader,
-                        this.config.getResultStorages());
-                writeHeader = false;
-            }
 
-            versionCount++;
+                versionCount++;
 
-            LOGGER.info(String.format("[%s] [%02d/%02d] %s: finished",
-                                          this.config.getExperimentName(), versionCount,
-                                          versions.size(), testVersion.getProject()));
+                LOGGER.info(String.format("[%s] [%02d/%02d] %s: finished",
+                                              this.config.getExperimentName(), versionCount,
+                                              versions.size(), testVersion.getProject()));
 
+            }
+        }
+        finally {
+            VersionCache.release(this.config.getLoaders());
         }
-
     }
 
 }
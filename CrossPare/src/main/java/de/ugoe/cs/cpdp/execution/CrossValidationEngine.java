@@ -0,0 +1,360 @@
+// Copyright 2015 Georg-August-Universität Göttingen, Germany
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package de.ugoe.cs.cpdp.execution;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import de.ugoe.cs.cpdp.ExperimentConfiguration;
+import de.ugoe.cs.cpdp.eval.CVWekaEvaluation;
+import de.ugoe.cs.cpdp.eval.IEvaluationStrategy;
+import de.ugoe.cs.cpdp.training.ITrainer;
+import de.ugoe.cs.cpdp.training.ITrainingStrategy;
+import de.ugoe.cs.cpdp.training.IWekaCompatibleTrainer;
+import de.ugoe.cs.cpdp.versions.SoftwareVersion;
+import weka.classifiers.Classifier;
+
+/**
+ * <p>
+ * Execution engine for {@link CrossValidationExperiment}s that runs all test versions in a shared
+ * thread pool. The work of the experiment is split into tasks that are created up front for all
+ * test versions:
+ * </p>
+ * <ul>
+ * <li>the setup and processing of each test version</li>
+ * <li>the training of each trainer with the test version</li>
+ * <li>the training and prediction of each fold of the cross validation of each trainer</li>
+ * <li>the evaluation of each test version</li>
+ * </ul>
+ * <p>
+ * The tasks are executed with a {@link ParallelExecution}. Each test version borrows a copy of
+ * the configuration that is not used by any other test version at the same time, such that the
+ * trainers and evaluators are not shared between test versions. The folds are only predicted by
+ * the engine for the {@link CVWekaEvaluation}, all other evaluators evaluate the trainers
+ * themselves. The results are written to the results file in the order of the test versions,
+ * i.e., the results file is the same as the results file of the sequential execution.
+ * </p>
+ *
+ * @author jvdmosel
+ */
+class CrossValidationEngine {
+
+    /**
+     * Reference to the logger
+     */
+    private static final Logger LOGGER = LogManager.getLogger("main");
+
+    /**
+     * configuration of the experiment
+     */
+    private final ExperimentConfiguration config;
+
+    /**
+     * number of threads of the thread pool
+     */
+    private final int numThreads;
+
+    /**
+     * Constructor. Creates a new engine for an experiment.
+     *
+     * @param config
+     *            configuration of the experiment
+     * @param numThreads
+     *            number of threads of the thread pool
+     */
+    @SuppressWarnings("hiding")
+    CrossValidationEngine(ExperimentConfiguration config, int numThreads) {
+        this.config = config;
+        this.numThreads = numThreads;
+    }
+
+    /**
+     * Executes the experiment for all test versions.
+     *
+     * @param versions
+     *            all software versions in the data set
+     * @param testVersions
+     *            indices of the test versions
+     * @param trainingVersions
+     *            indices of the versions that pass the training version filters
+     */
+    @SuppressWarnings("boxing")
+    void run(List<SoftwareVersion> versions, BitSet testVersions, BitSet trainingVersions) {
+        LOGGER.info(String.format("[%s] executing cross validation with up to %d threads",
+                                  this.config.getExperimentName(), this.numThreads));
+        final ParallelExecution execution = new ParallelExecution(this.config, this.numThreads);
+        final int numTrainers = CrossValidationExperiment.allTrainers(this.config).size();
+        int versionCount = 1;
+        int testVersionCount = testVersions.cardinality();
+        for (int i = 0; i < versions.size(); i++) {
+            SoftwareVersion testVersion = versions.get(i);
+            if (testVersions.get(i)) {
+                LOGGER.info(String.format("[%s] [%02d/%02d] %s: starting",
+                                          this.config.getExperimentName(), versionCount,
+                                          testVersionCount, testVersion.getVersion()));
+                if (CrossValidationExperiment.resultsAvailable(this.config, testVersion)) {
+                    LOGGER.info(String.format("[%s] [%02d/%02d] %s: results already available; skipped",
+                                              this.config.getExperimentName(), versionCount,
+                                              testVersionCount, testVersion.getVersion()));
+                }
+                else {
+                    execution.addResult(submit(execution, testVersion, versions, trainingVersions,
+                                               numTrainers, versionCount, testVersionCount));
+                }
+                versionCount++;
+            }
+        }
+        execution.writeResults();
+    }
+
+    /**
+     * Creates the tasks for a test version and submits them to the thread pool. The trainers are
+     * trained after the test version is prepared, the folds of a trainer are predicted after the
+     * trainer is trained, and the test version is evaluated after all folds are predicted.
+     *
+     * @param execution
+     *            the parallel execution whose thread pool and configuration copies are used
+     * @param testVersion
+     *            test version
+     * @param versions
+     *            all software versions in the data set
+     * @param trainingVersions
+     *            indices of the versions that pass the training version filters
+     * @param numTrainers
+     *            number of trainers of the experiment
+     * @param versionCount
+     *            index of the test version (only used for logging)
+     * @param testVersionCount
+     *            number of test versions (only used for logging)
+     * @return the results of the test version
+     */
+    private CompletableFuture<String> submit(ParallelExecution execution,
+                                             SoftwareVersion testVersion,
+                                             List<SoftwareVersion> versions,
+                                             BitSet trainingVersions,
+                                             int numTrainers,
+                                             int versionCount,
+                                             int testVersionCount)
+    {
+        final ExecutorService threadPool = execution.getThreadPool();
+        final CompletableFuture<VersionTask> prepared = CompletableFuture
+            .supplyAsync(() -> new VersionTask(execution, testVersion, versions,
+                                               trainingVersions, versionCount, testVersionCount),
+                         threadPool);
+        final List<CompletableFuture<Void>> foldTasks = new ArrayList<>();
+        for (int t = 0; t < numTrainers; t++) {
+            final int trainer = t;
+            final CompletableFuture<VersionTask> trained =
+                prepared.thenApplyAsync(task -> task.train(trainer), threadPool);
+            for (int f = 0; f < CVWekaEvaluation.NUM_FOLDS; f++) {
+                final int fold = f;
+                foldTasks.add(trained.thenAcceptAsync(task -> task.predict(trainer, fold),
+                                                      threadPool));
+            }
+        }
+        return CompletableFuture.allOf(foldTasks.toArray(new CompletableFuture<?>[0]))
+            .thenCombineAsync(prepared, (done, task) -> task.evaluate(), threadPool);
+    }
+
+    /**
+     * <p>
+     * State of the execution of a single test version.
+     * </p>
+     *
+     * @author jvdmosel
+     */
+    private class VersionTask {
+
+        /**
+         * the parallel execution from which the configuration is borrowed
+         */
+        private final ParallelExecution execution;
+
+        /**
+         * configuration whose components are used for the test version
+         */
+        private final ExperimentConfiguration taskConfig;
+
+        /**
+         * the original test version
+         */
+        private final SoftwareVersion testVersion;
+
+        /**
+         * processed copy of the test version
+         */
+        private final SoftwareVersion testversion;
+
+        /**
+         * index of the test version (only used for logging)
+         */
+        private final int versionCount;
+
+        /**
+         * number of test versions (only used for logging)
+         */
+        private final int testVersionCount;
+
+        /**
+         * all trainers of the task configuration
+         */
+        private final List<ITrainer> allTrainers;
+
+        /**
+         * cross validations for each evaluator and trainer; null if the folds are not predicted
+         * by the engine
+         */
+        private final CVWekaEvaluation.CrossValidation[][] crossValidations;
+
+        /**
+         * output of the evaluators
+         */
+        private final StringWriter output = new StringWriter();
+
+        /**
+         * Constructor. Borrows a copy of the configuration and prepares the test version.
+         *
+         * @param execution
+         *            the parallel execution from which the configuration is borrowed
+         * @param testVersion
+         *            test version
+         * @param versions
+         *            all software versions in the data set
+         * @param trainingVersions
+         *            indices of the versions that pass the training version filters
+         * @param versionCount
+         *            index of the test version (only used for logging)
+         * @param testVersionCount
+         *            number of test versions (only used for logging)
+         */
+        @SuppressWarnings("hiding")
+        private VersionTask(ParallelExecution execution,
+                            SoftwareVersion testVersion,
+                            List<SoftwareVersion> versions,
+                            BitSet trainingVersions,
+                            int versionCount,
+                            int testVersionCount)
+        {
+            this.execution = execution;
+            this.taskConfig = execution.borrowConfig(this.output);
+            this.testVersion = testVersion;
+            this.versionCount = versionCount;
+            this.testVersionCount = testVersionCount;
+            this.testversion = CrossValidationExperiment
+                .prepareTestVersion(this.taskConfig, testVersion, versions, trainingVersions,
+                                    versionCount, testVersionCount);
+            // the data is owned exclusively before the trainers and folds access it concurrently
+            this.testversion.getInstances();
+            this.allTrainers = new ArrayList<>(CrossValidationExperiment.allTrainers(this.taskConfig));
+            this.crossValidations = new CVWekaEvaluation.CrossValidation[this.taskConfig
+                .getEvaluators().size()][this.allTrainers.size()];
+        }
+
+        /**
+         * Trains a trainer with the test version and splits the test version into the folds of
+         * the cross validations of the trainer.
+         *
+         * @param trainer
+         *            index of the trainer
+         * @return this task
+         */
+        @SuppressWarnings("boxing")
+        private VersionTask train(int trainer) {
+            final ITrainer currentTrainer = this.allTrainers.get(trainer);
+            if (this.taskConfig.getTrainers().contains(currentTrainer)) {
+                final ITrainingStrategy trainingStrategy = (ITrainingStrategy) currentTrainer;
+                LOGGER.info(String.format("[%s] [%02d/%02d] %s: applying trainer %s",
+                                          this.taskConfig.getExperimentName(), this.versionCount,
+                                          this.testVersionCount, this.testVersion.getVersion(),
+                                          trainingStrategy.getName()));
+                trainingStrategy.apply(this.testversion);
+            }
+            if (currentTrainer instanceof IWekaCompatibleTrainer &&
+                CVWekaEvaluation
+                    .isFoldwise(((IWekaCompatibleTrainer) currentTrainer).getClassifier()))
+            {
+                int e = 0;
+                for (IEvaluationStrategy evaluator : this.taskConfig.getEvaluators()) {
+                    if (evaluator instanceof CVWekaEvaluation) {
+                        this.crossValidations[e][trainer] = ((CVWekaEvaluation) evaluator)
+                            .createCrossValidation(this.testversion.getInstancesReadOnly());
+                    }
+                    e++;
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Predicts a fold of the cross validations of a trainer.
+         *
+         * @param trainer
+         *            index of the trainer
+         * @param fold
+         *            index of the fold
+         */
+        private void predict(int trainer, int fold) {
+            for (CVWekaEvaluation.CrossValidation[] evaluatorCrossValidations : this.crossValidations) {
+                if (evaluatorCrossValidations[trainer] != null) {
+                    evaluatorCrossValidations[trainer]
+                        .predict(((IWekaCompatibleTrainer) this.allTrainers.get(trainer))
+                            .getClassifier(), fold);
+                }
+            }
+        }
+
+        /**
+         * Applies the evaluators to the test version and returns the borrowed configuration.
+         *
+         * @return output of the evaluators
+         */
+        @SuppressWarnings("boxing")
+        private String evaluate() {
+            int e = 0;
+            for (IEvaluationStrategy evaluator : this.taskConfig.getEvaluators()) {
+                LOGGER.info(String.format("[%s] [%02d/%02d] %s: applying evaluator %s",
+                                          this.taskConfig.getExperimentName(), this.versionCount,
+                                          this.testVersionCount, this.testVersion.getVersion(),
+                                          evaluator.getClass().getName()));
+                for (int trainer = 0; trainer < this.allTrainers.size(); trainer++) {
+                    if (this.crossValidations[e][trainer] != null) {
+                        Classifier classifier =
+                            ((IWekaCompatibleTrainer) this.allTrainers.get(trainer)).getClassifier();
+                        ((CVWekaEvaluation) evaluator)
+                            .setCrossValidation(classifier, this.crossValidations[e][trainer]);
+                    }
+                }
+                evaluator.apply(this.testversion.getInstances(), this.testversion.getInstances(),
+                                this.allTrainers, this.testversion.getEfforts(),
+                                this.testversion.getNumBugs(), this.testversion.getBugMatrix(),
+                                e == 0, this.taskConfig.getResultStorages());
+                e++;
+            }
+            LOGGER.info(String.format("[%s] [%02d/%02d] %s: finished",
+                                      this.taskConfig.getExperimentName(), this.versionCount,
+                                      this.testVersionCount, this.testVersion.getVersion()));
+            final String result = this.output.toString();
+            this.execution.returnConfig(this.taskConfig);
+            return result;
+        }
+    }
+}
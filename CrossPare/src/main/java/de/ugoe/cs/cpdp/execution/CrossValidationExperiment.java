@@ -15,20 +15,21 @@
 package de.ugoe.cs.cpdp.execution;
 
 import java.io.File;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 
-
 import org.apache.commons.collections4.list.SetUniqueList;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import de.ugoe.cs.cpdp.ExperimentConfiguration;
+import de.ugoe.cs.cpdp.IParameterizable;
 import de.ugoe.cs.cpdp.dataprocessing.IProcessesingStrategy;
 import de.ugoe.cs.cpdp.dataprocessing.ISetWiseProcessingStrategy;
 import de.ugoe.cs.cpdp.eval.IEvaluationStrategy;
-import de.ugoe.cs.cpdp.loader.IVersionLoader;
+import de.ugoe.cs.cpdp.loader.VersionCache;
 import de.ugoe.cs.cpdp.training.ISetWiseTestdataAwareTrainingStrategy;
 import de.ugoe.cs.cpdp.training.ISetWiseTrainingStrategy;
 import de.ugoe.cs.cpdp.training.ITestAwareTrainingStrategy;
@@ -67,11 +68,13 @@ import de.ugoe.cs.cpdp.versions.SoftwareVersion;
  * </ul>
  * 
  * Note that this class implements {@link Runnable}, i.e., each experiment can be started in its own
- * thread.
+ * thread. With the parameter <code>threads:n</code>, the experiment is executed by the
+ * {@link CrossValidationEngine}, which trains and evaluates the test versions, trainers, and folds
+ * of the cross validation concurrently with up to n threads.
  * 
  * @author Steffen Herbold
  */
-public class CrossValidationExperiment implements IExecutionStrategy {
+public class CrossValidationExperiment implements IExecutionStrategy, IParameterizable {
 
 	/**
      * Reference to the logger
@@ -83,6 +86,11 @@ public class CrossValidationExperiment implements IExecutionStrategy {
      */
     protected final ExperimentConfiguration config;
 
+    /**
+     * number of threads used for the execution of the experiment
+     */
+    private int numThreads = 1;
+
     /**
      * Constructor. Creates a new experiment based on a configuration.
      * 
@@ -94,48 +102,79 @@ public class CrossValidationExperiment implements IExecutionStrategy {
         this.config = config;
     }
 
+    /**
+     * Sets the parameters of the execution strategy. The parameters are blank-separated. The
+     * parameter <code>threads:n</code> defines that the experiment is executed with up to n
+     * threads by the {@link CrossValidationEngine}.
+     * 
+     * @param parameters
+     *            parameters of the execution strategy
+     */
+    @Override
+    public void setParameter(String parameters) {
+        this.numThreads = ParallelExecution.numThreads(parameters);
+    }
+
     /**
      * Executes the experiment with the steps as described in the class comment.
      * 
      * @see Runnable#run()
      */
-    @SuppressWarnings("boxing")
     @Override
     public void run() {
-        final List<SoftwareVersion> versions = new LinkedList<>();
+        final List<SoftwareVersion> versions = VersionCache.acquire(this.config.getLoaders());
+        try {
+            CrosspareUtils.filterVersions(versions, this.config.getVersionFilters());
+            CrosspareUtils.preloadResults(this.config);
 
-        for (IVersionLoader loader : this.config.getLoaders()) {
-            versions.addAll(loader.load());
-        }
+            // sort versions
+            Collections.sort(versions);
 
-        CrosspareUtils.filterVersions(versions, this.config.getVersionFilters());
+            // the filters are only evaluated once
+            final BitSet testVersions =
+                CrosspareUtils.matchingVersions(versions, this.config.getTestVersionFilters());
+            final BitSet trainingVersions =
+                CrosspareUtils.matchingVersions(versions, this.config.getTrainingVersionFilters());
 
-        boolean writeHeader = true;
-        int versionCount = 1;
-        int testVersionCount = 0;
-        int numTrainers = 0;
-
-        for (SoftwareVersion testVersion : versions) {
-            if (CrosspareUtils.isVersion(testVersion, versions, this.config.getTestVersionFilters())) {
-                testVersionCount++;
+            if (this.numThreads > 1) {
+                new CrossValidationEngine(this.config, this.numThreads)
+                    .run(versions, testVersions, trainingVersions);
+            }
+            else {
+                runSequential(versions, testVersions, trainingVersions);
             }
         }
+        finally {
+            VersionCache.release(this.config.getLoaders());
+        }
+    }
 
-        numTrainers += this.config.getSetWiseTrainers().size();
-        numTrainers += this.config.getSetWiseTestdataAwareTrainers().size();
-        numTrainers += this.config.getTrainers().size();
-        numTrainers += this.config.getTestAwareTrainers().size();
-
-        // sort versions
-        Collections.sort(versions);
+    /**
+     * Executes the experiment for one test version after another.
+     * 
+     * @param versions
+     *            all software versions in the data set
+     * @param testVersions
+     *            indices of the test versions
+     * @param trainingVersions
+     *            indices of the versions that pass the training version filters
+     */
+    @SuppressWarnings("boxing")
+    private void runSequential(List<SoftwareVersion> versions,
+                               BitSet testVersions,
+                               BitSet trainingVersions)
+    {
+        boolean writeHeader = true;
+        int versionCount = 1;
+        int testVersionCount = testVersions.cardinality();
 
-        for (SoftwareVersion testVersion : versions) {
-            if (CrosspareUtils.isVersion(testVersion, versions, this.config.getTestVersionFilters())) {
+        for (int i = 0; i < versions.size(); i++) {
+            SoftwareVersion testVersion = versions.get(i);
+            if (testVersions.get(i)) {
                 LOGGER.info(String.format("[%s] [%02d/%02d] %s: starting",
                                               this.config.getExperimentName(), versionCount,
                                               testVersionCount, testVersion.getVersion()));
-                int numResultsAvailable = CrosspareUtils.resultsAvailable(testVersion, this.config);
-                if (numResultsAvailable >= numTrainers * this.config.getRepetitions()) {
+                if (resultsAvailable(this.config, testVersion)) {
                     LOGGER.info(String.format("[%s] [%02d/%02d] %s: results already available; skipped",
                                 this.config.getExperimentName(), versionCount, testVersionCount,
                                 testVersion.getVersion()));
@@ -143,49 +182,10 @@ public class CrossValidationExperiment implements IExecutionStrategy {
                     continue;
                 }
 
-                // Setup testdata and training data
-                SoftwareVersion testversion = new SoftwareVersion(testVersion);
+                SoftwareVersion testversion =
+                    prepareTestVersion(this.config, testVersion, versions, trainingVersions,
+                                       versionCount, testVersionCount);
 
-                SetUniqueList<SoftwareVersion> trainversionSet =
-                    SetUniqueList.setUniqueList(new LinkedList<SoftwareVersion>());
-                for (SoftwareVersion trainingVersion : versions) {
-                    if (CrosspareUtils.isVersion(trainingVersion, versions, this.config.getTrainingVersionFilters())) {
-                        if (trainingVersion != testVersion) {
-                            trainversionSet.add(new SoftwareVersion(trainingVersion));
-                        }
-                    }
-                }
-                
-                // allowing processors
-                for (ISetWiseProcessingStrategy processor : this.config.getSetWisePreprocessors()) {
-                    LOGGER.info(String.format("[%s] [%02d/%02d] %s: applying setwise preprocessor %s",
-                                this.config.getExperimentName(), versionCount, testVersionCount,
-                                testVersion.getVersion(), processor.getClass().getName()));
-                    processor.apply(testversion, trainversionSet);
-                }
-                for (ISetWiseProcessingStrategy processor : this.config
-                    .getSetWisePostprocessors())
-                {
-                	LOGGER.info(String.format("[%s] [%02d/%02d] %s: applying setwise postprocessor %s",
-                                this.config.getExperimentName(), versionCount, testVersionCount,
-                                testVersion.getVersion(), processor.getClass().getName()));
-                    processor.apply(testversion, trainversionSet);
-                }
-                SoftwareVersion trainversion = CrosspareUtils.makeSingleVersionSet(trainversionSet);
-                for (IProcessesingStrategy processor : this.config.getPreProcessors()) {
-                	LOGGER.info(String.format("[%s] [%02d/%02d] %s: applying preprocessor %s",
-                                                  this.config.getExperimentName(), versionCount,
-                                                  testVersionCount, testVersion.getVersion(),
-                                                  processor.getClass().getName()));
-                    processor.apply(testversion, trainversion);
-                }
-                for (IProcessesingStrategy processor : this.config.getPostProcessors()) {
-                	LOGGER.info(String.format("[%s] [%02d/%02d] %s: applying setwise postprocessor %s",
-                                this.config.getExperimentName(), versionCount, testVersionCount,
-                                testVersion.getVersion(), processor.getClass().getName()));
-                    processor.apply(testversion, trainversion);
-                }
-                
                 // training with test data
                 for (ITrainingStrategy trainer : this.config.getTrainers()) {
                 	LOGGER.info(String.format("[%s] [%02d/%02d] %s: applying trainer %s",
@@ -204,23 +204,7 @@ public class CrossValidationExperiment implements IExecutionStrategy {
                                                   this.config.getExperimentName(), versionCount,
                                                   testVersionCount, testVersion.getVersion(),
                                                   evaluator.getClass().getName()));
-                    List<ITrainer> allTrainers = new LinkedList<>();
-                    for (ISetWiseTrainingStrategy setwiseTrainer : this.config
-                        .getSetWiseTrainers())
-                    {
-                        allTrainers.add(setwiseTrainer);
-                    }
-                    for (ISetWiseTestdataAwareTrainingStrategy setwiseTestdataAwareTrainer : this.config
-                        .getSetWiseTestdataAwareTrainers())
-                    {
-                        allTrainers.add(setwiseTestdataAwareTrainer);
-                    }
-                    for (ITrainingStrategy trainer : this.config.getTrainers()) {
-                        allTrainers.add(trainer);
-                    }
-                    for (ITestAwareTrainingStrategy trainer : this.config.getTestAwareTrainers()) {
-                        allTrainers.add(trainer);
-                    }
+                    List<ITrainer> allTrainers = allTrainers(this.config);
                     if (writeHeader) {
                         evaluator.setParameter(this.config.getResultsPath() + "/" +
                             this.config.getExperimentName() + ".csv");
@@ -237,4 +221,125 @@ public class CrossValidationExperiment implements IExecutionStrategy {
             }
         }
     }
+
+    /**
+     * Checks if the results for all trainers and repetitions of a test version are already
+     * available in the result storages.
+     * 
+     * @param experimentConfig
+     *            configuration of the experiment
+     * @param testVersion
+     *            test version
+     * @return true if the results are available and the test version can be skipped
+     */
+    static boolean resultsAvailable(ExperimentConfiguration experimentConfig,
+                                    SoftwareVersion testVersion)
+    {
+        int numTrainers = 0;
+        numTrainers += experimentConfig.getSetWiseTrainers().size();
+        numTrainers += experimentConfig.getSetWiseTestdataAwareTrainers().size();
+        numTrainers += experimentConfig.getTrainers().size();
+        numTrainers += experimentConfig.getTestAwareTrainers().size();
+        int numResultsAvailable = CrosspareUtils.resultsAvailable(testVersion, experimentConfig);
+        return numResultsAvailable >= numTrainers * experimentConfig.getRepetitions();
+    }
+
+    /**
+     * Sets up the data of a test version and applies the processors of the experiment to it.
+     * 
+     * @param experimentConfig
+     *            configuration whose components are used
+     * @param testVersion
+     *            test version
+     * @param versions
+     *            all software versions in the data set
+     * @param trainingVersions
+     *            indices of the versions that pass the training version filters
+     * @param versionCount
+     *            index of the test version (only used for logging)
+     * @param testVersionCount
+     *            number of test versions (only used for logging)
+     * @return processed copy of the test version
+     */
+    @SuppressWarnings("boxing")
+    static SoftwareVersion prepareTestVersion(ExperimentConfiguration experimentConfig,
+                                              SoftwareVersion testVersion,
+                                              List<SoftwareVersion> versions,
+                                              BitSet trainingVersions,
+                                              int versionCount,
+                                              int testVersionCount)
+    {
+        // Setup testdata and training data
+        SoftwareVersion testversion = new SoftwareVersion(testVersion);
+
+        SetUniqueList<SoftwareVersion> trainversionSet =
+            SetUniqueList.setUniqueList(new LinkedList<SoftwareVersion>());
+        for (int j = 0; j < versions.size(); j++) {
+            SoftwareVersion trainingVersion = versions.get(j);
+            if (trainingVersions.get(j)) {
+                if (trainingVersion != testVersion) {
+                    trainversionSet.add(new SoftwareVersion(trainingVersion));
+                }
+            }
+        }
+
+        // allowing processors
+        for (ISetWiseProcessingStrategy processor : experimentConfig.getSetWisePreprocessors()) {
+            LOGGER.info(String.format("[%s] [%02d/%02d] %s: applying setwise preprocessor %s",
+                        experimentConfig.getExperimentName(), versionCount, testVersionCount,
+                        testVersion.getVersion(), processor.getClass().getName()));
+            processor.apply(testversion, trainversionSet);
+        }
+        for (ISetWiseProcessingStrategy processor : experimentConfig
+            .getSetWisePostprocessors())
+        {
+        	LOGGER.info(String.format("[%s] [%02d/%02d] %s: applying setwise postprocessor %s",
+                        experimentConfig.getExperimentName(), versionCount, testVersionCount,
+                        testVersion.getVersion(), processor.getClass().getName()));
+            processor.apply(testversion, trainversionSet);
+        }
+        SoftwareVersion trainversion = CrosspareUtils.makeSingleVersionSet(trainversionSet);
+        for (IProcessesingStrategy processor : experimentConfig.getPreProcessors()) {
+        	LOGGER.info(String.format("[%s] [%02d/%02d] %s: applying preprocessor %s",
+                                          experimentConfig.getExperimentName(), versionCount,
+                                          testVersionCount, testVersion.getVersion(),
+                                          processor.getClass().getName()));
+            processor.apply(testversion, trainversion);
+        }
+        for (IProcessesingStrategy processor : experimentConfig.getPostProcessors()) {
+        	LOGGER.info(String.format("[%s] [%02d/%02d] %s: applying setwise postprocessor %s",
+                        experimentConfig.getExperimentName(), versionCount, testVersionCount,
+                        testVersion.getVersion(), processor.getClass().getName()));
+            processor.apply(testversion, trainversion);
+        }
+        return testversion;
+    }
+
+    /**
+     * Collects the trainers of the experiment in the order in which they are evaluated.
+     * 
+     * @param experimentConfig
+     *            configuration of the experiment
+     * @return all trainers of the configuration
+     */
+    static List<ITrainer> allTrainers(ExperimentConfiguration experimentConfig) {
+        List<ITrainer> allTrainers = new LinkedList<>();
+        for (ISetWiseTrainingStrategy setwiseTrainer : experimentConfig
+            .getSetWiseTrainers())
+        {
+            allTrainers.add(setwiseTrainer);
+        }
+        for (ISetWiseTestdataAwareTrainingStrategy setwiseTestdataAwareTrainer : experimentConfig
+            .getSetWiseTestdataAwareTrainers())
+        {
+            allTrainers.add(setwiseTestdataAwareTrainer);
+        }
+        for (ITrainingStrategy trainer : experimentConfig.getTrainers()) {
+            allTrainers.add(trainer);
+        }
+        for (ITestAwareTrainingStrategy trainer : experimentConfig.getTestAwareTrainers()) {
+            allTrainers.add(trainer);
+        }
+        return allTrainers;
+    }
 }
@@ -2,23 +2,24 @@
 package de.ugoe.cs.cpdp.execution;
 
 import java.io.File;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 
-
 import org.apache.commons.collections4.list.SetUniqueList;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import de.ugoe.cs.cpdp.ExperimentConfiguration;
+import de.ugoe.cs.cpdp.IParameterizable;
 import de.ugoe.cs.cpdp.dataprocessing.IProcessesingStrategy;
 import de.ugoe.cs.cpdp.dataprocessing.ISetWiseProcessingStrategy;
 import de.ugoe.cs.cpdp.dataselection.IPointWiseDataselectionStrategy;
 import de.ugoe.cs.cpdp.dataselection.ISetWiseDataselectionStrategy;
 import de.ugoe.cs.cpdp.eval.IEvaluationStrategy;
 import de.ugoe.cs.cpdp.eval.IResultStorage;
-import de.ugoe.cs.cpdp.loader.IVersionLoader;
+import de.ugoe.cs.cpdp.loader.VersionCache;
 import de.ugoe.cs.cpdp.training.ISetWiseTestdataAwareTrainingStrategy;
 import de.ugoe.cs.cpdp.training.ISetWiseTrainingStrategy;
 import de.ugoe.cs.cpdp.training.ITestAwareTrainingStrategy;
@@ -36,7 +37,7 @@ import weka.core.Instances;
  * 
  * @author Alexander Trautsch
  */
-public class HeterogeneousExperiment implements IExecutionStrategy {
+public class HeterogeneousExperiment implements IExecutionStrategy, IParameterizable {
 
 	/**
      * Reference to the logger
@@ -48,6 +49,11 @@ public class HeterogeneousExperiment implements IExecutionStrategy {
      */
     protected final ExperimentConfiguration config;
 
+    /**
+     * number of pairs of test and training versions that are executed in parallel
+     */
+    private int numThreads = 1;
+
     /**
      * Constructor. Creates a new experiment based on a configuration.
      * 
@@ -103,261 +109,384 @@ public class HeterogeneousExperiment implements IExecutionStrategy {
         return true;
     }
 
-    @SuppressWarnings("boxing")
+    /**
+     * Sets the parameters of the execution strategy. The parameters are blank-separated. The
+     * parameter <code>threads:n</code> defines that up to n pairs of test and training versions
+     * are executed in parallel.
+     * 
+     * @param parameters
+     *            parameters of the execution strategy
+     */
+    @Override
+    public void setParameter(String parameters) {
+        this.numThreads = ParallelExecution.numThreads(parameters);
+    }
+
     @Override
     public void run() {
-        final List<SoftwareVersion> versions = new LinkedList<>();
+        final List<SoftwareVersion> versions = VersionCache.acquire(this.config.getLoaders());
+        try {
+            CrosspareUtils.filterVersions(versions, this.config.getVersionFilters());
+            CrosspareUtils.preloadResults(this.config);
 
-        for (IVersionLoader loader : this.config.getLoaders()) {
-            versions.addAll(loader.load());
-        }
+            // sort versions
+            Collections.sort(versions);
 
-        CrosspareUtils.filterVersions(versions, this.config.getVersionFilters());
-        
-        boolean writeHeader = true;
-        int versionCount = 1;
-        int testVersionCount = 0;
+            // the filters are only evaluated once
+            final BitSet testVersions =
+                CrosspareUtils.matchingVersions(versions, this.config.getTestVersionFilters());
+            final BitSet trainingVersions =
+                CrosspareUtils.matchingVersions(versions, this.config.getTrainingVersionFilters());
 
-        // changed
-        for (SoftwareVersion testVersion : versions) {
-            if (CrosspareUtils.isVersion(testVersion, versions, this.config.getTestVersionFilters())) {
-                for (SoftwareVersion trainingVersion : versions) {
-                    if (CrosspareUtils.isVersion(trainingVersion, versions, this.config.getTrainingVersionFilters())) {
-                        testVersionCount++;
-                    }
-                }
+            if (this.numThreads > 1) {
+                runParallel(versions, testVersions, trainingVersions);
+            }
+            else {
+                runSequential(versions, testVersions, trainingVersions);
             }
         }
+        finally {
+            VersionCache.release(this.config.getLoaders());
+        }
+    }
 
-        // sort versions
-        Collections.sort(versions);
-
-        // todo: test version check problematic
-        //
-        for (SoftwareVersion testVersion : versions) {
-            if (CrosspareUtils.isVersion(testVersion, versions, this.config.getTestVersionFilters())) {
+    /**
+     * Determines the pairs of test and training versions of the experiment.
+     * 
+     * @param versions
+     *            all software versions in the data set
+     * @param testVersions
+     *            indices of the test versions
+     * @param trainingVersions
+     *            indices of the versions that pass the training version filters
+     * @return the pairs; the first element is the test version, the second the training version
+     */
+    private static List<SoftwareVersion[]> pairs(List<SoftwareVersion> versions,
+                                                 BitSet testVersions,
+                                                 BitSet trainingVersions)
+    {
+        List<SoftwareVersion[]> pairs = new LinkedList<>();
+        for (int i = 0; i < versions.size(); i++) {
+            SoftwareVersion testVersion = versions.get(i);
+            if (testVersions.get(i)) {
 
                 // now iterate trainVersions
-                for (SoftwareVersion trainingVersion : versions) {
-                    if (CrosspareUtils.isVersion(trainingVersion, versions, this.config.getTrainingVersionFilters())) {
+                for (int j = 0; j < versions.size(); j++) {
+                    SoftwareVersion trainingVersion = versions.get(j);
+                    if (trainingVersions.get(j)) {
                         if (trainingVersion != testVersion) {
                             if (isTrainingVersion(trainingVersion, testVersion)) { // checks if they
                                                                                    // are the same
                                                                                    // dataset
+                                pairs.add(new SoftwareVersion[]
+                                    { testVersion, trainingVersion });
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return pairs;
+    }
 
-                                LOGGER.info(String.format("[%s] [%02d/%02d] %s:%s starting",
-                                                              this.config.getExperimentName(),
-                                                              versionCount, testVersionCount,
-                                                              testVersion.getVersion(),
-                                                              trainingVersion.getVersion()));
-                                int numResultsAvailable =
-                                    resultsAvailable(testVersion, trainingVersion);
-                                if (numResultsAvailable >= this.config.getRepetitions()) {
-                                	LOGGER.info(String
-                                        .format("[%s] [%02d/%02d] %s:%s results already available; skipped",
-                                                this.config.getExperimentName(), versionCount,
-                                                testVersionCount, testVersion.getVersion(),
-                                                trainingVersion.getVersion()));
-                                    versionCount++;
-                                    continue;
-                                }
+    /**
+     * Executes the experiment for one pair of test and training version after another.
+     * 
+     * @param versions
+     *            all software versions in the data set
+     * @param testVersions
+     *            indices of the test versions
+     * @param trainingVersions
+     *            indices of the versions that pass the training version filters
+     */
+    private void runSequential(List<SoftwareVersion> versions,
+                               BitSet testVersions,
+                               BitSet trainingVersions)
+    {
+        boolean writeHeader = true;
+        int versionCount = 1;
+        int testVersionCount = testVersions.cardinality() * trainingVersions.cardinality();
+        String resultsFile =
+            this.config.getResultsPath() + "/" + this.config.getExperimentName() + ".csv";
+        for (SoftwareVersion[] pair : pairs(versions, testVersions, trainingVersions)) {
+            if (runPair(this.config, pair[0], pair[1], versionCount, testVersionCount, writeHeader,
+                        resultsFile))
+            {
+                writeHeader = false;
+            }
+            versionCount++;
+        }
+    }
 
-                                // Setup testdata and training data
-                                SoftwareVersion testversion = new SoftwareVersion(testVersion);
+    /**
+     * Executes the experiment for all pairs of test and training versions as independent tasks
+     * with a {@link ParallelExecution}. The results are written to the results file in the order
+     * of the pairs.
+     * 
+     * @param versions
+     *            all software versions in the data set
+     * @param testVersions
+     *            indices of the test versions
+     * @param trainingVersions
+     *            indices of the versions that pass the training version filters
+     */
+    private void runParallel(List<SoftwareVersion> versions,
+                             BitSet testVersions,
+                             BitSet trainingVersions)
+    {
+        LOGGER.info(String.format("[%s] executing up to %d pairs of versions in parallel",
+                                  this.config.getExperimentName(), this.numThreads));
+        final ParallelExecution execution = new ParallelExecution(this.config, this.numThreads);
+        int versionCount = 1;
+        int testVersionCount = testVersions.cardinality() * trainingVersions.cardinality();
+        for (SoftwareVersion[] pair : pairs(versions, testVersions, trainingVersions)) {
+            final int currentVersionCount = versionCount;
+            execution.submit(taskConfig -> runPair(taskConfig, pair[0], pair[1],
+                                                   currentVersionCount, testVersionCount, true,
+                                                   null));
+            versionCount++;
+        }
+        execution.writeResults();
+    }
 
-                                SoftwareVersion trainversion = new SoftwareVersion(trainingVersion);
+    /**
+     * Executes the experiment for a single pair of test and training version.
+     * 
+     * @param experimentConfig
+     *            configuration whose components are used
+     * @param testVersion
+     *            test version
+     * @param trainingVersion
+     *            training version
+     * @param versionCount
+     *            index of the pair (only used for logging)
+     * @param testVersionCount
+     *            number of pairs (only used for logging)
+     * @param writeHeader
+     *            if true, the header of the results is written
+     * @param resultsFile
+     *            file to which the evaluators write the results in case the header is written;
+     *            if null, the output of the evaluators is not changed
+     * @return true if the evaluators were applied, false if the pair was skipped
+     */
+    @SuppressWarnings("boxing")
+    private boolean runPair(ExperimentConfiguration experimentConfig,
+                            SoftwareVersion testVersion,
+                            SoftwareVersion trainingVersion,
+                            int versionCount,
+                            int testVersionCount,
+                            boolean writeHeader,
+                            String resultsFile)
+    {
+        LOGGER.info(String.format("[%s] [%02d/%02d] %s:%s starting",
+                                      experimentConfig.getExperimentName(),
+                                      versionCount, testVersionCount,
+                                      testVersion.getVersion(),
+                                      trainingVersion.getVersion()));
+        int numResultsAvailable =
+            resultsAvailable(experimentConfig, testVersion, trainingVersion);
+        if (numResultsAvailable >= experimentConfig.getRepetitions()) {
+        	LOGGER.info(String
+                .format("[%s] [%02d/%02d] %s:%s results already available; skipped",
+                        experimentConfig.getExperimentName(), versionCount,
+                        testVersionCount, testVersion.getVersion(),
+                        trainingVersion.getVersion()));
+            return false;
+        }
 
-                                // only one set
-                                SetUniqueList<SoftwareVersion> trainversionSet =
-                                    SetUniqueList.setUniqueList(new LinkedList<SoftwareVersion>());
-                                trainversionSet.add(trainversion);
+        // Setup testdata and training data
+        SoftwareVersion testversion = new SoftwareVersion(testVersion);
 
-                                for (ISetWiseProcessingStrategy processor : this.config
-                                    .getSetWisePreprocessors())
-                                {
-                                	LOGGER.info(String
-                                        .format("[%s] [%02d/%02d] %s:%s applying setwise preprocessor %s",
-                                                this.config.getExperimentName(), versionCount,
-                                                testVersionCount, testVersion.getVersion(),
-                                                trainingVersion.getVersion(),
-                                                processor.getClass().getName()));
-                                    processor.apply(testversion, trainversionSet);
-                                }
-                                for (ISetWiseDataselectionStrategy dataselector : this.config
-                                    .getSetWiseSelectors())
-                                {
-                                	LOGGER.info(String
-                                        .format("[%s] [%02d/%02d] %s: applying setwise selection %s",
-                                                this.config.getExperimentName(), versionCount,
-                                                testVersionCount, testVersion.getVersion(),
-                                                dataselector.getClass().getName()));
-                                    dataselector.apply(testversion, trainversionSet);
-                                }
-                                for (ISetWiseProcessingStrategy processor : this.config
-                                    .getSetWisePostprocessors())
-                                {
-                                	LOGGER.info(String
-                                        .format("[%s] [%02d/%02d] %s: applying setwise postprocessor %s",
-                                                this.config.getExperimentName(), versionCount,
-                                                testVersionCount, testVersion.getVersion(),
-                                                processor.getClass().getName()));
-                                    processor.apply(testversion, trainversionSet);
-                                }
-                                for (ISetWiseTrainingStrategy setwiseTrainer : this.config
-                                    .getSetWiseTrainers())
-                                {
-                                	LOGGER.info(String
-                                        .format("[%s] [%02d/%02d] %s: applying setwise trainer %s",
-                                                this.config.getExperimentName(), versionCount,
-                                                testVersionCount, testVersion.getVersion(),
-                                                setwiseTrainer.getName()));
-                                    setwiseTrainer.apply(trainversionSet);
-                                }
-                                for (ISetWiseTestdataAwareTrainingStrategy setwiseTestdataAwareTrainer : this.config
-                                    .getSetWiseTestdataAwareTrainers())
-                                {
-                                	LOGGER.info(String
-                                        .format("[%s] [%02d/%02d] %s:%s applying testdata aware setwise trainer %s",
-                                                this.config.getExperimentName(), versionCount,
-                                                testVersionCount, testVersion.getVersion(),
-                                                trainingVersion.getVersion(),
-                                                setwiseTestdataAwareTrainer.getName()));
-                                    setwiseTestdataAwareTrainer.apply(trainversionSet, testversion);
-                                }
+        SoftwareVersion trainversion = new SoftwareVersion(trainingVersion);
 
-                                // this part will not work in heterogeneous
-                                // Instances traindata = makeSingleTrainingSet(traindataSet);
-                                for (IProcessesingStrategy processor : this.config
-                                    .getPreProcessors())
-                                {
-                                	LOGGER.info(String
-                                        .format("[%s] [%02d/%02d] %s: applying preprocessor %s",
-                                                this.config.getExperimentName(), versionCount,
-                                                testVersionCount, testVersion.getVersion(),
-                                                processor.getClass().getName()));
-                                    processor.apply(testversion, trainversion);
-                                }
-                                for (IPointWiseDataselectionStrategy dataselector : this.config
-                                    .getPointWiseSelectors())
-                                {
-                                	LOGGER.info(String
-                                        .format("[%s] [%02d/%02d] %s: applying pointwise selection %s",
-                                                this.config.getExperimentName(), versionCount,
-                                                testVersionCount, testVersion.getVersion(),
-                                                dataselector.getClass().getName()));
-                                    trainversion = dataselector.apply(testversion, trainversion);
-                                }
-                                for (IProcessesingStrategy processor : this.config
-                                    .getPostProcessors())
-                                {
-                                	LOGGER.info(String
-                                        .format("[%s] [%02d/%02d] %s: applying setwise postprocessor %s",
-                                                this.config.getExperimentName(), versionCount,
-                                                testVersionCount, testVersion.getVersion(),
-                                                processor.getClass().getName()));
-                                    processor.apply(testversion, trainversion);
-                                }
-                                for (ITrainingStrategy trainer : this.config.getTrainers()) {
-                                	LOGGER.info(String
-                                        .format("[%s] [%02d/%02d] %s: applying trainer %s",
-                                                this.config.getExperimentName(), versionCount,
-                                                testVersionCount, testVersion.getVersion(),
-                                                trainer.getName()));
-                                    trainer.apply(trainversion);
-                                }
-                                for (ITestAwareTrainingStrategy trainer : this.config
-                                    .getTestAwareTrainers())
-                                {
-                                	LOGGER.info(String
-                                        .format("[%s] [%02d/%02d] %s: applying trainer %s",
-                                                this.config.getExperimentName(), versionCount,
-                                                testVersionCount, testVersion.getVersion(),
-                                                trainer.getName()));
-                                    trainer.apply(testversion, trainversion);
-                                }
-                                File resultsDir = new File(this.config.getResultsPath());
-                                if (!resultsDir.exists()) {
-                                    resultsDir.mkdir();
-                                }
-                                for (IEvaluationStrategy evaluator : this.config.getEvaluators()) {
-                                	LOGGER.info(String
-                                        .format("[%s] [%02d/%02d] %s:%s applying evaluator %s",
-                                                this.config.getExperimentName(), versionCount,
-                                                testVersionCount, testVersion.getVersion(),
-                                                trainingVersion.getVersion(),
-                                                evaluator.getClass().getName()));
-                                    List<ITrainer> allTrainers = new LinkedList<>();
-                                    for (ISetWiseTrainingStrategy setwiseTrainer : this.config
-                                        .getSetWiseTrainers())
-                                    {
-                                        allTrainers.add(setwiseTrainer);
-                                    }
-                                    for (ISetWiseTestdataAwareTrainingStrategy setwiseTestdataAwareTrainer : this.config
-                                        .getSetWiseTestdataAwareTrainers())
-                                    {
-                                        allTrainers.add(setwiseTestdataAwareTrainer);
-                                    }
-                                    for (ITrainingStrategy trainer : this.config.getTrainers()) {
-                                        allTrainers.add(trainer);
-                                    }
-                                    for (ITestAwareTrainingStrategy trainer : this.config
-                                        .getTestAwareTrainers())
-                                    {
-                                        allTrainers.add(trainer);
-                                    }
-                                    if (writeHeader) {
-                                        evaluator.setParameter(this.config.getResultsPath() + "/" +
-                                            this.config.getExperimentName() + ".csv");
-                                    }
-                                    evaluator.apply(testversion.getInstances(), trainversion.getInstances(),
-                                            allTrainers, testversion.getEfforts(), testversion.getNumBugs(),
-                                            testversion.getBugMatrix(), writeHeader, this.config.getResultStorages());
-                                    writeHeader = false;
-                                }
-                                LOGGER.info(String.format("[%s] [%02d/%02d] %s: finished",
-                                                              this.config.getExperimentName(),
-                                                              versionCount, testVersionCount,
-                                                              testVersion.getVersion()));
-                                versionCount++;
+        // only one set
+        SetUniqueList<SoftwareVersion> trainversionSet =
+            SetUniqueList.setUniqueList(new LinkedList<SoftwareVersion>());
+        trainversionSet.add(trainversion);
 
-                            }
-                        }
-                    }
-                }
+        for (ISetWiseProcessingStrategy processor : experimentConfig
+            .getSetWisePreprocessors())
+        {
+        	LOGGER.info(String
+                .format("[%s] [%02d/%02d] %s:%s applying setwise preprocessor %s",
+                        experimentConfig.getExperimentName(), versionCount,
+                        testVersionCount, testVersion.getVersion(),
+                        trainingVersion.getVersion(),
+                        processor.getClass().getName()));
+            processor.apply(testversion, trainversionSet);
+        }
+        for (ISetWiseDataselectionStrategy dataselector : experimentConfig
+            .getSetWiseSelectors())
+        {
+        	LOGGER.info(String
+                .format("[%s] [%02d/%02d] %s: applying setwise selection %s",
+                        experimentConfig.getExperimentName(), versionCount,
+                        testVersionCount, testVersion.getVersion(),
+                        dataselector.getClass().getName()));
+            dataselector.apply(testversion, trainversionSet);
+        }
+        for (ISetWiseProcessingStrategy processor : experimentConfig
+            .getSetWisePostprocessors())
+        {
+        	LOGGER.info(String
+                .format("[%s] [%02d/%02d] %s: applying setwise postprocessor %s",
+                        experimentConfig.getExperimentName(), versionCount,
+                        testVersionCount, testVersion.getVersion(),
+                        processor.getClass().getName()));
+            processor.apply(testversion, trainversionSet);
+        }
+        for (ISetWiseTrainingStrategy setwiseTrainer : experimentConfig
+            .getSetWiseTrainers())
+        {
+        	LOGGER.info(String
+                .format("[%s] [%02d/%02d] %s: applying setwise trainer %s",
+                        experimentConfig.getExperimentName(), versionCount,
+                        testVersionCount, testVersion.getVersion(),
+                        setwiseTrainer.getName()));
+            setwiseTrainer.apply(trainversionSet);
+        }
+        for (ISetWiseTestdataAwareTrainingStrategy setwiseTestdataAwareTrainer : experimentConfig
+            .getSetWiseTestdataAwareTrainers())
+        {
+        	LOGGER.info(String
+                .format("[%s] [%02d/%02d] %s:%s applying testdata aware setwise trainer %s",
+                        experimentConfig.getExperimentName(), versionCount,
+                        testVersionCount, testVersion.getVersion(),
+                        trainingVersion.getVersion(),
+                        setwiseTestdataAwareTrainer.getName()));
+            setwiseTestdataAwareTrainer.apply(trainversionSet, testversion);
+        }
 
-            } /* end if check training */
-        } /* end for iteration test version */
+        // this part will not work in heterogeneous
+        // Instances traindata = makeSingleTrainingSet(traindataSet);
+        for (IProcessesingStrategy processor : experimentConfig
+            .getPreProcessors())
+        {
+        	LOGGER.info(String
+                .format("[%s] [%02d/%02d] %s: applying preprocessor %s",
+                        experimentConfig.getExperimentName(), versionCount,
+                        testVersionCount, testVersion.getVersion(),
+                        processor.getClass().getName()));
+            processor.apply(testversion, trainversion);
+        }
+        for (IPointWiseDataselectionStrategy dataselector : experimentConfig
+            .getPointWiseSelectors())
+        {
+        	LOGGER.info(String
+                .format("[%s] [%02d/%02d] %s: applying pointwise selection %s",
+                        experimentConfig.getExperimentName(), versionCount,
+                        testVersionCount, testVersion.getVersion(),
+                        dataselector.getClass().getName()));
+            trainversion = dataselector.apply(testversion, trainversion);
+        }
+        for (IProcessesingStrategy processor : experimentConfig
+            .getPostProcessors())
+        {
+        	LOGGER.info(String
+                .format("[%s] [%02d/%02d] %s: applying setwise postprocessor %s",
+                        experimentConfig.getExperimentName(), versionCount,
+                        testVersionCount, testVersion.getVersion(),
+                        processor.getClass().getName()));
+            processor.apply(testversion, trainversion);
+        }
+        for (ITrainingStrategy trainer : experimentConfig.getTrainers()) {
+        	LOGGER.info(String
+                .format("[%s] [%02d/%02d] %s: applying trainer %s",
+                        experimentConfig.getExperimentName(), versionCount,
+                        testVersionCount, testVersion.getVersion(),
+                        trainer.getName()));
+            trainer.apply(trainversion);
+        }
+        for (ITestAwareTrainingStrategy trainer : experimentConfig
+            .getTestAwareTrainers())
+        {
+        	LOGGER.info(String
+                .format("[%s] [%02d/%02d] %s: applying trainer %s",
+                        experimentConfig.getExperimentName(), versionCount,
+                        testVersionCount, testVersion.getVersion(),
+                        trainer.getName()));
+            trainer.apply(testversion, trainversion);
+        }
+        if (resultsFile != null) {
+            File resultsDir = new File(experimentConfig.getResultsPath());
+            if (!resultsDir.exists()) {
+                resultsDir.mkdir();
+            }
+        }
+        for (IEvaluationStrategy evaluator : experimentConfig.getEvaluators()) {
+        	LOGGER.info(String
+                .format("[%s] [%02d/%02d] %s:%s applying evaluator %s",
+                        experimentConfig.getExperimentName(), versionCount,
+                        testVersionCount, testVersion.getVersion(),
+                        trainingVersion.getVersion(),
+                        evaluator.getClass().getName()));
+            List<ITrainer> allTrainers = new LinkedList<>();
+            for (ISetWiseTrainingStrategy setwiseTrainer : experimentConfig
+                .getSetWiseTrainers())
+            {
+                allTrainers.add(setwiseTrainer);
+            }
+            for (ISetWiseTestdataAwareTrainingStrategy setwiseTestdataAwareTrainer : experimentConfig
+                .getSetWiseTestdataAwareTrainers())
+            {
+                allTrainers.add(setwiseTestdataAwareTrainer);
+            }
+            for (ITrainingStrategy trainer : experimentConfig.getTrainers()) {
+                allTrainers.add(trainer);
+            }
+            for (ITestAwareTrainingStrategy trainer : experimentConfig
+                .getTestAwareTrainers())
+            {
+                allTrainers.add(trainer);
+            }
+            if (writeHeader && resultsFile != null) {
+                evaluator.setParameter(resultsFile);
+            }
+            evaluator.apply(testversion.getInstances(), trainversion.getInstances(),
+                    allTrainers, testversion.getEfforts(), testversion.getNumBugs(),
+                    testversion.getBugMatrix(), writeHeader, experimentConfig.getResultStorages());
+            writeHeader = false;
+        }
+
+        LOGGER.info(String.format("[%s] [%02d/%02d] %s: finished",
+                                      experimentConfig.getExperimentName(),
+                                      versionCount, testVersionCount,
+                                      testVersion.getVersion()));
+        return true;
     }
 
     /**
      * DUBLICATE FROM AbstractCrossProjectExperiment
      */
-    private int resultsAvailable(SoftwareVersion version, SoftwareVersion trainVersion) {
-        if (this.config.getResultStorages().isEmpty()) {
+    private static int resultsAvailable(ExperimentConfiguration experimentConfig,
+                                        SoftwareVersion version,
+                                        SoftwareVersion trainVersion)
+    {
+        if (experimentConfig.getResultStorages().isEmpty()) {
             return 0;
         }
 
         List<ITrainer> allTrainers = new LinkedList<>();
-        for (ISetWiseTrainingStrategy setwiseTrainer : this.config.getSetWiseTrainers()) {
+        for (ISetWiseTrainingStrategy setwiseTrainer : experimentConfig.getSetWiseTrainers()) {
             allTrainers.add(setwiseTrainer);
         }
-        for (ISetWiseTestdataAwareTrainingStrategy setwiseTestdataAwareTrainer : this.config
+        for (ISetWiseTestdataAwareTrainingStrategy setwiseTestdataAwareTrainer : experimentConfig
             .getSetWiseTestdataAwareTrainers())
         {
             allTrainers.add(setwiseTestdataAwareTrainer);
         }
-        for (ITrainingStrategy trainer : this.config.getTrainers()) {
+        for (ITrainingStrategy trainer : experimentConfig.getTrainers()) {
             allTrainers.add(trainer);
         }
-        for (ITestAwareTrainingStrategy trainer : this.config.getTestAwareTrainers()) {
+        for (ITestAwareTrainingStrategy trainer : experimentConfig.getTestAwareTrainers()) {
             allTrainers.add(trainer);
         }
 
         int available = Integer.MAX_VALUE;
-        for (IResultStorage storage : this.config.getResultStorages()) {
+        for (IResultStorage storage : experimentConfig.getResultStorages()) {
             String classifierName = ((IWekaCompatibleTrainer) allTrainers.get(0)).getName();
             int curAvailable = storage
-                .containsHeterogeneousResult(this.config.getExperimentName(), version.getVersion(),
+                .containsHeterogeneousResult(experimentConfig.getExperimentName(), version.getVersion(),
                                              classifierName, trainVersion.getVersion());
             if (curAvailable < available) {
                 available = curAvailable;
@@ -0,0 +1,299 @@
+// Copyright 2015 Georg-August-Universität Göttingen, Germany
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package de.ugoe.cs.cpdp.execution;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import de.ugoe.cs.cpdp.ExperimentConfiguration;
+import de.ugoe.cs.cpdp.ExperimentConfigurationException;
+import de.ugoe.cs.cpdp.eval.IEvaluationStrategy;
+
+/**
+ * <p>
+ * Parallel execution of the tasks of an experiment, e.g., of its test versions, in a
+ * work-stealing thread pool. Each task borrows a copy of the configuration that is not used by
+ * any other task at the same time, such that the trainers and evaluators are not shared between
+ * the threads. The copies are reused by later tasks, so that the configuration is not parsed
+ * again for each task. The evaluators of a borrowed copy write their results into memory. The
+ * results of the tasks are written to the results file in the order in which the tasks were
+ * submitted, i.e., the results file is the same as the results file of the sequential execution.
+ * </p>
+ * <p>
+ * The number of threads is defined by the parameter <code>threads:n</code> of the execution
+ * strategy. For n&lt;=0, the number of available processors is used.
+ * </p>
+ *
+ * @author jvdmosel
+ */
+final class ParallelExecution {
+
+    /**
+     * prefix of the parameter that defines the number of threads
+     */
+    private static final String THREADS_PARAMETER = "threads:";
+
+    /**
+     * configuration of the experiment
+     */
+    private final ExperimentConfiguration config;
+
+    /**
+     * the thread pool
+     */
+    private final ExecutorService threadPool;
+
+    /**
+     * copies of the configuration that are currently not used by any task
+     */
+    private final Queue<ExperimentConfiguration> taskConfigs = new ConcurrentLinkedQueue<>();
+
+    /**
+     * results of the tasks in the order of submission
+     */
+    private final List<Future<String>> results = new LinkedList<>();
+
+    /**
+     * <p>
+     * Task that is executed with a borrowed copy of the configuration.
+     * </p>
+     *
+     * @author jvdmosel
+     */
+    @FunctionalInterface
+    interface Task {
+
+        /**
+         * Executes the task.
+         *
+         * @param taskConfig
+         *            the borrowed copy of the configuration
+         */
+        void run(ExperimentConfiguration taskConfig);
+    }
+
+    /**
+     * Constructor. Creates a new parallel execution with its thread pool.
+     *
+     * @param config
+     *            configuration of the experiment
+     * @param numThreads
+     *            number of threads of the thread pool
+     */
+    @SuppressWarnings("hiding")
+    ParallelExecution(ExperimentConfiguration config, int numThreads) {
+        this.config = config;
+        this.threadPool = Executors.newWorkStealingPool(numThreads);
+    }
+
+    /**
+     * Determines the number of threads from the blank-separated parameters of an execution
+     * strategy.
+     *
+     * @param parameters
+     *            parameters of the execution strategy (may be null)
+     * @return the number of threads; 1 if the parameters do not define the number of threads
+     */
+    static int numThreads(String parameters) {
+        int numThreads = 1;
+        if (parameters != null) {
+            for (String parameter : parameters.trim().split(" ")) {
+                if (parameter.startsWith(THREADS_PARAMETER)) {
+                    numThreads =
+                        Integer.parseInt(parameter.substring(THREADS_PARAMETER.length()));
+                    if (numThreads <= 0) {
+                        numThreads = Runtime.getRuntime().availableProcessors();
+                    }
+                }
+            }
+        }
+        return numThreads;
+    }
+
+    /**
+     * Removes the number of threads from the blank-separated parameters of an execution
+     * strategy.
+     *
+     * @param parameters
+     *            parameters of the execution strategy
+     * @return all other parameters, separated by blanks
+     */
+    static String otherParameters(String parameters) {
+        StringBuilder otherParameters = new StringBuilder();
+        for (String parameter : parameters.trim().split(" ")) {
+            if (!parameter.isEmpty() && !parameter.startsWith(THREADS_PARAMETER)) {
+                if (otherParameters.length() > 0) {
+                    otherParameters.append(' ');
+                }
+                otherParameters.append(parameter);
+            }
+        }
+        return otherParameters.toString();
+    }
+
+    /**
+     * returns the thread pool
+     *
+     * @return the thread pool
+     */
+    ExecutorService getThreadPool() {
+        return this.threadPool;
+    }
+
+    /**
+     * Borrows a copy of the configuration. The copy is not used by other tasks until it is
+     * returned with {@link #returnConfig(ExperimentConfiguration)}.
+     *
+     * @param output
+     *            writer for the results of the evaluators of the copy
+     * @return the copy of the configuration
+     */
+    ExperimentConfiguration borrowConfig(StringWriter output) {
+        ExperimentConfiguration taskConfig = this.taskConfigs.poll();
+        if (taskConfig == null) {
+            try {
+                taskConfig = this.config.copy();
+            }
+            catch (ExperimentConfigurationException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        for (IEvaluationStrategy evaluator : taskConfig.getEvaluators()) {
+            evaluator.setOutput(output, this.config.getExperimentName());
+        }
+        return taskConfig;
+    }
+
+    /**
+     * Returns a borrowed copy of the configuration, such that it can be used by later tasks.
+     *
+     * @param taskConfig
+     *            the copy of the configuration
+     */
+    void returnConfig(ExperimentConfiguration taskConfig) {
+        this.taskConfigs.add(taskConfig);
+    }
+
+    /**
+     * Submits a task to the thread pool. The task is executed with a borrowed copy of the
+     * configuration.
+     *
+     * @param task
+     *            the task
+     */
+    void submit(Task task) {
+        this.results.add(this.threadPool.submit(() -> {
+            StringWriter output = new StringWriter();
+            ExperimentConfiguration taskConfig = borrowConfig(output);
+            try {
+                task.run(taskConfig);
+                return output.toString();
+            }
+            finally {
+                returnConfig(taskConfig);
+            }
+        }));
+    }
+
+    /**
+     * Adds the result of a task that was scheduled by the caller in the thread pool, e.g., as a
+     * chain of dependent steps.
+     *
+     * @param result
+     *            output of the evaluators of the task
+     */
+    void addResult(Future<String> result) {
+        this.results.add(result);
+    }
+
+    /**
+     * Waits for all tasks and writes their results to the results file in the order of
+     * submission. Each task writes its own header, only the first header is kept. If a task
+     * failed, the remaining tasks are cancelled and the failure is rethrown.
+     */
+    void writeResults() {
+        this.threadPool.shutdown();
+        String resultsFile =
+            this.config.getResultsPath() + "/" + this.config.getExperimentName() + ".csv";
+        PrintWriter output = null;
+        String header = null;
+        try {
+            for (Future<String> result : this.results) {
+                String taskResult;
+                try {
+                    taskResult = result.get();
+                }
+                catch (ExecutionException e) {
+                    // fail like the sequential execution instead of dropping the task
+                    this.threadPool.shutdownNow();
+                    if (e.getCause() instanceof RuntimeException) {
+                        throw (RuntimeException) e.getCause();
+                    }
+                    if (e.getCause() instanceof Error) {
+                        throw (Error) e.getCause();
+                    }
+                    throw new RuntimeException(e.getCause());
+                }
+                if (taskResult.isEmpty()) {
+                    continue;
+                }
+                if (output == null) {
+                    File resultsDir = new File(this.config.getResultsPath());
+                    if (!resultsDir.exists()) {
+                        resultsDir.mkdir();
+                    }
+                    output = new PrintWriter(new FileOutputStream(resultsFile));
+                    output.append(taskResult);
+                    int headerEnd = taskResult.indexOf(System.lineSeparator());
+                    if (headerEnd >= 0) {
+                        header =
+                            taskResult.substring(0, headerEnd + System.lineSeparator().length());
+                    }
+                }
+                else if (header != null && taskResult.startsWith(header)) {
+                    output.append(taskResult.substring(header.length()));
+                }
+                else {
+                    output.append(taskResult);
+                }
+                output.flush();
+            }
+        }
+        catch (InterruptedException e) {
+            this.threadPool.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        catch (FileNotFoundException e) {
+            this.threadPool.shutdownNow();
+            throw new RuntimeException(e);
+        }
+        finally {
+            if (output != null) {
+                output.close();
+            }
+        }
+    }
+}
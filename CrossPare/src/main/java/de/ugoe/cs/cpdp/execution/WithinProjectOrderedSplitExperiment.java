@@ -15,6 +15,7 @@
 package de.ugoe.cs.cpdp.execution;
 
 import java.io.File;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
@@ -26,7 +27,7 @@ import de.ugoe.cs.cpdp.ExperimentConfiguration;
 import de.ugoe.cs.cpdp.dataprocessing.IProcessesingStrategy;
 import de.ugoe.cs.cpdp.dataselection.IPointWiseDataselectionStrategy;
 import de.ugoe.cs.cpdp.eval.IEvaluationStrategy;
-import de.ugoe.cs.cpdp.loader.IVersionLoader;
+import de.ugoe.cs.cpdp.loader.VersionCache;
 import de.ugoe.cs.cpdp.training.ITestAwareTrainingStrategy;
 import de.ugoe.cs.cpdp.training.ITrainer;
 import de.ugoe.cs.cpdp.training.ITrainingStrategy;
@@ -75,160 +76,144 @@ public class WithinProjectOrderedSplitExperiment implements IExecutionStrategy {
     @SuppressWarnings("boxing")
     @Override
     public void run() {
-        final List<SoftwareVersion> versions = new LinkedList<>();
-
-        for (IVersionLoader loader : this.config.getLoaders()) {
-            versions.addAll(loader.load());
-        }
-
-        CrosspareUtils.filterVersions(versions, this.config.getVersionFilters());
-
-        boolean writeHeader = true;
-        int versionCount = 1;
-        int testVersionCount = 0;
-        int numTrainers = 0;
-
-        for (SoftwareVersion testVersion : versions) {
-            if (CrosspareUtils.isVersion(testVersion, versions, this.config.getTestVersionFilters())) {
-                testVersionCount++;
-            }
-        }
-
-        numTrainers += this.config.getSetWiseTrainers().size();
-        numTrainers += this.config.getSetWiseTestdataAwareTrainers().size();
-        numTrainers += this.config.getTrainers().size();
-        numTrainers += this.config.getTestAwareTrainers().size();
-
-        // sort versions
-        Collections.sort(versions);
-
-        for (SoftwareVersion testVersion : versions) {
-            if (CrosspareUtils.isVersion(testVersion, versions, this.config.getTestVersionFilters())) {
-                LOGGER.info(String.format("[%s] [%02d/%02d] %s: starting",
-                                              this.config.getExperimentName(), versionCount,
-                                              testVersionCount, testVersion.getVersion()));
-                int numResultsAvailable = CrosspareUtils.resultsAvailable(testVersion, this.config);
-                if (numResultsAvailable >= numTrainers * this.config.getRepetitions()) {
-                	LOGGER.info(String.format("[%s] [%02d/%02d] %s: results already available; skipped",
-                                this.config.getExperimentName(), versionCount, testVersionCount,
-                                testVersion.getVersion()));
-                    versionCount++;
-                    continue;
-                }
-
-                // Setup testdata and training data
-                SoftwareVersion testversion = new SoftwareVersion(testVersion);
-                Instances testdata = testversion.getInstances();
-                List<Double> efforts = testversion.getEfforts();
-                List<Double> numBugs = testversion.getNumBugs();
-                Instances bugMatrix = testversion.getBugMatrix();
+        final List<SoftwareVersion> versions = VersionCache.acquire(this.config.getLoaders());
+        try {
+            CrosspareUtils.filterVersions(versions, this.config.getVersionFilters());
+            CrosspareUtils.preloadResults(this.config);
+
+            boolean writeHeader = true;
+            int versionCount = 1;
+            int testVersionCount = 0;
+            int numTrainers = 0;
+
+            numTrainers += this.config.getSetWiseTrainers().size();
+            numTrainers += this.config.getSetWiseTestdataAwareTrainers().size();
+            numTrainers += this.config.getTrainers().size();
+            numTrainers += this.config.getTestAwareTrainers().size();
+
+            // sort versions
+            Collections.sort(versions);
+
+            // the filters are only evaluated once
+            final BitSet testVersions =
+                CrosspareUtils.matchingVersions(versions, this.config.getTestVersionFilters());
+            testVersionCount = testVersions.cardinality();
+
+            for (int v = 0; v < versions.size(); v++) {
+                SoftwareVersion testVersion = versions.get(v);
+                if (testVersions.get(v)) {
+                    LOGGER.info(String.format("[%s] [%02d/%02d] %s: starting",
+                                                  this.config.getExperimentName(), versionCount,
+                                                  testVersionCount, testVersion.getVersion()));
+                    int numResultsAvailable = CrosspareUtils.resultsAvailable(testVersion, this.config);
+                    if (numResultsAvailable >= numTrainers * this.config.getRepetitions()) {
+                    	LOGGER.info(String.format("[%s] [%02d/%02d] %s: results already available; skipped",
+                                    this.config.getExperimentName(), versionCount, testVersionCount,
+                                    testVersion.getVersion()));
+                        versionCount++;
+                        continue;
+                    }
 
+                    // Setup testdata and training data
+                    SoftwareVersion testversion = new SoftwareVersion(testVersion);
 
-                // now split data into parts
-                double percentage = 0.5; // 0.5 as default value
-                String param = this.config.getExecutionStrategyParameters();
-                if (this.config.getExecutionStrategyParameters() != null) {
-                    try {
-                        percentage = Double.parseDouble(param);
-                    }
-                    catch (@SuppressWarnings("unused") NumberFormatException e) {
-                        throw new RuntimeException("invalid execution strategy parameter, must be numeric: " +
-                            param);
-                    }
-                }
-                int initialTestSize = testdata.size();
-                SoftwareVersion trainversion = new SoftwareVersion(testversion);
-                for (int i = initialTestSize - 1; i >= 0; i--) {
-                    if ((((double) i) / initialTestSize) < percentage) {
-                        testdata.delete(i);
-                        if (efforts != null) {
-                            efforts.remove(i);
+                    // now split data into parts
+                    double percentage = 0.5; // 0.5 as default value
+                    String param = this.config.getExecutionStrategyParameters();
+                    if (this.config.getExecutionStrategyParameters() != null) {
+                        try {
+                            percentage = Double.parseDouble(param);
                         }
-                        if (numBugs != null) {
-                            numBugs.remove(i);
-                        }
-                        if (bugMatrix != null) {
-                            bugMatrix.delete(i);
+                        catch (@SuppressWarnings("unused") NumberFormatException e) {
+                            throw new RuntimeException("invalid execution strategy parameter, must be numeric: " +
+                                param);
                         }
                     }
-                    else {
-                        trainversion.getInstances().delete(i);
-                        if (trainversion.getBugMatrix() != null) {
-                            trainversion.getBugMatrix().delete(i);
-                        }
-                        if (trainversion.getEfforts() != null) {
-                            trainversion.getEfforts().remove(i);
-                        }
-                        if (trainversion.getNumBugs() != null) {
-                            trainversion.getNumBugs().remove(i);
+                    int initialTestSize = testversion.getInstancesReadOnly().size();
+                    SoftwareVersion trainversion = new SoftwareVersion(testversion);
+                    BitSet testRows = new BitSet(initialTestSize);
+                    for (int i = 0; i < initialTestSize; i++) {
+                        if ((((double) i) / initialTestSize) >= percentage) {
+                            testRows.set(i);
                         }
                     }
-                }
-
-                for (IProcessesingStrategy processor : this.config.getPreProcessors()) {
-                	LOGGER.info(String.format("[%s] [%02d/%02d] %s: applying preprocessor %s",
-                                                  this.config.getExperimentName(), versionCount,
-                                                  testVersionCount, testVersion.getVersion(),
-                                                  processor.getClass().getName()));
-                    processor.apply(testversion, trainversion);
-                }
-                for (IPointWiseDataselectionStrategy dataselector : this.config
-                    .getPointWiseSelectors())
-                {
-                    LOGGER.info(String.format("[%s] [%02d/%02d] %s: applying pointwise selection %s",
-                                this.config.getExperimentName(), versionCount, testVersionCount,
-                                testVersion.getVersion(), dataselector.getClass().getName()));
-                    trainversion = dataselector.apply(testversion, trainversion);
-                }
-                for (IProcessesingStrategy processor : this.config.getPostProcessors()) {
-                	LOGGER.info(String.format("[%s] [%02d/%02d] %s: applying setwise postprocessor %s",
-                                this.config.getExperimentName(), versionCount, testVersionCount,
-                                testVersion.getVersion(), processor.getClass().getName()));
-                    processor.apply(testversion, trainversion);
-                }
-                for (ITrainingStrategy trainer : this.config.getTrainers()) {
-                	LOGGER.info(String.format("[%s] [%02d/%02d] %s: applying trainer %s",
-                                                  this.config.getExperimentName(), versionCount,
-                                                  testVersionCount, testVersion.getVersion(),
-                                                  trainer.getName()));
-                    trainer.apply(trainversion);
-                }
-                for (ITestAwareTrainingStrategy trainer : this.config.getTestAwareTrainers()) {
-                	LOGGER.info(String.format("[%s] [%02d/%02d] %s: applying trainer %s",
-                                                  this.config.getExperimentName(), versionCount,
-                                                  testVersionCount, testVersion.getVersion(),
-                                                  trainer.getName()));
-                    trainer.apply(testversion, trainversion);
-                }
-                File resultsDir = new File(this.config.getResultsPath());
-                if (!resultsDir.exists()) {
-                    resultsDir.mkdir();
-                }
-                for (IEvaluationStrategy evaluator : this.config.getEvaluators()) {
-                	LOGGER.info(String.format("[%s] [%02d/%02d] %s: applying evaluator %s",
-                                                  this.config.getExperimentName(), versionCount,
-                                                  testVersionCount, testVersion.getVersion(),
-                                                  evaluator.getClass().getName()));
-                    List<ITrainer> allTrainers = new LinkedList<>();
+                    BitSet trainRows = (BitSet) testRows.clone();
+                    trainRows.flip(0, initialTestSize);
+                    testversion.retainRows(testRows);
+                    trainversion.retainRows(trainRows);
+                    Instances testdata = testversion.getInstances();
+                    List<Double> efforts = testversion.getEfforts();
+                    List<Double> numBugs = testversion.getNumBugs();
+                    Instances bugMatrix = testversion.getBugMatrix();
+
+                    for (IProcessesingStrategy processor : this.config.getPreProcessors()) {
+                    	LOGGER.info(String.format("[%s] [%02d/%02d] %s: applying preprocessor %s",
+                                                      this.config.getExperimentName(), versionCount,
+                                                      testVersionCount, testVersion.getVersion(),
+                                                      processor.getClass().getName()));
+                        processor.apply(testversion, trainversion);
+                    }
+                    for (IPointWiseDataselectionStrategy dataselector : this.config
+                        .getPointWiseSelectors())
+                    {
+                        LOGGER.info(String.format("[%s] [%02d/%02d] %s: applying pointwise selection %s",
+                                    this.config.getExperimentName(), versionCount, testVersionCount,
+                                    testVersion.getVersion(), dataselector.getClass().getName()));
+                        trainversion = dataselector.apply(testversion, trainversion);
+                    }
+                    for (IProcessesingStrategy processor : this.config.getPostProcessors()) {
+                    	LOGGER.info(String.format("[%s] [%02d/%02d] %s: applying setwise postprocessor %s",
+                                    this.config.getExperimentName(), versionCount, testVersionCount,
+                                    testVersion.getVersion(), processor.getClass().getName()));
+                        processor.apply(testversion, trainversion);
+                    }
                     for (ITrainingStrategy trainer : this.config.getTrainers()) {
-                        allTrainers.add(trainer);
+                    	LOGGER.info(String.format("[%s] [%02d/%02d] %s: applying trainer %s",
+                                                      this.config.getExperimentName(), versionCount,
+                                                      testVersionCount, testVersion.getVersion(),
+                                                      trainer.getName()));
+                        trainer.apply(trainversion);
                     }
                     for (ITestAwareTrainingStrategy trainer : this.config.getTestAwareTrainers()) {
-                        allTrainers.add(trainer);
+                    	LOGGER.info(String.format("[%s] [%02d/%02d] %s: applying trainer %s",
+                                                      this.config.getExperimentName(), versionCount,
+                                                      testVersionCount, testVersion.getVersion(),
+                                                      trainer.getName()));
+                        trainer.apply(testversion, trainversion);
                     }
-                    if (writeHeader) {
-                        evaluator.setParameter(this.config.getResultsPath() + "/" +
-                            this.config.getExperimentName() + ".csv");
+                    File resultsDir = new File(this.config.getResultsPath());
+                    if (!resultsDir.exists()) {
+                        resultsDir.mkdir();
+                    }
+                    for (IEvaluationStrategy evaluator : this.config.getEvaluators()) {
+                    	LOGGER.info(String.format("[%s] [%02d/%02d] %s: applying evaluator %s",
+                                                      this.config.getExperimentName(), versionCount,
+                                                      testVersionCount, testVersion.getVersion(),
+                                                      evaluator.getClass().getName()));
+                        List<ITrainer> allTrainers = new LinkedList<>();
+                        for (ITrainingStrategy trainer : this.config.getTrainers()) {
+                            allTrainers.add(trainer);
+                        }
+                        for (ITestAwareTrainingStrategy trainer : this.config.getTestAwareTrainers()) {
+                            allTrainers.add(trainer);
+                        }
+                        if (writeHeader) {
+                            evaluator.setParameter(this.config.getResultsPath() + "/" +
+                                this.config.getExperimentName() + ".csv");
+                        }
+                        evaluator.apply(testdata, trainversion.getInstances(), allTrainers, efforts, numBugs, bugMatrix,
+                                writeHeader, this.config.getResultStorages());
+                        writeHeader = false;
                     }
-                    evaluator.apply(testdata, trainversion.getInstances(), allTrainers, efforts, numBugs, bugMatrix,
-                            writeHeader, this.config.getResultStorages());
-                    writeHeader = false;
+                    LOGGER.info(String.format("[%s] [%02d/%02d] %s: finished",
+                                                  this.config.getExperimentName(), versionCount,
+                                                  testVersionCount, testVersion.getVersion()));
+                    versionCount++;
                 }
-                LOGGER.info(String.format("[%s] [%02d/%02d] %s: finished",
-                                              this.config.getExperimentName(), versionCount,
-                                              testVersionCount, testVersion.getVersion()));
-                versionCount++;
             }
         }
+        finally {
+            VersionCache.release(this.config.getLoaders());
+        }
     }
 }
@@ -17,7 +17,6 @@ package de.ugoe.cs.cpdp.execution;
 import java.util.List;
 
 import de.ugoe.cs.cpdp.ExperimentConfiguration;
-import de.ugoe.cs.cpdp.IParameterizable;
 import de.ugoe.cs.cpdp.versions.SoftwareVersion;
 
 /**
@@ -25,7 +24,7 @@ import de.ugoe.cs.cpdp.versions.SoftwareVersion;
  * 
  * @author Steffen Herbold
  */
-public class WithinProjectPreviousReleasesExperiment extends AbstractCrossProjectExperiment implements IParameterizable {
+public class WithinProjectPreviousReleasesExperiment extends AbstractCrossProjectExperiment {
 
     /**
      * number of previous releases that are considered
@@ -65,8 +64,14 @@ public class WithinProjectPreviousReleasesExperiment extends AbstractCrossProjec
         return isSameProject && isWithinPreviousReleases;
     }
 
+    /**
+     * Sets the number of previous releases that are considered.
+     * 
+     * @param parameters
+     *            number of previous releases
+     */
     @Override
-    public void setParameter(String parameters) {
+    protected void setStrategyParameter(String parameters) {
         if( parameters.length()>0 ) {
             numPreviousReleases =  Integer.parseInt(parameters);
         }
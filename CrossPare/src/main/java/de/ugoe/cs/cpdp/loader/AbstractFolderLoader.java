@@ -17,7 +17,6 @@ package de.ugoe.cs.cpdp.loader;
 import java.io.File;
 import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
-import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -25,6 +24,7 @@ import weka.core.Attribute;
 import weka.core.Instance;
 import weka.core.Instances;
 import de.ugoe.cs.cpdp.IParameterizable;
+import de.ugoe.cs.cpdp.util.DoubleList;
 import de.ugoe.cs.cpdp.versions.SoftwareVersion;
 
 /**
@@ -49,6 +49,11 @@ public abstract class AbstractFolderLoader implements IVersionLoader {
      * parameters that may be used by single version loaders
      */
     private String parameters = null;
+
+    /**
+     * defines if loaded versions are stored in and read from the {@link BinaryVersionCache}
+     */
+    private boolean useBinaryCache = false;
     
     /**
      * parameters are passed on to SingleVersionLoader, if the loader supports parameters
@@ -81,6 +86,26 @@ public abstract class AbstractFolderLoader implements IVersionLoader {
         }
     }
 
+    /**
+     * Defines if loaded versions are stored in and read from the {@link BinaryVersionCache}. The
+     * cache is not used by default.
+     *
+     * @param useBinaryCache
+     *            true if the cache is used
+     */
+    public void setBinaryCache(boolean useBinaryCache) {
+        this.useBinaryCache = useBinaryCache;
+    }
+
+    /*
+     * @see de.ugoe.cs.cpdp.loader.IVersionLoader#getCacheKey()
+     */
+    @Override
+    public String getCacheKey() {
+        return getClass().getName() + "|" + new File(this.path).getAbsolutePath() + "|" +
+            (this.isBinaryClass ? "binary" : "numeric") + "|" + this.parameters;
+    }
+
     /*
      * @see de.ugoe.cs.cpdp.loader.IVersionLoader#load()
      */
@@ -111,26 +136,8 @@ public abstract class AbstractFolderLoader implements IVersionLoader {
                         if (versionFile.isFile() &&
                             instancesLoader.filenameFilter(versionFile.getName()))
                         {
-                            // currently only supports binary classification
-                            // TODO allow regression loading
-                            Instances data = instancesLoader.load(versionFile, isBinaryClass);
-                            Instances bugMatrix = null;
-                            if(instancesLoader instanceof IBugMatrixLoader) {
-                            	bugMatrix = ((IBugMatrixLoader) instancesLoader).getBugMatrix();
-                            }
-                            String versionName = data.relationName();
-                            List<Double> efforts = getEfforts(data);
-                            List<Double> numBugs = getNumBugs(data);
-                            LocalDateTime releaseDate = null;
-                            List<OffsetDateTime> committerDates = null;
-                            if (instancesLoader instanceof MynbouDataLoader) {
-                            	releaseDate = ((MynbouDataLoader) instancesLoader).getReleaseDate();
-                            }
-                            if (instancesLoader instanceof JitDataLoader) {
-                            	committerDates = ((JitDataLoader) instancesLoader).getCommitterDates();
-                            }
-                            versions.add(new SoftwareVersion(datasetName, projectName, versionName,
-                                                            data, bugMatrix, efforts, numBugs, releaseDate, committerDates));
+                            versions.add(loadVersion(instancesLoader, versionFile, datasetName,
+                                                     projectName));
                         }
                     }
                 }
@@ -139,6 +146,70 @@ public abstract class AbstractFolderLoader implements IVersionLoader {
         return versions;
     }
 
+    /**
+     * <p>
+     * Loads a single version. If the {@link BinaryVersionCache} is used, the version is read from
+     * its cache file if the cache file is valid. Otherwise, the version is loaded from the version
+     * file and stored in the cache.
+     * </p>
+     *
+     * @param instancesLoader
+     *            loader for the version file
+     * @param versionFile
+     *            the version file
+     * @param datasetName
+     *            name of the data set
+     * @param projectName
+     *            name of the project
+     * @return the version
+     */
+    private SoftwareVersion loadVersion(SingleVersionLoader instancesLoader,
+                                        File versionFile,
+                                        String datasetName,
+                                        String projectName)
+    {
+        File cacheFile = null;
+        List<File> sourceFiles = null;
+        final String configuration = instancesLoader.getClass().getName() + "|" +
+            instancesLoader.getRevision() + "|" + (this.isBinaryClass ? "binary" : "numeric") +
+            "|" + this.parameters;
+        if (this.useBinaryCache) {
+            cacheFile = BinaryVersionCache.getCacheFile(versionFile, configuration);
+            sourceFiles = instancesLoader.getSourceFiles(versionFile);
+            SoftwareVersion version = BinaryVersionCache.read(cacheFile, sourceFiles,
+                                                              configuration, datasetName,
+                                                              projectName);
+            if (version != null) {
+                return version;
+            }
+        }
+
+        // currently only supports binary classification
+        // TODO allow regression loading
+        Instances data = instancesLoader.load(versionFile, isBinaryClass);
+        Instances bugMatrix = null;
+        if(instancesLoader instanceof IBugMatrixLoader) {
+        	bugMatrix = ((IBugMatrixLoader) instancesLoader).getBugMatrix();
+        }
+        String versionName = data.relationName();
+        List<Double> efforts = getEfforts(data);
+        List<Double> numBugs = getNumBugs(data);
+        LocalDateTime releaseDate = null;
+        List<OffsetDateTime> committerDates = null;
+        if (instancesLoader instanceof MynbouDataLoader) {
+        	releaseDate = ((MynbouDataLoader) instancesLoader).getReleaseDate();
+        }
+        if (instancesLoader instanceof JitDataLoader) {
+        	committerDates = ((JitDataLoader) instancesLoader).getCommitterDates();
+        }
+        SoftwareVersion version = new SoftwareVersion(datasetName, projectName, versionName,
+                                                      data, bugMatrix, efforts, numBugs, releaseDate, committerDates);
+        if (cacheFile != null) {
+            BinaryVersionCache.write(cacheFile, sourceFiles, configuration, version);
+        }
+        return version;
+    }
+
     /**
      * <p>
      * Sets the efforts for the instances
@@ -175,13 +246,13 @@ public abstract class AbstractFolderLoader implements IVersionLoader {
             // attribute in the just in time data
             effortAtt = data.attribute("current_LLOC");
         }
-        List<Double> efforts = new ArrayList<>(data.size());
+        DoubleList efforts = new DoubleList(data.size());
         for (int i = 0; i < data.size(); i++) {
             if(effortAtt!=null) {
-                efforts.add(data.get(i).value(effortAtt));
+                efforts.addDouble(data.get(i).value(effortAtt));
             } else {
                 // add constant effort per instance (default)
-                efforts.add(1.0);
+                efforts.addDouble(1.0);
             }
         }
         return efforts;
@@ -198,9 +269,9 @@ public abstract class AbstractFolderLoader implements IVersionLoader {
      * @return list with bug counts
      */
     private static List<Double> getNumBugs(Instances data) {
-        List<Double> numBugs = new ArrayList<>(data.size());
+        DoubleList numBugs = new DoubleList(data.size());
         for (Instance instance : data) {
-            numBugs.add(instance.classValue());
+            numBugs.addDouble(instance.classValue());
         }
         return numBugs;
     }
@@ -0,0 +1,793 @@
+// Copyright 2015 Georg-August-Universität Göttingen, Germany
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package de.ugoe.cs.cpdp.loader;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import de.ugoe.cs.cpdp.util.DoubleList;
+import de.ugoe.cs.cpdp.versions.SoftwareVersion;
+import de.ugoe.cs.cpdp.versions.SparseBugMatrix;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+import weka.core.SparseInstance;
+
+/**
+ * <p>
+ * On-disk cache for single versions in a binary format. Parsing the ARFF, CSV, and JSON files of
+ * large data sets takes much longer than reading the parsed data. Therefore, the
+ * {@link AbstractFolderLoader} can store each loaded version in a cache file in the directory
+ * {@value #CACHE_DIRECTORY} next to the version file and read the cache file instead of the
+ * version file on later loads. The cache is enabled with the attribute
+ * <code>binarycache="true"</code> of the loader in the experiment configuration.
+ * </p>
+ * <p>
+ * The format is columnar and little-endian, and the file is memory-mapped for reading. It
+ * contains the instances, the bug matrix in CSR format, the efforts, the numbers of bugs, the
+ * release date, and the committer dates of the version. A cache file is only used if its format
+ * version and the configuration of the loader, including the revision of the
+ * {@link SingleVersionLoader}, are the same, and if the sizes and modification times of all
+ * source files of the version did not change. Otherwise, the version is parsed again and the
+ * cache file is replaced.
+ * </p>
+ * <p>
+ * Only numeric, nominal, and date attributes are supported; versions with other attributes are
+ * not cached.
+ * </p>
+ *
+ * @author jvdmosel
+ */
+public class BinaryVersionCache {
+
+    /**
+     * Reference to the logger
+     */
+    private static final Logger LOGGER = LogManager.getLogger("main");
+
+    /**
+     * name of the directory of the cache files; the directory is located in the directory of the
+     * version files
+     */
+    public static final String CACHE_DIRECTORY = ".crosspare-cache";
+
+    /**
+     * first and last int of each cache file
+     */
+    private static final int MAGIC = 0x43504443;
+
+    /**
+     * version of the format; must be increased whenever the format changes
+     */
+    private static final int FORMAT_VERSION = 1;
+
+    /**
+     * type of numeric attributes
+     */
+    private static final byte NUMERIC = 0;
+
+    /**
+     * type of nominal attributes
+     */
+    private static final byte NOMINAL = 1;
+
+    /**
+     * type of date attributes
+     */
+    private static final byte DATE = 2;
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private BinaryVersionCache() {
+        // static class
+    }
+
+    /**
+     * <p>
+     * Returns the cache file of a version file. Each configuration of the loader has its own cache
+     * file.
+     * </p>
+     *
+     * @param versionFile
+     *            the version file
+     * @param configuration
+     *            configuration of the loader, e.g., the loader class, its revision, and its
+     *            parameters
+     * @return the cache file
+     */
+    public static File getCacheFile(File versionFile, String configuration) {
+        return new File(new File(versionFile.getAbsoluteFile().getParentFile(), CACHE_DIRECTORY),
+                        versionFile.getName() + "." + Long.toHexString(hash(configuration)) +
+                            ".bin");
+    }
+
+    /**
+     * <p>
+     * Reads a version from a cache file. Missing, outdated, and corrupt cache files are ignored.
+     * </p>
+     *
+     * @param cacheFile
+     *            the cache file
+     * @param sourceFiles
+     *            files from which the version was loaded
+     * @param configuration
+     *            configuration of the loader
+     * @param dataset
+     *            name of the data set of the version
+     * @param project
+     *            name of the project of the version
+     * @return the version; null if the cache file cannot be used
+     */
+    public static SoftwareVersion read(File cacheFile,
+                                       List<File> sourceFiles,
+                                       String configuration,
+                                       String dataset,
+                                       String project)
+    {
+        if (!cacheFile.isFile()) {
+            return null;
+        }
+        final MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(cacheFile.toPath(), StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        catch (IOException e) {
+            LOGGER.warn("could not read cache file " + cacheFile + ": " + e.getMessage());
+            return null;
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            if (!readHeader(buffer, sourceFiles, configuration)) {
+                LOGGER.debug("cache file " + cacheFile + " is outdated");
+                return null;
+            }
+            final SoftwareVersion version = readVersion(buffer, dataset, project);
+            if (buffer.getInt() != MAGIC) {
+                throw new IllegalStateException("missing end of file");
+            }
+            LOGGER.debug("loaded " + project + "/" + version.getVersion() + " from cache file " +
+                cacheFile);
+            return version;
+        }
+        catch (RuntimeException e) {
+            LOGGER.warn("ignoring corrupt cache file " + cacheFile + ": " + e);
+            return null;
+        }
+    }
+
+    /**
+     * <p>
+     * Writes a version to a cache file. The file is written to a temporary file first and then
+     * moved, i.e., concurrent readers never see incomplete files. Errors are only logged, because
+     * the cache is optional, e.g., if the data is located in a read-only directory.
+     * </p>
+     *
+     * @param cacheFile
+     *            the cache file
+     * @param sourceFiles
+     *            files from which the version was loaded
+     * @param configuration
+     *            configuration of the loader
+     * @param version
+     *            the version
+     * @return true if the cache file was written
+     */
+    public static boolean write(File cacheFile,
+                                List<File> sourceFiles,
+                                String configuration,
+                                SoftwareVersion version)
+    {
+        if (!isSupported(version.getInstancesReadOnly())) {
+            LOGGER.debug("attribute types of " + version.getVersion() +
+                " are not supported by the cache");
+            return false;
+        }
+        final Output output = new Output();
+        output.putInt(MAGIC);
+        output.putInt(FORMAT_VERSION);
+        output.putLong(hash(configuration));
+        output.putInt(sourceFiles.size());
+        for (File sourceFile : sourceFiles) {
+            output.putLong(sourceFile.length());
+            output.putLong(sourceFile.lastModified());
+        }
+        writeVersion(output, version);
+        output.putInt(MAGIC);
+
+        Path tmpFile = null;
+        try {
+            Files.createDirectories(cacheFile.getParentFile().toPath());
+            tmpFile = Files.createTempFile(cacheFile.getParentFile().toPath(),
+                                           cacheFile.getName(), ".tmp");
+            try (FileChannel channel = FileChannel.open(tmpFile, StandardOpenOption.WRITE)) {
+                final ByteBuffer data = output.toByteBuffer();
+                while (data.hasRemaining()) {
+                    channel.write(data);
+                }
+            }
+            Files.move(tmpFile, cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        }
+        catch (IOException e) {
+            LOGGER.warn("could not write cache file " + cacheFile + ": " + e.getMessage());
+            if (tmpFile != null) {
+                tmpFile.toFile().delete();
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Checks if all attributes of the instances can be stored in the cache.
+     *
+     * @param instances
+     *            the instances
+     * @return true if the attributes are supported
+     */
+    private static boolean isSupported(Instances instances) {
+        for (int j = 0; j < instances.numAttributes(); j++) {
+            final Attribute attribute = instances.attribute(j);
+            if (!attribute.isNumeric() && !attribute.isNominal()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads the header of a cache file and checks if the cache file is valid.
+     *
+     * @param buffer
+     *            the content of the cache file
+     * @param sourceFiles
+     *            files from which the version was loaded
+     * @param configuration
+     *            configuration of the loader
+     * @return true if the cache file is valid
+     */
+    private static boolean readHeader(ByteBuffer buffer,
+                                      List<File> sourceFiles,
+                                      String configuration)
+    {
+        if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION ||
+            buffer.getLong() != hash(configuration) || buffer.getInt() != sourceFiles.size())
+        {
+            return false;
+        }
+        for (File sourceFile : sourceFiles) {
+            if (buffer.getLong() != sourceFile.length() ||
+                buffer.getLong() != sourceFile.lastModified())
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes the data of a version.
+     *
+     * @param output
+     *            the output
+     * @param version
+     *            the version
+     */
+    private static void writeVersion(Output output, SoftwareVersion version) {
+        final Instances instances = version.getInstancesReadOnly();
+        final int numInstances = instances.numInstances();
+        output.putString(instances.relationName());
+        output.putInt(instances.numAttributes());
+        output.putInt(instances.classIndex());
+        for (int j = 0; j < instances.numAttributes(); j++) {
+            final Attribute attribute = instances.attribute(j);
+            if (attribute.isDate()) {
+                output.putByte(DATE);
+                output.putString(attribute.name());
+                output.putString(attribute.getDateFormat());
+            }
+            else if (attribute.isNominal()) {
+                output.putByte(NOMINAL);
+                output.putString(attribute.name());
+                output.putInt(attribute.numValues());
+                for (int k = 0; k < attribute.numValues(); k++) {
+                    output.putString(attribute.value(k));
+                }
+            }
+            else {
+                output.putByte(NUMERIC);
+                output.putString(attribute.name());
+            }
+        }
+
+        output.putInt(numInstances);
+        final double[] weights = new double[numInstances];
+        final byte[] sparse = new byte[numInstances];
+        for (int i = 0; i < numInstances; i++) {
+            weights[i] = instances.instance(i).weight();
+            sparse[i] = (byte) (instances.instance(i) instanceof SparseInstance ? 1 : 0);
+        }
+        output.putDoubles(weights);
+        output.putBytes(sparse);
+        final double[] column = new double[numInstances];
+        for (int j = 0; j < instances.numAttributes(); j++) {
+            for (int i = 0; i < numInstances; i++) {
+                column[i] = instances.instance(i).value(j);
+            }
+            output.putDoubles(column);
+        }
+
+        writeValues(output, version.getEffortsReadOnly());
+        writeValues(output, version.getNumBugsReadOnly());
+
+        final SparseBugMatrix bugMatrix = version.getSparseBugMatrixReadOnly();
+        output.putByte(bugMatrix == null ? (byte) 0 : (byte) 1);
+        if (bugMatrix != null) {
+            output.putString(bugMatrix.name());
+            output.putInt(bugMatrix.numBugs());
+            for (int j = 0; j < bugMatrix.numBugs(); j++) {
+                output.putString(bugMatrix.bugId(j));
+            }
+            final int numRows = bugMatrix.numRows();
+            final int numNonZeros = bugMatrix.numNonZeros();
+            final int[] rowPointers = new int[numRows + 1];
+            for (int i = 0; i < numRows; i++) {
+                rowPointers[i] = bugMatrix.rowStart(i);
+            }
+            rowPointers[numRows] = numNonZeros;
+            final int[] columns = new int[numNonZeros];
+            final double[] values = new double[numNonZeros];
+            for (int k = 0; k < numNonZeros; k++) {
+                columns[k] = bugMatrix.columnAt(k);
+                values[k] = bugMatrix.valueAt(k);
+            }
+            output.putInt(numRows);
+            output.putInts(rowPointers);
+            output.putInts(columns);
+            output.putDoubles(values);
+        }
+
+        final LocalDateTime releaseDate = version.getReleaseDate();
+        output.putByte(releaseDate == null ? (byte) 0 : (byte) 1);
+        if (releaseDate != null) {
+            output.putLong(releaseDate.toEpochSecond(ZoneOffset.UTC));
+            output.putInt(releaseDate.getNano());
+        }
+
+        final List<OffsetDateTime> committerDates = version.getCommitterDatesReadOnly();
+        output.putByte(committerDates == null ? (byte) 0 : (byte) 1);
+        if (committerDates != null) {
+            final long[] seconds = new long[committerDates.size()];
+            final int[] nanos = new int[committerDates.size()];
+            final int[] offsets = new int[committerDates.size()];
+            for (int i = 0; i < seconds.length; i++) {
+                final OffsetDateTime date = committerDates.get(i);
+                seconds[i] = date.toEpochSecond();
+                nanos[i] = date.getNano();
+                offsets[i] = date.getOffset().getTotalSeconds();
+            }
+            output.putLongs(seconds);
+            output.putInts(nanos);
+            output.putInts(offsets);
+        }
+    }
+
+    /**
+     * Reads the data of a version.
+     *
+     * @param buffer
+     *            the content of the cache file after the header
+     * @param dataset
+     *            name of the data set
+     * @param project
+     *            name of the project
+     * @return the version
+     */
+    private static SoftwareVersion readVersion(ByteBuffer buffer, String dataset, String project) {
+        final String relationName = getString(buffer);
+        final int numAttributes = buffer.getInt();
+        final int classIndex = buffer.getInt();
+        final ArrayList<Attribute> attributes = new ArrayList<>(numAttributes);
+        for (int j = 0; j < numAttributes; j++) {
+            final byte type = buffer.get();
+            final String name = getString(buffer);
+            if (type == DATE) {
+                attributes.add(new Attribute(name, getString(buffer)));
+            }
+            else if (type == NOMINAL) {
+                final int numValues = buffer.getInt();
+                final List<String> values = new ArrayList<>(numValues);
+                for (int k = 0; k < numValues; k++) {
+                    values.add(getString(buffer));
+                }
+                attributes.add(new Attribute(name, values));
+            }
+            else if (type == NUMERIC) {
+                attributes.add(new Attribute(name));
+            }
+            else {
+                throw new IllegalStateException("unknown attribute type " + type);
+            }
+        }
+
+        final int numInstances = buffer.getInt();
+        final double[] weights = getDoubles(buffer);
+        final byte[] sparse = getBytes(buffer);
+        final double[][] columns = new double[numAttributes][];
+        for (int j = 0; j < numAttributes; j++) {
+            columns[j] = getDoubles(buffer);
+        }
+        final Instances instances = new Instances(relationName, attributes, numInstances);
+        instances.setClassIndex(classIndex);
+        for (int i = 0; i < numInstances; i++) {
+            final double[] values = new double[numAttributes];
+            for (int j = 0; j < numAttributes; j++) {
+                values[j] = columns[j][i];
+            }
+            instances.add(sparse[i] == 0 ? new DenseInstance(weights[i], values) :
+                new SparseInstance(weights[i], values));
+        }
+
+        final List<Double> efforts = readValues(buffer);
+        final List<Double> numBugs = readValues(buffer);
+
+        Instances bugMatrix = null;
+        if (buffer.get() != 0) {
+            final String name = getString(buffer);
+            final int numBugIds = buffer.getInt();
+            final ArrayList<Attribute> bugAttributes = new ArrayList<>(numBugIds);
+            for (int j = 0; j < numBugIds; j++) {
+                bugAttributes.add(new Attribute(getString(buffer)));
+            }
+            final int numRows = buffer.getInt();
+            final int[] rowPointers = getInts(buffer);
+            final int[] bugColumns = getInts(buffer);
+            final double[] values = getDoubles(buffer);
+            bugMatrix = new Instances(name, bugAttributes, numRows);
+            for (int i = 0; i < numRows; i++) {
+                bugMatrix.add(new SparseInstance(1.0,
+                                                 Arrays.copyOfRange(values, rowPointers[i],
+                                                                    rowPointers[i + 1]),
+                                                 Arrays.copyOfRange(bugColumns, rowPointers[i],
+                                                                    rowPointers[i + 1]),
+                                                 numBugIds));
+            }
+        }
+
+        LocalDateTime releaseDate = null;
+        if (buffer.get() != 0) {
+            final long seconds = buffer.getLong();
+            releaseDate = LocalDateTime.ofEpochSecond(seconds, buffer.getInt(), ZoneOffset.UTC);
+        }
+
+        List<OffsetDateTime> committerDates = null;
+        if (buffer.get() != 0) {
+            final long[] seconds = getLongs(buffer);
+            final int[] nanos = getInts(buffer);
+            final int[] offsets = getInts(buffer);
+            committerDates = new ArrayList<>(seconds.length);
+            for (int i = 0; i < seconds.length; i++) {
+                committerDates.add(OffsetDateTime
+                    .ofInstant(Instant.ofEpochSecond(seconds[i], nanos[i]),
+                               ZoneOffset.ofTotalSeconds(offsets[i])));
+            }
+        }
+
+        return new SoftwareVersion(dataset, project, relationName, instances, bugMatrix, efforts,
+                                   numBugs, releaseDate, committerDates);
+    }
+
+    /**
+     * Writes a list of values that may be null.
+     *
+     * @param output
+     *            the output
+     * @param values
+     *            the values
+     */
+    private static void writeValues(Output output, List<Double> values) {
+        output.putByte(values == null ? (byte) 0 : (byte) 1);
+        if (values != null) {
+            output.putDoubles(DoubleList.toDoubleArray(values));
+        }
+    }
+
+    /**
+     * Reads a list of values that may be null.
+     *
+     * @param buffer
+     *            the input
+     * @return the values
+     */
+    private static List<Double> readValues(ByteBuffer buffer) {
+        if (buffer.get() == 0) {
+            return null;
+        }
+        return new DoubleList(getDoubles(buffer));
+    }
+
+    /**
+     * Calculates the hash of a configuration.
+     *
+     * @param configuration
+     *            the configuration
+     * @return the hash
+     */
+    private static long hash(String configuration) {
+        final CRC32 crc = new CRC32();
+        crc.update(configuration.getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+
+    /**
+     * Reads a string.
+     *
+     * @param buffer
+     *            the input
+     * @return the string
+     */
+    private static String getString(ByteBuffer buffer) {
+        final byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads an array of bytes.
+     *
+     * @param buffer
+     *            the input
+     * @return the array
+     */
+    private static byte[] getBytes(ByteBuffer buffer) {
+        final byte[] array = new byte[buffer.getInt()];
+        buffer.get(array);
+        return array;
+    }
+
+    /**
+     * Reads an array of ints. The array starts at the next position that is a multiple of eight.
+     *
+     * @param buffer
+     *            the input
+     * @return the array
+     */
+    private static int[] getInts(ByteBuffer buffer) {
+        final int[] array = new int[buffer.getInt()];
+        align(buffer);
+        buffer.asIntBuffer().get(array);
+        buffer.position(buffer.position() + array.length * Integer.BYTES);
+        return array;
+    }
+
+    /**
+     * Reads an array of longs. The array starts at the next position that is a multiple of eight.
+     *
+     * @param buffer
+     *            the input
+     * @return the array
+     */
+    private static long[] getLongs(ByteBuffer buffer) {
+        final long[] array = new long[buffer.getInt()];
+        align(buffer);
+        buffer.asLongBuffer().get(array);
+        buffer.position(buffer.position() + array.length * Long.BYTES);
+        return array;
+    }
+
+    /**
+     * Reads an array of doubles. The array starts at the next position that is a multiple of
+     * eight.
+     *
+     * @param buffer
+     *            the input
+     * @return the array
+     */
+    private static double[] getDoubles(ByteBuffer buffer) {
+        final double[] array = new double[buffer.getInt()];
+        align(buffer);
+        buffer.asDoubleBuffer().get(array);
+        buffer.position(buffer.position() + array.length * Double.BYTES);
+        return array;
+    }
+
+    /**
+     * Moves the position of a buffer to the next multiple of eight.
+     *
+     * @param buffer
+     *            the buffer
+     */
+    private static void align(ByteBuffer buffer) {
+        buffer.position((buffer.position() + 7) & ~7);
+    }
+
+    /**
+     * <p>
+     * Growable little-endian buffer for writing cache files. Arrays are stored with their length
+     * and start at positions that are multiples of eight, such that they can be read with aligned
+     * bulk reads from the mapped file.
+     * </p>
+     *
+     * @author jvdmosel
+     */
+    private static class Output {
+
+        /**
+         * the written data
+         */
+        private ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+
+        /**
+         * Ensures that a number of bytes can be written.
+         *
+         * @param numBytes
+         *            number of bytes
+         */
+        private void ensureRemaining(long numBytes) {
+            if (this.buffer.remaining() < numBytes) {
+                final long required = this.buffer.position() + numBytes;
+                if (required > Integer.MAX_VALUE) {
+                    throw new IllegalStateException("data too large for cache file");
+                }
+                final ByteBuffer grown = ByteBuffer
+                    .allocate((int) Math.min(Integer.MAX_VALUE,
+                                             Math.max(required, 2L * this.buffer.capacity())))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+                this.buffer.flip();
+                grown.put(this.buffer);
+                this.buffer = grown;
+            }
+        }
+
+        /**
+         * writes a byte
+         *
+         * @param value
+         *            the value
+         */
+        private void putByte(byte value) {
+            ensureRemaining(1);
+            this.buffer.put(value);
+        }
+
+        /**
+         * writes an int
+         *
+         * @param value
+         *            the value
+         */
+        private void putInt(int value) {
+            ensureRemaining(Integer.BYTES);
+            this.buffer.putInt(value);
+        }
+
+        /**
+         * writes a long
+         *
+         * @param value
+         *            the value
+         */
+        private void putLong(long value) {
+            ensureRemaining(Long.BYTES);
+            this.buffer.putLong(value);
+        }
+
+        /**
+         * writes a string as UTF-8
+         *
+         * @param value
+         *            the value
+         */
+        private void putString(String value) {
+            putBytes(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        /**
+         * writes an array of bytes
+         *
+         * @param values
+         *            the values
+         */
+        private void putBytes(byte[] values) {
+            putInt(values.length);
+            ensureRemaining(values.length);
+            this.buffer.put(values);
+        }
+
+        /**
+         * writes an array of ints
+         *
+         * @param values
+         *            the values
+         */
+        private void putInts(int[] values) {
+            putInt(values.length);
+            align((long) values.length * Integer.BYTES);
+            this.buffer.asIntBuffer().put(values);
+            this.buffer.position(this.buffer.position() + values.length * Integer.BYTES);
+        }
+
+        /**
+         * writes an array of longs
+         *
+         * @param values
+         *            the values
+         */
+        private void putLongs(long[] values) {
+            putInt(values.length);
+            align((long) values.length * Long.BYTES);
+            this.buffer.asLongBuffer().put(values);
+            this.buffer.position(this.buffer.position() + values.length * Long.BYTES);
+        }
+
+        /**
+         * writes an array of doubles
+         *
+         * @param values
+         *            the values
+         */
+        private void putDoubles(double[] values) {
+            putInt(values.length);
+            align((long) values.length * Double.BYTES);
+            this.buffer.asDoubleBuffer().put(values);
+            this.buffer.position(this.buffer.position() + values.length * Double.BYTES);
+        }
+
+        /**
+         * Pads the data with zeros to the next multiple of eight and ensures that an array can be
+         * written afterwards.
+         *
+         * @param numBytes
+         *            size of the array in bytes
+         */
+        private void align(long numBytes) {
+            ensureRemaining(numBytes + 7);
+            while ((this.buffer.position() & 7) != 0) {
+                this.buffer.put((byte) 0);
+            }
+        }
+
+        /**
+         * returns the written data
+         *
+         * @return the data, ready to be read
+         */
+        private ByteBuffer toByteBuffer() {
+            this.buffer.flip();
+            return this.buffer;
+        }
+    }
+}
@@ -48,4 +48,12 @@ public interface IVersionLoader extends IParameterizable {
      */
     public List<SoftwareVersion> load();
 
+    /**
+     * Returns a key that identifies the data loaded by the loader, i.e., two loaders with the same
+     * key load the same data. The key is used by the {@link VersionCache}.
+     *
+     * @return key of the loaded data
+     */
+    public String getCacheKey();
+
 }
@@ -13,6 +13,7 @@ import de.ugoe.cs.cpdp.IParameterizable;
 import weka.core.Attribute;
 import weka.core.DenseInstance;
 import weka.core.Instances;
+import weka.core.SparseInstance;
 
 /**
  * Loader for just-in-time data
@@ -213,7 +214,8 @@ public class JitDataLoader implements SingleVersionLoader, IBugMatrixLoader, IPa
 			for (int j = 0; j < values.length; j++) {
 				values[j] = Double.parseDouble(lineSplit[usedIssues.get(j)].trim());
 			}
-			bugMatrix.add(new DenseInstance(1.0, values));
+			// bug matrices are almost entirely zeros
+			bugMatrix.add(new SparseInstance(1.0, values));
 		}
 
 		// fetch committer dates
@@ -6,6 +6,7 @@ import java.nio.file.Files;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.apache.commons.io.FileUtils;
@@ -15,6 +16,7 @@ import de.ugoe.cs.cpdp.IParameterizable;
 import weka.core.Attribute;
 import weka.core.DenseInstance;
 import weka.core.Instances;
+import weka.core.SparseInstance;
 
 /**
  * Loader for CSV data generated by mynbou. 
@@ -142,11 +144,12 @@ public class MynbouDataLoader implements SingleVersionLoader, IBugMatrixLoader,
 			for (int j = 0; j < values.length; j++) {
 				values[j] = Double.parseDouble(lineSplit[j + importIndex + 2].trim());
 			}
-			bugMatrix.add(new DenseInstance(1.0, values));
+			// bug matrices are almost entirely zeros
+			bugMatrix.add(new SparseInstance(1.0, values));
 		}
 
 		// read metadata
-		File jsonFile = new File(file.getAbsolutePath().replace("_aggregated.csv", ".json"));
+		File jsonFile = getMetadataFile(file);
 		String jsonData = null;
         try {
             jsonData = FileUtils.readFileToString(jsonFile);
@@ -175,6 +178,25 @@ public class MynbouDataLoader implements SingleVersionLoader, IBugMatrixLoader,
 		return filename.endsWith(".csv");
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.ugoe.cs.cpdp.loader.SingleVersionLoader#getSourceFiles(java.io.File)
+	 */
+	@Override
+	public List<File> getSourceFiles(File file) {
+		return Arrays.asList(file, getMetadataFile(file));
+	}
+
+	/**
+	 * Returns the JSON file with the metadata of a version.
+	 * @param file the CSV file of the version
+	 * @return the metadata file
+	 */
+	private static File getMetadataFile(File file) {
+		return new File(file.getAbsolutePath().replace("_aggregated.csv", ".json"));
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
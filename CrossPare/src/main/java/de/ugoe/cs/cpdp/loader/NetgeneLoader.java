@@ -17,7 +17,9 @@ package de.ugoe.cs.cpdp.loader;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.logging.log4j.LogManager;
@@ -51,10 +53,9 @@ public class NetgeneLoader implements SingleVersionLoader {
     @Override
     public Instances load(File fileMetricsFile, boolean binaryClass) {
         // first determine all files
-        String path = fileMetricsFile.getParentFile().getAbsolutePath();
         String project = fileMetricsFile.getName().split("_")[0];
-        File bugsFile = new File(path + "/" + project + "_bugs_per_file.csv");
-        File networkMetrics = new File(path + "/" + project + "_network_metrics.csv");
+        File bugsFile = getProjectFile(fileMetricsFile, "_bugs_per_file.csv");
+        File networkMetrics = getProjectFile(fileMetricsFile, "_network_metrics.csv");
         Instances metricsData = null;
 
         try {
@@ -215,4 +216,30 @@ public class NetgeneLoader implements SingleVersionLoader {
         return filename.endsWith("fileMetrics.csv");
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see de.ugoe.cs.cpdp.loader.SingleVersionLoader#getSourceFiles(java.io.File)
+     */
+    @Override
+    public List<File> getSourceFiles(File fileMetricsFile) {
+        return Arrays.asList(fileMetricsFile, getProjectFile(fileMetricsFile, "_bugs_per_file.csv"),
+                             getProjectFile(fileMetricsFile, "_network_metrics.csv"));
+    }
+
+    /**
+     * Returns a file of the same project as the file metrics.
+     * 
+     * @param fileMetricsFile
+     *            file with the file metrics
+     * @param suffix
+     *            suffix of the file name after the project name
+     * @return the file
+     */
+    private static File getProjectFile(File fileMetricsFile, String suffix) {
+        String path = fileMetricsFile.getParentFile().getAbsolutePath();
+        String project = fileMetricsFile.getName().split("_")[0];
+        return new File(path + "/" + project + suffix);
+    }
+
 }
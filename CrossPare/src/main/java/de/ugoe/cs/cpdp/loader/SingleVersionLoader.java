@@ -15,6 +15,8 @@
 package de.ugoe.cs.cpdp.loader;
 
 import java.io.File;
+import java.util.Collections;
+import java.util.List;
 
 import weka.core.Instances;
 
@@ -44,4 +46,28 @@ public interface SingleVersionLoader {
      * @return true if a filename shall be considered
      */
     boolean filenameFilter(String endsWith);
+
+    /**
+     * Returns all files that are read when the instances are loaded from a file. The
+     * {@link BinaryVersionCache} uses the files to check if a cached version is outdated.
+     * 
+     * @param file
+     *            handle to the file of the instances
+     * @return files that are read by {@link #load(File, boolean)}
+     */
+    default List<File> getSourceFiles(File file) {
+        return Collections.singletonList(file);
+    }
+
+    /**
+     * Returns the revision of the parsing of the loader. The revision is part of the
+     * configuration of the {@link BinaryVersionCache} and must be increased whenever a change of
+     * the loader changes the loaded instances, such that versions cached by earlier revisions
+     * are loaded again.
+     * 
+     * @return revision of the loader
+     */
+    default int getRevision() {
+        return 0;
+    }
 }
@@ -0,0 +1,179 @@
+// Copyright 2015 Georg-August-Universität Göttingen, Germany
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package de.ugoe.cs.cpdp.loader;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import de.ugoe.cs.cpdp.versions.SoftwareVersion;
+
+/**
+ * <p>
+ * Process-wide cache for loaded data sets. Experiments that are executed concurrently, e.g., by
+ * the {@link de.ugoe.cs.cpdp.Runner}, often use the same data. With the cache, each data set is
+ * only loaded once and the loaded {@link SoftwareVersion}s are shared between the experiments.
+ * </p>
+ * <p>
+ * The cache is reference counted: each call of {@link #acquire(List)} must be followed by a call
+ * of {@link #release(List)} with the same loaders once the data is not required anymore. A data
+ * set is removed from the cache as soon as it is not used by any experiment.
+ * </p>
+ * <p>
+ * The shared versions must not be modified. Experiments must create a copy of a version with
+ * {@link SoftwareVersion#SoftwareVersion(SoftwareVersion)} before applying any processing.
+ * </p>
+ *
+ * @author jvdmosel
+ */
+public class VersionCache {
+
+    /**
+     * Reference to the logger
+     */
+    private static final Logger LOGGER = LogManager.getLogger("main");
+
+    /**
+     * cached data sets; the key is defined by {@link IVersionLoader#getCacheKey()}
+     */
+    private static final Map<String, CacheEntry> CACHE = new HashMap<>();
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private VersionCache() {
+        // static class
+    }
+
+    /**
+     * <p>
+     * Returns the versions of all loaders. The data of each loader is only loaded if it is not
+     * already contained in the cache.
+     * </p>
+     *
+     * @param loaders
+     *            loaders for the data
+     * @return modifiable list with random access of the versions of all loaders
+     */
+    public static List<SoftwareVersion> acquire(List<IVersionLoader> loaders) {
+        final List<SoftwareVersion> versions = new ArrayList<>();
+        for (int i = 0; i < loaders.size(); i++) {
+            try {
+                versions.addAll(acquire(loaders.get(i)));
+            }
+            catch (RuntimeException e) {
+                release(loaders.subList(0, i));
+                throw e;
+            }
+        }
+        return versions;
+    }
+
+    /**
+     * <p>
+     * Returns the versions of a loader. The data is only loaded if it is not already contained in
+     * the cache. If another thread currently loads the same data, the method waits until the
+     * loading is finished.
+     * </p>
+     *
+     * @param loader
+     *            loader for the data
+     * @return unmodifiable list of the versions
+     */
+    public static List<SoftwareVersion> acquire(IVersionLoader loader) {
+        final String key = loader.getCacheKey();
+        final CacheEntry entry;
+        synchronized (CACHE) {
+            entry = CACHE.computeIfAbsent(key, k -> new CacheEntry());
+            entry.references++;
+        }
+        synchronized (entry) {
+            if (entry.versions == null) {
+                try {
+                    entry.versions = Collections.unmodifiableList(new ArrayList<>(loader.load()));
+                }
+                catch (RuntimeException e) {
+                    release(loader);
+                    throw e;
+                }
+            }
+            else {
+                LOGGER.debug("using cached data for " + key);
+            }
+            return entry.versions;
+        }
+    }
+
+    /**
+     * <p>
+     * Releases the data of the loaders.
+     * </p>
+     *
+     * @param loaders
+     *            loaders whose data is released
+     */
+    public static void release(List<IVersionLoader> loaders) {
+        for (IVersionLoader loader : loaders) {
+            release(loader);
+        }
+    }
+
+    /**
+     * <p>
+     * Releases the data of a loader. The data is removed from the cache if it is not used
+     * anymore.
+     * </p>
+     *
+     * @param loader
+     *            loader whose data is released
+     */
+    public static void release(IVersionLoader loader) {
+        final String key = loader.getCacheKey();
+        synchronized (CACHE) {
+            CacheEntry entry = CACHE.get(key);
+            if (entry != null) {
+                entry.references--;
+                if (entry.references <= 0) {
+                    CACHE.remove(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * Entry of the cache.
+     * </p>
+     *
+     * @author jvdmosel
+     */
+    private static class CacheEntry {
+
+        /**
+         * loaded versions; null until the data is loaded
+         */
+        private List<SoftwareVersion> versions = null;
+
+        /**
+         * number of experiments that currently use the data
+         */
+        private int references = 0;
+    }
+}
@@ -0,0 +1,513 @@
+// Copyright 2015 Georg-August-Universität Göttingen, Germany
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package de.ugoe.cs.cpdp.training;
+
+import java.util.Arrays;
+
+import org.jgap.gp.CommandGene;
+import org.jgap.gp.IGPProgram;
+import org.jgap.gp.function.Add;
+import org.jgap.gp.function.Cosine;
+import org.jgap.gp.function.Divide;
+import org.jgap.gp.function.Exp;
+import org.jgap.gp.function.Log;
+import org.jgap.gp.function.Max;
+import org.jgap.gp.function.Multiply;
+import org.jgap.gp.function.Sine;
+import org.jgap.gp.function.Subtract;
+import org.jgap.gp.impl.ProgramChromosome;
+import org.jgap.gp.terminal.Terminal;
+import org.jgap.gp.terminal.Variable;
+
+/**
+ * <p>
+ * Compiled form of a program of the genetic program of the {@link GPTraining}. The S-expression
+ * tree of the program is translated into a sequence of operations of a stack machine in postfix
+ * order. The program is executed for all instances of the data at once: each operation is applied
+ * to whole columns of the data, i.e., the nodes of the tree are not interpreted for each
+ * instance.
+ * </p>
+ * <p>
+ * The operations compute exactly the same as the execute_double methods of the JGAP commands,
+ * i.e., the results are identical to the execution of the program with JGAP. Only the commands
+ * used by the {@link GPTraining} are supported. Programs that use other commands cannot be
+ * compiled.
+ * </p>
+ *
+ * @author jvdmosel
+ */
+class CompiledGPProgram {
+
+    /**
+     * operation that pushes a column of the data
+     */
+    private static final int VARIABLE = 0;
+
+    /**
+     * operation that pushes a constant
+     */
+    private static final int CONSTANT = 1;
+
+    /**
+     * operation of {@link Add}
+     */
+    private static final int ADD = 2;
+
+    /**
+     * operation of {@link Subtract}
+     */
+    private static final int SUBTRACT = 3;
+
+    /**
+     * operation of {@link Multiply}
+     */
+    private static final int MULTIPLY = 4;
+
+    /**
+     * operation of {@link Divide}
+     */
+    private static final int DIVIDE = 5;
+
+    /**
+     * operation of {@link Sine}
+     */
+    private static final int SINE = 6;
+
+    /**
+     * operation of {@link Cosine}
+     */
+    private static final int COSINE = 7;
+
+    /**
+     * operation of {@link Exp}
+     */
+    private static final int EXP = 8;
+
+    /**
+     * operation of {@link Log}
+     */
+    private static final int LOG = 9;
+
+    /**
+     * operation of {@link GPTraining.GPRun.GT}
+     */
+    private static final int GT = 10;
+
+    /**
+     * operation of {@link Max}
+     */
+    private static final int MAX = 11;
+
+    /**
+     * operations in postfix order
+     */
+    private final int[] operations;
+
+    /**
+     * column of each {@link #VARIABLE} operation
+     */
+    private final int[] columns;
+
+    /**
+     * value of each {@link #CONSTANT} operation
+     */
+    private final double[] constants;
+
+    /**
+     * maximal number of values on the stack during the execution
+     */
+    private final int stackSize;
+
+    /**
+     * <p>
+     * Creates a new compiled program.
+     * </p>
+     *
+     * @param operations
+     *            operations in postfix order
+     * @param columns
+     *            column of each variable operation
+     * @param constants
+     *            value of each constant operation
+     * @param stackSize
+     *            maximal number of values on the stack
+     */
+    private CompiledGPProgram(int[] operations, int[] columns, double[] constants, int stackSize) {
+        this.operations = operations;
+        this.columns = columns;
+        this.constants = constants;
+        this.stackSize = stackSize;
+    }
+
+    /**
+     * <p>
+     * Compiles the first chromosome of a program, i.e., the chromosome that is executed by the
+     * {@link GPTraining}.
+     * </p>
+     *
+     * @param program
+     *            the program
+     * @param variables
+     *            variables of the genetic program; the variable at index j refers to column j of
+     *            the data
+     * @return the compiled program; null if the program uses a command that is not supported
+     */
+    static CompiledGPProgram compile(IGPProgram program, Variable[] variables) {
+        final ProgramChromosome chromosome = program.getChromosome(0);
+        final Compiler compiler = new Compiler(chromosome, variables, chromosome.size());
+        if (!compiler.compile(0)) {
+            return null;
+        }
+        return new CompiledGPProgram(Arrays.copyOf(compiler.operations, compiler.size),
+                                     Arrays.copyOf(compiler.columns, compiler.size),
+                                     Arrays.copyOf(compiler.constants, compiler.size),
+                                     compiler.maxStackSize);
+    }
+
+    /**
+     * <p>
+     * Maximal number of values on the stack during the execution, i.e., the number of buffers
+     * required by {@link #execute(double[][], int, double[][])}.
+     * </p>
+     *
+     * @return size of the stack
+     */
+    int getStackSize() {
+        return this.stackSize;
+    }
+
+    /**
+     * <p>
+     * Executes the program for all instances of the data.
+     * </p>
+     *
+     * @param data
+     *            the data in column-major order; must not be modified by the caller while the
+     *            result is used
+     * @param numInstances
+     *            number of instances
+     * @param buffers
+     *            at least {@link #getStackSize()} buffers with a length of at least numInstances;
+     *            the buffers are overwritten
+     * @return array whose first numInstances values are the results of the program for the
+     *         instances; either one of the buffers or one of the columns of the data
+     */
+    double[] execute(double[][] data, int numInstances, double[][] buffers) {
+        final double[][] stack = new double[this.stackSize][];
+        int top = -1;
+        for (int k = 0; k < this.operations.length; k++) {
+            final int operation = this.operations[k];
+            if (operation == VARIABLE) {
+                stack[++top] = data[this.columns[k]];
+            }
+            else if (operation == CONSTANT) {
+                top++;
+                Arrays.fill(buffers[top], 0, numInstances, this.constants[k]);
+                stack[top] = buffers[top];
+            }
+            else if (operation <= DIVIDE || operation >= GT) {
+                top--;
+                final double[] a = stack[top];
+                final double[] b = stack[top + 1];
+                final double[] result = buffers[top];
+                binary(operation, a, b, result, numInstances);
+                stack[top] = result;
+            }
+            else {
+                final double[] a = stack[top];
+                final double[] result = buffers[top];
+                unary(operation, a, result, numInstances);
+                stack[top] = result;
+            }
+        }
+        return stack[0];
+    }
+
+    /**
+     * <p>
+     * Applies a command with two arguments to all instances.
+     * </p>
+     *
+     * @param operation
+     *            the operation
+     * @param a
+     *            values of the first argument
+     * @param b
+     *            values of the second argument
+     * @param result
+     *            array for the results; may be the same as a or b
+     * @param numInstances
+     *            number of instances
+     */
+    private static void binary(int operation, double[] a, double[] b, double[] result, int numInstances) {
+        switch (operation)
+        {
+            case ADD:
+                for (int i = 0; i < numInstances; i++) {
+                    result[i] = a[i] + b[i];
+                }
+                break;
+            case SUBTRACT:
+                for (int i = 0; i < numInstances; i++) {
+                    result[i] = a[i] - b[i];
+                }
+                break;
+            case MULTIPLY:
+                for (int i = 0; i < numInstances; i++) {
+                    result[i] = a[i] * b[i];
+                }
+                break;
+            case DIVIDE:
+                for (int i = 0; i < numInstances; i++) {
+                    result[i] = a[i] / b[i];
+                }
+                break;
+            case GT:
+                for (int i = 0; i < numInstances; i++) {
+                    result[i] = a[i] > b[i] ? 0 : 1;
+                }
+                break;
+            case MAX:
+                for (int i = 0; i < numInstances; i++) {
+                    result[i] = Math.max(a[i], b[i]);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("unknown operation: " + operation);
+        }
+    }
+
+    /**
+     * <p>
+     * Applies a command with one argument to all instances.
+     * </p>
+     *
+     * @param operation
+     *            the operation
+     * @param a
+     *            values of the argument
+     * @param result
+     *            array for the results; may be the same as a
+     * @param numInstances
+     *            number of instances
+     */
+    private static void unary(int operation, double[] a, double[] result, int numInstances) {
+        switch (operation)
+        {
+            case SINE:
+                for (int i = 0; i < numInstances; i++) {
+                    result[i] = Math.sin(Math.max(-10000.0, Math.min(a[i], 10000.0)));
+                }
+                break;
+            case COSINE:
+                for (int i = 0; i < numInstances; i++) {
+                    result[i] = Math.cos(Math.max(-10000.0, Math.min(a[i], 10000.0)));
+                }
+                break;
+            case EXP:
+                for (int i = 0; i < numInstances; i++) {
+                    result[i] = Math.exp(Math.max(-10000.0, Math.min(a[i], 20.0)));
+                }
+                break;
+            case LOG:
+                for (int i = 0; i < numInstances; i++) {
+                    result[i] = Math.log(a[i]);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("unknown operation: " + operation);
+        }
+    }
+
+    /**
+     * <p>
+     * Translates the S-expression tree of a chromosome into postfix order.
+     * </p>
+     *
+     * @author jvdmosel
+     */
+    private static class Compiler {
+
+        /**
+         * the chromosome
+         */
+        private final ProgramChromosome chromosome;
+
+        /**
+         * variables of the genetic program
+         */
+        private final Variable[] variables;
+
+        /**
+         * operations in postfix order
+         */
+        private final int[] operations;
+
+        /**
+         * columns of the variable operations
+         */
+        private final int[] columns;
+
+        /**
+         * values of the constant operations
+         */
+        private final double[] constants;
+
+        /**
+         * number of operations
+         */
+        private int size = 0;
+
+        /**
+         * current number of values on the stack
+         */
+        private int stackSize = 0;
+
+        /**
+         * maximal number of values on the stack
+         */
+        private int maxStackSize = 0;
+
+        /**
+         * <p>
+         * Creates a new compiler.
+         * </p>
+         *
+         * @param chromosome
+         *            the chromosome
+         * @param variables
+         *            variables of the genetic program
+         * @param numNodes
+         *            number of nodes of the chromosome
+         */
+        @SuppressWarnings("hiding")
+        private Compiler(ProgramChromosome chromosome, Variable[] variables, int numNodes) {
+            this.chromosome = chromosome;
+            this.variables = variables;
+            this.operations = new int[numNodes];
+            this.columns = new int[numNodes];
+            this.constants = new double[numNodes];
+        }
+
+        /**
+         * <p>
+         * Translates a node and its children.
+         * </p>
+         *
+         * @param node
+         *            index of the node in the chromosome
+         * @return true if the node is supported
+         */
+        private boolean compile(int node) {
+            final CommandGene gene = this.chromosome.getGene(node);
+            final Class<?> type = gene.getClass();
+            if (gene instanceof Variable) {
+                final int column = columnOf((Variable) gene);
+                if (column < 0) {
+                    return false;
+                }
+                add(VARIABLE, column, 0.0, 1);
+                return true;
+            }
+            if (type == Terminal.class) {
+                add(CONSTANT, 0, gene.execute_double(this.chromosome, node, null), 1);
+                return true;
+            }
+            final int operation;
+            if (type == Add.class) {
+                operation = ADD;
+            }
+            else if (type == Subtract.class) {
+                operation = SUBTRACT;
+            }
+            else if (type == Multiply.class) {
+                operation = MULTIPLY;
+            }
+            else if (type == Divide.class) {
+                operation = DIVIDE;
+            }
+            else if (type == Sine.class) {
+                operation = SINE;
+            }
+            else if (type == Cosine.class) {
+                operation = COSINE;
+            }
+            else if (type == Exp.class) {
+                operation = EXP;
+            }
+            else if (type == Log.class) {
+                operation = LOG;
+            }
+            else if (type == GPTraining.GPRun.GT.class) {
+                operation = GT;
+            }
+            else if (type == Max.class) {
+                operation = MAX;
+            }
+            else {
+                return false;
+            }
+            final int arity = operation >= SINE && operation <= LOG ? 1 : 2;
+            for (int child = 0; child < arity; child++) {
+                if (!compile(this.chromosome.getChild(node, child))) {
+                    return false;
+                }
+            }
+            add(operation, 0, 0.0, 1 - arity);
+            return true;
+        }
+
+        /**
+         * <p>
+         * Appends an operation.
+         * </p>
+         *
+         * @param operation
+         *            the operation
+         * @param column
+         *            column of a variable operation
+         * @param constant
+         *            value of a constant operation
+         * @param stackChange
+         *            change of the number of values on the stack
+         */
+        private void add(int operation, int column, double constant, int stackChange) {
+            this.operations[this.size] = operation;
+            this.columns[this.size] = column;
+            this.constants[this.size] = constant;
+            this.size++;
+            this.stackSize += stackChange;
+            this.maxStackSize = Math.max(this.maxStackSize, this.stackSize);
+        }
+
+        /**
+         * <p>
+         * Determines the column of a variable.
+         * </p>
+         *
+         * @param variable
+         *            the variable
+         * @return the column; -1 if the variable is unknown
+         */
+        private int columnOf(Variable variable) {
+            for (int j = 0; j < this.variables.length; j++) {
+                if (this.variables[j] == variable) {
+                    return j;
+                }
+            }
+            return -1;
+        }
+    }
+}
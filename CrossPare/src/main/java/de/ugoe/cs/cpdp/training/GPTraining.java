@@ -1,8 +1,18 @@
 
 package de.ugoe.cs.cpdp.training;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.apache.commons.collections4.list.SetUniqueList;
 
@@ -29,6 +39,7 @@ import org.jgap.gp.function.Exp;
 import org.jgap.gp.impl.DeltaGPFitnessEvaluator;
 import org.jgap.gp.impl.GPConfiguration;
 import org.jgap.gp.impl.GPGenotype;
+import org.jgap.gp.impl.GPPopulation;
 import org.jgap.gp.impl.TournamentSelector;
 import org.jgap.gp.terminal.Terminal;
 import org.jgap.gp.GPFitnessFunction;
@@ -53,7 +64,11 @@ import org.jgap.util.CloneException;
  * GPVClassifier is the Validation Classifier - GPVVClassifier is the Validation-Voting Classifier
  * 
  * config: <setwisetrainer name="GPTraining" param="populationSize:1000,numberRuns:10" />
- * 
+ *
+ * With the parameter threads:n, the classifiers for the training versions, the runs, and the
+ * fitness of the populations are computed in parallel by n threads; threads:0 uses one thread per
+ * processor. Each run uses its own JGAP configuration and variables.
+ *
  * @author Alexander Trautsch
  */
 @SuppressWarnings("hiding")
@@ -113,6 +128,11 @@ public class GPTraining implements ISetWiseTrainingStrategy, IWekaCompatibleTrai
      */
     private int maxNodes = 100;
 
+    /**
+     * number of threads used for the training; default is 1, i.e., sequential training
+     */
+    private int numThreads = 1;
+
     /*
      * (non-Javadoc)
      * 
@@ -160,6 +180,13 @@ public class GPTraining implements ISetWiseTrainingStrategy, IWekaCompatibleTrai
                 case "maxNodes":
                     this.maxNodes = Integer.parseInt(keyvalue[1]);
                     break;
+
+                case "threads":
+                    this.numThreads = Integer.parseInt(keyvalue[1]);
+                    if (this.numThreads <= 0) {
+                        this.numThreads = Runtime.getRuntime().availableProcessors();
+                    }
+                    break;
                 default:
                     throw new RuntimeException("Unknown Parameter for GPTraining: " + keyvalue[0]);
             }
@@ -169,6 +196,7 @@ public class GPTraining implements ISetWiseTrainingStrategy, IWekaCompatibleTrai
         ((GPVClassifier) this.classifier)
             .configure(this.populationSize, this.initMinDepth, this.initMaxDepth, this.tournamentSize, this.maxGenerations,
                        this.errorType2Weight, this.numberRuns, this.maxDepth, this.maxNodes);
+        this.classifier.setNumThreads(this.numThreads);
     }
 
     /*
@@ -331,6 +359,11 @@ public class GPTraining implements ISetWiseTrainingStrategy, IWekaCompatibleTrai
          */
         private GPProblem problem;
 
+        /**
+         * if true, the fitness of the populations is computed in parallel
+         */
+        private boolean parallel = false;
+
         /**
          * <p>
          * Configures the runner
@@ -373,6 +406,20 @@ public class GPTraining implements ISetWiseTrainingStrategy, IWekaCompatibleTrai
             this.maxNodes = maxNodes;
         }
 
+        /**
+         * <p>
+         * Defines if the fitness of the populations is computed in parallel. The parallel
+         * computation uses the fork-join pool of the thread that builds the classifier.
+         * </p>
+         *
+         * @param parallel
+         *            true if the fitness is computed in parallel
+         */
+        @SuppressWarnings("hiding")
+        public void setParallel(boolean parallel) {
+            this.parallel = parallel;
+        }
+
         /**
          * <p>
          * returns the genetic program
@@ -408,7 +455,39 @@ public class GPTraining implements ISetWiseTrainingStrategy, IWekaCompatibleTrai
                                 this.initMaxDepth, this.tournamentSize, this.errorType2Weight,
                                 this.maxDepth, this.maxNodes);
             this.gp = this.problem.create();
-            this.gp.evolve(this.maxGenerations);
+            if (this.parallel) {
+                // same as GPGenotype.evolve(int), but the fitness is computed in advance
+                calcFitness(this.gp.getGPPopulation());
+                for (int i = 0; i < this.maxGenerations; i++) {
+                    this.gp.evolve();
+                    calcFitness(this.gp.getGPPopulation());
+                    this.gp.calcFitness();
+                }
+            }
+            else {
+                this.gp.evolve(this.maxGenerations);
+            }
+        }
+
+        /**
+         * <p>
+         * Computes the fitness of all programs of a population in parallel. The fitness is stored
+         * in the programs, i.e., the evolution uses the computed values instead of computing the
+         * fitness sequentially. Programs that occur multiple times in the population are only
+         * evaluated once.
+         * </p>
+         *
+         * @param population
+         *            the population
+         */
+        private void calcFitness(GPPopulation population) {
+            final Set<IGPProgram> programs = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (IGPProgram program : population.getGPPrograms()) {
+                if (program != null) {
+                    programs.add(program);
+                }
+            }
+            new ArrayList<>(programs).parallelStream().forEach(IGPProgram::getFitnessValue);
         }
 
         /**
@@ -494,8 +573,9 @@ public class GPTraining implements ISetWiseTrainingStrategy, IWekaCompatibleTrai
 
                 this.x = new Variable[this.instances[0].length];
 
+                // Variable.create would share the variables between all runs
                 for (int j = 0; j < this.x.length; j++) {
-                    this.x[j] = Variable.create(config, "X" + j, CommandGene.DoubleClass);
+                    this.x[j] = new ThreadLocalVariable(config, "X" + j);
                 }
 
                 config.setGPFitnessEvaluator(new DeltaGPFitnessEvaluator()); // smaller fitness is
@@ -613,6 +693,18 @@ public class GPTraining implements ISetWiseTrainingStrategy, IWekaCompatibleTrai
              */
             private double[][] instances;
 
+            /**
+             * instance values of the training data in column-major order, used for the execution
+             * of compiled programs
+             */
+            private double[][] columns;
+
+            /**
+             * buffers for the execution of compiled programs for each thread; recreated by
+             * {@link #readObject(ObjectInputStream)}, because thread locals are not serializable
+             */
+            private transient ThreadLocal<double[][]> buffers = new ThreadLocal<>();
+
             /**
              * classifications of the training data
              */
@@ -665,6 +757,12 @@ public class GPTraining implements ISetWiseTrainingStrategy, IWekaCompatibleTrai
                 this.instances = instances;
                 this.output = output;
                 this.errorType2Weight = errorType2Weight;
+                this.columns = new double[x.length][instances.length];
+                for (int i = 0; i < instances.length; i++) {
+                    for (int j = 0; j < x.length; j++) {
+                        this.columns[j][i] = instances[i][j];
+                    }
+                }
             }
 
             /**
@@ -726,38 +824,50 @@ public class GPTraining implements ISetWiseTrainingStrategy, IWekaCompatibleTrai
             @Override
             protected double evaluate(final IGPProgram program) {
                 double pfitness = 0.0f;
-                this.sfitness = 0.0f;
                 double value = 0.0f;
 
-                // count classification errors
-                this.errorType1 = 0;
-                this.errorType2 = 0;
+                // count classification errors; the fields are only updated at the end, because
+                // programs may be evaluated concurrently
+                int errorType1 = 0;
+                int errorType2 = 0;
+
+                // the compiled program computes the same values for all instances at once
+                final double[] values = executeCompiled(program);
 
                 for (int i = 0; i < this.instances.length; i++) {
 
-                    // requires that we have a variable for each column of our dataset (attribute of
-                    // instance)
-                    for (int j = 0; j < this.x.length; j++) {
-                        this.x[j].set(this.instances[i][j]);
+                    if (values != null) {
+                        value = values[i];
+                    }
+                    else {
+                        // requires that we have a variable for each column of our dataset
+                        // (attribute of instance)
+                        for (int j = 0; j < this.x.length; j++) {
+                            this.x[j].set(this.instances[i][j]);
+                        }
+
+                        value = program.execute_double(0, this.x);
                     }
 
                     // value gives us a double, if < 0.5 we set this instance as faulty
-                    value = program.execute_double(0, this.x);
 
                     if (value < 0.5) {
                         if (this.output[i] != true) {
-                            this.errorType1 += 1;
+                            errorType1 += 1;
                         }
                     }
                     else {
                         if (this.output[i] == true) {
-                            this.errorType2 += 1;
+                            errorType2 += 1;
                         }
                     }
                 }
+                this.sfitness = 0.0f;
+                this.errorType1 = errorType1;
+                this.errorType2 = errorType2;
 
                 // now calc pfitness
-                pfitness = (this.errorType1 + this.errorType2Weight * this.errorType2) /
+                pfitness = (errorType1 + this.errorType2Weight * errorType2) /
                     this.instances.length;
 
                 // number of nodes in the programm, if lower then 10 we assign sFitness of 10
@@ -768,6 +878,46 @@ public class GPTraining implements ISetWiseTrainingStrategy, IWekaCompatibleTrai
 
                 return pfitness;
             }
+
+            /**
+             * <p>
+             * Executes the compiled form of a program for all instances of the training data.
+             * </p>
+             *
+             * @param program
+             *            the program
+             * @return results of the program for the instances; null if the program cannot be
+             *         compiled
+             */
+            private double[] executeCompiled(IGPProgram program) {
+                final CompiledGPProgram compiled = CompiledGPProgram.compile(program, this.x);
+                if (compiled == null) {
+                    return null;
+                }
+                double[][] threadBuffers = this.buffers.get();
+                if (threadBuffers == null || threadBuffers.length < compiled.getStackSize()) {
+                    threadBuffers = new double[compiled.getStackSize()][this.instances.length];
+                    this.buffers.set(threadBuffers);
+                }
+                return compiled.execute(this.columns, this.instances.length, threadBuffers);
+            }
+
+            /**
+             * Deserializes the fitness function and creates the storage of its buffers.
+             *
+             * @param in
+             *            the stream the fitness function is read from
+             * @throws IOException
+             *             thrown if the fitness function cannot be read
+             * @throws ClassNotFoundException
+             *             thrown if a class of the fitness function cannot be found
+             */
+            private void readObject(ObjectInputStream in)
+                throws IOException, ClassNotFoundException
+            {
+                in.defaultReadObject();
+                this.buffers = new ThreadLocal<>();
+            }
         }
 
         /**
@@ -876,6 +1026,93 @@ public class GPTraining implements ISetWiseTrainingStrategy, IWekaCompatibleTrai
                 }
             }
         }
+
+        /**
+         * Variable of the genetic program whose value is stored per thread. This way, the same
+         * program can be executed by multiple threads at once, e.g., to compute the fitness of a
+         * population in parallel. Only double values are supported.
+         *
+         * @author jvdmosel
+         */
+        public class ThreadLocalVariable extends Variable {
+
+            /**
+             * generated serialization ID
+             */
+            private static final long serialVersionUID = -1883372398146539105L;
+
+            /**
+             * value of the variable for each thread; recreated by
+             * {@link #readObject(ObjectInputStream)}, because thread locals are not serializable
+             */
+            private transient ThreadLocal<Double> value = new ThreadLocal<>();
+
+            /**
+             * <p>
+             * Constructor. Creates a new variable of the type double.
+             * </p>
+             *
+             * @param a_conf
+             *            the configuration of the genetic program
+             * @param a_varName
+             *            name of the variable
+             * @throws InvalidConfigurationException
+             *             thrown is there is a problem during the initialization of the super class
+             */
+            public ThreadLocalVariable(final GPConfiguration a_conf, String a_varName)
+                throws InvalidConfigurationException
+            {
+                super(a_conf, a_varName, CommandGene.DoubleClass);
+            }
+
+            /*
+             * (non-Javadoc)
+             *
+             * @see org.jgap.gp.terminal.Variable#set(java.lang.Object)
+             */
+            @Override
+            public void set(Object a_value) {
+                this.value.set((Double) a_value);
+            }
+
+            /*
+             * (non-Javadoc)
+             *
+             * @see org.jgap.gp.terminal.Variable#getValue()
+             */
+            @Override
+            public Object getValue() {
+                return this.value.get();
+            }
+
+            /*
+             * (non-Javadoc)
+             *
+             * @see org.jgap.gp.terminal.Variable#execute_double(org.jgap.gp.impl.ProgramChromosome,
+             * int, java.lang.Object[])
+             */
+            @Override
+            public double execute_double(ProgramChromosome c, int n, Object[] args) {
+                return this.value.get().doubleValue();
+            }
+
+            /**
+             * Deserializes the variable and creates the storage of its values.
+             *
+             * @param in
+             *            the stream the variable is read from
+             * @throws IOException
+             *             thrown if the variable cannot be read
+             * @throws ClassNotFoundException
+             *             thrown if a class of the variable cannot be found
+             */
+            private void readObject(ObjectInputStream in)
+                throws IOException, ClassNotFoundException
+            {
+                in.defaultReadObject();
+                this.value = new ThreadLocal<>();
+            }
+        }
     }
 
     /**
@@ -921,84 +1158,86 @@ public class GPTraining implements ISetWiseTrainingStrategy, IWekaCompatibleTrai
          */
         @Override
         public void buildClassifier(SetUniqueList<SoftwareVersion> trainversionSet) throws Exception {
-
             // each classifier is trained with one project from the set
             // then is evaluated on the rest
-            this.classifiers = new LinkedList<>();
-            for (int i = 0; i < trainversionSet.size(); i++) {
-
-                // candidates we get out of evaluation
-                LinkedList<Classifier> candidates = new LinkedList<>();
+            this.classifiers = buildVersionClassifiers(trainversionSet);
+        }
 
-                // number of runs, yields the best of these
-                double smallest_error_count_train = Double.MAX_VALUE;
-                Classifier bestTrain = null;
-                for (int k = 0; k < this.numberRuns; k++) {
-                    double[] errors_eval =
-                        { 0.0, 0.0 };
-                    Classifier currentTrainClassifier = new GPRun();
-                    ((GPRun) currentTrainClassifier).configure(this.populationSize, this.initMinDepth,
-                                                   this.initMaxDepth, this.tournamentSize,
-                                                   this.maxGenerations, this.errorType2Weight,
-                                                   this.maxDepth, this.maxNodes);
-
-                    // one project is training data
-                    currentTrainClassifier.buildClassifier(trainversionSet.get(i).getInstances());
-
-                    double[] errors;
-                    // rest of the set is evaluation data, we evaluate now
-                    for (int j = 0; j < trainversionSet.size(); j++) {
-                        if (j != i) {
-                            // if type1 and type2 errors are < 0.5 we allow the model in the
-                            // candidates
-                            errors = this.evaluate((GPRun) currentTrainClassifier, trainversionSet.get(j).getInstances());
-                            errors_eval[0] += errors[0];
-                            errors_eval[1] += errors[1];
-                            if ((errors[0] < 0.5) && (errors[1] < 0.5)) {
-                                candidates.add(currentTrainClassifier);
-                            }
-                        }
-                    }
+        /*
+         * (non-Javadoc)
+         * 
+         * @see
+         * de.ugoe.cs.cpdp.training.GPTraining.GPVClassifier#buildVersionClassifier(org.apache.commons
+         * .collections4.list.SetUniqueList, int)
+         */
+        @Override
+        protected Classifier buildVersionClassifier(SetUniqueList<SoftwareVersion> trainversionSet,
+                                                    int i)
+            throws Exception
+        {
+            // candidates we get out of evaluation
+            LinkedList<Classifier> candidates = new LinkedList<>();
 
-                    // if the candidate made fewer errors it is now the best
-                    if (errors_eval[0] + errors_eval[1] < smallest_error_count_train) {
-                        bestTrain = currentTrainClassifier;
-                        smallest_error_count_train = errors_eval[0] + errors_eval[1];
-                    }
-                }
+            // number of runs, yields the best of these
+            double smallest_error_count_train = Double.MAX_VALUE;
+            Classifier bestTrain = null;
+            for (GPRun currentTrainClassifier : this.trainRuns(trainversionSet.get(i).getInstances())) {
+                double[] errors_eval =
+                    { 0.0, 0.0 };
 
-                // now after the evaluation we do a model selection where only one model remains for
-                // the given training data
-                // we select the model which is best on all evaluation data
-                double smallest_error_count = Double.MAX_VALUE;
                 double[] errors;
-                Classifier best = null;
-                for (int ii = 0; ii < candidates.size(); ii++) {
-                    double[] errors_eval =
-                        { 0.0, 0.0 };
-
-                    // we add the errors the candidate makes over the evaldata
-                    for (int j = 0; j < trainversionSet.size(); j++) {
-                        if (j != i) {
-                            errors = this.evaluate((GPRun) candidates.get(ii), trainversionSet.get(j).getInstances());
-                            errors_eval[0] += errors[0];
-                            errors_eval[1] += errors[1];
+                // rest of the set is evaluation data, we evaluate now
+                for (int j = 0; j < trainversionSet.size(); j++) {
+                    if (j != i) {
+                        // if type1 and type2 errors are < 0.5 we allow the model in the
+                        // candidates
+                        errors = this.evaluate(currentTrainClassifier, trainversionSet.get(j).getInstances());
+                        errors_eval[0] += errors[0];
+                        errors_eval[1] += errors[1];
+                        if ((errors[0] < 0.5) && (errors[1] < 0.5)) {
+                            candidates.add(currentTrainClassifier);
                         }
                     }
+                }
+
+                // if the candidate made fewer errors it is now the best
+                if (errors_eval[0] + errors_eval[1] < smallest_error_count_train) {
+                    bestTrain = currentTrainClassifier;
+                    smallest_error_count_train = errors_eval[0] + errors_eval[1];
+                }
+            }
 
-                    // if the candidate made fewer errors it is now the best
-                    if (errors_eval[0] + errors_eval[1] < smallest_error_count) {
-                        best = candidates.get(ii);
-                        smallest_error_count = errors_eval[0] + errors_eval[1];
+            // now after the evaluation we do a model selection where only one model remains for
+            // the given training data
+            // we select the model which is best on all evaluation data
+            double smallest_error_count = Double.MAX_VALUE;
+            double[] errors;
+            Classifier best = null;
+            for (int ii = 0; ii < candidates.size(); ii++) {
+                double[] errors_eval =
+                    { 0.0, 0.0 };
+
+                // we add the errors the candidate makes over the evaldata
+                for (int j = 0; j < trainversionSet.size(); j++) {
+                    if (j != i) {
+                        errors = this.evaluate((GPRun) candidates.get(ii), trainversionSet.get(j).getInstances());
+                        errors_eval[0] += errors[0];
+                        errors_eval[1] += errors[1];
                     }
                 }
 
-                if (best == null) {
-                    best = bestTrain;
+                // if the candidate made fewer errors it is now the best
+                if (errors_eval[0] + errors_eval[1] < smallest_error_count) {
+                    best = candidates.get(ii);
+                    smallest_error_count = errors_eval[0] + errors_eval[1];
                 }
-                // now we have the best classifier for this training data
-                this.classifiers.add(best);
             }
+
+            if (best == null) {
+                best = bestTrain;
+            }
+            // now we have the best classifier for this training data
+            return best;
         }
 
         /**
@@ -1099,6 +1338,11 @@ public class GPTraining implements ISetWiseTrainingStrategy, IWekaCompatibleTrai
          */
         protected int maxNodes;
 
+        /**
+         * number of threads used for the training
+         */
+        protected int numThreads = 1;
+
         /**
          * 
          * <p>
@@ -1146,6 +1390,22 @@ public class GPTraining implements ISetWiseTrainingStrategy, IWekaCompatibleTrai
             this.maxNodes = maxNodes;
         }
 
+        /**
+         * <p>
+         * Defines the number of threads used for the training. With more than one thread, the
+         * classifiers for the training versions and the runs are trained in parallel on a
+         * fork-join pool, which is also used to compute the fitness of the populations in
+         * parallel.
+         * </p>
+         *
+         * @param numThreads
+         *            number of threads
+         */
+        @SuppressWarnings("hiding")
+        public void setNumThreads(int numThreads) {
+            this.numThreads = numThreads;
+        }
+
         /**
          * Build the GP Multiple Data Sets Validation Classifier
          * 
@@ -1161,66 +1421,7 @@ public class GPTraining implements ISetWiseTrainingStrategy, IWekaCompatibleTrai
 
             // each classifier is trained with one project from the set
             // then is evaluated on the rest
-            for (int i = 0; i < trainversionSet.size(); i++) {
-
-                // candidates we get out of evaluation
-                LinkedList<Classifier> candidates = new LinkedList<>();
-
-                // numberRuns full GPRuns, we generate numberRuns models for each traindata
-                for (int k = 0; k < this.numberRuns; k++) {
-                    Classifier currentTrainingClf = new GPRun();
-                    ((GPRun) currentTrainingClf).configure(this.populationSize, this.initMinDepth,
-                                                   this.initMaxDepth, this.tournamentSize,
-                                                   this.maxGenerations, this.errorType2Weight,
-                                                   this.maxDepth, this.maxNodes);
-
-                    currentTrainingClf.buildClassifier(trainversionSet.get(i).getInstances());
-
-                    double[] errors;
-
-                    // rest of the set is evaluation data, we evaluate now
-                    for (int j = 0; j < trainversionSet.size(); j++) {
-                        if (j != i) {
-                            // if type1 and type2 errors are < 0.5 we allow the model in the
-                            // candidate list
-                            errors = this.evaluate((GPRun) currentTrainingClf, trainversionSet.get(j).getInstances());
-                            if ((errors[0] < 0.5) && (errors[1] < 0.5)) {
-                                candidates.add(currentTrainingClf);
-                            }
-                        }
-                    }
-                }
-
-                // now after the evaluation we do a model selection where only one model remains for
-                // the given training data
-                // we select the model which is best on all evaluation data
-                double smallest_error_count = Double.MAX_VALUE;
-                double[] errors;
-                Classifier currentBest = null;
-                for (int ii = 0; ii < candidates.size(); ii++) {
-                    double[] errors_eval =
-                        { 0.0, 0.0 };
-
-                    // we add the errors the candidate makes over the evaldata
-                    for (int j = 0; j < trainversionSet.size(); j++) {
-                        if (j != i) {
-                            errors = this.evaluate((GPRun) candidates.get(ii), trainversionSet.get(j).getInstances());
-                            errors_eval[0] += errors[0];
-                            errors_eval[1] += errors[1];
-                        }
-                    }
-
-                    // if the candidate made fewer errors it is now the best
-                    if (errors_eval[0] + errors_eval[1] < smallest_error_count) {
-                        currentBest = candidates.get(ii);
-                        smallest_error_count = errors_eval[0] + errors_eval[1];
-                    }
-                }
-
-                // now we have the best classifier for this training data
-                this.classifiers.add(currentBest);
-
-            } /* endfor trainData */
+            this.classifiers = buildVersionClassifiers(trainversionSet);
 
             // now we have one best classifier for each trainData
             // we evaluate again to find the best classifier of all time
@@ -1243,6 +1444,173 @@ public class GPTraining implements ISetWiseTrainingStrategy, IWekaCompatibleTrai
             }
         }
 
+        /**
+         * <p>
+         * Builds the best classifier for each training version with
+         * {@link #buildVersionClassifier(SetUniqueList, int)}. With more than one thread, the
+         * classifiers are built in parallel on a new fork-join pool.
+         * </p>
+         *
+         * @param trainversionSet
+         *            versions of the training data
+         * @return best classifier for each training version, in the order of the versions
+         * @throws Exception
+         *             thrown in case of a problem with the training
+         */
+        protected List<Classifier> buildVersionClassifiers(SetUniqueList<SoftwareVersion> trainversionSet)
+            throws Exception
+        {
+            if (this.numThreads <= 1) {
+                List<Classifier> versionClassifiers = new LinkedList<>();
+                for (int i = 0; i < trainversionSet.size(); i++) {
+                    versionClassifiers.add(buildVersionClassifier(trainversionSet, i));
+                }
+                return versionClassifiers;
+            }
+            final ForkJoinPool pool = new ForkJoinPool(this.numThreads);
+            try {
+                return pool.submit(() -> IntStream.range(0, trainversionSet.size()).parallel()
+                    .mapToObj(i -> {
+                        try {
+                            return buildVersionClassifier(trainversionSet, i);
+                        }
+                        catch (Exception e) {
+                            throw new RuntimeException(e);
+                        }
+                    }).collect(Collectors.toCollection(LinkedList::new))).get();
+            }
+            catch (ExecutionException e) {
+                if (e.getCause() instanceof Exception) {
+                    throw (Exception) e.getCause();
+                }
+                throw e;
+            }
+            finally {
+                pool.shutdown();
+            }
+        }
+
+        /**
+         * <p>
+         * Builds the best classifier for one training version. The classifier is trained with the
+         * training version and evaluated on the rest of the versions.
+         * </p>
+         *
+         * @param trainversionSet
+         *            versions of the training data
+         * @param i
+         *            index of the training version
+         * @return the best classifier for the training version
+         * @throws Exception
+         *             thrown in case of a problem with the training
+         */
+        protected Classifier buildVersionClassifier(SetUniqueList<SoftwareVersion> trainversionSet,
+                                                    int i)
+            throws Exception
+        {
+            // candidates we get out of evaluation
+            LinkedList<Classifier> candidates = new LinkedList<>();
+
+            // numberRuns full GPRuns, we generate numberRuns models for each traindata
+            for (GPRun currentTrainingClf : this.trainRuns(trainversionSet.get(i).getInstances())) {
+                double[] errors;
+
+                // rest of the set is evaluation data, we evaluate now
+                for (int j = 0; j < trainversionSet.size(); j++) {
+                    if (j != i) {
+                        // if type1 and type2 errors are < 0.5 we allow the model in the
+                        // candidate list
+                        errors = this.evaluate(currentTrainingClf, trainversionSet.get(j).getInstances());
+                        if ((errors[0] < 0.5) && (errors[1] < 0.5)) {
+                            candidates.add(currentTrainingClf);
+                        }
+                    }
+                }
+            }
+
+            // now after the evaluation we do a model selection where only one model remains for
+            // the given training data
+            // we select the model which is best on all evaluation data
+            double smallest_error_count = Double.MAX_VALUE;
+            double[] errors;
+            Classifier currentBest = null;
+            for (int ii = 0; ii < candidates.size(); ii++) {
+                double[] errors_eval =
+                    { 0.0, 0.0 };
+
+                // we add the errors the candidate makes over the evaldata
+                for (int j = 0; j < trainversionSet.size(); j++) {
+                    if (j != i) {
+                        errors = this.evaluate((GPRun) candidates.get(ii), trainversionSet.get(j).getInstances());
+                        errors_eval[0] += errors[0];
+                        errors_eval[1] += errors[1];
+                    }
+                }
+
+                // if the candidate made fewer errors it is now the best
+                if (errors_eval[0] + errors_eval[1] < smallest_error_count) {
+                    currentBest = candidates.get(ii);
+                    smallest_error_count = errors_eval[0] + errors_eval[1];
+                }
+            }
+
+            // now we have the best classifier for this training data
+            return currentBest;
+        }
+
+        /**
+         * <p>
+         * Executes the runs of the genetic program for one training version. With more than one
+         * thread, the runs are executed in parallel on the fork-join pool of the calling thread
+         * and each run computes the fitness of its populations in parallel.
+         * </p>
+         *
+         * @param traindata
+         *            the training data
+         * @return the runs, in the order of their execution in the sequential case
+         * @throws Exception
+         *             thrown in case of a problem with the training
+         */
+        protected List<GPRun> trainRuns(Instances traindata) throws Exception {
+            if (this.numThreads <= 1) {
+                List<GPRun> runs = new LinkedList<>();
+                for (int k = 0; k < this.numberRuns; k++) {
+                    runs.add(trainRun(traindata));
+                }
+                return runs;
+            }
+            return IntStream.range(0, this.numberRuns).parallel().mapToObj(k -> {
+                try {
+                    return trainRun(traindata);
+                }
+                catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }).collect(Collectors.toCollection(LinkedList::new));
+        }
+
+        /**
+         * <p>
+         * Executes a single run of the genetic program. The run creates its own JGAP
+         * configuration.
+         * </p>
+         *
+         * @param traindata
+         *            the training data
+         * @return the run
+         * @throws Exception
+         *             thrown in case of a problem with the training
+         */
+        private GPRun trainRun(Instances traindata) throws Exception {
+            GPRun run = new GPRun();
+            run.configure(this.populationSize, this.initMinDepth, this.initMaxDepth,
+                          this.tournamentSize, this.maxGenerations, this.errorType2Weight,
+                          this.maxDepth, this.maxNodes);
+            run.setParallel(this.numThreads > 1);
+            run.buildClassifier(traindata);
+            return run;
+        }
+
         /*
          * (non-Javadoc)
          * 
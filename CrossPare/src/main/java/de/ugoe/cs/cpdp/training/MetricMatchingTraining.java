@@ -14,6 +14,7 @@
 
 package de.ugoe.cs.cpdp.training;
 
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -25,12 +26,17 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 
 import java.util.Random;
+import java.util.stream.IntStream;
 
 import org.apache.commons.collections4.list.SetUniqueList;
+import org.apache.commons.math3.stat.correlation.PearsonsCorrelation;
 import org.apache.commons.math3.stat.correlation.SpearmansCorrelation;
 import org.apache.commons.math3.stat.inference.KolmogorovSmirnovTest;
+import org.apache.commons.math3.stat.ranking.NaturalRanking;
+import org.apache.commons.math3.util.FastMath;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -74,6 +80,11 @@ public class MetricMatchingTraining extends WekaBaseTraining
     private String method;
     private float threshold;
 
+    /**
+     * profiles of the data of the versions, shared by all applications of the training
+     */
+    private final Map<String, AttributeProfile> profiles = new ConcurrentHashMap<>();
+
     /**
      * We wrap the classifier here because of classifyInstance with our MetricMatchingClassfier
      * 
@@ -117,10 +128,13 @@ public class MetricMatchingTraining extends WekaBaseTraining
         int num = 0;
         int biggest_num = 0;
         MetricMatch tmp;
+        AttributeProfile test_profile = this.getProfile(testversion);
         for (SoftwareVersion trainversion : trainversionSet) {
             num++;
 
-            tmp = new MetricMatch(trainversion.getInstances(), testversion.getInstances());
+            tmp = new MetricMatch(trainversion.getInstancesReadOnly(),
+                                  testversion.getInstancesReadOnly(), this.getProfile(trainversion),
+                                  test_profile);
 
             // metric selection may create error, continue to next training set
             try {
@@ -178,6 +192,333 @@ public class MetricMatchingTraining extends WekaBaseTraining
         }
     }
 
+    /**
+     * <p>
+     * Returns the profile of the data of a version. The profile is created once and reused as long
+     * as the version shares its data with the version for which the profile was created.
+     * </p>
+     *
+     * @param version
+     *            the version
+     * @return the profile
+     */
+    private AttributeProfile getProfile(SoftwareVersion version) {
+        final Instances data = version.getInstancesReadOnly();
+        final String key =
+            version.getDataset() + "/" + version.getProject() + "/" + version.getVersion();
+        return this.profiles.compute(key, (k, profile) -> profile != null &&
+            profile.isProfileOf(data) ? profile : new AttributeProfile(data));
+    }
+
+    /**
+     * <p>
+     * Kolmogorov-Smirnov statistic of two samples. The result is exactly the same as the result of
+     * {@link KolmogorovSmirnovTest#kolmogorovSmirnovStatistic(double[], double[])}. However, the
+     * samples must already be sorted with {@link Arrays#sort(double[])} and the statistic is
+     * computed by merging both samples instead of copying, sorting, and searching them.
+     * </p>
+     *
+     * @param sortedX
+     *            first sample, sorted
+     * @param sortedY
+     *            second sample, sorted
+     * @return the Kolmogorov-Smirnov statistic
+     */
+    static double kolmogorovSmirnovStatistic(double[] sortedX, double[] sortedY) {
+        if (sortedX.length < 2 || sortedY.length < 2) {
+            // the test reports insufficient data
+            return new KolmogorovSmirnovTest().kolmogorovSmirnovStatistic(sortedX, sortedY);
+        }
+        return Math.max(maxDistance(sortedX, sortedY), maxDistance(sortedY, sortedX));
+    }
+
+    /**
+     * <p>
+     * Maximal distance between the empirical distribution function of a sample at its values and
+     * the empirical distribution function of another sample. Like
+     * {@link KolmogorovSmirnovTest#kolmogorovSmirnovStatistic(double[], double[])}, the position of
+     * a value in the first sample is used as its distribution function and the position of a value
+     * in the second sample is the position found by {@link Arrays#binarySearch(double[], double)}.
+     * Values are compared with {@link Double#compare(double, double)}, which is the order of the
+     * sorted samples and of the binary search.
+     * </p>
+     *
+     * @param sortedA
+     *            first sample, sorted
+     * @param sortedB
+     *            second sample, sorted
+     * @return the maximal distance
+     */
+    private static double maxDistance(double[] sortedA, double[] sortedB) {
+        final int n = sortedA.length;
+        final int m = sortedB.length;
+        double supD = 0d;
+        int j = 0; // number of values of b that are smaller than the current value of a
+        int found = -1;
+        for (int i = 0; i < n; i++) {
+            final double value = sortedA[i];
+            while (j < m && Double.compare(sortedB[j], value) < 0) {
+                j++;
+            }
+            final double cdfB;
+            if (j < m && Double.compare(sortedB[j], value) == 0) {
+                if (i == 0 || Double.compare(sortedA[i - 1], value) != 0) {
+                    // the binary search may find any of multiple equal values
+                    if (j + 1 < m && Double.compare(sortedB[j + 1], value) == 0) {
+                        found = Arrays.binarySearch(sortedB, value);
+                    }
+                    else {
+                        found = j;
+                    }
+                }
+                cdfB = (found + 1d) / m;
+            }
+            else {
+                cdfB = ((double) j) / m;
+            }
+            final double curD = FastMath.abs((i + 1d) / n - cdfB);
+            if (curD > supD) {
+                supD = curD;
+            }
+        }
+        return supD;
+    }
+
+    /**
+     * Score of a pair of a training and a test attribute.
+     */
+    private interface PairScore {
+
+        /**
+         * @param i
+         *            index of the training attribute
+         * @param j
+         *            index of the test attribute
+         * @return the score
+         */
+        double score(int i, int j);
+    }
+
+    /**
+     * <p>
+     * Profile of the attributes of a data set, i.e., the facts about the data set that are used by
+     * the metric matching and only depend on the data set itself: the values of the attributes
+     * without the class attribute, their sorted values and ranks, and the data after the attribute
+     * selection. The values are extracted once, everything else is computed on first use. The
+     * profile is shared by all matchings with the data set, which must not be modified.
+     * </p>
+     */
+    static class AttributeProfile {
+
+        /**
+         * the data; weak, because the profiles are cached by the training
+         */
+        private final WeakReference<Instances> data;
+
+        /**
+         * values of the attributes
+         */
+        final List<double[]> values;
+
+        /**
+         * ranks of the values of the attributes
+         */
+        final AttributeRanks ranks;
+
+        /**
+         * sorted values of the attributes; null until used
+         */
+        private List<double[]> sorted = null;
+
+        /**
+         * data after the attribute selection; null until used
+         */
+        private Instances selected = null;
+
+        /**
+         * <p>
+         * Extracts the values of the attributes.
+         * </p>
+         *
+         * @param data
+         *            the data
+         */
+        AttributeProfile(Instances data) {
+            this.data = new WeakReference<>(data);
+            this.values = new ArrayList<>();
+            for (int i = 0; i < data.numAttributes(); i++) {
+                if (data.classIndex() != i) {
+                    this.values.add(data.attributeToDoubleArray(i));
+                }
+            }
+            this.ranks = new AttributeRanks(this.values);
+        }
+
+        /**
+         * @param data
+         *            the data
+         * @return true if this is the profile of the data
+         */
+        boolean isProfileOf(Instances data) {
+            return this.data.get() == data;
+        }
+
+        /**
+         * @return sorted values of the attributes
+         */
+        synchronized List<double[]> getSorted() {
+            if (this.sorted == null) {
+                List<double[]> sortedValues = new ArrayList<>(this.values.size());
+                for (double[] vals : this.values) {
+                    double[] sortedVals = vals.clone();
+                    Arrays.sort(sortedVals);
+                    sortedValues.add(sortedVals);
+                }
+                this.sorted = sortedValues;
+            }
+            return this.sorted;
+        }
+
+        /**
+         * Returns a copy of the data of the profile that only contains the attributes selected by
+         * their significance. The copy is created once and must not be modified.
+         * 
+         * @param data
+         *            the data of the profile
+         * @return the selected data
+         * @throws Exception
+         *             quick and dirty exception forwarding
+         */
+        synchronized Instances getSelected(Instances data) throws Exception {
+            if (this.selected == null) {
+                // this is expensive but we need to keep the original data intact
+                Instances selectedData = deepCopy(data);
+                attributeSelectionBySignificance(selectedData);
+                this.selected = selectedData;
+            }
+            return this.selected;
+        }
+
+        /**
+         * Deep Copy (well, reasonably deep, not sure about header information of attributes) Weka
+         * Instances.
+         * 
+         * @param data
+         *            Instances
+         * @return copy of Instances passed
+         */
+        private static Instances deepCopy(Instances data) {
+            Instances newInst = new Instances(data);
+
+            newInst.clear();
+
+            for (int i = 0; i < data.size(); i++) {
+                Instance ni = new DenseInstance(data.numAttributes());
+                for (int j = 0; j < data.numAttributes(); j++) {
+                    ni.setValue(newInst.attribute(j), data.instance(i).value(data.attribute(j)));
+                }
+                newInst.add(ni);
+            }
+
+            return newInst;
+        }
+
+        @SuppressWarnings("boxing")
+        private static void attributeSelectionBySignificance(Instances which) throws Exception {
+            // Uses:
+            // http://weka.sourceforge.net/doc.packages/probabilisticSignificanceAE/weka/attributeSelection/SignificanceAttributeEval.html
+            SignificanceAttributeEval et = new SignificanceAttributeEval();
+            et.buildEvaluator(which);
+
+            // evaluate all training attributes
+            HashMap<String, Double> saeval = new HashMap<>();
+            for (int i = 0; i < which.numAttributes(); i++) {
+                if (which.classIndex() != i) {
+                    saeval.put(which.attribute(i).name(), et.evaluateAttribute(i));
+                }
+            }
+
+            // sort by significance
+            HashMap<String, Double> sorted = sortByValues(saeval);
+
+            // Keep the best 15%
+            double last = (saeval.size() / 100.0) * 15.0;
+            int drop_first = saeval.size() - (int) last;
+
+            // drop attributes above last
+            Iterator<Entry<String, Double>> it = sorted.entrySet().iterator();
+            while (drop_first > 0) {
+                Map.Entry<String, Double> pair = it.next();
+                if (which.attribute(pair.getKey()).index() != which.classIndex()) {
+                    which.deleteAttributeAt(which.attribute(pair.getKey()).index());
+                }
+                drop_first -= 1;
+            }
+        }
+
+        /**
+         * Helper method to sort a hashmap by its values.
+         * 
+         * @param map
+         * @return sorted map
+         */
+        private static HashMap<String, Double> sortByValues(HashMap<String, Double> map) {
+            List<Map.Entry<String, Double>> list =
+                new LinkedList<>(map.entrySet());
+
+            Collections.sort(list, new Comparator<Map.Entry<String, Double>>() {
+                @Override
+                public int compare(Map.Entry<String, Double> o1, Map.Entry<String, Double> o2) {
+                    return (o1.getValue()).compareTo(o2.getValue());
+                }
+            });
+
+            HashMap<String, Double> sortedHashMap = new LinkedHashMap<>();
+            for (Map.Entry<String, Double> item : list) {
+                sortedHashMap.put(item.getKey(), item.getValue());
+            }
+            return sortedHashMap;
+        }
+    }
+
+    /**
+     * Ranks of the values of attributes for Spearman's rank correlation coefficient. The ranks of
+     * an attribute are computed on first use.
+     */
+    static class AttributeRanks {
+
+        /**
+         * values of the attributes
+         */
+        private final List<double[]> values;
+
+        /**
+         * ranks of the attributes; null until used
+         */
+        private final double[][] ranks;
+
+        /**
+         * @param values
+         *            values of the attributes
+         */
+        AttributeRanks(List<double[]> values) {
+            this.values = values;
+            this.ranks = new double[values.size()][];
+        }
+
+        /**
+         * @param index
+         *            index of the attribute in the values
+         * @return ranks of the attribute
+         */
+        synchronized double[] get(int index) {
+            if (this.ranks[index] == null) {
+                this.ranks[index] = new NaturalRanking().rank(this.values.get(index));
+            }
+            return this.ranks[index];
+        }
+    }
+
     /**
      * Encapsulates the classifier configured with WekaBase within but use metric matching. This
      * allows us to use any Weka classifier with Heterogenous Defect Prediction.
@@ -245,6 +586,10 @@ public class MetricMatchingTraining extends WekaBaseTraining
         protected ArrayList<double[]> train_values;
         protected ArrayList<double[]> test_values;
 
+        // profiles of the data that are shared by all matchings
+        protected AttributeProfile train_profile;
+        protected AttributeProfile test_profile;
+
         /**
          * <p>
          * Matches the metrics between two sets
@@ -257,26 +602,41 @@ public class MetricMatchingTraining extends WekaBaseTraining
          */
         @SuppressWarnings("hiding")
         public MetricMatch(Instances train, Instances test) {
-            // this is expensive but we need to keep the original data intact
-            this.train = this.deepCopy(train);
+            this(train, test, new AttributeProfile(train), new AttributeProfile(test));
+        }
+
+        /**
+         * <p>
+         * Matches the metrics between two sets with the profiles of their data
+         * </p>
+         *
+         * @param train
+         *            training data
+         * @param test
+         *            test data
+         * @param train_profile
+         *            profile of the training data
+         * @param test_profile
+         *            profile of the test data
+         */
+        @SuppressWarnings("hiding")
+        public MetricMatch(Instances train,
+                           Instances test,
+                           AttributeProfile train_profile,
+                           AttributeProfile test_profile)
+        {
+            this.train = train; // we do not need a copy here because the attribute selection
+                                // replaces the data with a copy from the profile
             this.test = test; // we do not need a copy here because we do not drop attributes before
                               // the matching and after the matching we create a new Instances with
                               // only the matched attributes
 
-            // convert metrics of testdata and traindata to later use in similarity tests
-            this.train_values = new ArrayList<>();
-            for (int i = 0; i < this.train.numAttributes(); i++) {
-                if (this.train.classIndex() != i) {
-                    this.train_values.add(this.train.attributeToDoubleArray(i));
-                }
-            }
-
-            this.test_values = new ArrayList<>();
-            for (int i = 0; i < this.test.numAttributes(); i++) {
-                if (this.test.classIndex() != i) {
-                    this.test_values.add(this.test.attributeToDoubleArray(i));
-                }
-            }
+            // the metrics of testdata and traindata are converted only once by the profiles to
+            // later use in similarity tests
+            this.train_profile = train_profile;
+            this.test_profile = test_profile;
+            this.train_values = new ArrayList<>(this.train_profile.values);
+            this.test_values = new ArrayList<>(this.test_profile.values);
         }
 
         /**
@@ -399,30 +759,6 @@ public class MetricMatchingTraining extends WekaBaseTraining
             }
         }
 
-        /**
-         * Deep Copy (well, reasonably deep, not sure about header information of attributes) Weka
-         * Instances.
-         * 
-         * @param data
-         *            Instances
-         * @return copy of Instances passed
-         */
-        private Instances deepCopy(Instances data) {
-            Instances newInst = new Instances(data);
-
-            newInst.clear();
-
-            for (int i = 0; i < data.size(); i++) {
-                Instance ni = new DenseInstance(data.numAttributes());
-                for (int j = 0; j < data.numAttributes(); j++) {
-                    ni.setValue(newInst.attribute(j), data.instance(i).value(data.attribute(j)));
-                }
-                newInst.add(ni);
-            }
-
-            return newInst;
-        }
-
         /**
          * Returns a deep copy of passed Instances data for Train or Test data. It only keeps
          * attributes that have been matched.
@@ -491,64 +827,7 @@ public class MetricMatchingTraining extends WekaBaseTraining
 
             // it is a wrapper, we may decide to implement ChiSquare or other means of selecting
             // attributes
-            this.attributeSelectionBySignificance(this.train);
-        }
-
-        @SuppressWarnings("boxing")
-        private void attributeSelectionBySignificance(Instances which) throws Exception {
-            // Uses:
-            // http://weka.sourceforge.net/doc.packages/probabilisticSignificanceAE/weka/attributeSelection/SignificanceAttributeEval.html
-            SignificanceAttributeEval et = new SignificanceAttributeEval();
-            et.buildEvaluator(which);
-
-            // evaluate all training attributes
-            HashMap<String, Double> saeval = new HashMap<>();
-            for (int i = 0; i < which.numAttributes(); i++) {
-                if (which.classIndex() != i) {
-                    saeval.put(which.attribute(i).name(), et.evaluateAttribute(i));
-                }
-            }
-
-            // sort by significance
-            HashMap<String, Double> sorted = sortByValues(saeval);
-
-            // Keep the best 15%
-            double last = (saeval.size() / 100.0) * 15.0;
-            int drop_first = saeval.size() - (int) last;
-
-            // drop attributes above last
-            Iterator<Entry<String, Double>> it = sorted.entrySet().iterator();
-            while (drop_first > 0) {
-                Map.Entry<String, Double> pair = it.next();
-                if (which.attribute(pair.getKey()).index() != which.classIndex()) {
-                    which.deleteAttributeAt(which.attribute(pair.getKey()).index());
-                }
-                drop_first -= 1;
-            }
-        }
-
-        /**
-         * Helper method to sort a hashmap by its values.
-         * 
-         * @param map
-         * @return sorted map
-         */
-        private HashMap<String, Double> sortByValues(HashMap<String, Double> map) {
-            List<Map.Entry<String, Double>> list =
-                new LinkedList<>(map.entrySet());
-
-            Collections.sort(list, new Comparator<Map.Entry<String, Double>>() {
-                @Override
-                public int compare(Map.Entry<String, Double> o1, Map.Entry<String, Double> o2) {
-                    return (o1.getValue()).compareTo(o2.getValue());
-                }
-            });
-
-            HashMap<String, Double> sortedHashMap = new LinkedHashMap<>();
-            for (Map.Entry<String, Double> item : list) {
-                sortedHashMap.put(item.getKey(), item.getValue());
-            }
-            return sortedHashMap;
+            this.train = this.train_profile.getSelected(this.train);
         }
 
         /**
@@ -605,49 +884,31 @@ public class MetricMatchingTraining extends WekaBaseTraining
          *            matching strategy
          */
         public void percentiles(double cutoff, MWBMatchingAlgorithm mwbm) {
-            for (int i = 0; i < this.train.numAttributes(); i++) {
-                for (int j = 0; j < this.test.numAttributes(); j++) {
-                    // negative infinity counts as not present, we do this so we don't have to map
-                    // between attribute indexes in weka
-                    // and the result of the mwbm computation
-                    mwbm.setWeight(i, j, Double.NEGATIVE_INFINITY);
-
-                    // class attributes are not relevant
-                    if (this.test.classIndex() == j) {
-                        continue;
-                    }
-                    if (this.train.classIndex() == i) {
-                        continue;
+            final List<double[]> train_sorted = this.train_profile.getSorted();
+            final List<double[]> test_sorted = this.test_profile.getSorted();
+
+            this.setWeights(cutoff, mwbm, (i, j) -> {
+                // get percentiles
+                double trainvals[] = train_sorted.get(i);
+                double testvals[] = test_sorted.get(j);
+
+                // percentiles
+                double train_p;
+                double test_p;
+                double score = 0.0;
+                for (int p = 1; p <= 9; p++) {
+                    train_p = trainvals[(int) Math.ceil(trainvals.length * (p / 100))];
+                    test_p = testvals[(int) Math.ceil(testvals.length * (p / 100))];
+
+                    if (train_p > test_p) {
+                        score += test_p / train_p;
                     }
-
-                    // get percentiles
-                    double trainvals[] = this.train_values.get(i);
-                    double testvals[] = this.test_values.get(j);
-
-                    Arrays.sort(trainvals);
-                    Arrays.sort(testvals);
-
-                    // percentiles
-                    double train_p;
-                    double test_p;
-                    double score = 0.0;
-                    for (int p = 1; p <= 9; p++) {
-                        train_p = trainvals[(int) Math.ceil(trainvals.length * (p / 100))];
-                        test_p = testvals[(int) Math.ceil(testvals.length * (p / 100))];
-
-                        if (train_p > test_p) {
-                            score += test_p / train_p;
-                        }
-                        else {
-                            score += train_p / test_p;
-                        }
-                    }
-
-                    if (score > cutoff) {
-                        mwbm.setWeight(i, j, score);
+                    else {
+                        score += train_p / test_p;
                     }
                 }
-            }
+                return score;
+            });
         }
 
         /**
@@ -661,41 +922,37 @@ public class MetricMatchingTraining extends WekaBaseTraining
          *            matching strategy
          */
         public void spearmansRankCorrelation(double cutoff, MWBMatchingAlgorithm mwbm) {
-            double p = 0;
-
             SpearmansCorrelation t = new SpearmansCorrelation();
 
+            // the ranks of sampled values are not the ranks of the profile
+            AttributeRanks train_ranks = this.train_profile.ranks;
+            AttributeRanks test_ranks = this.test_profile.ranks;
+
             // size has to be the same so we randomly sample the number of the smaller sample from
             // the big sample
             if (this.train.size() > this.test.size()) {
                 this.sample(this.train, this.test, this.train_values);
+                train_ranks = new AttributeRanks(this.train_values);
             }
             else if (this.test.size() > this.train.size()) {
                 this.sample(this.test, this.train, this.test_values);
+                test_ranks = new AttributeRanks(this.test_values);
             }
 
             // try out possible attribute combinations
-            for (int i = 0; i < this.train.numAttributes(); i++) {
-                for (int j = 0; j < this.test.numAttributes(); j++) {
-                    // negative infinity counts as not present, we do this so we don't have to map
-                    // between attribute indexs in weka
-                    // and the result of the mwbm computation
-                    mwbm.setWeight(i, j, Double.NEGATIVE_INFINITY);
-
-                    // class attributes are not relevant
-                    if (this.test.classIndex() == j) {
-                        continue;
-                    }
-                    if (this.train.classIndex() == i) {
-                        continue;
-                    }
-
-                    p = t.correlation(this.train_values.get(i), this.test_values.get(j));
-                    if (p > cutoff) {
-                        mwbm.setWeight(i, j, p);
-                    }
+            final AttributeRanks final_train_ranks = train_ranks;
+            final AttributeRanks final_test_ranks = test_ranks;
+            this.setWeights(cutoff, mwbm, (i, j) -> {
+                double[] train_vals = this.train_values.get(i);
+                double[] test_vals = this.test_values.get(j);
+                if (train_vals.length != test_vals.length || train_vals.length < 2) {
+                    // the correlation reports the invalid sizes
+                    return t.correlation(train_vals, test_vals);
                 }
-            }
+                // same as the correlation, but with the ranks computed only once per attribute
+                return new PearsonsCorrelation().correlation(final_train_ranks.get(i),
+                                                             final_test_ranks.get(j));
+            });
         }
 
         /**
@@ -749,15 +1006,45 @@ public class MetricMatchingTraining extends WekaBaseTraining
          *            matching strategy
          */
         public void kolmogorovSmirnovTest(double cutoff, MWBMatchingAlgorithm mwbm) {
-            double p = 0;
+            final List<double[]> train_sorted = this.train_profile.getSorted();
+            final List<double[]> test_sorted = this.test_profile.getSorted();
 
             KolmogorovSmirnovTest t = new KolmogorovSmirnovTest();
-            for (int i = 0; i < this.train.numAttributes(); i++) {
-                for (int j = 0; j < this.test.numAttributes(); j++) {
+            this.setWeights(cutoff, mwbm, (i, j) -> {
+                // this may invoke exactP on small sample sizes which will not terminate in all
+                // cases
+                // p = t.kolmogorovSmirnovTest(this.train_values.get(i),
+                // this.test_values.get(j), false);
+
+                // this uses approximateP everytime
+                return t.approximateP(kolmogorovSmirnovStatistic(train_sorted.get(i),
+                                                                 test_sorted.get(j)),
+                                      train_sorted.get(i).length, test_sorted.get(j).length);
+            });
+        }
+
+        /**
+         * Scores all pairs of training and test attributes in parallel and sets the scores above
+         * the cutoff as weights of the matching. The weights are set in the order of the pairs
+         * after all scores are available.
+         * 
+         * @param cutoff
+         *            cutoff value for scores that are considered similar
+         * @param mwbm
+         *            matching strategy
+         * @param pairScore
+         *            score of a pair of attributes
+         */
+        private void setWeights(double cutoff, MWBMatchingAlgorithm mwbm, PairScore pairScore) {
+            final int numTrainAttributes = this.train.numAttributes();
+            final int numTestAttributes = this.test.numAttributes();
+            final double[][] weights = new double[numTrainAttributes][numTestAttributes];
+            IntStream.range(0, numTrainAttributes).parallel().forEach(i -> {
+                for (int j = 0; j < numTestAttributes; j++) {
                     // negative infinity counts as not present, we do this so we don't have to map
                     // between attribute indexs in weka
                     // and the result of the mwbm computation
-                    mwbm.setWeight(i, j, Double.NEGATIVE_INFINITY);
+                    weights[i][j] = Double.NEGATIVE_INFINITY;
 
                     // class attributes are not relevant
                     if (this.test.classIndex() == j) {
@@ -767,21 +1054,16 @@ public class MetricMatchingTraining extends WekaBaseTraining
                         continue;
                     }
 
-                    // this may invoke exactP on small sample sizes which will not terminate in all
-                    // cases
-                    // p = t.kolmogorovSmirnovTest(this.train_values.get(i),
-                    // this.test_values.get(j), false);
-
-                    // this uses approximateP everytime
-                    p = t.approximateP(
-                                       t.kolmogorovSmirnovStatistic(this.train_values.get(i),
-                                                                    this.test_values.get(j)),
-                                       this.train_values.get(i).length,
-                                       this.test_values.get(j).length);
-                    if (p > cutoff) {
-                        mwbm.setWeight(i, j, p);
+                    double score = pairScore.score(i, j);
+                    if (score > cutoff) {
+                        weights[i][j] = score;
                     }
                 }
+            });
+            for (int i = 0; i < numTrainAttributes; i++) {
+                for (int j = 0; j < numTestAttributes; j++) {
+                    mwbm.setWeight(i, j, weights[i][j]);
+                }
             }
         }
     }
@@ -18,6 +18,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 
 import weka.core.Instance;
 import de.ugoe.cs.cpdp.training.WekaLocalFQTraining.QuadTreePayload;
@@ -30,375 +31,227 @@ import de.ugoe.cs.cpdp.training.WekaLocalFQTraining.QuadTreePayload;
  * QuadTree gets a list of instances and then recursively split them into 4 children For this it
  * uses the median of the 2 values x,y.
  * </p>
- * 
+ * <p>
+ * All state of the tree, including the clustering, belongs to the tree object. Hence, multiple
+ * trees can be built and queried concurrently. The tree is used in two steps:
+ * <ol>
+ * <li>{@link #build()} splits the tree and clusters the leaf quadrants</li>
+ * <li>{@link #getClusters()}, {@link #getClusterSizes()}, and {@link #findCluster(double, double)}
+ * return the results</li>
+ * </ol>
+ * </p>
+ *
  * @author Alexander Trautsch
  */
 public class QuadTree {
 
-    /**
-     * 1 parent or null
-     */
-    private QuadTree parent = null;
-
-    /**
-     * north-west quadrant
-     */
-    private QuadTree child_nw;
-
-    /**
-     * north-east quadrant
-     */
-    private QuadTree child_ne;
-
-    /**
-     * south-east quadrant
-     */
-    private QuadTree child_se;
-
-    /**
-     * south-west quadrant
-     */
-    private QuadTree child_sw;
-
-    /**
-     * helper list for child quadrant generation
-     */
-    private ArrayList<QuadTree> l = new ArrayList<>();
-
-    /**
-     * debugging attribute
-     */
-    public int level = 0;
-
-    /**
-     * size of the quadrant in x-dimension
-     */
-    private double[] x;
-
-    /**
-     * size of the quadrant in y-dimension
-     */
-    private double[] y;
-
     /**
      * debugging parameter
      */
-    public static boolean verbose = false;
+    private boolean verbose = false;
 
     /**
      * global size of the QuadTree.
      */
-    public static int size = 0;
+    private final int size;
 
     /**
      * recursion parameter alpha
      */
-    public static double alpha = 0;
+    private final double alpha;
+
+    /**
+     * root quadrant of the tree
+     */
+    private final Node root;
 
     /**
      * data for each cluster
      */
-    public static ArrayList<ArrayList<QuadTreePayload<Instance>>> ccluster =
-        new ArrayList<>();
+    private final ArrayList<ArrayList<QuadTreePayload<Instance>>> ccluster = new ArrayList<>();
 
     /**
      * cluster sizes (index is cluster number, {@link ArrayList} is list of boxes (x0,y0,x1,y1
      */
-    public static HashMap<Integer, ArrayList<Double[][]>> csize =
-        new HashMap<>();
+    private final HashMap<Integer, ArrayList<Double[][]>> csize = new HashMap<>();
 
     /**
-     * data within this quadrant
+     * true if the tree is already built
      */
-    private ArrayList<QuadTreePayload<Instance>> payload;
+    private boolean built = false;
 
     /**
      * <p>
-     * Constructor. Creates a new QuadTree.
+     * Constructor. Creates a new QuadTree. The tree is not split until {@link #build()} is called.
      * </p>
      *
-     * @param parent
-     *            parent of this tree
      * @param payload
-     *            data within the quadrant
+     *            data of the tree
+     * @param x
+     *            size of the tree in x-dimension
+     * @param y
+     *            size of the tree in y-dimension
+     * @param alpha
+     *            quadrants with less instances are not split
      */
     @SuppressWarnings("hiding")
-    public QuadTree(QuadTree parent, ArrayList<QuadTreePayload<Instance>> payload) {
-        this.parent = parent;
-        this.payload = payload;
-    }
-
-    /*
-     * (non-Javadoc)
-     * 
-     * @see java.lang.Object#toString()
-     */
-    @Override
-    public String toString() {
-        String n = "";
-        if (this.parent == null) {
-            n += "rootnode ";
-        }
-        String myLevel = new String(new char[this.level]).replace("\0", "-");
-        n += myLevel + " instances: " + this.getNumbers();
-        return n;
+    public QuadTree(ArrayList<QuadTreePayload<Instance>> payload,
+                    double[] x,
+                    double[] y,
+                    double alpha)
+    {
+        this.size = payload.size();
+        this.alpha = alpha;
+        this.root = new Node(null, payload);
+        this.root.setSize(x, y);
     }
 
     /**
      * <p>
-     * Returns the payload, used for clustering in the clustering list we only have children with
-     * payload
+     * Enables or disables debugging output.
      * </p>
-     * 
-     * @return payload the payload
+     *
+     * @param verbose
+     *            true if debugging output is printed
      */
-    public ArrayList<QuadTreePayload<Instance>> getPayload() {
-        return this.payload;
+    @SuppressWarnings("hiding")
+    public void setVerbose(boolean verbose) {
+        this.verbose = verbose;
     }
 
     /**
      * <p>
-     * Calculate the density of this quadrant as
-     * <ul>
-     * <li>density = number of instances / global size (all instances)</li>
-     * </ul>
-     * 
-     * @return density the density
+     * Splits the tree recursively and clusters the leaf quadrants afterwards. The data of the
+     * quadrants is released after the clustering, the data of the clusters is available through
+     * {@link #getClusters()}.
+     * </p>
      */
-    public double getDensity() {
-        double dens = 0;
-        dens = (double) this.getNumbers() / QuadTree.size;
-        return dens;
+    public void build() {
+        if (this.built) {
+            return;
+        }
+        recursiveSplit(this.root);
+
+        // generate list of nodes sorted by density (childs only)
+        ArrayList<Node> l = getList(this.root);
+
+        // grid clustering (tree pruning), the values are stored in ccluster
+        gridClustering(l);
+
+        releasePayload(this.root);
+        this.built = true;
     }
 
     /**
      * <p>
-     * sets the size coordinates of the quadrant
+     * Returns the data of the clusters. The index in the list is the cluster number.
      * </p>
      *
-     * @param x
-     *            x-dimension
-     * @param y
-     *            y-dimension
+     * @return data for each cluster
      */
-    @SuppressWarnings("hiding")
-    public void setSize(double[] x, double[] y) {
-        this.x = x;
-        this.y = y;
+    public List<ArrayList<QuadTreePayload<Instance>>> getClusters() {
+        checkBuilt();
+        return this.ccluster;
     }
 
     /**
      * <p>
-     * returns the size of the quadrant
+     * Returns the boxes of the leaf quadrants of each cluster. Each box is stored as
+     * [[x0,x1],[y0,y1]].
      * </p>
      *
-     * @return size of the current quadrant
+     * @return boxes for each cluster number
      */
-    public double[][] getSize() {
-        return new double[][]
-            { this.x, this.y };
+    public HashMap<Integer, ArrayList<Double[][]>> getClusterSizes() {
+        checkBuilt();
+        return this.csize;
     }
 
     /**
      * <p>
-     * returns the size of the quadrant
+     * Point location query. Returns the cluster whose boxes contain a point. The boxes include
+     * their borders, i.e., a point on the border between quadrants is contained in multiple boxes.
+     * In this case, the cluster with the lowest number is returned. Only the quadrants that
+     * contain the point are visited.
      * </p>
      *
-     * @return size of the current quadrant
+     * @param x
+     *            x-value of the point
+     * @param y
+     *            y-value of the point
+     * @return number of the cluster; -1 if the point is not within the tree
      */
-    @SuppressWarnings("boxing")
-    public Double[][] getSizeDouble() {
-        Double[] tmpX = new Double[2];
-        Double[] tmpY = new Double[2];
-
-        tmpX[0] = this.x[0];
-        tmpX[1] = this.x[1];
-
-        tmpY[0] = this.y[0];
-        tmpY[1] = this.y[1];
-
-        return new Double[][]
-            { tmpX, tmpY };
+    public int findCluster(double x, double y) {
+        checkBuilt();
+        return findCluster(this.root, x, y);
     }
 
     /**
      * <p>
-     * calculates the median for the x axis
+     * debugging function that prints information about the QuadTree
      * </p>
-     * 
-     * @return median for x
+     *
      */
-    private double getMedianForX() {
-        double med_x = 0;
-
-        Collections.sort(this.payload, new Comparator<QuadTreePayload<Instance>>() {
-            @Override
-            public int compare(QuadTreePayload<Instance> x1, QuadTreePayload<Instance> x2) {
-                return Double.compare(x1.x, x2.x);
-            }
-        });
-
-        if (this.payload.size() % 2 == 0) {
-            int mid = this.payload.size() / 2;
-            med_x = (this.payload.get(mid).x + this.payload.get(mid + 1).x) / 2;
-        }
-        else {
-            int mid = this.payload.size() / 2;
-            med_x = this.payload.get(mid).x;
-        }
+    public void printInfo() {
+        System.out.println("we have " + this.ccluster.size() + " clusters");
 
-        if (QuadTree.verbose) {
-            System.out.println("sorted:");
-            for (int i = 0; i < this.payload.size(); i++) {
-                System.out.print("" + this.payload.get(i).x + ",");
-            }
-            System.out.println("median x: " + med_x);
+        for (int i = 0; i < this.ccluster.size(); i++) {
+            System.out.println("cluster: " + i + " size: " + this.ccluster.get(i).size());
         }
-        return med_x;
     }
 
-    /**
-     * <p>
-     * calculates the median for the y axis
-     * </p>
-     * 
-     * @return median for y
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.Object#toString()
      */
-    private double getMedianForY() {
-        double med_y = 0;
-
-        Collections.sort(this.payload, new Comparator<QuadTreePayload<Instance>>() {
-            @Override
-            public int compare(QuadTreePayload<Instance> y1, QuadTreePayload<Instance> y2) {
-                return Double.compare(y1.y, y2.y);
-            }
-        });
-
-        if (this.payload.size() % 2 == 0) {
-            int mid = this.payload.size() / 2;
-            med_y = (this.payload.get(mid).y + this.payload.get(mid + 1).y) / 2;
-        }
-        else {
-            int mid = this.payload.size() / 2;
-            med_y = this.payload.get(mid).y;
-        }
-
-        if (QuadTree.verbose) {
-            System.out.println("sorted:");
-            for (int i = 0; i < this.payload.size(); i++) {
-                System.out.print("" + this.payload.get(i).y + ",");
-            }
-            System.out.println("median y: " + med_y);
-        }
-        return med_y;
+    @Override
+    public String toString() {
+        return this.root.toString();
     }
 
     /**
      * <p>
-     * Returns the number of instances in the payload
+     * Ensures that the tree is built before it is queried.
      * </p>
-     * 
-     * @return number of instances
      */
-    public int getNumbers() {
-        int number = 0;
-        if (this.payload != null) {
-            number = this.payload.size();
+    private void checkBuilt() {
+        if (!this.built) {
+            throw new IllegalStateException("QuadTree must be built before it is queried");
         }
-        return number;
     }
 
     /**
      * <p>
-     * Calculate median values of payload for x, y and split into 4 sectors
+     * Recursive point location query.
      * </p>
-     * 
-     * @return Array of QuadTree nodes (4 childs)
-     * @throws Exception
-     *             if we would run into an recursive loop
+     *
+     * @param q
+     *            current quadrant
+     * @param x
+     *            x-value of the point
+     * @param y
+     *            y-value of the point
+     * @return lowest number of the clusters of the leaf quadrants that contain the point; -1 if
+     *         the point is not within the quadrant
      */
-    public QuadTree[] split() throws Exception {
-
-        double medx = this.getMedianForX();
-        double medy = this.getMedianForY();
-
-        // Payload lists for each child
-        ArrayList<QuadTreePayload<Instance>> nw = new ArrayList<>();
-        ArrayList<QuadTreePayload<Instance>> sw = new ArrayList<>();
-        ArrayList<QuadTreePayload<Instance>> ne = new ArrayList<>();
-        ArrayList<QuadTreePayload<Instance>> se = new ArrayList<>();
-
-        // sort the payloads to new payloads
-        // here we have the problem that payloads with the same values are sorted
-        // into the same slots and it could happen that medx and medy = size_x[1] and size_y[1]
-        // in that case we would have an endless loop
-        for (int i = 0; i < this.payload.size(); i++) {
-
-            QuadTreePayload<Instance> item = this.payload.get(i);
-
-            // north west
-            if (item.x <= medx && item.y >= medy) {
-                nw.add(item);
-            }
-
-            // south west
-            else if (item.x <= medx && item.y <= medy) {
-                sw.add(item);
-            }
-
-            // north east
-            else if (item.x >= medx && item.y >= medy) {
-                ne.add(item);
-            }
-
-            // south east
-            else if (item.x >= medx && item.y <= medy) {
-                se.add(item);
-            }
-        }
-
-        // if we assign one child a payload equal to our own (see problem above)
-        // we throw an exceptions which stops the recursion on this node
-        if (nw.equals(this.payload)) {
-            throw new Exception("payload equal");
-        }
-        if (sw.equals(this.payload)) {
-            throw new Exception("payload equal");
+    private int findCluster(Node q, double x, double y) {
+        if (!(x >= q.x[0] && x <= q.x[1] && y >= q.y[0] && y <= q.y[1])) {
+            return -1;
         }
-        if (ne.equals(this.payload)) {
-            throw new Exception("payload equal");
+        if (q.child_ne == null) {
+            return q.cluster;
         }
-        if (se.equals(this.payload)) {
-            throw new Exception("payload equal");
+        int found = -1;
+        for (Node child : new Node[]
+            { q.child_nw, q.child_ne, q.child_se, q.child_sw })
+        {
+            int cluster = findCluster(child, x, y);
+            if (cluster != -1 && (found == -1 || cluster < found)) {
+                found = cluster;
+            }
         }
-
-        this.child_nw = new QuadTree(this, nw);
-        this.child_nw.setSize(new double[]
-            { this.x[0], medx }, new double[]
-            { medy, this.y[1] });
-        this.child_nw.level = this.level + 1;
-
-        this.child_sw = new QuadTree(this, sw);
-        this.child_sw.setSize(new double[]
-            { this.x[0], medx }, new double[]
-            { this.y[0], medy });
-        this.child_sw.level = this.level + 1;
-
-        this.child_ne = new QuadTree(this, ne);
-        this.child_ne.setSize(new double[]
-            { medx, this.x[1] }, new double[]
-            { medy, this.y[1] });
-        this.child_ne.level = this.level + 1;
-
-        this.child_se = new QuadTree(this, se);
-        this.child_se.setSize(new double[]
-            { medx, this.x[1] }, new double[]
-            { this.y[0], medy });
-        this.child_se.level = this.level + 1;
-
-        this.payload = null;
-        return new QuadTree[]
-            { this.child_nw, this.child_ne, this.child_se, this.child_sw };
+        return found;
     }
 
     /**
@@ -409,16 +262,16 @@ public class QuadTree {
      * @param q
      *            tree that is split
      */
-    public static void recursiveSplit(QuadTree q) {
-        if (QuadTree.verbose) {
+    private void recursiveSplit(Node q) {
+        if (this.verbose) {
             System.out.println("splitting: " + q);
         }
-        if (q.getNumbers() < QuadTree.alpha) {
+        if (q.getNumbers() < this.alpha) {
             return;
         }
         // exception is thrown if we would run into an endless loop (see comments in split())
         try {
-            QuadTree[] childs = q.split();
+            Node[] childs = q.split();
             recursiveSplit(childs[0]);
             recursiveSplit(childs[1]);
             recursiveSplit(childs[2]);
@@ -435,77 +288,54 @@ public class QuadTree {
      * <p>
      * returns an list of children sorted by density
      * </p>
-     * 
+     *
      * @param q
      *            QuadTree
+     * @param l
+     *            list to which the children are added
      */
-    private void generateList(QuadTree q) {
+    private void generateList(Node q, ArrayList<Node> l) {
 
         // we only have all childs or none at all
         if (q.child_ne == null) {
-            this.l.add(q);
+            l.add(q);
         }
 
         if (q.child_ne != null) {
-            this.generateList(q.child_ne);
+            this.generateList(q.child_ne, l);
         }
         if (q.child_nw != null) {
-            this.generateList(q.child_nw);
+            this.generateList(q.child_nw, l);
         }
         if (q.child_se != null) {
-            this.generateList(q.child_se);
+            this.generateList(q.child_se, l);
         }
         if (q.child_sw != null) {
-            this.generateList(q.child_sw);
+            this.generateList(q.child_sw, l);
         }
     }
 
     /**
      * <p>
-     * Checks if passed QuadTree is neighboring to us
+     * Helper Method to get a sorted list (by density) for all children
      * </p>
-     * 
+     *
      * @param q
      *            QuadTree
-     * @return true if passed QuadTree is a neighbor
+     * @return Sorted ArrayList of quadtrees
      */
-    public boolean isNeighbour(QuadTree q) {
-        boolean is_neighbour = false;
-
-        double[][] our_size = this.getSize();
-        double[][] new_size = q.getSize();
-
-        // X is i=0, Y is i=1
-        for (int i = 0; i < 2; i++) {
-            // we are smaller than q
-            // -------------- q
-            // ------- we
-            if (our_size[i][0] >= new_size[i][0] && our_size[i][1] <= new_size[i][1]) {
-                is_neighbour = true;
-            }
-            // we overlap with q at some point
-            // a) ---------------q
-            // ----------- we
-            // b) --------- q
-            // --------- we
-            if ((our_size[i][0] >= new_size[i][0] && our_size[i][0] <= new_size[i][1]) ||
-                (our_size[i][1] >= new_size[i][0] && our_size[i][1] <= new_size[i][1]))
-            {
-                is_neighbour = true;
-            }
-            // we are larger than q
-            // ---- q
-            // ---------- we
-            if (our_size[i][1] >= new_size[i][1] && our_size[i][0] <= new_size[i][0]) {
-                is_neighbour = true;
-            }
-        }
+    private ArrayList<Node> getList(Node q) {
+        ArrayList<Node> l = new ArrayList<>();
+        this.generateList(q, l);
 
-        if (is_neighbour && QuadTree.verbose) {
-            System.out.println(this + " neighbour of: " + q);
-        }
+        Collections.sort(l, new Comparator<Node>() {
+            @Override
+            public int compare(Node x1, Node x2) {
+                return Double.compare(x1.getDensity(), x2.getDensity());
+            }
+        });
 
-        return is_neighbour;
+        return l;
     }
 
     /**
@@ -526,113 +356,493 @@ public class QuadTree {
      * </li>
      * <li>repeat</li>
      * </ol>
-     * 
+     *
      * @param list
      *            List of QuadTree (children only)
      */
     @SuppressWarnings("boxing")
-    public void gridClustering(ArrayList<QuadTree> list) {
+    private void gridClustering(ArrayList<Node> list) {
 
-        if (list.size() == 0) {
-            return;
-        }
+        while (list.size() > 0) {
+            double stop_rule;
+            Node biggest;
+            Node current;
 
-        double stop_rule;
-        QuadTree biggest;
-        QuadTree current;
+            // current clusterlist
+            ArrayList<QuadTreePayload<Instance>> current_cluster;
 
-        // current clusterlist
-        ArrayList<QuadTreePayload<Instance>> current_cluster;
+            // remove list (for removal of items after scanning of the list)
+            ArrayList<Integer> remove = new ArrayList<>();
 
-        // remove list (for removal of items after scanning of the list)
-        ArrayList<Integer> remove = new ArrayList<>();
+            // 1. find biggest, and add it
+            biggest = list.get(list.size() - 1);
+            stop_rule = biggest.getDensity() * 0.5;
 
-        // 1. find biggest, and add it
-        biggest = list.get(list.size() - 1);
-        stop_rule = biggest.getDensity() * 0.5;
+            current_cluster = new ArrayList<>();
+            current_cluster.addAll(biggest.getPayload());
 
-        current_cluster = new ArrayList<>();
-        current_cluster.addAll(biggest.getPayload());
+            // remove the biggest because we are starting with it
+            remove.add(list.size() - 1);
 
-        // remove the biggest because we are starting with it
-        remove.add(list.size() - 1);
+            ArrayList<Double[][]> tmpSize = new ArrayList<>();
+            tmpSize.add(biggest.getSizeDouble());
 
-        ArrayList<Double[][]> tmpSize = new ArrayList<>();
-        tmpSize.add(biggest.getSizeDouble());
+            // the cluster number is also stored in the leafs for the point location
+            int cnumber = this.ccluster.size();
+            biggest.cluster = cnumber;
 
-        // check the items for their density
-        for (int i = list.size() - 1; i >= 0; i--) {
-            current = list.get(i);
+            // check the items for their density
+            for (int i = list.size() - 1; i >= 0; i--) {
+                current = list.get(i);
 
-            // 2. find neighbors with correct density
-            // if density > stop_rule and is_neighbour add to cluster and remove from list
-            if (current.getDensity() > stop_rule && !current.equals(biggest) &&
-                current.isNeighbour(biggest))
-            {
-                current_cluster.addAll(current.getPayload());
+                // 2. find neighbors with correct density
+                // if density > stop_rule and is_neighbour add to cluster and remove from list
+                if (current.getDensity() > stop_rule && !current.equals(biggest) &&
+                    current.isNeighbour(biggest))
+                {
+                    current_cluster.addAll(current.getPayload());
 
-                // add it to remove list (we cannot remove it inside the loop because it would move
-                // the index)
-                remove.add(i);
+                    // add it to remove list (we cannot remove it inside the loop because it would
+                    // move the index)
+                    remove.add(i);
 
-                // get the size
-                tmpSize.add(current.getSizeDouble());
+                    // get the size
+                    tmpSize.add(current.getSizeDouble());
+                    current.cluster = cnumber;
+                }
             }
-        }
 
-        // 3. remove our removal candidates from the list
-        for (Integer item : remove) {
-            list.remove((int) item);
-        }
+            // 3. remove our removal candidates from the list
+            for (Integer item : remove) {
+                list.remove((int) item);
+            }
 
-        // 4. add to cluster
-        QuadTree.ccluster.add(current_cluster);
+            // 4. add to cluster
+            this.ccluster.add(current_cluster);
 
-        // 5. add sizes of our current (biggest) this adds a number of sizes (all QuadTree Instances
-        // belonging to this cluster)
-        // we need that to classify test instances to a cluster later
-        Integer cnumber = QuadTree.ccluster.size() - 1;
-        if (QuadTree.csize.containsKey(cnumber) == false) {
-            QuadTree.csize.put(cnumber, tmpSize);
-        }
+            // 5. add sizes of our current (biggest) this adds a number of sizes (all QuadTree
+            // Instances belonging to this cluster)
+            // we need that to classify test instances to a cluster later
+            if (this.csize.containsKey(cnumber) == false) {
+                this.csize.put(cnumber, tmpSize);
+            }
 
-        // repeat
-        this.gridClustering(list);
+            // repeat
+        }
     }
 
     /**
      * <p>
-     * debugging function that prints information about the QuadTree
+     * Releases the data of all quadrants.
      * </p>
      *
+     * @param q
+     *            the quadrant
      */
-    public void printInfo() {
-        System.out.println("we have " + ccluster.size() + " clusters");
-
-        for (int i = 0; i < ccluster.size(); i++) {
-            System.out.println("cluster: " + i + " size: " + ccluster.get(i).size());
+    private void releasePayload(Node q) {
+        q.payload = null;
+        if (q.child_ne != null) {
+            releasePayload(q.child_nw);
+            releasePayload(q.child_ne);
+            releasePayload(q.child_se);
+            releasePayload(q.child_sw);
         }
     }
 
     /**
      * <p>
-     * Helper Method to get a sorted list (by density) for all children
+     * Quadrant of the tree.
      * </p>
-     * 
-     * @param q
-     *            QuadTree
-     * @return Sorted ArrayList of quadtrees
-     */
-    public ArrayList<QuadTree> getList(QuadTree q) {
-        this.generateList(q);
+     *
+     * @author Alexander Trautsch
+     */
+    private class Node {
+
+        /**
+         * 1 parent or null
+         */
+        private Node parent = null;
+
+        /**
+         * north-west quadrant
+         */
+        private Node child_nw;
+
+        /**
+         * north-east quadrant
+         */
+        private Node child_ne;
+
+        /**
+         * south-east quadrant
+         */
+        private Node child_se;
+
+        /**
+         * south-west quadrant
+         */
+        private Node child_sw;
+
+        /**
+         * debugging attribute
+         */
+        private int level = 0;
+
+        /**
+         * size of the quadrant in x-dimension
+         */
+        private double[] x;
+
+        /**
+         * size of the quadrant in y-dimension
+         */
+        private double[] y;
+
+        /**
+         * number of the cluster of a leaf quadrant; -1 until the clustering is done
+         */
+        private int cluster = -1;
+
+        /**
+         * data within this quadrant
+         */
+        private ArrayList<QuadTreePayload<Instance>> payload;
+
+        /**
+         * <p>
+         * Constructor. Creates a new quadrant.
+         * </p>
+         *
+         * @param parent
+         *            parent of this quadrant
+         * @param payload
+         *            data within the quadrant
+         */
+        @SuppressWarnings("hiding")
+        private Node(Node parent, ArrayList<QuadTreePayload<Instance>> payload) {
+            this.parent = parent;
+            this.payload = payload;
+        }
 
-        Collections.sort(this.l, new Comparator<QuadTree>() {
-            @Override
-            public int compare(QuadTree x1, QuadTree x2) {
-                return Double.compare(x1.getDensity(), x2.getDensity());
+        /*
+         * (non-Javadoc)
+         *
+         * @see java.lang.Object#toString()
+         */
+        @Override
+        public String toString() {
+            String n = "";
+            if (this.parent == null) {
+                n += "rootnode ";
             }
-        });
+            String myLevel = new String(new char[this.level]).replace("\0", "-");
+            n += myLevel + " instances: " + this.getNumbers();
+            return n;
+        }
 
-        return this.l;
+        /**
+         * <p>
+         * Returns the payload, used for clustering in the clustering list we only have children
+         * with payload
+         * </p>
+         *
+         * @return payload the payload
+         */
+        private ArrayList<QuadTreePayload<Instance>> getPayload() {
+            return this.payload;
+        }
+
+        /**
+         * <p>
+         * Calculate the density of this quadrant as
+         * <ul>
+         * <li>density = number of instances / global size (all instances)</li>
+         * </ul>
+         *
+         * @return density the density
+         */
+        private double getDensity() {
+            double dens = 0;
+            dens = (double) this.getNumbers() / QuadTree.this.size;
+            return dens;
+        }
+
+        /**
+         * <p>
+         * sets the size coordinates of the quadrant
+         * </p>
+         *
+         * @param x
+         *            x-dimension
+         * @param y
+         *            y-dimension
+         */
+        @SuppressWarnings("hiding")
+        private void setSize(double[] x, double[] y) {
+            this.x = x;
+            this.y = y;
+        }
+
+        /**
+         * <p>
+         * returns the size of the quadrant
+         * </p>
+         *
+         * @return size of the current quadrant
+         */
+        private double[][] getSize() {
+            return new double[][]
+                { this.x, this.y };
+        }
+
+        /**
+         * <p>
+         * returns the size of the quadrant
+         * </p>
+         *
+         * @return size of the current quadrant
+         */
+        @SuppressWarnings("boxing")
+        private Double[][] getSizeDouble() {
+            Double[] tmpX = new Double[2];
+            Double[] tmpY = new Double[2];
+
+            tmpX[0] = this.x[0];
+            tmpX[1] = this.x[1];
+
+            tmpY[0] = this.y[0];
+            tmpY[1] = this.y[1];
+
+            return new Double[][]
+                { tmpX, tmpY };
+        }
+
+        /**
+         * <p>
+         * calculates the median for the x axis
+         * </p>
+         *
+         * @return median for x
+         */
+        private double getMedianForX() {
+            double med_x = 0;
+
+            Collections.sort(this.payload, new Comparator<QuadTreePayload<Instance>>() {
+                @Override
+                public int compare(QuadTreePayload<Instance> x1, QuadTreePayload<Instance> x2) {
+                    return Double.compare(x1.x, x2.x);
+                }
+            });
+
+            if (this.payload.size() % 2 == 0) {
+                int mid = this.payload.size() / 2;
+                med_x = (this.payload.get(mid).x + this.payload.get(mid + 1).x) / 2;
+            }
+            else {
+                int mid = this.payload.size() / 2;
+                med_x = this.payload.get(mid).x;
+            }
+
+            if (QuadTree.this.verbose) {
+                System.out.println("sorted:");
+                for (int i = 0; i < this.payload.size(); i++) {
+                    System.out.print("" + this.payload.get(i).x + ",");
+                }
+                System.out.println("median x: " + med_x);
+            }
+            return med_x;
+        }
+
+        /**
+         * <p>
+         * calculates the median for the y axis
+         * </p>
+         *
+         * @return median for y
+         */
+        private double getMedianForY() {
+            double med_y = 0;
+
+            Collections.sort(this.payload, new Comparator<QuadTreePayload<Instance>>() {
+                @Override
+                public int compare(QuadTreePayload<Instance> y1, QuadTreePayload<Instance> y2) {
+                    return Double.compare(y1.y, y2.y);
+                }
+            });
+
+            if (this.payload.size() % 2 == 0) {
+                int mid = this.payload.size() / 2;
+                med_y = (this.payload.get(mid).y + this.payload.get(mid + 1).y) / 2;
+            }
+            else {
+                int mid = this.payload.size() / 2;
+                med_y = this.payload.get(mid).y;
+            }
+
+            if (QuadTree.this.verbose) {
+                System.out.println("sorted:");
+                for (int i = 0; i < this.payload.size(); i++) {
+                    System.out.print("" + this.payload.get(i).y + ",");
+                }
+                System.out.println("median y: " + med_y);
+            }
+            return med_y;
+        }
+
+        /**
+         * <p>
+         * Returns the number of instances in the payload
+         * </p>
+         *
+         * @return number of instances
+         */
+        private int getNumbers() {
+            int number = 0;
+            if (this.payload != null) {
+                number = this.payload.size();
+            }
+            return number;
+        }
+
+        /**
+         * <p>
+         * Calculate median values of payload for x, y and split into 4 sectors
+         * </p>
+         *
+         * @return Array of QuadTree nodes (4 childs)
+         * @throws Exception
+         *             if we would run into an recursive loop
+         */
+        private Node[] split() throws Exception {
+
+            double medx = this.getMedianForX();
+            double medy = this.getMedianForY();
+
+            // Payload lists for each child
+            ArrayList<QuadTreePayload<Instance>> nw = new ArrayList<>();
+            ArrayList<QuadTreePayload<Instance>> sw = new ArrayList<>();
+            ArrayList<QuadTreePayload<Instance>> ne = new ArrayList<>();
+            ArrayList<QuadTreePayload<Instance>> se = new ArrayList<>();
+
+            // sort the payloads to new payloads
+            // here we have the problem that payloads with the same values are sorted
+            // into the same slots and it could happen that medx and medy = size_x[1] and size_y[1]
+            // in that case we would have an endless loop
+            for (int i = 0; i < this.payload.size(); i++) {
+
+                QuadTreePayload<Instance> item = this.payload.get(i);
+
+                // north west
+                if (item.x <= medx && item.y >= medy) {
+                    nw.add(item);
+                }
+
+                // south west
+                else if (item.x <= medx && item.y <= medy) {
+                    sw.add(item);
+                }
+
+                // north east
+                else if (item.x >= medx && item.y >= medy) {
+                    ne.add(item);
+                }
+
+                // south east
+                else if (item.x >= medx && item.y <= medy) {
+                    se.add(item);
+                }
+            }
+
+            // if we assign one child a payload equal to our own (see problem above)
+            // we throw an exceptions which stops the recursion on this node
+            if (nw.equals(this.payload)) {
+                throw new Exception("payload equal");
+            }
+            if (sw.equals(this.payload)) {
+                throw new Exception("payload equal");
+            }
+            if (ne.equals(this.payload)) {
+                throw new Exception("payload equal");
+            }
+            if (se.equals(this.payload)) {
+                throw new Exception("payload equal");
+            }
+
+            this.child_nw = new Node(this, nw);
+            this.child_nw.setSize(new double[]
+                { this.x[0], medx }, new double[]
+                { medy, this.y[1] });
+            this.child_nw.level = this.level + 1;
+
+            this.child_sw = new Node(this, sw);
+            this.child_sw.setSize(new double[]
+                { this.x[0], medx }, new double[]
+                { this.y[0], medy });
+            this.child_sw.level = this.level + 1;
+
+            this.child_ne = new Node(this, ne);
+            this.child_ne.setSize(new double[]
+                { medx, this.x[1] }, new double[]
+                { medy, this.y[1] });
+            this.child_ne.level = this.level + 1;
+
+            this.child_se = new Node(this, se);
+            this.child_se.setSize(new double[]
+                { medx, this.x[1] }, new double[]
+                { this.y[0], medy });
+            this.child_se.level = this.level + 1;
+
+            this.payload = null;
+            return new Node[]
+                { this.child_nw, this.child_ne, this.child_se, this.child_sw };
+        }
+
+        /**
+         * <p>
+         * Checks if passed QuadTree is neighboring to us
+         * </p>
+         *
+         * @param q
+         *            QuadTree
+         * @return true if passed QuadTree is a neighbor
+         */
+        private boolean isNeighbour(Node q) {
+            boolean is_neighbour = false;
+
+            double[][] our_size = this.getSize();
+            double[][] new_size = q.getSize();
+
+            // X is i=0, Y is i=1
+            for (int i = 0; i < 2; i++) {
+                // we are smaller than q
+                // -------------- q
+                // ------- we
+                if (our_size[i][0] >= new_size[i][0] && our_size[i][1] <= new_size[i][1]) {
+                    is_neighbour = true;
+                }
+                // we overlap with q at some point
+                // a) ---------------q
+                // ----------- we
+                // b) --------- q
+                // --------- we
+                if ((our_size[i][0] >= new_size[i][0] && our_size[i][0] <= new_size[i][1]) ||
+                    (our_size[i][1] >= new_size[i][0] && our_size[i][1] <= new_size[i][1]))
+                {
+                    is_neighbour = true;
+                }
+                // we are larger than q
+                // ---- q
+                // ---------- we
+                if (our_size[i][1] >= new_size[i][1] && our_size[i][0] <= new_size[i][0]) {
+                    is_neighbour = true;
+                }
+            }
+
+            if (is_neighbour && QuadTree.this.verbose) {
+                System.out.println(this + " neighbour of: " + q);
+            }
+
+            return is_neighbour;
+        }
     }
 }
@@ -14,9 +14,7 @@
 
 package de.ugoe.cs.cpdp.training;
 
-import java.util.LinkedList;
-import java.util.List;
-
+import de.ugoe.cs.cpdp.util.HammingEncoding;
 import de.ugoe.cs.cpdp.util.WekaUtils;
 import de.ugoe.cs.cpdp.versions.SoftwareVersion;
 import weka.classifiers.AbstractClassifier;
@@ -87,57 +85,28 @@ public class WekaLASERTraining extends WekaBaseTraining implements ITrainingStra
          */
         private Instances traindata = null;
 
+        /**
+         * Encoding of the training data for the computation of Hamming distances.
+         */
+        private HammingEncoding encodedTraindata = null;
+
         /*
          * (non-Javadoc)
          * 
          * @see weka.classifiers.AbstractClassifier#classifyInstance(weka.core.Instance)
          */
-        @SuppressWarnings("boxing")
         @Override
         public double classifyInstance(Instance instance) throws Exception {
-            List<Integer> closestInstances = new LinkedList<>();
-            double minDistance = Double.MAX_VALUE;
-            for (int i = 0; i < this.traindata.size(); i++) {
-                double distance = WekaUtils.hammingDistance(instance, this.traindata.get(i));
-                if (distance < minDistance) {
-                    minDistance = distance;
-                }
-            }
-            for (int i = 0; i < this.traindata.size(); i++) {
-                double distance = WekaUtils.hammingDistance(instance, this.traindata.get(i));
-                if (distance <= minDistance) {
-                    closestInstances.add(i);
-                }
-            }
-            if (closestInstances.size() == 1) {
-                int closestIndex = closestInstances.get(0);
-                Instance closestTrainingInstance = this.traindata.get(closestIndex);
-                List<Integer> closestToTrainingInstance = new LinkedList<>();
-                double minTrainingDistance = Double.MAX_VALUE;
-                for (int i = 0; i < this.traindata.size(); i++) {
-                    if (closestIndex != i) {
-                        double distance =
-                            WekaUtils.hammingDistance(closestTrainingInstance, this.traindata.get(i));
-                        if (distance < minTrainingDistance) {
-                            minTrainingDistance = distance;
-                        }
-                    }
-                }
-                for (int i = 0; i < this.traindata.size(); i++) {
-                    if (closestIndex != i) {
-                        double distance =
-                            WekaUtils.hammingDistance(closestTrainingInstance, this.traindata.get(i));
-                        if (distance <= minTrainingDistance) {
-                            closestToTrainingInstance.add(i);
-                        }
-                    }
-                }
-                if (closestToTrainingInstance.size() == 1) {
+            int[] closestInstances =
+                this.encodedTraindata.closest(this.encodedTraindata.encode(instance));
+            if (closestInstances.length == 1) {
+                int[] closestToTrainingInstance = this.encodedTraindata.closest(closestInstances[0]);
+                if (closestToTrainingInstance.length == 1) {
                     return this.laserClassifier.classifyInstance(instance);
                 }
                 double label = Double.NaN;
                 boolean allEqual = true;
-                for (Integer index : closestToTrainingInstance) {
+                for (int index : closestToTrainingInstance) {
                     if (Double.isNaN(label)) {
                         label = this.traindata.get(index).classValue();
                     }
@@ -153,7 +122,7 @@ public class WekaLASERTraining extends WekaBaseTraining implements ITrainingStra
             }
             double label = Double.NaN;
             boolean allEqual = true;
-            for (Integer index : closestInstances) {
+            for (int index : closestInstances) {
                 if (Double.isNaN(label)) {
                     label = this.traindata.get(index).classValue();
                 }
@@ -177,6 +146,7 @@ public class WekaLASERTraining extends WekaBaseTraining implements ITrainingStra
         @Override
         public void buildClassifier(Instances traindata) throws Exception {
             this.traindata = new Instances(traindata);
+            this.encodedTraindata = new HammingEncoding(this.traindata);
             this.laserClassifier = setupClassifier();
             this.laserClassifier = WekaUtils.buildClassifier(this.laserClassifier, traindata);
         }
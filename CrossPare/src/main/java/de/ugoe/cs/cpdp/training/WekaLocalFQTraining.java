@@ -18,12 +18,15 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Random;
 import java.util.Set;
+import java.util.stream.IntStream;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import de.ugoe.cs.cpdp.util.KDTree;
 import de.ugoe.cs.cpdp.util.WekaUtils;
 import de.ugoe.cs.cpdp.versions.SoftwareVersion;
 import weka.classifiers.AbstractClassifier;
@@ -32,6 +35,8 @@ import weka.core.DenseInstance;
 import weka.core.EuclideanDistance;
 import weka.core.Instance;
 import weka.core.Instances;
+import weka.core.NormalizableDistance;
+import weka.core.Utils;
 import weka.filters.Filter;
 import weka.filters.unsupervised.attribute.Remove;
 
@@ -68,6 +73,11 @@ public class WekaLocalFQTraining extends WekaBaseTraining implements ITrainingSt
      */
     private static final Logger LOGGER = LogManager.getLogger("main");
 
+    /**
+     * number of objects from which on Fastmap computes distances and projections in parallel
+     */
+    private static final int PARALLEL_THRESHOLD = 1000;
+
     /**
      * the classifier
      */
@@ -135,9 +145,30 @@ public class WekaLocalFQTraining extends WekaBaseTraining implements ITrainingSt
         private int[][] cpivotindices;
 
         /**
-         * holds the sizes of the cluster multiple "boxes" per cluster
+         * QuadTree of the clusters, used to find the cluster of an instance
+         */
+        private QuadTree quadtree;
+
+        /**
+         * empty copy of the training data of the first cluster, format of the instances that are
+         * passed to the classifiers
+         */
+        private Instances classHeader;
+
+        /**
+         * training data of the first cluster without the class attribute
          */
-        private HashMap<Integer, ArrayList<Double[][]>> csize;
+        private Instances clusterData;
+
+        /**
+         * distance used for the Fastmap projection of instances that are classified
+         */
+        private EuclideanDistance clusterDistance;
+
+        /**
+         * search for the closest training instance if an instance is not within a cluster
+         */
+        private NearestInstanceSearch nearestInstanceSearch;
 
         /**
          * debug variable
@@ -166,7 +197,7 @@ public class WekaLocalFQTraining extends WekaBaseTraining implements ITrainingSt
          *            instance format
          * @param instance
          *            instance that is copied
-         * @return
+         * @return the copied instance
          */
         private Instance createInstance(Instances instances, Instance instance) {
             // attributes for feeding instance to classifier
@@ -184,8 +215,7 @@ public class WekaLocalFQTraining extends WekaBaseTraining implements ITrainingSt
                 }
             }
 
-            Instances tmp = new Instances(instances);
-            tmp.clear();
+            Instances tmp = new Instances(instances, 0);
             Instance instCopy = new DenseInstance(instance.weight(), values);
             instCopy.setDataset(tmp);
 
@@ -216,21 +246,13 @@ public class WekaLocalFQTraining extends WekaBaseTraining implements ITrainingSt
             double ret = 0;
             try {
                 // classinstance gets passed to classifier
-                Instances traindata = this.ctraindata.get(0);
-                Instance classInstance = createInstance(traindata, instance);
-
-                // this one keeps the class attribute
-                Instances traindata2 = this.ctraindata.get(0);
+                Instance classInstance = createInstance(this.classHeader, instance);
 
-                // remove class attribute before clustering
-                Remove filter = new Remove();
-                filter.setAttributeIndices("" + (traindata.classIndex() + 1));
-                filter.setInputFormat(traindata);
-                traindata = Filter.useFilter(traindata, filter);
-                Instance clusterInstance = createInstance(traindata, instance);
+                // the class attribute is removed before clustering
+                Instance clusterInstance = createInstance(this.clusterData, instance);
 
                 Fastmap FMAP = new Fastmap(2);
-                EuclideanDistance dist = new EuclideanDistance(traindata);
+                EuclideanDistance dist = this.clusterDistance;
 
                 // we set our pivot indices [x=0,y=1][dimension]
                 int[][] npivotindices = new int[2][2];
@@ -324,29 +346,11 @@ public class WekaLocalFQTraining extends WekaBaseTraining implements ITrainingSt
                  * x[i][j])); } Console.traceln(Level.INFO, ""); }
                  */
 
-                // now we iterate over all clusters (well, boxes of sizes per cluster really) and
-                // save the number of the
-                // cluster in which we are
-                int cnumber;
-                int found_cnumber = -1;
-                Iterator<Integer> clusternumber = this.csize.keySet().iterator();
-                while (clusternumber.hasNext() && found_cnumber == -1) {
-                    cnumber = clusternumber.next();
-
-                    // now iterate over the boxes of the cluster and hope we find one (cluster could
-                    // have been removed)
-                    // or we are too far away from any cluster because of the fastmap calculation
-                    // with the initial pivot objects
-                    for (int box = 0; box < this.csize.get(cnumber).size(); box++) {
-                        Double[][] current = this.csize.get(cnumber).get(box);
-
-                        if (proj[0] >= current[0][0] && proj[0] <= current[0][1] && // x
-                            proj[1] >= current[1][0] && proj[1] <= current[1][1])
-                        { // y
-                            found_cnumber = cnumber;
-                        }
-                    }
-                }
+                // now we locate the cluster in which we are in the QuadTree (the cluster could
+                // have been removed)
+                // or we are too far away from any cluster because of the fastmap calculation
+                // with the initial pivot objects
+                int found_cnumber = this.quadtree.findCluster(proj[0], proj[1]);
 
                 // we want to count how often we are really inside a cluster
                 // if ( found_cnumber == -1 ) {
@@ -364,21 +368,10 @@ public class WekaLocalFQTraining extends WekaBaseTraining implements ITrainingSt
                 // to do that we use the EuclideanDistance again to compare our distance to all
                 // other Instances
                 // then we take the cluster of the closest weka instance
-                dist = new EuclideanDistance(traindata2);
                 if (!this.ctraindata.containsKey(found_cnumber)) {
-                    double min_distance = Double.MAX_VALUE;
-                    clusternumber = this.ctraindata.keySet().iterator();
-                    while (clusternumber.hasNext()) {
-                        cnumber = clusternumber.next();
-                        for (int i = 0; i < this.ctraindata.get(cnumber).size(); i++) {
-                            if (dist.distance(instance,
-                                              this.ctraindata.get(cnumber).get(i)) <= min_distance)
-                            {
-                                found_cnumber = cnumber;
-                                min_distance =
-                                    dist.distance(instance, this.ctraindata.get(cnumber).get(i));
-                            }
-                        }
+                    int cnumber = this.nearestInstanceSearch.nearestLabel(instance);
+                    if (cnumber != -1) {
+                        found_cnumber = cnumber;
                     }
                 }
 
@@ -429,23 +422,17 @@ public class WekaLocalFQTraining extends WekaBaseTraining implements ITrainingSt
             filter.setInputFormat(train);
             train = Filter.useFilter(train, filter);
 
-            // 3. calculate distance matrix (needed for Fastmap because it starts at dimension 1)
-            double biggest = 0;
-            EuclideanDistance dist = new EuclideanDistance(train);
-            double[][] distmat = new double[train.size()][train.size()];
-            for (int i = 0; i < train.size(); i++) {
-                for (int j = 0; j < train.size(); j++) {
-                    distmat[i][j] = dist.distance(train.get(i), train.get(j));
-                    if (distmat[i][j] > biggest) {
-                        biggest = distmat[i][j];
-                    }
-                }
-            }
-            // Console.traceln(Level.INFO, String.format("biggest distances: "+ biggest));
+            // 3. define the distances between the instances (needed for Fastmap because it starts
+            // at dimension 1), the ranges are initialized before the distances are computed
+            // concurrently
+            final EuclideanDistance dist = new EuclideanDistance(train);
+            dist.getRanges();
+            final Instances distData = train;
 
-            // 4. run fastmap for 2 dimensions on the distance matrix
+            // 4. run fastmap for 2 dimensions, only the distances to the pivot objects are computed
             Fastmap FMAP = new Fastmap(2);
-            FMAP.setDistmat(distmat);
+            FMAP.setDistance(train.size(),
+                             (i, j) -> dist.distance(distData.get(i), distData.get(j)));
             FMAP.calculate();
 
             this.cpivotindices = FMAP.getPivots();
@@ -484,34 +471,20 @@ public class WekaLocalFQTraining extends WekaBaseTraining implements ITrainingSt
             // String.format("size for cluster ("+small[0]+","+small[1]+") -
             // ("+big[0]+","+big[1]+")"));
 
-            // 5. generate quadtree
-            QuadTree TREE = new QuadTree(null, qtp);
-            QuadTree.size = train.size();
-            QuadTree.alpha = Math.sqrt(train.size());
-            QuadTree.ccluster = new ArrayList<>();
-            QuadTree.csize = new HashMap<>();
-
-            // Console.traceln(Level.INFO, String.format("Generate QuadTree with "+ QuadTree.size +
-            // " size, Alpha: "+ QuadTree.alpha+ ""));
-
-            // set the size and then split the tree recursively at the median value for x, y
-            TREE.setSize(new double[]
+            // 5. generate quadtree with the size of the data, alpha is the square root of the size
+            QuadTree TREE = new QuadTree(qtp, new double[]
                 { small[0], big[0] }, new double[]
-                { small[1], big[1] });
-
-            // recursive split und grid clustering eher static
-            QuadTree.recursiveSplit(TREE);
-
-            // generate list of nodes sorted by density (childs only)
-            ArrayList<QuadTree> l = new ArrayList<>(TREE.getList(TREE));
+                { small[1], big[1] }, Math.sqrt(train.size()));
 
-            // recursive grid clustering (tree pruning), the values are stored in ccluster
-            TREE.gridClustering(l);
+            // split the tree recursively at the median value for x, y and perform the grid
+            // clustering
+            TREE.build();
+            List<ArrayList<QuadTreePayload<Instance>>> ccluster = TREE.getClusters();
 
             // wir iterieren durch die cluster und sammeln uns die instanzen daraus
             // ctraindata.clear();
-            for (int i = 0; i < QuadTree.ccluster.size(); i++) {
-                ArrayList<QuadTreePayload<Instance>> current = QuadTree.ccluster.get(i);
+            for (int i = 0; i < ccluster.size(); i++) {
+                ArrayList<QuadTreePayload<Instance>> current = ccluster.get(i);
 
                 // i is the clusternumber
                 // we only allow clusters with Instances > ALPHA, other clusters are not considered!
@@ -531,8 +504,21 @@ public class WekaLocalFQTraining extends WekaBaseTraining implements ITrainingSt
             }
 
             // here we keep things we need later on
-            // QuadTree sizes for later use (matching new instances)
-            this.csize = new HashMap<>(QuadTree.csize);
+            // QuadTree for later use (matching new instances)
+            this.quadtree = TREE;
+
+            // formats and distances for the classification of instances, the first cluster
+            // defines the ranges of the distances
+            Instances firstCluster = this.ctraindata.get(0);
+            if (firstCluster != null) {
+                this.classHeader = new Instances(firstCluster, 0);
+                Remove clusterFilter = new Remove();
+                clusterFilter.setAttributeIndices("" + (firstCluster.classIndex() + 1));
+                clusterFilter.setInputFormat(firstCluster);
+                this.clusterData = Filter.useFilter(firstCluster, clusterFilter);
+                this.clusterDistance = new EuclideanDistance(this.clusterData);
+                this.nearestInstanceSearch = new NearestInstanceSearch(this.ctraindata);
+            }
 
             // pivot elements
             // this.cpivots.clear();
@@ -634,6 +620,174 @@ public class WekaLocalFQTraining extends WekaBaseTraining implements ITrainingSt
         }
     }
 
+    /**
+     * <p>
+     * Search for the training instance that is closest to an instance with respect to the
+     * {@link EuclideanDistance} defined by the training data of the first cluster. The result is
+     * the label of the closest instance. If multiple instances have the same distance, the last
+     * instance in the order of the clusters and their training data is used.
+     * </p>
+     * <p>
+     * If all attributes are numeric and no values are missing, the training instances are
+     * normalized like by the {@link EuclideanDistance} and the search uses a {@link KDTree}. The
+     * distances are the same as those computed by the {@link EuclideanDistance}. Otherwise, all
+     * training instances are compared with the instance.
+     * </p>
+     *
+     * @author jvdmosel
+     */
+    private static class NearestInstanceSearch {
+
+        /**
+         * distance used for the search
+         */
+        private final EuclideanDistance distance;
+
+        /**
+         * training instances in the order of the search
+         */
+        private final List<Instance> instances = new ArrayList<>();
+
+        /**
+         * labels of the training instances
+         */
+        private final List<Integer> labels = new ArrayList<>();
+
+        /**
+         * ranges of the attributes; null if the linear search is used
+         */
+        private double[][] ranges = null;
+
+        /**
+         * tree over the normalized instances in reversed order, such that the smallest index of
+         * the tree is the last instance; null if the linear search is used
+         */
+        private KDTree tree = null;
+
+        /**
+         * <p>
+         * Creates a new search.
+         * </p>
+         *
+         * @param ctraindata
+         *            training data for each cluster, the key is the label
+         * @throws Exception
+         *             thrown if the ranges of the distance cannot be determined
+         */
+        @SuppressWarnings("boxing")
+        private NearestInstanceSearch(HashMap<Integer, Instances> ctraindata) throws Exception {
+            this.distance = new EuclideanDistance(ctraindata.get(0));
+            for (Integer cnumber : ctraindata.keySet()) {
+                for (Instance instance : ctraindata.get(cnumber)) {
+                    this.instances.add(instance);
+                    this.labels.add(cnumber);
+                }
+            }
+            final Instances header = ctraindata.get(0);
+            for (int j = 0; j < header.numAttributes(); j++) {
+                if (j != header.classIndex() && !header.attribute(j).isNumeric()) {
+                    return;
+                }
+            }
+            final double[][] normalized = new double[this.instances.size()][];
+            this.ranges = this.distance.getRanges();
+            for (int i = 0; i < this.instances.size(); i++) {
+                normalized[this.instances.size() - 1 - i] =
+                    normalize(this.instances.get(i), header);
+                if (normalized[this.instances.size() - 1 - i] == null) {
+                    this.ranges = null;
+                    return;
+                }
+            }
+            this.tree = new KDTree(normalized);
+        }
+
+        /**
+         * <p>
+         * Returns the label of the closest training instance.
+         * </p>
+         *
+         * @param instance
+         *            the instance
+         * @return the label; -1 if no training instance is close
+         */
+        @SuppressWarnings("boxing")
+        private int nearestLabel(Instance instance) {
+            final Instances header = this.distance.getInstances();
+            if (this.tree != null && instance.numAttributes() == header.numAttributes()) {
+                final double[] query = normalize(instance, header);
+                if (query != null) {
+                    final int row = this.tree.nearest(query);
+                    return row == -1 ? -1 : this.labels.get(this.instances.size() - 1 - row);
+                }
+            }
+            int label = -1;
+            double min_distance = Double.MAX_VALUE;
+            for (int i = 0; i < this.instances.size(); i++) {
+                double currentDistance = this.distance.distance(instance, this.instances.get(i));
+                if (currentDistance <= min_distance) {
+                    label = this.labels.get(i);
+                    min_distance = currentDistance;
+                }
+            }
+            return label;
+        }
+
+        /**
+         * <p>
+         * Normalizes the values of an instance without the class attribute in the same way as
+         * {@link NormalizableDistance}.
+         * </p>
+         *
+         * @param instance
+         *            the instance
+         * @param header
+         *            format of the data
+         * @return normalized values; null if a value is missing
+         */
+        private double[] normalize(Instance instance, Instances header) {
+            final double[] values = new double[header.numAttributes() - 1];
+            int index = 0;
+            for (int j = 0; j < header.numAttributes(); j++) {
+                if (j != header.classIndex()) {
+                    final double value = instance.value(j);
+                    if (Utils.isMissingValue(value)) {
+                        return null;
+                    }
+                    final double[] range = this.ranges[j];
+                    values[index++] = range[NormalizableDistance.R_WIDTH] == 0 ? 0 :
+                        (value - range[NormalizableDistance.R_MIN]) /
+                            range[NormalizableDistance.R_WIDTH];
+                }
+            }
+            return values;
+        }
+    }
+
+    /**
+     * <p>
+     * Distance between two objects of Fastmap, identified by their index.
+     * </p>
+     *
+     * @author jvdmosel
+     */
+    @FunctionalInterface
+    private interface ObjectDistance {
+
+        /**
+         * <p>
+         * Computes the distance between two objects.
+         * </p>
+         *
+         * @param x
+         *            index of the first object
+         * @param y
+         *            index of the second object
+         * @return the distance
+         */
+        double distance(int x, int y);
+    }
+
     /**
      * <p>
      * Fastmap implementation after:<br>
@@ -654,9 +808,19 @@ public class WekaLocalFQTraining extends WekaBaseTraining implements ITrainingSt
         private int[][] PA;
 
         /**
-         * Objects we got (distance matrix)
+         * number of objects
          */
-        private double[][] O;
+        private int N;
+
+        /**
+         * distances between the objects we got
+         */
+        private ObjectDistance O;
+
+        /**
+         * distances of all objects to the objects that were used as pivots, computed on demand
+         */
+        private HashMap<Integer, double[]> pivotDistances = new HashMap<>();
 
         /**
          * column of X currently updated (also the dimension)
@@ -695,8 +859,27 @@ public class WekaLocalFQTraining extends WekaBaseTraining implements ITrainingSt
          */
         @SuppressWarnings("hiding")
         public void setDistmat(double[][] O) {
+            setDistance(O.length, (x, y) -> O[x][y]);
+        }
+
+        /**
+         * <p>
+         * Sets the distance function and params that depend on this. The distances are computed
+         * on demand and only the distances of all objects to the pivot objects are stored, i.e.,
+         * the memory consumption is linear in the number of objects. The distance function may be
+         * called concurrently.
+         * </p>
+         * 
+         * @param N
+         *            number of objects
+         * @param O
+         *            distance between two objects
+         */
+        @SuppressWarnings("hiding")
+        public void setDistance(int N, ObjectDistance O) {
+            this.N = N;
             this.O = O;
-            int N = O.length;
+            this.pivotDistances.clear();
             this.X = new double[N][this.target_dims];
             this.PA = new int[2][this.target_dims];
         }
@@ -742,8 +925,9 @@ public class WekaLocalFQTraining extends WekaBaseTraining implements ITrainingSt
          */
         private double dist(int x, int y, int k) {
 
-            // basis is object distance, we get this from our distance matrix
-            double tmp = this.O[x][y] * this.O[x][y];
+            // basis is object distance, we get this from the distances to the pivot y
+            double objectDistance = this.distancesTo(y)[x];
+            double tmp = objectDistance * objectDistance;
 
             // decrease by projections
             for (int i = 0; i < k; i++) {
@@ -768,7 +952,7 @@ public class WekaLocalFQTraining extends WekaBaseTraining implements ITrainingSt
             double furthest = Double.MIN_VALUE;
             int ret = 0;
 
-            for (int i = 0; i < this.O.length; i++) {
+            for (int i = 0; i < this.N; i++) {
                 double dist = this.dist(i, index, this.col);
                 if (i != index && dist > furthest) {
                     furthest = dist;
@@ -788,7 +972,7 @@ public class WekaLocalFQTraining extends WekaBaseTraining implements ITrainingSt
         private int[] findDistantObjects() {
             // 1. choose object randomly
             Random r = new Random();
-            int obj = r.nextInt(this.O.length);
+            int obj = r.nextInt(this.N);
 
             // 2. find farthest object from randomly chosen object
             int idx1 = this.findFarthest(obj);
@@ -826,22 +1010,65 @@ public class WekaLocalFQTraining extends WekaBaseTraining implements ITrainingSt
                 }
 
                 // 5) project the objects on the line between the pivots
-                double dxy = this.dist(this.PA[0][this.col], this.PA[1][this.col], this.col);
-                for (int i = 0; i < this.O.length; i++) {
-
-                    double dix = this.dist(i, this.PA[0][this.col], this.col);
-                    double diy = this.dist(i, this.PA[1][this.col], this.col);
+                final double dxy = this.dist(this.PA[0][this.col], this.PA[1][this.col], this.col);
+                final int pivot1 = this.PA[0][this.col];
+                final int pivot2 = this.PA[1][this.col];
+                final int dim = this.col;
+                this.distancesTo(pivot1);
+                this.distancesTo(pivot2);
+                rows(this.N).forEach(i -> {
+                    double dix = this.dist(i, pivot1, dim);
+                    double diy = this.dist(i, pivot2, dim);
 
                     double tmp = (dix + dxy - diy) / (2 * Math.sqrt(dxy));
 
                     // save the projection
-                    this.X[i][this.col] = tmp;
-                }
+                    this.X[i][dim] = tmp;
+                });
 
                 this.col += 1;
             }
         }
 
+        /**
+         * <p>
+         * Returns the distances of all objects to an object. The distances are computed in
+         * parallel when they are required for the first time.
+         * </p>
+         * 
+         * @param y
+         *            index of the object
+         * @return distances of all objects to the object
+         */
+        private double[] distancesTo(int y) {
+            double[] distances = this.pivotDistances.get(y);
+            if (distances == null) {
+                final double[] newDistances = new double[this.N];
+                rows(this.N).forEach(x -> newDistances[x] = this.O.distance(x, y));
+                this.pivotDistances.put(y, newDistances);
+                distances = newDistances;
+            }
+            return distances;
+        }
+
+        /**
+         * <p>
+         * Returns the indices of the objects as stream, which is parallel if there are enough
+         * objects.
+         * </p>
+         * 
+         * @param numObjects
+         *            number of objects
+         * @return stream of the indices
+         */
+        private IntStream rows(int numObjects) {
+            IntStream rows = IntStream.range(0, numObjects);
+            if (numObjects >= PARALLEL_THRESHOLD) {
+                rows = rows.parallel();
+            }
+            return rows;
+        }
+
         /**
          * <p>
          * returns the result matrix of the projections
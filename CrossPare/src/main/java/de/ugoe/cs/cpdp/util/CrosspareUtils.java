@@ -1,15 +1,13 @@
 package de.ugoe.cs.cpdp.util;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
+import java.util.BitSet;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 
 import org.apache.commons.collections4.list.SetUniqueList;
 
 import de.ugoe.cs.cpdp.ExperimentConfiguration;
+import de.ugoe.cs.cpdp.eval.IResultIndexStorage;
 import de.ugoe.cs.cpdp.eval.IResultStorage;
 import de.ugoe.cs.cpdp.training.ISetWiseTestdataAwareTrainingStrategy;
 import de.ugoe.cs.cpdp.training.ISetWiseTrainingStrategy;
@@ -17,11 +15,9 @@ import de.ugoe.cs.cpdp.training.ITestAwareTrainingStrategy;
 import de.ugoe.cs.cpdp.training.ITrainer;
 import de.ugoe.cs.cpdp.training.ITrainingStrategy;
 import de.ugoe.cs.cpdp.training.IWekaCompatibleTrainer;
+import de.ugoe.cs.cpdp.versions.ConcatenatedVersions;
 import de.ugoe.cs.cpdp.versions.IVersionFilter;
 import de.ugoe.cs.cpdp.versions.SoftwareVersion;
-import weka.core.Attribute;
-import weka.core.DenseInstance;
-import weka.core.Instance;
 import weka.core.Instances;
 
 /**
@@ -49,6 +45,24 @@ public class CrosspareUtils {
 		return result;
 	}
 
+	/**
+	 * Helper method that checks which versions pass all filters. The filters are
+	 * applied to all versions at once with {@link IVersionFilter#apply(List)}.
+	 * 
+	 * @param versions all versions; should provide random access
+	 * @param filters  list of the filters
+	 * @return bit set in which the bits of all versions that pass all filters are
+	 *         set; the index of the bit is the index of the version in the list
+	 */
+	public static BitSet matchingVersions(List<SoftwareVersion> versions, List<IVersionFilter> filters) {
+		BitSet result = new BitSet(versions.size());
+		result.set(0, versions.size());
+		for (IVersionFilter filter : filters) {
+			result.andNot(filter.apply(versions));
+		}
+		return result;
+	}
+
 	/**
 	 * Helper method that can remove versions given a filter
 	 * 
@@ -58,8 +72,9 @@ public class CrosspareUtils {
 	 */
 	public static int filterVersions(List<SoftwareVersion> versions, List<IVersionFilter> filters) {
 		List<Integer> removeIndex = new LinkedList<>();
+		BitSet matching = matchingVersions(versions, filters);
 		for (int i = 0; i < versions.size(); i++) {
-			if (!CrosspareUtils.isVersion(versions.get(i), versions, filters)) {
+			if (!matching.get(i)) {
 				removeIndex.add(0, i); // add to front to simplify removal
 			}
 		}
@@ -73,6 +88,25 @@ public class CrosspareUtils {
 	
 	/**
      * <p>
+     * helper function that loads the number of stored results of the experiment into the index
+     * of all result storages that support this. Afterwards,
+     * {@link #resultsAvailable(SoftwareVersion, ExperimentConfiguration)} does not require a
+     * query of the storages anymore.
+     * </p>
+     *
+     * @param config
+     *            configuration of the experiment
+     */
+    public static void preloadResults(ExperimentConfiguration config) {
+        for (IResultStorage storage : config.getResultStorages()) {
+            if (storage instanceof IResultIndexStorage) {
+                ((IResultIndexStorage) storage).preloadResults(config.getExperimentName());
+            }
+        }
+    }
+
+	/**
+     * <p>
      * helper function that checks if the results are already in the data store
      * </p>
      *
@@ -114,7 +148,7 @@ public class CrosspareUtils {
         return available;
     }
 
-        /**
+    /**
      * Helper method that combines a set of {@link SoftwareVersion} sets into a single
      * {@link Instances} set.
      * 
@@ -123,19 +157,7 @@ public class CrosspareUtils {
      * @return single {@link Instances} set
      */
     public static Instances makeSingleTrainingSet(SetUniqueList<SoftwareVersion> trainversionSet) {
-        Instances traindataFull = null;
-        for (SoftwareVersion trainversion : trainversionSet) {
-            Instances traindata = trainversion.getInstances();
-            if (traindataFull == null) {
-                traindataFull = new Instances(traindata);
-            }
-            else {
-                for (int i = 0; i < traindata.numInstances(); i++) {
-                    traindataFull.add(traindata.instance(i));
-                }
-            }
-        }
-        return traindataFull;
+        return new ConcatenatedVersions(trainversionSet).getInstances(null);
     }
 
     /**
@@ -144,73 +166,23 @@ public class CrosspareUtils {
      * 
      * @param trainversionSet
      *            set of {@link SoftwareVersion} which bug matrices are to be combined
-     * @return single {@link Instances} bugmatrix
+     * @return single {@link Instances} bugmatrix; null if any of the versions has no bug matrix
      */
     public static Instances makeSingleBugMatrixSet(SetUniqueList<SoftwareVersion> trainversionSet) {
-        final ArrayList<Attribute> bugMatrixAtts = new ArrayList<>();
-        final Map<String, Integer> nameToIndex = new HashMap<>();
-        for (SoftwareVersion trainversion : trainversionSet) {
-            for (Iterator<Attribute> iterator = trainversion.getBugMatrix().enumerateAttributes().asIterator(); iterator
-                    .hasNext();) {
-                String attName = iterator.next().name();
-                Attribute att = new Attribute(attName);
-                if (!bugMatrixAtts.contains(att)) {
-                    bugMatrixAtts.add(att);
-                    nameToIndex.put(attName, nameToIndex.size());
-                }
-            }
-        }
-        Instances singleBugMatrix = new Instances("singleBugMatrix", bugMatrixAtts, 0);
-        for (SoftwareVersion trainversion : trainversionSet) {
-            Instances bugMatrix = trainversion.getBugMatrix();
-            List<String> attNames = new ArrayList<>();
-            for (Iterator<Attribute> iterator = bugMatrix.enumerateAttributes().asIterator(); iterator.hasNext();) {
-                attNames.add(iterator.next().name());
-            }
-            for (Instance instance : bugMatrix) {
-                double[] allBugs = new double[bugMatrixAtts.size()];
-                double[] bugs = instance.toDoubleArray();
-                for (int j = 0; j < bugs.length; j++) {
-                    allBugs[nameToIndex.get(attNames.get(j))] = bugs[j];
-                }
-                singleBugMatrix.add(new DenseInstance(1.0, allBugs));
-            }
-        }
-        return singleBugMatrix;
+        return new ConcatenatedVersions(trainversionSet).getBugMatrix(null);
     }
 
     /**
      * Helper method that combines a set of SetUniqueList<SoftwareVersion> into a single
-     * Softwareversion.
+     * Softwareversion. The data of the versions is not copied until it is accessed, see
+     * {@link ConcatenatedVersions}.
      * 
      * @param trainversionSet
      *            set of {@link SoftwareVersion} to be combined
      * @return single {@link SoftwareVersion} set
      */
     public static SoftwareVersion makeSingleVersionSet(SetUniqueList<SoftwareVersion> trainversionSet) {
-        Instances instances = makeSingleTrainingSet(trainversionSet);
-        Instances bugmatrix = makeSingleBugMatrixSet(trainversionSet);
-        List<Double> efforts = null;
-        List<Double> numBugs = null;
-        for (SoftwareVersion trainversion : trainversionSet) {
-            List<Double> tempEfforts = trainversion.getEfforts();
-            List<Double> tempNumBugs = trainversion.getNumBugs();
-            if (efforts == null) {
-                efforts = new ArrayList<Double>(tempEfforts);
-            }
-            if (numBugs == null) {
-                numBugs = new ArrayList<Double>(tempNumBugs);
-            }
-            else {
-                for (int i = 0; i < tempEfforts.size(); i++) {
-                    efforts.add(tempEfforts.get(i));
-                }
-                for (int i = 0; i < tempNumBugs.size(); i++) {
-                    numBugs.add(tempNumBugs.get(i));
-                }
-            }
-        }
-        return new SoftwareVersion("singleTrainVersionSet", "trainProjects", "trainVersions", instances, bugmatrix,
-                efforts, numBugs, null, null);
+        return new ConcatenatedVersions(trainversionSet)
+            .toSoftwareVersion("singleTrainVersionSet", "trainProjects", "trainVersions");
     }
 }
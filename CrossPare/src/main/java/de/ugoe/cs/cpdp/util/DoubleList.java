@@ -0,0 +1,403 @@
+// Copyright 2015 Georg-August-Universität Göttingen, Germany
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package de.ugoe.cs.cpdp.util;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * <p>
+ * Growable list of doubles that is backed by a primitive array. The list can be used like any
+ * other {@link List}, but the primitive methods, e.g., {@link #getDouble(int)}, avoid boxing. Rows
+ * are removed in bulk with {@link #retain(BitSet)} and selected with {@link #select(int[])}, both
+ * in linear time.
+ * </p>
+ * <p>
+ * Null values are not supported.
+ * </p>
+ *
+ * @author jvdmosel
+ */
+public class DoubleList extends AbstractList<Double> implements RandomAccess {
+
+    /**
+     * the values; only the first {@link #size} values are valid
+     */
+    private double[] elements;
+
+    /**
+     * number of values
+     */
+    private int size;
+
+    /**
+     * Constructor. Creates an empty list.
+     */
+    public DoubleList() {
+        this(10);
+    }
+
+    /**
+     * Constructor. Creates an empty list.
+     *
+     * @param capacity
+     *            initial capacity of the list
+     */
+    public DoubleList(int capacity) {
+        this.elements = new double[Math.max(capacity, 1)];
+        this.size = 0;
+    }
+
+    /**
+     * Constructor. Creates a list that contains the values of a collection.
+     *
+     * @param values
+     *            the values
+     */
+    public DoubleList(Collection<Double> values) {
+        if (values instanceof DoubleList) {
+            final DoubleList other = (DoubleList) values;
+            this.elements = Arrays.copyOf(other.elements, Math.max(other.size, 1));
+            this.size = other.size;
+        }
+        else {
+            this.elements = new double[Math.max(values.size(), 1)];
+            this.size = 0;
+            for (Double value : values) {
+                addDouble(value.doubleValue());
+            }
+        }
+    }
+
+    /**
+     * Constructor. Creates a list that contains the values of an array. The array is copied.
+     *
+     * @param values
+     *            the values
+     */
+    public DoubleList(double[] values) {
+        this.elements = Arrays.copyOf(values, Math.max(values.length, 1));
+        this.size = values.length;
+    }
+
+    /**
+     * returns a value without boxing
+     *
+     * @param index
+     *            index of the value
+     * @return the value
+     */
+    public double getDouble(int index) {
+        checkIndex(index);
+        return this.elements[index];
+    }
+
+    /**
+     * replaces a value without boxing
+     *
+     * @param index
+     *            index of the value
+     * @param value
+     *            the new value
+     * @return the old value
+     */
+    public double setDouble(int index, double value) {
+        checkIndex(index);
+        final double old = this.elements[index];
+        this.elements[index] = value;
+        return old;
+    }
+
+    /**
+     * appends a value without boxing
+     *
+     * @param value
+     *            the value
+     */
+    public void addDouble(double value) {
+        ensureCapacity(this.size + 1);
+        this.elements[this.size++] = value;
+        this.modCount++;
+    }
+
+    /**
+     * returns a copy of the values as array
+     *
+     * @return the values
+     */
+    public double[] toDoubleArray() {
+        return Arrays.copyOf(this.elements, this.size);
+    }
+
+    /**
+     * <p>
+     * Keeps only the values at the set bits of rows and removes all other values. The order of the
+     * kept values does not change.
+     * </p>
+     *
+     * @param rows
+     *            rows that are kept
+     */
+    public void retain(BitSet rows) {
+        int k = 0;
+        for (int i = rows.nextSetBit(0); i >= 0 && i < this.size; i = rows.nextSetBit(i + 1)) {
+            this.elements[k++] = this.elements[i];
+        }
+        this.size = k;
+        this.modCount++;
+    }
+
+    /**
+     * <p>
+     * Creates a new list with the values at the given rows, in the order of the rows. Rows may
+     * occur multiple times.
+     * </p>
+     *
+     * @param rows
+     *            rows that are selected
+     * @return the new list
+     */
+    public DoubleList select(int[] rows) {
+        final DoubleList result = new DoubleList(rows.length);
+        for (int row : rows) {
+            checkIndex(row);
+            result.elements[result.size++] = this.elements[row];
+        }
+        return result;
+    }
+
+    /*
+     * @see java.util.AbstractList#get(int)
+     */
+    @SuppressWarnings("boxing")
+    @Override
+    public Double get(int index) {
+        return getDouble(index);
+    }
+
+    /*
+     * @see java.util.AbstractList#set(int, java.lang.Object)
+     */
+    @SuppressWarnings("boxing")
+    @Override
+    public Double set(int index, Double element) {
+        return setDouble(index, element.doubleValue());
+    }
+
+    /*
+     * @see java.util.AbstractList#add(java.lang.Object)
+     */
+    @Override
+    public boolean add(Double element) {
+        addDouble(element.doubleValue());
+        return true;
+    }
+
+    /*
+     * @see java.util.AbstractList#add(int, java.lang.Object)
+     */
+    @Override
+    public void add(int index, Double element) {
+        if (index < 0 || index > this.size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+        }
+        ensureCapacity(this.size + 1);
+        System.arraycopy(this.elements, index, this.elements, index + 1, this.size - index);
+        this.elements[index] = element.doubleValue();
+        this.size++;
+        this.modCount++;
+    }
+
+    /*
+     * @see java.util.AbstractCollection#addAll(java.util.Collection)
+     */
+    @Override
+    public boolean addAll(Collection<? extends Double> values) {
+        if (!(values instanceof DoubleList)) {
+            return super.addAll(values);
+        }
+        final DoubleList other = (DoubleList) values;
+        final int otherSize = other.size;
+        ensureCapacity(this.size + otherSize);
+        System.arraycopy(other.elements, 0, this.elements, this.size, otherSize);
+        this.size += otherSize;
+        this.modCount++;
+        return otherSize > 0;
+    }
+
+    /*
+     * @see java.util.AbstractList#remove(int)
+     */
+    @SuppressWarnings("boxing")
+    @Override
+    public Double remove(int index) {
+        checkIndex(index);
+        final double old = this.elements[index];
+        System.arraycopy(this.elements, index + 1, this.elements, index, this.size - index - 1);
+        this.size--;
+        this.modCount++;
+        return old;
+    }
+
+    /*
+     * @see java.util.AbstractList#removeRange(int, int)
+     */
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        System.arraycopy(this.elements, toIndex, this.elements, fromIndex, this.size - toIndex);
+        this.size -= toIndex - fromIndex;
+        this.modCount++;
+    }
+
+    /*
+     * @see java.util.AbstractList#clear()
+     */
+    @Override
+    public void clear() {
+        this.size = 0;
+        this.modCount++;
+    }
+
+    /*
+     * @see java.util.AbstractCollection#size()
+     */
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * <p>
+     * Copies a list of doubles into an array. The copy does not box if the list is a
+     * {@link DoubleList} or an unmodifiable view of one.
+     * </p>
+     *
+     * @param list
+     *            the list
+     * @return the values; null if the list is null
+     */
+    @SuppressWarnings("boxing")
+    public static double[] toDoubleArray(List<Double> list) {
+        if (list == null) {
+            return null;
+        }
+        if (list instanceof DoubleList) {
+            return ((DoubleList) list).toDoubleArray();
+        }
+        if (list instanceof UnmodifiableDoubleList) {
+            return ((UnmodifiableDoubleList) list).list.toDoubleArray();
+        }
+        final double[] result = new double[list.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = list.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * <p>
+     * Returns an unmodifiable view of a list. Other than
+     * {@link Collections#unmodifiableList(List)}, the view keeps
+     * {@link #toDoubleArray(List)} free of boxing.
+     * </p>
+     *
+     * @param list
+     *            the list (may be null)
+     * @return unmodifiable view of the list; null if the list is null
+     */
+    public static List<Double> unmodifiable(List<Double> list) {
+        if (list == null) {
+            return null;
+        }
+        if (list instanceof DoubleList) {
+            return new UnmodifiableDoubleList((DoubleList) list);
+        }
+        return Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Ensures that the array can hold a number of values.
+     *
+     * @param capacity
+     *            required number of values
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity > this.elements.length) {
+            this.elements =
+                Arrays.copyOf(this.elements, Math.max(capacity, this.elements.length * 2));
+        }
+    }
+
+    /**
+     * Checks that an index is valid.
+     *
+     * @param index
+     *            the index
+     */
+    private void checkIndex(int index) {
+        if (index < 0 || index >= this.size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+        }
+    }
+
+    /**
+     * <p>
+     * Unmodifiable view of a {@link DoubleList}.
+     * </p>
+     *
+     * @author jvdmosel
+     */
+    private static class UnmodifiableDoubleList extends AbstractList<Double>
+        implements RandomAccess
+    {
+
+        /**
+         * the viewed list
+         */
+        private final DoubleList list;
+
+        /**
+         * Constructor. Creates a new view.
+         *
+         * @param list
+         *            the viewed list
+         */
+        private UnmodifiableDoubleList(DoubleList list) {
+            this.list = list;
+        }
+
+        /*
+         * @see java.util.AbstractList#get(int)
+         */
+        @SuppressWarnings("boxing")
+        @Override
+        public Double get(int index) {
+            return this.list.getDouble(index);
+        }
+
+        /*
+         * @see java.util.AbstractCollection#size()
+         */
+        @Override
+        public int size() {
+            return this.list.size();
+        }
+    }
+}
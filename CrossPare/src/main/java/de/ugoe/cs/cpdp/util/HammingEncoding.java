@@ -0,0 +1,326 @@
+// Copyright 2015 Georg-August-Universität Göttingen, Germany
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package de.ugoe.cs.cpdp.util;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import weka.core.Instance;
+import weka.core.Instances;
+
+/**
+ * <p>
+ * Bit-packed encoding of data for the fast computation of the Hamming distance as defined by
+ * {@link WekaUtils#hammingDistance(Instance, Instance)}, i.e., the number of attributes with
+ * different values, the class attribute excluded.
+ * </p>
+ * <p>
+ * The values of each attribute are replaced by codes such that equal values have equal codes. The
+ * codes of an instance are packed into fields of equal width in an array of longs. The distance
+ * between two encoded instances is the number of non-zero fields of the XOR of both arrays, which
+ * is determined for all fields of a long at once with {@link Long#bitCount(long)}.
+ * </p>
+ * <p>
+ * Missing values are never equal to any value, including other missing values. Therefore, each
+ * missing value of the encoded data gets its own code. Instances that are encoded with
+ * {@link #encode(Instance)} use the code 0 for missing values and values that do not occur in the
+ * encoded data. The code 0 is not used by the encoded data. The distances are, therefore, exactly
+ * the same as the distances computed with {@link WekaUtils#hammingDistance(Instance, Instance)}.
+ * </p>
+ * <p>
+ * The encoding is not modified after it has been created, i.e., it can be queried concurrently by
+ * multiple threads.
+ * </p>
+ *
+ * @author jvdmosel
+ */
+public class HammingEncoding implements Serializable {
+
+    /**
+     * Default serial ID.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * index of the class attribute
+     */
+    private final int classIndex;
+
+    /**
+     * codes of the values of each attribute; null for the class attribute
+     */
+    private final List<Map<Double, Integer>> codes;
+
+    /**
+     * width of the fields in bits
+     */
+    private final int width;
+
+    /**
+     * number of fields in a long
+     */
+    private final int fieldsPerWord;
+
+    /**
+     * number of longs of an encoded instance
+     */
+    private final int numWords;
+
+    /**
+     * mask of the highest bit of each field
+     */
+    private final long highBits;
+
+    /**
+     * mask of the remaining bits of each field
+     */
+    private final long lowBits;
+
+    /**
+     * encoded instances
+     */
+    private final long[][] rows;
+
+    /**
+     * <p>
+     * Encodes data.
+     * </p>
+     *
+     * @param data
+     *            the data
+     */
+    public HammingEncoding(Instances data) {
+        this.classIndex = data.classIndex();
+        final int numAttributes = data.numAttributes();
+        this.codes = new ArrayList<>(numAttributes);
+        final int[][] rawCodes = new int[data.numInstances()][numAttributes];
+        int maxCode = 0;
+        for (int j = 0; j < numAttributes; j++) {
+            if (j == this.classIndex) {
+                this.codes.add(null);
+                continue;
+            }
+            final Map<Double, Integer> attributeCodes = new HashMap<>();
+            int nextCode = 1;
+            for (int i = 0; i < data.numInstances(); i++) {
+                final double value = data.instance(i).value(j);
+                if (Double.isNaN(value)) {
+                    rawCodes[i][j] = nextCode++;
+                }
+                else {
+                    final Integer code = attributeCodes.get(key(value));
+                    if (code == null) {
+                        attributeCodes.put(key(value), nextCode);
+                        rawCodes[i][j] = nextCode++;
+                    }
+                    else {
+                        rawCodes[i][j] = code;
+                    }
+                }
+            }
+            this.codes.add(attributeCodes);
+            maxCode = Math.max(maxCode, nextCode - 1);
+        }
+        this.width = Math.max(1, Integer.SIZE - Integer.numberOfLeadingZeros(maxCode));
+        this.fieldsPerWord = Long.SIZE / this.width;
+        final int numFields = this.classIndex >= 0 ? numAttributes - 1 : numAttributes;
+        this.numWords = Math.max(1, (numFields + this.fieldsPerWord - 1) / this.fieldsPerWord);
+        long high = 0L;
+        long all = 0L;
+        for (int f = 0; f < this.fieldsPerWord; f++) {
+            high |= 1L << (f * this.width + this.width - 1);
+            all |= ((1L << this.width) - 1) << (f * this.width);
+        }
+        this.highBits = high;
+        this.lowBits = all & ~high;
+        this.rows = new long[data.numInstances()][];
+        for (int i = 0; i < data.numInstances(); i++) {
+            this.rows[i] = pack(rawCodes[i]);
+        }
+    }
+
+    /**
+     * <p>
+     * Number of encoded instances.
+     * </p>
+     *
+     * @return number of instances
+     */
+    public int size() {
+        return this.rows.length;
+    }
+
+    /**
+     * <p>
+     * Encodes an instance with the codes of the encoded data. The instance must have the same
+     * attributes as the encoded data.
+     * </p>
+     *
+     * @param instance
+     *            the instance
+     * @return the encoded instance
+     */
+    public long[] encode(Instance instance) {
+        final int[] rawCodes = new int[this.codes.size()];
+        for (int j = 0; j < this.codes.size(); j++) {
+            if (j != this.classIndex) {
+                final double value = instance.value(j);
+                if (!Double.isNaN(value)) {
+                    rawCodes[j] = this.codes.get(j).getOrDefault(key(value), 0);
+                }
+            }
+        }
+        return pack(rawCodes);
+    }
+
+    /**
+     * <p>
+     * Hamming distance between an encoded instance and an instance of the encoded data.
+     * </p>
+     *
+     * @param instance
+     *            the encoded instance
+     * @param row
+     *            index of the instance in the encoded data
+     * @return the distance
+     */
+    public int distance(long[] instance, int row) {
+        return distance(instance, this.rows[row]);
+    }
+
+    /**
+     * <p>
+     * Determines all instances of the encoded data that have the minimal Hamming distance to an
+     * encoded instance in a single pass over the data.
+     * </p>
+     *
+     * @param instance
+     *            the encoded instance
+     * @return indices of the closest instances in ascending order
+     */
+    public int[] closest(long[] instance) {
+        return closest(instance, -1);
+    }
+
+    /**
+     * <p>
+     * Determines all instances of the encoded data that have the minimal Hamming distance to an
+     * instance of the encoded data. The instance itself is ignored.
+     * </p>
+     *
+     * @param row
+     *            index of the instance in the encoded data
+     * @return indices of the closest instances in ascending order
+     */
+    public int[] closest(int row) {
+        return closest(this.rows[row], row);
+    }
+
+    /**
+     * <p>
+     * Determines all instances of the encoded data that have the minimal Hamming distance.
+     * </p>
+     *
+     * @param instance
+     *            the encoded instance
+     * @param ignoredRow
+     *            index of an instance that is ignored; -1 if all instances are used
+     * @return indices of the closest instances in ascending order
+     */
+    private int[] closest(long[] instance, int ignoredRow) {
+        final int[] closest = new int[this.rows.length];
+        int numClosest = 0;
+        int minDistance = Integer.MAX_VALUE;
+        for (int i = 0; i < this.rows.length; i++) {
+            if (i == ignoredRow) {
+                continue;
+            }
+            final int distance = distance(instance, this.rows[i]);
+            if (distance < minDistance) {
+                minDistance = distance;
+                numClosest = 0;
+            }
+            if (distance == minDistance) {
+                closest[numClosest++] = i;
+            }
+        }
+        return Arrays.copyOf(closest, numClosest);
+    }
+
+    /**
+     * <p>
+     * Number of different fields of two encoded instances. A field of the XOR of the instances is
+     * non-zero, if its highest bit is set or if adding the low bits of the field to the non-zero
+     * low bits results in a carry into the highest bit.
+     * </p>
+     *
+     * @param instance1
+     *            first encoded instance
+     * @param instance2
+     *            second encoded instance
+     * @return the distance
+     */
+    private int distance(long[] instance1, long[] instance2) {
+        int distance = 0;
+        for (int w = 0; w < this.numWords; w++) {
+            final long diff = instance1[w] ^ instance2[w];
+            if (diff != 0L) {
+                distance +=
+                    Long.bitCount((((diff & this.lowBits) + this.lowBits) | diff) & this.highBits);
+            }
+        }
+        return distance;
+    }
+
+    /**
+     * <p>
+     * Packs the codes of an instance into fields.
+     * </p>
+     *
+     * @param rawCodes
+     *            codes of the attributes; the code of the class attribute is ignored
+     * @return the packed codes
+     */
+    private long[] pack(int[] rawCodes) {
+        final long[] packed = new long[this.numWords];
+        int field = 0;
+        for (int j = 0; j < rawCodes.length; j++) {
+            if (j != this.classIndex) {
+                packed[field / this.fieldsPerWord] |=
+                    ((long) rawCodes[j]) << ((field % this.fieldsPerWord) * this.width);
+                field++;
+            }
+        }
+        return packed;
+    }
+
+    /**
+     * <p>
+     * Key of a value in the codes. 0.0 and -0.0 are equal values and, therefore, have the same key.
+     * </p>
+     *
+     * @param value
+     *            the value
+     * @return the key
+     */
+    @SuppressWarnings("boxing")
+    private static Double key(double value) {
+        return value == 0.0 ? 0.0 : value;
+    }
+}
@@ -0,0 +1,440 @@
+// Copyright 2015 Georg-August-Universität Göttingen, Germany
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package de.ugoe.cs.cpdp.util;
+
+import java.util.Arrays;
+
+import org.apache.commons.math3.util.MathArrays;
+
+/**
+ * <p>
+ * KD-tree for exact nearest neighbor and radius queries with the Euclidean distance. The tree is
+ * built over a range of rows of a matrix and refers to the rows by their index in the matrix.
+ * Distances between points are always computed with {@link MathArrays#distance(double[], double[])}
+ * such that the results are identical to a linear scan over the rows. The bounding boxes of the
+ * tree are only used to skip rows that cannot be part of the result. All rows and queries must
+ * have the same number of dimensions.
+ * </p>
+ * <p>
+ * The tree is not modified by queries, i.e., it can be queried concurrently by multiple threads.
+ * The matrix must not be modified while the tree is used.
+ * </p>
+ *
+ * @author jvdmosel
+ */
+public class KDTree {
+
+    /**
+     * maximal number of rows in a leaf
+     */
+    private static final int LEAF_SIZE = 16;
+
+    /**
+     * relative tolerance for the comparison of the lower bounds of the bounding boxes with
+     * distances; ensures that rounding errors never lead to skipping a row
+     */
+    private static final double TOLERANCE = 1.0e-10;
+
+    /**
+     * rows of the matrix
+     */
+    private final double[][] points;
+
+    /**
+     * indices of the rows, ordered such that the rows of each node are stored consecutively
+     */
+    private final int[] rows;
+
+    /**
+     * root of the tree; null if the tree is empty
+     */
+    private final Node root;
+
+    /**
+     * <p>
+     * Creates a new tree over all rows of a matrix.
+     * </p>
+     *
+     * @param points
+     *            the matrix
+     */
+    public KDTree(double[][] points) {
+        this(points, 0, points.length);
+    }
+
+    /**
+     * <p>
+     * Creates a new tree over the rows from (inclusive) to (exclusive) of a matrix.
+     * </p>
+     *
+     * @param points
+     *            the matrix
+     * @param from
+     *            index of the first row
+     * @param to
+     *            index after the last row
+     */
+    public KDTree(double[][] points, int from, int to) {
+        this.points = points;
+        this.rows = new int[Math.max(0, to - from)];
+        for (int i = 0; i < this.rows.length; i++) {
+            this.rows[i] = from + i;
+        }
+        this.root = this.rows.length == 0 ? null : build(0, this.rows.length);
+    }
+
+    /**
+     * <p>
+     * Number of rows in the tree.
+     * </p>
+     *
+     * @return number of rows
+     */
+    public int size() {
+        return this.rows.length;
+    }
+
+    /**
+     * <p>
+     * Determines the row that is closest to the query. If multiple rows have the minimal
+     * distance, the row with the smallest index is returned. This is the same row a linear scan
+     * over the rows returns that only replaces the current row if the distance is strictly
+     * smaller.
+     * </p>
+     *
+     * @param query
+     *            the query point; must have the same number of dimensions as the rows
+     * @return index of the closest row; -1 if the tree is empty or all distances are
+     *         {@link Double#MAX_VALUE} or larger
+     */
+    public int nearest(double[] query) {
+        final double[] bestDistance = new double[]
+            { Double.MAX_VALUE };
+        final int[] bestRow = new int[]
+            { -1 };
+        if (this.root != null) {
+            nearest(this.root, query, bestDistance, bestRow);
+        }
+        return bestRow[0];
+    }
+
+    /**
+     * <p>
+     * Determines all rows whose distance to the query is strictly smaller than a radius.
+     * </p>
+     *
+     * @param query
+     *            the query point; must have the same number of dimensions as the rows
+     * @param radius
+     *            the radius
+     * @return indices of the rows in ascending order
+     */
+    public int[] withinDistance(double[] query, double radius) {
+        final int[] result = new int[this.rows.length];
+        int size = 0;
+        if (this.root != null) {
+            size = withinDistance(this.root, query, radius, result, 0);
+        }
+        final int[] sorted = Arrays.copyOf(result, size);
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    /**
+     * <p>
+     * Recursive search for the closest row.
+     * </p>
+     *
+     * @param node
+     *            current node
+     * @param query
+     *            the query point
+     * @param bestDistance
+     *            distance of the closest row found so far
+     * @param bestRow
+     *            closest row found so far
+     */
+    private void nearest(Node node, double[] query, double[] bestDistance, int[] bestRow) {
+        if (exceeds(node.lowerBound(query), bestDistance[0])) {
+            return;
+        }
+        if (node.left == null) {
+            for (int i = node.start; i < node.end; i++) {
+                final int row = this.rows[i];
+                final double distance = MathArrays.distance(query, this.points[row]);
+                if (distance < bestDistance[0] ||
+                    (distance == bestDistance[0] && bestRow[0] != -1 && row < bestRow[0]))
+                {
+                    bestDistance[0] = distance;
+                    bestRow[0] = row;
+                }
+            }
+            return;
+        }
+        if (query[node.dimension] <= node.split) {
+            nearest(node.left, query, bestDistance, bestRow);
+            nearest(node.right, query, bestDistance, bestRow);
+        }
+        else {
+            nearest(node.right, query, bestDistance, bestRow);
+            nearest(node.left, query, bestDistance, bestRow);
+        }
+    }
+
+    /**
+     * <p>
+     * Recursive search for all rows within a radius.
+     * </p>
+     *
+     * @param node
+     *            current node
+     * @param query
+     *            the query point
+     * @param radius
+     *            the radius
+     * @param result
+     *            array for the result
+     * @param size
+     *            number of rows already in the result
+     * @return number of rows in the result after the search in the node
+     */
+    private int withinDistance(Node node, double[] query, double radius, int[] result, int size) {
+        if (exceeds(node.lowerBound(query), radius)) {
+            return size;
+        }
+        int newSize = size;
+        if (node.left == null) {
+            for (int i = node.start; i < node.end; i++) {
+                final int row = this.rows[i];
+                if (MathArrays.distance(query, this.points[row]) < radius) {
+                    result[newSize++] = row;
+                }
+            }
+            return newSize;
+        }
+        newSize = withinDistance(node.left, query, radius, result, newSize);
+        return withinDistance(node.right, query, radius, result, newSize);
+    }
+
+    /**
+     * <p>
+     * Checks if a lower bound for distances is clearly larger than a distance, taking rounding
+     * errors into account.
+     * </p>
+     *
+     * @param lowerBound
+     *            the lower bound
+     * @param distance
+     *            the distance
+     * @return true if all rows whose distance has the lower bound are farther away
+     */
+    private static boolean exceeds(double lowerBound, double distance) {
+        return lowerBound > distance + TOLERANCE * Math.abs(distance);
+    }
+
+    /**
+     * <p>
+     * Builds the node for the rows from start (inclusive) to end (exclusive) of {@link #rows}.
+     * The rows are split at the median of the dimension with the largest spread.
+     * </p>
+     *
+     * @param start
+     *            first position in {@link #rows}
+     * @param end
+     *            position after the last row in {@link #rows}
+     * @return the node
+     */
+    private Node build(int start, int end) {
+        final int numDimensions = this.points[this.rows[start]].length;
+        final Node node = new Node(start, end, numDimensions);
+        for (int i = start; i < end; i++) {
+            final double[] point = this.points[this.rows[i]];
+            for (int d = 0; d < numDimensions; d++) {
+                node.min[d] = Math.min(node.min[d], point[d]);
+                node.max[d] = Math.max(node.max[d], point[d]);
+            }
+        }
+        if (end - start <= LEAF_SIZE) {
+            return node;
+        }
+        int dimension = -1;
+        double largestSpread = 0.0;
+        for (int d = 0; d < numDimensions; d++) {
+            final double spread = node.max[d] - node.min[d];
+            if (spread > largestSpread) {
+                largestSpread = spread;
+                dimension = d;
+            }
+        }
+        if (dimension == -1) {
+            // all rows are equal
+            return node;
+        }
+        final int middle = (start + end) >>> 1;
+        select(start, end - 1, middle, dimension);
+        node.dimension = dimension;
+        node.split = this.points[this.rows[middle]][dimension];
+        node.left = build(start, middle);
+        node.right = build(middle, end);
+        return node;
+    }
+
+    /**
+     * <p>
+     * Reorders the rows from left to right (both inclusive) such that the row at position k is
+     * the row that would be there if the rows were sorted by the dimension, all rows before are
+     * smaller or equal, and all rows after are greater or equal.
+     * </p>
+     *
+     * @param left
+     *            first position
+     * @param right
+     *            last position
+     * @param k
+     *            position that is selected
+     * @param dimension
+     *            dimension used for the comparison
+     */
+    private void select(int left, int right, int k, int dimension) {
+        int lo = left;
+        int hi = right;
+        while (lo < hi) {
+            final double pivot = this.points[this.rows[(lo + hi) >>> 1]][dimension];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (Double.compare(this.points[this.rows[i]][dimension], pivot) < 0) {
+                    i++;
+                }
+                while (Double.compare(this.points[this.rows[j]][dimension], pivot) > 0) {
+                    j--;
+                }
+                if (i <= j) {
+                    final int tmp = this.rows[i];
+                    this.rows[i] = this.rows[j];
+                    this.rows[j] = tmp;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            }
+            else if (k >= i) {
+                lo = i;
+            }
+            else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * Node of the tree. Leafs do not have children.
+     * </p>
+     *
+     * @author jvdmosel
+     */
+    private static class Node {
+
+        /**
+         * first position of the rows of the node in {@link KDTree#rows}
+         */
+        private final int start;
+
+        /**
+         * position after the last row of the node in {@link KDTree#rows}
+         */
+        private final int end;
+
+        /**
+         * lower corner of the bounding box
+         */
+        private final double[] min;
+
+        /**
+         * upper corner of the bounding box
+         */
+        private final double[] max;
+
+        /**
+         * dimension used to split the rows
+         */
+        private int dimension;
+
+        /**
+         * value used to split the rows
+         */
+        private double split;
+
+        /**
+         * rows with a value smaller or equal than the split
+         */
+        private Node left = null;
+
+        /**
+         * rows with a value greater or equal than the split
+         */
+        private Node right = null;
+
+        /**
+         * <p>
+         * Creates a new node with an empty bounding box.
+         * </p>
+         *
+         * @param start
+         *            first position of the rows
+         * @param end
+         *            position after the last row
+         * @param numDimensions
+         *            number of dimensions
+         */
+        @SuppressWarnings("hiding")
+        private Node(int start, int end, int numDimensions) {
+            this.start = start;
+            this.end = end;
+            this.min = new double[numDimensions];
+            this.max = new double[numDimensions];
+            Arrays.fill(this.min, Double.POSITIVE_INFINITY);
+            Arrays.fill(this.max, Double.NEGATIVE_INFINITY);
+        }
+
+        /**
+         * <p>
+         * Lower bound for the distance of the query to all rows of the node, i.e., the distance
+         * to the bounding box.
+         * </p>
+         *
+         * @param query
+         *            the query point
+         * @return the lower bound
+         */
+        private double lowerBound(double[] query) {
+            double sum = 0.0;
+            for (int d = 0; d < query.length; d++) {
+                double diff = 0.0;
+                if (query[d] < this.min[d]) {
+                    diff = this.min[d] - query[d];
+                }
+                else if (query[d] > this.max[d]) {
+                    diff = query[d] - this.max[d];
+                }
+                sum += diff * diff;
+            }
+            return Math.sqrt(sum);
+        }
+    }
+}
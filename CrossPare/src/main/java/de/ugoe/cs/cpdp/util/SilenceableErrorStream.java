@@ -0,0 +1,162 @@
+// Copyright 2015 Georg-August-Universität Göttingen, Germany
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package de.ugoe.cs.cpdp.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.Callable;
+
+/**
+ * <p>
+ * Error stream that discards the output of silenced threads and passes the output of all other
+ * threads to the original {@link System#err}. Thus, code that writes unwanted messages to the
+ * error stream, e.g., Weka classifiers, can be silenced without discarding the output of other
+ * threads. The stream is installed as {@link System#err} while at least one thread executes a
+ * silenced task and the original error stream is restored afterwards, unless the error stream
+ * was replaced by someone else in the meantime.
+ * </p>
+ *
+ * @author jvdmosel
+ */
+public class SilenceableErrorStream extends OutputStream {
+
+    /**
+     * true for threads whose output is discarded
+     */
+    private static final ThreadLocal<Boolean> SILENCED = ThreadLocal.withInitial(() -> false);
+
+    /**
+     * number of silenced tasks that are currently executed
+     */
+    private static int activeTasks = 0;
+
+    /**
+     * the installed error stream; null if not installed
+     */
+    private static PrintStream installed = null;
+
+    /**
+     * the error stream that was replaced by the installed error stream; null if not installed
+     */
+    private static PrintStream replaced = null;
+
+    /**
+     * the original error stream
+     */
+    private final PrintStream original;
+
+    /**
+     * Constructor. Creates a new SilenceableErrorStream.
+     *
+     * @param original
+     *            the original error stream
+     */
+    private SilenceableErrorStream(PrintStream original) {
+        this.original = original;
+    }
+
+    /**
+     * <p>
+     * Executes a task while the output of the current thread to {@link System#err} is discarded.
+     * </p>
+     *
+     * @param task
+     *            the task
+     * @return result of the task
+     * @throws Exception
+     *             thrown by the task
+     */
+    @SuppressWarnings("boxing")
+    public static <T> T silenced(Callable<T> task) throws Exception {
+        install();
+        final boolean silenced = SILENCED.get();
+        SILENCED.set(true);
+        try {
+            return task.call();
+        }
+        finally {
+            SILENCED.set(silenced);
+            uninstall();
+        }
+    }
+
+    /**
+     * <p>
+     * Installs the stream as {@link System#err} when the first silenced task starts.
+     * </p>
+     */
+    private static synchronized void install() {
+        if (activeTasks++ == 0) {
+            replaced = System.err;
+            installed = new PrintStream(new SilenceableErrorStream(replaced), true);
+            System.setErr(installed);
+        }
+    }
+
+    /**
+     * <p>
+     * Restores the replaced error stream when the last silenced task is finished.
+     * </p>
+     */
+    private static synchronized void uninstall() {
+        if (--activeTasks == 0) {
+            if (System.err == installed) {
+                System.setErr(replaced);
+            }
+            installed = null;
+            replaced = null;
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.io.OutputStream#write(int)
+     */
+    @SuppressWarnings("boxing")
+    @Override
+    public void write(int b) throws IOException {
+        if (!SILENCED.get()) {
+            this.original.write(b);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.io.OutputStream#write(byte[], int, int)
+     */
+    @SuppressWarnings("boxing")
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (!SILENCED.get()) {
+            this.original.write(b, off, len);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.io.OutputStream#flush()
+     */
+    @SuppressWarnings("boxing")
+    @Override
+    public void flush() throws IOException {
+        if (!SILENCED.get()) {
+            this.original.flush();
+        }
+    }
+}
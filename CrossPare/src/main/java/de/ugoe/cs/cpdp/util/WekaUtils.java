@@ -115,6 +115,10 @@ public class WekaUtils {
      * Adoption of the Hamming difference to numerical values, i.e., basically a count of different
      * metric values.
      * </p>
+     * <p>
+     * Use a {@link HammingEncoding} if the distances of many instances to the same data are
+     * required.
+     * </p>
      *
      * @param inst1
      *            first instance to be compared
@@ -0,0 +1,215 @@
+// Copyright 2015 Georg-August-Universität Göttingen, Germany
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package de.ugoe.cs.cpdp.versions;
+
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+
+/**
+ * <p>
+ * Column-oriented copy of {@link Instances}. The values of each attribute, including the class
+ * attribute, are stored in a primitive array. The weights of the instances are stored in a
+ * separate array. Nominal values are stored as the index of the value and missing values as
+ * {@link Double#NaN}, like in Weka.
+ * </p>
+ * <p>
+ * The columnar data is read-only. The arrays returned by {@link #column(int)},
+ * {@link #classColumn()}, and {@link #weights()} are not copied and must not be modified. The
+ * columnar data of a version is available with
+ * {@link SoftwareVersion#getColumnarInstancesReadOnly()}.
+ * </p>
+ *
+ * @author jvdmosel
+ */
+public class ColumnarInstances {
+
+    /**
+     * attributes and class index of the data, without instances
+     */
+    private final Instances header;
+
+    /**
+     * values of each attribute
+     */
+    private final double[][] columns;
+
+    /**
+     * weights of the instances
+     */
+    private final double[] weights;
+
+    /**
+     * number of instances
+     */
+    private final int numInstances;
+
+    /**
+     * Constructor. Creates the columnar copy of data.
+     *
+     * @param data
+     *            the data
+     */
+    public ColumnarInstances(Instances data) {
+        this.header = new Instances(data, 0);
+        this.numInstances = data.numInstances();
+        this.columns = new double[data.numAttributes()][this.numInstances];
+        this.weights = new double[this.numInstances];
+        for (int i = 0; i < this.numInstances; i++) {
+            final Instance instance = data.instance(i);
+            // only non-zero values are stored for sparse instances
+            for (int k = 0; k < instance.numValues(); k++) {
+                this.columns[instance.index(k)][i] = instance.valueSparse(k);
+            }
+            this.weights[i] = instance.weight();
+        }
+    }
+
+    /**
+     * returns the attributes and class index of the data; the header must not be modified
+     *
+     * @return header without instances
+     */
+    public Instances header() {
+        return this.header;
+    }
+
+    /**
+     * returns the number of instances
+     *
+     * @return number of instances
+     */
+    public int numInstances() {
+        return this.numInstances;
+    }
+
+    /**
+     * returns the number of attributes, including the class attribute
+     *
+     * @return number of attributes
+     */
+    public int numAttributes() {
+        return this.columns.length;
+    }
+
+    /**
+     * returns an attribute
+     *
+     * @param j
+     *            index of the attribute
+     * @return the attribute
+     */
+    public Attribute attribute(int j) {
+        return this.header.attribute(j);
+    }
+
+    /**
+     * returns the index of the class attribute
+     *
+     * @return index of the class attribute; -1 if the class is not set
+     */
+    public int classIndex() {
+        return this.header.classIndex();
+    }
+
+    /**
+     * returns the values of an attribute; the array must not be modified
+     *
+     * @param j
+     *            index of the attribute
+     * @return values of the attribute
+     */
+    public double[] column(int j) {
+        return this.columns[j];
+    }
+
+    /**
+     * returns the class values; the array must not be modified
+     *
+     * @return the class values; null if the class is not set
+     */
+    public double[] classColumn() {
+        return classIndex() < 0 ? null : this.columns[classIndex()];
+    }
+
+    /**
+     * returns the weights of the instances; the array must not be modified
+     *
+     * @return the weights
+     */
+    public double[] weights() {
+        return this.weights;
+    }
+
+    /**
+     * returns a value
+     *
+     * @param i
+     *            index of the instance
+     * @param j
+     *            index of the attribute
+     * @return the value
+     */
+    public double value(int i, int j) {
+        return this.columns[j][i];
+    }
+
+    /**
+     * <p>
+     * Creates a row-oriented matrix of the values without one of the attributes, e.g., to compute
+     * distances between instances without the class attribute. The matrix is a copy and may be
+     * modified.
+     * </p>
+     *
+     * @param excludedAttribute
+     *            index of the attribute that is not part of the matrix; -1 to keep all attributes
+     * @return matrix with one row per instance
+     */
+    public double[][] toRows(int excludedAttribute) {
+        final int numColumns =
+            (excludedAttribute >= 0 && excludedAttribute < this.columns.length)
+                ? this.columns.length - 1 : this.columns.length;
+        final double[][] rows = new double[this.numInstances][numColumns];
+        int k = 0;
+        for (int j = 0; j < this.columns.length; j++) {
+            if (j != excludedAttribute) {
+                final double[] column = this.columns[j];
+                for (int i = 0; i < this.numInstances; i++) {
+                    rows[i][k] = column[i];
+                }
+                k++;
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Converts the columnar data back to {@link Instances}. The instances are dense.
+     *
+     * @return the data
+     */
+    public Instances toInstances() {
+        final Instances data = new Instances(this.header, this.numInstances);
+        for (int i = 0; i < this.numInstances; i++) {
+            final double[] values = new double[this.columns.length];
+            for (int j = 0; j < this.columns.length; j++) {
+                values[j] = this.columns[j][i];
+            }
+            data.add(new DenseInstance(this.weights[i], values));
+        }
+        return data;
+    }
+}
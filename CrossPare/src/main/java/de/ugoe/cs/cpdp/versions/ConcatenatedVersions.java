@@ -0,0 +1,427 @@
+// Copyright 2015 Georg-August-Universität Göttingen, Germany
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package de.ugoe.cs.cpdp.versions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.ugoe.cs.cpdp.util.DoubleList;
+import weka.core.Instance;
+import weka.core.Instances;
+
+/**
+ * <p>
+ * Read-only view of the concatenation of the data of multiple {@link SoftwareVersion}s. The view
+ * does not copy the data of the versions. Instead, it stores the offsets of the rows of each
+ * version and the mapping of the columns of the bug matrix of each version to the columns of the
+ * merged bug matrix. Hence, it is created in O(#versions), except for the names of the bug matrix
+ * columns. The bug matrices are accessed through their cached {@link SparseBugMatrix} form, such
+ * that merging them only touches their non-zero values.
+ * </p>
+ * <p>
+ * The concatenated data is only copied by the methods that create {@link Instances} or lists,
+ * e.g., {@link #getInstances(BitSet)}. These methods may be restricted to selected rows, such that
+ * only the selected rows are copied. {@link #toSoftwareVersion(String, String, String)} creates a
+ * version whose data is copied on first access.
+ * </p>
+ * <p>
+ * The versions must not be modified while the view is used.
+ * </p>
+ *
+ * @author jvdmosel
+ */
+public class ConcatenatedVersions {
+
+    /**
+     * data of the versions
+     */
+    private final Instances[] instances;
+
+    /**
+     * bug matrices of the versions; null if any of the versions has no bug matrix
+     */
+    private final SparseBugMatrix[] bugMatrices;
+
+    /**
+     * review efforts of the versions; null if there are no versions or any of the versions has
+     * no efforts
+     */
+    private final List<List<Double>> efforts;
+
+    /**
+     * bug counts of the versions; null if there are no versions or any of the versions has no
+     * bug counts
+     */
+    private final List<List<Double>> numBugs;
+
+    /**
+     * index of the first row of each version; the last entry is the number of rows
+     */
+    private final int[] offsets;
+
+    /**
+     * bug IDs of the columns of the merged bug matrix; null if any of the versions has no bug
+     * matrix
+     */
+    private final String[] bugIds;
+
+    /**
+     * column of the merged bug matrix for each column of the bug matrix of each version
+     */
+    private final int[][] bugMatrixColumns;
+
+    /**
+     * Constructor. Creates a new view on the concatenation of versions.
+     *
+     * @param versions
+     *            the versions in the order of concatenation
+     */
+    public ConcatenatedVersions(List<SoftwareVersion> versions) {
+        final int numVersions = versions.size();
+        this.instances = new Instances[numVersions];
+        final SparseBugMatrix[] tmpBugMatrices = new SparseBugMatrix[numVersions];
+        final List<List<Double>> tmpEfforts = new ArrayList<>(numVersions);
+        final List<List<Double>> tmpNumBugs = new ArrayList<>(numVersions);
+        boolean hasBugMatrices = true;
+        boolean hasEfforts = numVersions > 0;
+        boolean hasNumBugs = numVersions > 0;
+        this.offsets = new int[numVersions + 1];
+        int v = 0;
+        for (SoftwareVersion version : versions) {
+            this.instances[v] = version.getInstancesReadOnly();
+            tmpBugMatrices[v] = version.getSparseBugMatrixReadOnly();
+            tmpEfforts.add(version.getEffortsReadOnly());
+            tmpNumBugs.add(version.getNumBugsReadOnly());
+            hasBugMatrices &= tmpBugMatrices[v] != null;
+            hasEfforts &= tmpEfforts.get(v) != null;
+            hasNumBugs &= tmpNumBugs.get(v) != null;
+            this.offsets[v + 1] = this.offsets[v] + this.instances[v].numInstances();
+            v++;
+        }
+        this.efforts = hasEfforts ? tmpEfforts : null;
+        this.numBugs = hasNumBugs ? tmpNumBugs : null;
+
+        if (!hasBugMatrices) {
+            this.bugMatrices = null;
+            this.bugIds = null;
+            this.bugMatrixColumns = null;
+        }
+        else {
+            // columns with the same name are merged
+            this.bugMatrices = tmpBugMatrices;
+            this.bugMatrixColumns = new int[numVersions][];
+            final List<String> mergedIds = new ArrayList<>();
+            final Map<String, Integer> nameToIndex = new HashMap<>();
+            for (v = 0; v < numVersions; v++) {
+                this.bugMatrixColumns[v] =
+                    SparseBugMatrix.mergeColumns(this.bugMatrices[v], mergedIds, nameToIndex);
+            }
+            this.bugIds = mergedIds.toArray(new String[mergedIds.size()]);
+        }
+    }
+
+    /**
+     * returns the number of versions
+     *
+     * @return number of versions
+     */
+    public int numVersions() {
+        return this.instances.length;
+    }
+
+    /**
+     * returns the number of rows of all versions
+     *
+     * @return number of rows
+     */
+    public int numInstances() {
+        return this.offsets[this.instances.length];
+    }
+
+    /**
+     * returns the index of the version that contains a row
+     *
+     * @param row
+     *            index of the row
+     * @return index of the version
+     */
+    public int versionIndex(int row) {
+        if (row < 0 || row >= numInstances()) {
+            throw new IndexOutOfBoundsException("row " + row + " out of bounds for " +
+                numInstances() + " rows");
+        }
+        int index = Arrays.binarySearch(this.offsets, row);
+        if (index < 0) {
+            return -index - 2;
+        }
+        // skip empty versions
+        while (this.offsets[index + 1] == row) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * returns a row of the concatenated data; the row is not copied and must not be modified
+     *
+     * @param row
+     *            index of the row
+     * @return the row
+     */
+    public Instance instance(int row) {
+        final int v = versionIndex(row);
+        return this.instances[v].instance(row - this.offsets[v]);
+    }
+
+    /**
+     * returns the review effort of a row
+     *
+     * @param row
+     *            index of the row
+     * @return the review effort
+     */
+    @SuppressWarnings("boxing")
+    public double effort(int row) {
+        final int v = versionIndex(row);
+        return this.efforts.get(v).get(row - this.offsets[v]);
+    }
+
+    /**
+     * returns the number of bugs of a row
+     *
+     * @param row
+     *            index of the row
+     * @return the number of bugs
+     */
+    @SuppressWarnings("boxing")
+    public double numBugs(int row) {
+        final int v = versionIndex(row);
+        return this.numBugs.get(v).get(row - this.offsets[v]);
+    }
+
+    /**
+     * returns a row of the merged bug matrix
+     *
+     * @param row
+     *            index of the row
+     * @return the bugs of the row in the columns of the merged bug matrix
+     */
+    public double[] bugs(int row) {
+        final int v = versionIndex(row);
+        final SparseBugMatrix bugMatrix = this.bugMatrices[v];
+        final int i = row - this.offsets[v];
+        final double[] allBugs = new double[this.bugIds.length];
+        for (int k = bugMatrix.rowStart(i); k < bugMatrix.rowEnd(i); k++) {
+            allBugs[this.bugMatrixColumns[v][bugMatrix.columnAt(k)]] = bugMatrix.valueAt(k);
+        }
+        return allBugs;
+    }
+
+    /**
+     * returns the number of bugs of a row according to the bug matrix
+     *
+     * @param row
+     *            index of the row
+     * @return sum of the row of the bug matrix
+     */
+    public double bugCount(int row) {
+        final int v = versionIndex(row);
+        return this.bugMatrices[v].bugCount(row - this.offsets[v]);
+    }
+
+    /**
+     * Copies the concatenated data. The header is the header of the first version.
+     *
+     * @param rows
+     *            rows that are copied; null for all rows
+     * @return the data; null if there are no versions
+     */
+    public Instances getInstances(BitSet rows) {
+        if (this.instances.length == 0) {
+            return null;
+        }
+        final Instances result = new Instances(this.instances[0],
+                                               rows == null ? numInstances() : rows.cardinality());
+        for (int v = 0; v < this.instances.length; v++) {
+            for (int i = nextRow(rows, v, 0); i >= 0; i = nextRow(rows, v, i + 1)) {
+                result.add(this.instances[v].instance(i));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Copies the merged bug matrix. Columns of the versions with the same name are merged.
+     *
+     * @param rows
+     *            rows that are copied; null for all rows
+     * @return the bug matrix; null if any of the versions has no bug matrix
+     */
+    public Instances getBugMatrix(BitSet rows) {
+        final SparseBugMatrix merged = getSparseBugMatrix(rows);
+        return merged == null ? null : merged.toInstances();
+    }
+
+    /**
+     * Creates the merged bug matrix in sparse form. Columns of the versions with the same name are
+     * merged. Only the non-zero values of the versions are copied.
+     *
+     * @param rows
+     *            rows that are copied; null for all rows
+     * @return the bug matrix; null if any of the versions has no bug matrix
+     */
+    public SparseBugMatrix getSparseBugMatrix(BitSet rows) {
+        if (this.bugMatrices == null) {
+            return null;
+        }
+        final int numRows = rows == null ? numInstances() : rows.cardinality();
+        int numNonZeros = 0;
+        for (int v = 0; v < this.bugMatrices.length; v++) {
+            for (int i = nextRow(rows, v, 0); i >= 0; i = nextRow(rows, v, i + 1)) {
+                numNonZeros += this.bugMatrices[v].rowEnd(i) - this.bugMatrices[v].rowStart(i);
+            }
+        }
+        final int[] rowPointers = new int[numRows + 1];
+        final int[] columns = new int[numNonZeros];
+        final double[] values = new double[numNonZeros];
+        int row = 0;
+        int pos = 0;
+        for (int v = 0; v < this.bugMatrices.length; v++) {
+            for (int i = nextRow(rows, v, 0); i >= 0; i = nextRow(rows, v, i + 1)) {
+                rowPointers[row++] = pos;
+                pos = this.bugMatrices[v].copyRow(i, this.bugMatrixColumns[v], columns, values,
+                                                  pos);
+            }
+        }
+        rowPointers[numRows] = pos;
+        return new SparseBugMatrix("singleBugMatrix", this.bugIds, rowPointers, columns, values);
+    }
+
+    /**
+     * Copies the concatenated review efforts.
+     *
+     * @param rows
+     *            rows that are copied; null for all rows
+     * @return the review efforts; null if there are no versions or any of the versions has no
+     *         efforts
+     */
+    public List<Double> getEfforts(BitSet rows) {
+        return concatenate(this.efforts, rows);
+    }
+
+    /**
+     * Copies the concatenated bug counts.
+     *
+     * @param rows
+     *            rows that are copied; null for all rows
+     * @return the bug counts; null if there are no versions or any of the versions has no bug
+     *         counts
+     */
+    public List<Double> getNumBugs(BitSet rows) {
+        return concatenate(this.numBugs, rows);
+    }
+
+    /**
+     * Concatenates lists with values for each row of the versions.
+     *
+     * @param lists
+     *            lists of the versions
+     * @param rows
+     *            rows that are copied; null for all rows
+     * @return concatenated list; null if the lists are null
+     */
+    private List<Double> concatenate(List<List<Double>> lists, BitSet rows) {
+        if (lists == null) {
+            return null;
+        }
+        final DoubleList result =
+            new DoubleList(rows == null ? numInstances() : rows.cardinality());
+        for (int v = 0; v < lists.size(); v++) {
+            if (rows == null) {
+                result.addAll(lists.get(v));
+            }
+            else {
+                for (int i = nextRow(rows, v, 0); i >= 0; i = nextRow(rows, v, i + 1)) {
+                    result.add(lists.get(v).get(i));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Determines the next selected row of a version.
+     *
+     * @param rows
+     *            selected rows of the concatenation; null for all rows
+     * @param v
+     *            index of the version
+     * @param from
+     *            first row of the version that is considered
+     * @return next selected row of the version at or after from; -1 if there is none
+     */
+    private int nextRow(BitSet rows, int v, int from) {
+        final int size = this.offsets[v + 1] - this.offsets[v];
+        if (rows == null) {
+            return from < size ? from : -1;
+        }
+        final int next = rows.nextSetBit(this.offsets[v] + from);
+        return (next >= 0 && next < this.offsets[v + 1]) ? next - this.offsets[v] : -1;
+    }
+
+    /**
+     * Creates a version with the concatenated data. The data is copied on first access.
+     *
+     * @param dataset
+     *            name of the dataset
+     * @param project
+     *            name of the project
+     * @param version
+     *            name of the version
+     * @return the version
+     */
+    public SoftwareVersion toSoftwareVersion(String dataset, String project, String version) {
+        return toSoftwareVersion(dataset, project, version, null);
+    }
+
+    /**
+     * Creates a version with selected rows of the concatenated data. The data is copied on first
+     * access.
+     *
+     * @param dataset
+     *            name of the dataset
+     * @param project
+     *            name of the project
+     * @param version
+     *            name of the version
+     * @param rows
+     *            rows of the version; null for all rows
+     * @return the version
+     */
+    public SoftwareVersion toSoftwareVersion(String dataset,
+                                             String project,
+                                             String version,
+                                             BitSet rows)
+    {
+        final BitSet selected = rows == null ? null : (BitSet) rows.clone();
+        return new SoftwareVersion(dataset, project, version, () -> getInstances(selected),
+                                   () -> getBugMatrix(selected), () -> getEfforts(selected),
+                                   () -> getNumBugs(selected));
+    }
+}
@@ -14,6 +14,7 @@
 
 package de.ugoe.cs.cpdp.versions;
 
+import java.util.BitSet;
 import java.util.List;
 
 import de.ugoe.cs.cpdp.IParameterizable;
@@ -35,4 +36,24 @@ public interface IVersionFilter extends IParameterizable {
      * @return true if filter applies to version, false otherwise
      */
     boolean apply(SoftwareVersion version, List<SoftwareVersion> allVersions);
+
+    /**
+     * Applies the filter to all versions at once. The default implementation applies the filter to
+     * each version separately. Filters that rank the versions or depend on their position should
+     * override this method to determine the result for all versions in one pass.
+     * 
+     * @param allVersions
+     *            all versions; should provide random access
+     * @return bit set in which the bit of each version to which the filter applies is set; the
+     *         index of the bit is the index of the version in the list
+     */
+    default BitSet apply(List<SoftwareVersion> allVersions) {
+        final BitSet result = new BitSet(allVersions.size());
+        for (int i = 0; i < allVersions.size(); i++) {
+            if (apply(allVersions.get(i), allVersions)) {
+                result.set(i);
+            }
+        }
+        return result;
+    }
 }
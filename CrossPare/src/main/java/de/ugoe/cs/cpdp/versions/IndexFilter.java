@@ -14,6 +14,7 @@
 
 package de.ugoe.cs.cpdp.versions;
 
+import java.util.BitSet;
 import java.util.List;
 
 /**
@@ -36,6 +37,19 @@ public class IndexFilter implements IVersionFilter {
     	return allVersions.indexOf(version)!=index;
     }
 
+    /*
+     * @see de.ugoe.cs.cpdp.versions.IVersionFilter#apply(java.util.List)
+     */
+    @Override
+    public BitSet apply(List<SoftwareVersion> allVersions) {
+        final BitSet result = new BitSet(allVersions.size());
+        result.set(0, allVersions.size());
+        if (this.index >= 0 && this.index < allVersions.size()) {
+            result.clear(this.index);
+        }
+        return result;
+    }
+
     /**
      * Sets the index that shall be kept
      * 
@@ -34,7 +34,7 @@ public class MaxInstanceNumberFilter implements IVersionFilter {
      */
     @Override
     public boolean apply(SoftwareVersion version, List<SoftwareVersion> allVersions) {
-        return version.getInstances().numInstances() > this.maxInstances;
+        return version.getInstancesReadOnly().numInstances() > this.maxInstances;
     }
 
     /**
@@ -37,7 +37,7 @@ public class MinClassNumberFilter implements IVersionFilter {
      */
     @Override
     public boolean apply(SoftwareVersion version, List<SoftwareVersion> allVersions) {
-        Instances instances = version.getInstances();
+        Instances instances = version.getInstancesReadOnly();
         int[] counts;
         if (instances.classAttribute().isNominal()) {
             counts = instances.attributeStats(instances.classIndex()).nominalCounts;
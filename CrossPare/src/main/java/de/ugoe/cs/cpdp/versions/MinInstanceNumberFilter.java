@@ -34,7 +34,7 @@ public class MinInstanceNumberFilter implements IVersionFilter {
      */
     @Override
     public boolean apply(SoftwareVersion version, List<SoftwareVersion> allVersions) {
-        return version.getInstances().numInstances() < this.minInstances;
+        return version.getInstancesReadOnly().numInstances() < this.minInstances;
     }
 
     /**
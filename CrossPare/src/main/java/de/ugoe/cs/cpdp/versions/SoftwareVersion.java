@@ -17,12 +17,38 @@ package de.ugoe.cs.cpdp.versions;
 import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 
+import de.ugoe.cs.cpdp.util.DoubleList;
 import weka.core.Instances;
 
 /**
+ * <p>
  * Data class for software versions.
+ * </p>
+ * <p>
+ * Copies created with {@link #SoftwareVersion(SoftwareVersion)} are copy-on-write: the data, bug
+ * matrix, efforts, bug counts, and committer dates are shared with the original until they are
+ * accessed through one of the modifying getters, e.g., {@link #getInstances()}. Only the accessed
+ * part of the version is copied at this point. Code that only reads the data should use the
+ * read-only getters, e.g., {@link #getInstancesReadOnly()}, which never copy.
+ * References returned by the read-only getters must not be kept while the version or one of its
+ * copies is modified.
+ * </p>
+ * <p>
+ * The data of versions created with {@link ConcatenatedVersions#toSoftwareVersion(String, String,
+ * String)} is only created once it is accessed for the first time.
+ * </p>
+ * <p>
+ * Efforts and bug counts are copied into a {@link DoubleList}. Rows should be removed or selected
+ * with {@link #retainRows(BitSet)} and {@link #selectRows(int[])}, which keep the data, bug
+ * matrix, efforts, bug counts, and committer dates aligned in a single linear pass.
+ * </p>
  * 
  * @author Steffen Herbold
  */
@@ -43,22 +69,22 @@ public class SoftwareVersion implements Comparable<SoftwareVersion> {
     /**
      * data of the version
      */
-    private final Instances instances;
+    private SharedData<Instances> instances;
     
     /**
      * bug matrix of the version
      */
-    private final Instances bugMatrix;
+    private SharedData<Instances> bugMatrix;
 
     /**
      * Review effort per instance.
      */
-    private final List<Double> efforts;
+    private SharedData<List<Double>> efforts;
 
     /**
      * Number of bugs per instance. Binary 0/1 in case of nominal loading.
      */
-    private final List<Double> numBugs;
+    private SharedData<List<Double>> numBugs;
     
     /**
      * Release date
@@ -68,7 +94,7 @@ public class SoftwareVersion implements Comparable<SoftwareVersion> {
     /**
      * Committer date
      */
-    private final List<OffsetDateTime> committerDates;
+    private SharedData<List<OffsetDateTime>> committerDates;
 
     /**
      * Constructor. Creates a new version.
@@ -107,16 +133,17 @@ public class SoftwareVersion implements Comparable<SoftwareVersion> {
         this.dataset = dataset;
         this.project = project;
         this.version = version;
-        this.instances = instances;
-        this.bugMatrix = bugMatrix;
-        this.efforts = efforts;
-        this.numBugs = numBugs;
+        this.instances = new SharedData<>(instances, this);
+        this.bugMatrix = new SharedData<>(bugMatrix, this);
+        this.efforts = new SharedData<>(efforts, this);
+        this.numBugs = new SharedData<>(numBugs, this);
         this.releaseDate = releaseDate;
-        this.committerDates = committerDates;
+        this.committerDates = new SharedData<>(committerDates, this);
     }
 
     /**
-     * Deep Copy-Constructor.
+     * Deep Copy-Constructor. The data of the version is only copied once it is modified, i.e.,
+     * the copy is cheap as long as only the read-only getters are used.
      * 
      * @param version
      *              version to copy
@@ -125,12 +152,50 @@ public class SoftwareVersion implements Comparable<SoftwareVersion> {
         this.dataset = version.dataset;
         this.project = version.project;
         this.version = version.version;
-        this.instances = new Instances(version.instances);
-        this.bugMatrix = (version.bugMatrix != null) ? new Instances(version.bugMatrix) : null;
-        this.efforts = (version.efforts != null) ? new ArrayList<>(version.efforts) : null;
-        this.numBugs = (version.numBugs != null) ? new ArrayList<>(version.numBugs) : null;
+        this.instances = version.instances.share(this, Instances::new);
+        this.bugMatrix = version.bugMatrix.share(this, Instances::new);
+        this.efforts = version.efforts.share(this, DoubleList::new);
+        this.numBugs = version.numBugs.share(this, DoubleList::new);
         this.releaseDate = version.releaseDate;
-        this.committerDates = (version.committerDates != null) ? new ArrayList<OffsetDateTime>(version.committerDates) : null;
+        this.committerDates = version.committerDates.share(this, ArrayList::new);
+    }
+
+    /**
+     * Constructor. Creates a new version whose data is created on first access.
+     * 
+     * @param dataset
+     *            name of the dataset
+     * @param project
+     *            name of the project
+     * @param version
+     *            name of the version
+     * @param instances
+     *            creates the data of the version
+     * @param bugMatrix
+     *            creates the bug matrix of the version
+     * @param efforts
+     *            creates the review efforts for the version
+     * @param numBugs
+     *            creates the number of bugs for the instances
+     */
+    @SuppressWarnings("hiding")
+    SoftwareVersion(String dataset,
+                    String project,
+                    String version,
+                    Supplier<Instances> instances,
+                    Supplier<Instances> bugMatrix,
+                    Supplier<List<Double>> efforts,
+                    Supplier<List<Double>> numBugs)
+    {
+        this.dataset = dataset;
+        this.project = project;
+        this.version = version;
+        this.instances = SharedData.lazy(instances, this);
+        this.bugMatrix = SharedData.lazy(bugMatrix, this);
+        this.efforts = SharedData.lazy(efforts, this);
+        this.numBugs = SharedData.lazy(numBugs, this);
+        this.releaseDate = null;
+        this.committerDates = new SharedData<>(null, this);
     }
 
     /**
@@ -163,46 +228,109 @@ public class SoftwareVersion implements Comparable<SoftwareVersion> {
     }
 
     /**
-     * returns the data of the version
+     * returns the data of the version; the data may be modified
      * 
      * @return data
      */
     public Instances getInstances() {
-        return this.instances;
+        this.instances = this.instances.modifiable(this, Instances::new);
+        return this.instances.data();
+    }
+
+    /**
+     * returns the data of the version; the data must not be modified
+     * 
+     * @return data
+     */
+    public Instances getInstancesReadOnly() {
+        return this.instances.data();
+    }
+
+    /**
+     * returns the data of the version in columnar form; the columnar data must not be modified.
+     * The columnar data is created once and shared with the copies of the version, as long as the
+     * data is not modified through {@link #getInstances()}.
+     * 
+     * @return columnar data; null if the version has no data
+     */
+    public ColumnarInstances getColumnarInstancesReadOnly() {
+        return this.instances.derive(ColumnarInstances::new);
     }
     
     /**
-     * returns the bug matrix of this version
+     * returns the bug matrix of this version; the bug matrix may be modified
      * 
      * @return bug matrix
      */
     public Instances getBugMatrix() {
-    	if( this.bugMatrix==null ) {
-    		return null;
-    	}
-    	return this.bugMatrix;
+        this.bugMatrix = this.bugMatrix.modifiable(this, Instances::new);
+        return this.bugMatrix.data();
+    }
+
+    /**
+     * returns the bug matrix of this version; the bug matrix must not be modified
+     * 
+     * @return bug matrix
+     */
+    public Instances getBugMatrixReadOnly() {
+        return this.bugMatrix.data();
+    }
+
+    /**
+     * returns the bug matrix of this version in sparse form; the bug matrix must not be modified.
+     * The sparse bug matrix is created once and shared with the copies of the version, as long as
+     * the bug matrix is not modified through {@link #getBugMatrix()}.
+     * 
+     * @return sparse bug matrix; null if the version has no bug matrix
+     */
+    public SparseBugMatrix getSparseBugMatrixReadOnly() {
+        return this.bugMatrix.derive(SparseBugMatrix::new);
     }
 
     /**
      * <p>
-     * returns the review effort of the version
+     * returns the review effort of the version; the list may be modified
      * </p>
      *
      * @return the review efforts
      */
     public List<Double> getEfforts() {
-        return this.efforts;
+        this.efforts = this.efforts.modifiable(this, DoubleList::new);
+        return this.efforts.data();
+    }
+
+    /**
+     * <p>
+     * returns the review effort of the version as unmodifiable list
+     * </p>
+     *
+     * @return the review efforts
+     */
+    public List<Double> getEffortsReadOnly() {
+        return DoubleList.unmodifiable(this.efforts.data());
     }
 
     /**
      * <p>
-     * returns the number of bugs for the instances
+     * returns the number of bugs for the instances; the list may be modified
      * </p>
      *
      * @return the bug counts
      */
     public List<Double> getNumBugs() {
-        return this.numBugs;
+        this.numBugs = this.numBugs.modifiable(this, DoubleList::new);
+        return this.numBugs.data();
+    }
+
+    /**
+     * <p>
+     * returns the number of bugs for the instances as unmodifiable list
+     * </p>
+     *
+     * @return the bug counts
+     */
+    public List<Double> getNumBugsReadOnly() {
+        return DoubleList.unmodifiable(this.numBugs.data());
     }
     
     public LocalDateTime getReleaseDate() {
@@ -210,7 +338,218 @@ public class SoftwareVersion implements Comparable<SoftwareVersion> {
     }
     
     public List<OffsetDateTime> getCommitterDates() {
-    	return committerDates;
+        this.committerDates = this.committerDates.modifiable(this, ArrayList::new);
+    	return this.committerDates.data();
+    }
+
+    /**
+     * <p>
+     * returns the committer dates as unmodifiable list
+     * </p>
+     *
+     * @return the committer dates
+     */
+    public List<OffsetDateTime> getCommitterDatesReadOnly() {
+        return unmodifiable(this.committerDates.data());
+    }
+
+    /**
+     * <p>
+     * Creates a new version that contains the given rows of this version, in the order of the
+     * rows. The data, bug matrix, efforts, bug counts, and committer dates are selected together.
+     * Rows may occur multiple times. This version is not modified.
+     * </p>
+     *
+     * @param rows
+     *            indices of the selected rows
+     * @return version with the selected rows
+     */
+    public SoftwareVersion selectRows(int[] rows) {
+        return new SoftwareVersion(this.dataset, this.project, this.version,
+                                   selectRows(getInstancesReadOnly(), rows),
+                                   selectRows(getBugMatrixReadOnly(), rows),
+                                   selectValues(this.efforts.data(), rows),
+                                   selectValues(this.numBugs.data(), rows), this.releaseDate,
+                                   selectElements(this.committerDates.data(), rows));
+    }
+
+    /**
+     * <p>
+     * Creates a new version that contains the rows of this version whose bits are set, in their
+     * original order. This version is not modified.
+     * </p>
+     *
+     * @param rows
+     *            the selected rows
+     * @return version with the selected rows
+     */
+    public SoftwareVersion selectRows(BitSet rows) {
+        return selectRows(rows.stream().toArray());
+    }
+
+    /**
+     * <p>
+     * Removes all rows of this version whose bits are not set. The data, bug matrix, efforts, bug
+     * counts, and committer dates are compacted together in a single pass, without creating new
+     * instances. Like the modifying getters, this copies the parts of the version that are
+     * currently shared with other versions.
+     * </p>
+     *
+     * @param rows
+     *            the rows that are kept
+     */
+    public void retainRows(BitSet rows) {
+        final Instances data = getInstances();
+        if (data != null) {
+            retainRows(data, rows);
+        }
+        final Instances bugs = getBugMatrix();
+        if (bugs != null) {
+            retainRows(bugs, rows);
+        }
+        final List<Double> effortList = getEfforts();
+        if (effortList != null) {
+            retainElements(effortList, rows);
+        }
+        final List<Double> numBugList = getNumBugs();
+        if (numBugList != null) {
+            retainElements(numBugList, rows);
+        }
+        final List<OffsetDateTime> dates = getCommitterDates();
+        if (dates != null) {
+            retainElements(dates, rows);
+        }
+    }
+
+    /**
+     * <p>
+     * Copies rows of data.
+     * </p>
+     *
+     * @param data
+     *            the data (may be null)
+     * @param rows
+     *            indices of the copied rows
+     * @return the copied rows; null if the data is null
+     */
+    private static Instances selectRows(Instances data, int[] rows) {
+        if (data == null) {
+            return null;
+        }
+        final Instances result = new Instances(data, rows.length);
+        for (int row : rows) {
+            result.add(data.instance(row));
+        }
+        return result;
+    }
+
+    /**
+     * <p>
+     * Copies rows of a list of values.
+     * </p>
+     *
+     * @param values
+     *            the values (may be null)
+     * @param rows
+     *            indices of the copied rows
+     * @return the copied rows; null if the values are null
+     */
+    @SuppressWarnings("boxing")
+    private static DoubleList selectValues(List<Double> values, int[] rows) {
+        if (values == null) {
+            return null;
+        }
+        if (values instanceof DoubleList) {
+            return ((DoubleList) values).select(rows);
+        }
+        final DoubleList result = new DoubleList(rows.length);
+        for (int row : rows) {
+            result.addDouble(values.get(row));
+        }
+        return result;
+    }
+
+    /**
+     * <p>
+     * Copies rows of a list.
+     * </p>
+     *
+     * @param list
+     *            the list (may be null)
+     * @param rows
+     *            indices of the copied rows
+     * @return the copied rows; null if the list is null
+     */
+    private static <T> List<T> selectElements(List<T> list, int[] rows) {
+        if (list == null) {
+            return null;
+        }
+        final List<T> result = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            result.add(list.get(row));
+        }
+        return result;
+    }
+
+    /**
+     * <p>
+     * Removes the rows of data whose bits are not set. The kept instances are moved to the front
+     * and the remaining instances are deleted from the end, which does not copy any instance.
+     * </p>
+     *
+     * @param data
+     *            the data
+     * @param rows
+     *            the rows that are kept
+     */
+    private static void retainRows(Instances data, BitSet rows) {
+        int kept = 0;
+        for (int i = rows.nextSetBit(0); i >= 0 && i < data.numInstances(); i =
+            rows.nextSetBit(i + 1))
+        {
+            if (i != kept) {
+                data.swap(kept, i);
+            }
+            kept++;
+        }
+        for (int i = data.numInstances() - 1; i >= kept; i--) {
+            data.delete(i);
+        }
+    }
+
+    /**
+     * <p>
+     * Removes the rows of a list whose bits are not set.
+     * </p>
+     *
+     * @param list
+     *            the list
+     * @param rows
+     *            the rows that are kept
+     */
+    private static <T> void retainElements(List<T> list, BitSet rows) {
+        if (list instanceof DoubleList) {
+            ((DoubleList) list).retain(rows);
+            return;
+        }
+        int kept = 0;
+        for (int i = rows.nextSetBit(0); i >= 0 && i < list.size(); i = rows.nextSetBit(i + 1)) {
+            list.set(kept++, list.get(i));
+        }
+        list.subList(kept, list.size()).clear();
+    }
+
+    /**
+     * <p>
+     * Wraps a list as unmodifiable list.
+     * </p>
+     *
+     * @param list
+     *            the list (may be null)
+     * @return unmodifiable view of the list; null if the list is null
+     */
+    private static <T> List<T> unmodifiable(List<T> list) {
+        return (list != null) ? Collections.unmodifiableList(list) : null;
     }
 
     /**
@@ -230,4 +569,180 @@ public class SoftwareVersion implements Comparable<SoftwareVersion> {
         }
         return projectStrCmp;
     }
+
+    /**
+     * <p>
+     * Part of a version that may be shared between a version and its copies. The version that
+     * created the data is its origin. If the origin modifies shared data, it keeps the data and
+     * the other versions continue with a copy. Hence, references to the data that were passed to
+     * the constructor of the origin remain valid.
+     * </p>
+     * 
+     * @author jvdmosel
+     * @param <T>
+     *            type of the data
+     */
+    private static class SharedData<T> {
+
+        /**
+         * the data; may be null
+         */
+        private volatile T data;
+
+        /**
+         * creates the data on first access; null if the data is already created
+         */
+        private volatile Supplier<T> source = null;
+
+        /**
+         * version that created the data
+         */
+        private final SoftwareVersion origin;
+
+        /**
+         * number of versions that share the data
+         */
+        private int owners = 1;
+
+        /**
+         * true if a modifiable reference to the data was handed out; such data must not be
+         * shared anymore, because it may be changed at any time
+         */
+        private boolean exposed = false;
+
+        /**
+         * data derived from the data, e.g., the columnar data; null if not yet derived
+         */
+        private Object derived = null;
+
+        /**
+         * Constructor. Creates new data that is owned by a single version.
+         * 
+         * @param data
+         *            the data
+         * @param origin
+         *            version that owns the data
+         */
+        @SuppressWarnings("hiding")
+        private SharedData(T data, SoftwareVersion origin) {
+            this.data = data;
+            this.origin = origin;
+        }
+
+        /**
+         * Creates new data that is owned by a single version and created on first access.
+         * 
+         * @param source
+         *            creates the data
+         * @param origin
+         *            version that owns the data
+         * @return the data
+         */
+        private static <T> SharedData<T> lazy(Supplier<T> source, SoftwareVersion origin) {
+            final SharedData<T> result = new SharedData<>(null, origin);
+            result.source = source;
+            return result;
+        }
+
+        /**
+         * Returns the data. The data is created if this is the first access.
+         * 
+         * @return the data; may be null
+         */
+        private T data() {
+            if (this.source != null) {
+                create();
+            }
+            return this.data;
+        }
+
+        /**
+         * Creates the data, unless it is already created.
+         */
+        private synchronized void create() {
+            if (this.source != null) {
+                this.data = this.source.get();
+                this.source = null;
+            }
+        }
+
+        /**
+         * Returns data that is derived from the data. The derived data is cached, unless a
+         * modifiable reference to the data was handed out.
+         * 
+         * @param function
+         *            derives the data
+         * @return the derived data; null if the data is null
+         */
+        @SuppressWarnings("unchecked")
+        private synchronized <D> D derive(Function<T, D> function) {
+            create();
+            if (this.data == null) {
+                return null;
+            }
+            if (this.exposed) {
+                return function.apply(this.data);
+            }
+            if (this.derived == null) {
+                this.derived = function.apply(this.data);
+            }
+            return (D) this.derived;
+        }
+
+        /**
+         * Returns the data for a copy of a version. The data is shared if possible, otherwise it
+         * is copied.
+         * 
+         * @param copy
+         *            the copy of the version
+         * @param copier
+         *            creates a deep copy of the data
+         * @return data for the copy
+         */
+        private synchronized SharedData<T> share(SoftwareVersion copy, UnaryOperator<T> copier) {
+            if (this.data == null && this.source == null) {
+                return new SharedData<>(null, copy);
+            }
+            if (this.exposed) {
+                return new SharedData<>(copier.apply(this.data), copy);
+            }
+            this.owners++;
+            return this;
+        }
+
+        /**
+         * Returns data that is exclusively owned by the requesting version and may be modified.
+         * The data is copied if it is currently shared with other versions.
+         * 
+         * @param requester
+         *            the version that requests the data
+         * @param copier
+         *            creates a deep copy of the data
+         * @return modifiable data
+         */
+        private synchronized SharedData<T> modifiable(SoftwareVersion requester,
+                                                      UnaryOperator<T> copier)
+        {
+            create();
+            if (this.data == null) {
+                return this;
+            }
+            if (this.owners > 1) {
+                this.owners--;
+                final SharedData<T> result;
+                if (requester == this.origin) {
+                    result = new SharedData<>(this.data, requester);
+                    this.data = copier.apply(this.data);
+                }
+                else {
+                    result = new SharedData<>(copier.apply(this.data), requester);
+                }
+                result.exposed = true;
+                return result;
+            }
+            this.exposed = true;
+            this.derived = null;
+            return this;
+        }
+    }
 }
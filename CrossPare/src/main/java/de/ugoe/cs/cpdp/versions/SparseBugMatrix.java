@@ -0,0 +1,425 @@
+// Copyright 2015 Georg-August-Universität Göttingen, Germany
+//
+//   Licensed under the Apache License, Version 2.0 (the "License");
+//   you may not use this file except in compliance with the License.
+//   You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+//   Unless required by applicable law or agreed to in writing, software
+//   distributed under the License is distributed on an "AS IS" BASIS,
+//   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//   See the License for the specific language governing permissions and
+//   limitations under the License.
+
+package de.ugoe.cs.cpdp.versions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import weka.core.Attribute;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.SparseInstance;
+
+/**
+ * <p>
+ * Bug matrix in compressed sparse row (CSR) format. The rows are the instances and the columns
+ * are the bugs. Only the non-zero values are stored: the values of row i are at the positions
+ * {@link #rowStart(int)} to {@link #rowEnd(int)} - 1 of {@link #columnAt(int)} and
+ * {@link #valueAt(int)}. The column of a bug is found with {@link #column(String)} and the sum of
+ * the values of each row is cached.
+ * </p>
+ * <p>
+ * The matrix is read-only. The bug matrix of a version is available in this format with
+ * {@link SoftwareVersion#getSparseBugMatrixReadOnly()}.
+ * </p>
+ *
+ * @author jvdmosel
+ */
+public class SparseBugMatrix {
+
+    /**
+     * name of the bug matrix
+     */
+    private final String name;
+
+    /**
+     * IDs of the bugs, i.e., the names of the columns
+     */
+    private final String[] bugIds;
+
+    /**
+     * column of each bug ID
+     */
+    private final Map<String, Integer> columnIndex;
+
+    /**
+     * position of the first non-zero value of each row; the last entry is the number of non-zero
+     * values
+     */
+    private final int[] rowPointers;
+
+    /**
+     * column of each non-zero value
+     */
+    private final int[] columns;
+
+    /**
+     * non-zero values
+     */
+    private final double[] values;
+
+    /**
+     * sum of the values of each row
+     */
+    private final double[] bugCounts;
+
+    /**
+     * Constructor. Creates the sparse copy of a bug matrix. Sparse and dense instances are
+     * supported.
+     *
+     * @param bugMatrix
+     *            the bug matrix
+     */
+    public SparseBugMatrix(Instances bugMatrix) {
+        this.name = bugMatrix.relationName();
+        this.bugIds = new String[bugMatrix.numAttributes()];
+        for (int j = 0; j < this.bugIds.length; j++) {
+            this.bugIds[j] = bugMatrix.attribute(j).name();
+        }
+        this.columnIndex = createColumnIndex(this.bugIds);
+        final int numRows = bugMatrix.numInstances();
+        this.rowPointers = new int[numRows + 1];
+        this.bugCounts = new double[numRows];
+        int numNonZeros = 0;
+        for (int i = 0; i < numRows; i++) {
+            final Instance row = bugMatrix.instance(i);
+            for (int k = 0; k < row.numValues(); k++) {
+                if (row.valueSparse(k) != 0.0) {
+                    numNonZeros++;
+                }
+            }
+        }
+        this.columns = new int[numNonZeros];
+        this.values = new double[numNonZeros];
+        int pos = 0;
+        for (int i = 0; i < numRows; i++) {
+            final Instance row = bugMatrix.instance(i);
+            this.rowPointers[i] = pos;
+            double bugCount = 0.0;
+            for (int k = 0; k < row.numValues(); k++) {
+                final double value = row.valueSparse(k);
+                if (value != 0.0) {
+                    this.columns[pos] = row.index(k);
+                    this.values[pos] = value;
+                    bugCount += value;
+                    pos++;
+                }
+            }
+            this.bugCounts[i] = bugCount;
+        }
+        this.rowPointers[numRows] = pos;
+    }
+
+    /**
+     * Constructor. Creates a bug matrix from its CSR arrays.
+     *
+     * @param name
+     *            name of the bug matrix
+     * @param bugIds
+     *            IDs of the bugs
+     * @param rowPointers
+     *            position of the first non-zero value of each row and the number of non-zero
+     *            values
+     * @param columns
+     *            column of each non-zero value
+     * @param values
+     *            non-zero values
+     */
+    @SuppressWarnings("hiding")
+    SparseBugMatrix(String name,
+                    String[] bugIds,
+                    int[] rowPointers,
+                    int[] columns,
+                    double[] values)
+    {
+        this.name = name;
+        this.bugIds = bugIds;
+        this.columnIndex = createColumnIndex(bugIds);
+        this.rowPointers = rowPointers;
+        this.columns = columns;
+        this.values = values;
+        this.bugCounts = new double[rowPointers.length - 1];
+        for (int i = 0; i < this.bugCounts.length; i++) {
+            for (int k = rowPointers[i]; k < rowPointers[i + 1]; k++) {
+                this.bugCounts[i] += values[k];
+            }
+        }
+    }
+
+    /**
+     * Creates the index from bug IDs to columns.
+     *
+     * @param bugIds
+     *            the IDs of the bugs
+     * @return the column of each bug ID
+     */
+    @SuppressWarnings("boxing")
+    private static Map<String, Integer> createColumnIndex(String[] bugIds) {
+        final Map<String, Integer> index = new HashMap<>(bugIds.length * 2);
+        for (int j = 0; j < bugIds.length; j++) {
+            index.putIfAbsent(bugIds[j], j);
+        }
+        return index;
+    }
+
+    /**
+     * returns the name of the bug matrix
+     *
+     * @return the name
+     */
+    public String name() {
+        return this.name;
+    }
+
+    /**
+     * returns the number of rows, i.e., instances
+     *
+     * @return number of rows
+     */
+    public int numRows() {
+        return this.bugCounts.length;
+    }
+
+    /**
+     * returns the number of columns, i.e., bugs
+     *
+     * @return number of columns
+     */
+    public int numBugs() {
+        return this.bugIds.length;
+    }
+
+    /**
+     * returns the number of non-zero values
+     *
+     * @return number of non-zero values
+     */
+    public int numNonZeros() {
+        return this.values.length;
+    }
+
+    /**
+     * returns the ID of a bug
+     *
+     * @param column
+     *            column of the bug
+     * @return ID of the bug
+     */
+    public String bugId(int column) {
+        return this.bugIds[column];
+    }
+
+    /**
+     * returns the column of a bug
+     *
+     * @param bugId
+     *            ID of the bug
+     * @return column of the bug; -1 if the bug is not part of the matrix
+     */
+    @SuppressWarnings("boxing")
+    public int column(String bugId) {
+        final Integer column = this.columnIndex.get(bugId);
+        return column == null ? -1 : column;
+    }
+
+    /**
+     * returns the position of the first non-zero value of a row
+     *
+     * @param row
+     *            index of the row
+     * @return position of the first non-zero value
+     */
+    public int rowStart(int row) {
+        return this.rowPointers[row];
+    }
+
+    /**
+     * returns the position after the last non-zero value of a row
+     *
+     * @param row
+     *            index of the row
+     * @return position after the last non-zero value
+     */
+    public int rowEnd(int row) {
+        return this.rowPointers[row + 1];
+    }
+
+    /**
+     * returns the column of a non-zero value
+     *
+     * @param pos
+     *            position of the value
+     * @return column of the value
+     */
+    public int columnAt(int pos) {
+        return this.columns[pos];
+    }
+
+    /**
+     * returns a non-zero value
+     *
+     * @param pos
+     *            position of the value
+     * @return the value
+     */
+    public double valueAt(int pos) {
+        return this.values[pos];
+    }
+
+    /**
+     * returns the sum of the values of a row, i.e., the number of bugs of an instance
+     *
+     * @param row
+     *            index of the row
+     * @return the number of bugs
+     */
+    public double bugCount(int row) {
+        return this.bugCounts[row];
+    }
+
+    /**
+     * returns a value
+     *
+     * @param row
+     *            index of the row
+     * @param column
+     *            index of the column
+     * @return the value
+     */
+    public double value(int row, int column) {
+        final int pos = Arrays.binarySearch(this.columns, this.rowPointers[row],
+                                            this.rowPointers[row + 1], column);
+        return pos < 0 ? 0.0 : this.values[pos];
+    }
+
+    /**
+     * Converts the bug matrix to {@link Instances}. The rows are {@link SparseInstance}s.
+     *
+     * @return the bug matrix
+     */
+    public Instances toInstances() {
+        final ArrayList<Attribute> attributes = new ArrayList<>(this.bugIds.length);
+        for (String bugId : this.bugIds) {
+            attributes.add(new Attribute(bugId));
+        }
+        final Instances result = new Instances(this.name, attributes, numRows());
+        for (int i = 0; i < numRows(); i++) {
+            final int start = this.rowPointers[i];
+            final int end = this.rowPointers[i + 1];
+            result.add(new SparseInstance(1.0, Arrays.copyOfRange(this.values, start, end),
+                                          Arrays.copyOfRange(this.columns, start, end),
+                                          this.bugIds.length));
+        }
+        return result;
+    }
+
+    /**
+     * <p>
+     * Adds the bug IDs of a matrix that are not yet known to the merged columns.
+     * </p>
+     *
+     * @param matrix
+     *            the bug matrix
+     * @param mergedIds
+     *            IDs of the merged columns
+     * @param mergedIndex
+     *            merged column of each bug ID
+     * @return merged column of each column of the matrix
+     */
+    @SuppressWarnings("boxing")
+    static int[] mergeColumns(SparseBugMatrix matrix,
+                              List<String> mergedIds,
+                              Map<String, Integer> mergedIndex)
+    {
+        final int[] mapping = new int[matrix.numBugs()];
+        for (int j = 0; j < mapping.length; j++) {
+            Integer index = mergedIndex.get(matrix.bugIds[j]);
+            if (index == null) {
+                index = mergedIds.size();
+                mergedIndex.put(matrix.bugIds[j], index);
+                mergedIds.add(matrix.bugIds[j]);
+            }
+            mapping[j] = index;
+        }
+        return mapping;
+    }
+
+    /**
+     * <p>
+     * Copies the non-zero values of a row into CSR arrays with other columns. The columns of the
+     * copied values are sorted.
+     * </p>
+     *
+     * @param row
+     *            index of the row
+     * @param columnMapping
+     *            target column of each column of this matrix
+     * @param targetColumns
+     *            columns of the target
+     * @param targetValues
+     *            values of the target
+     * @param targetPos
+     *            first position in the target
+     * @return position after the copied values
+     */
+    int copyRow(int row, int[] columnMapping, int[] targetColumns, double[] targetValues,
+                int targetPos)
+    {
+        final int start = this.rowPointers[row];
+        final int end = this.rowPointers[row + 1];
+        boolean sorted = true;
+        for (int k = start; k < end; k++) {
+            targetColumns[targetPos + k - start] = columnMapping[this.columns[k]];
+            targetValues[targetPos + k - start] = this.values[k];
+            sorted &= k == start ||
+                targetColumns[targetPos + k - start] > targetColumns[targetPos + k - start - 1];
+        }
+        if (!sorted) {
+            sortRow(targetColumns, targetValues, targetPos, targetPos + end - start);
+        }
+        return targetPos + end - start;
+    }
+
+    /**
+     * Sorts the values of a row by their columns with insertion sort; rows of bug matrices only
+     * have a few non-zero values.
+     *
+     * @param columns
+     *            the columns
+     * @param values
+     *            the values
+     * @param from
+     *            first position of the row
+     * @param to
+     *            position after the row
+     */
+    private static void sortRow(int[] columns, double[] values, int from, int to) {
+        for (int k = from + 1; k < to; k++) {
+            final int column = columns[k];
+            final double value = values[k];
+            int l = k - 1;
+            while (l >= from && columns[l] > column) {
+                columns[l + 1] = columns[l];
+                values[l + 1] = values[l];
+                l--;
+            }
+            columns[l + 1] = column;
+            values[l + 1] = value;
+        }
+    }
+}
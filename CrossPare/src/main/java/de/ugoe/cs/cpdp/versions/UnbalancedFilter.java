@@ -47,7 +47,7 @@ public class UnbalancedFilter implements IVersionFilter {
      */
     @Override
     public boolean apply(SoftwareVersion version, List<SoftwareVersion> allVersions) {
-        final Instances instances = version.getInstances();
+        final Instances instances = version.getInstancesReadOnly();
 
         int count = 0;
         for(int i=0; i<instances.size(); i++) {
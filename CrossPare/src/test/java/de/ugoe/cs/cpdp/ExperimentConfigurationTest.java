@@ -1,8 +1,15 @@
 package de.ugoe.cs.cpdp;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import de.ugoe.cs.cpdp.eval.CountingResultStorage;
 
 import static org.junit.Assert.*;
 
@@ -15,6 +22,9 @@ import static org.junit.Assert.*;
  */
 public class ExperimentConfigurationTest {
 
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
 	@Test
 	public void validateConfigurations() {
 		validateConfigurations("testdata/configurations");
@@ -37,4 +47,23 @@ public class ExperimentConfigurationTest {
 		if(error) fail();
 	}
 
+	@Test
+	public void testCopySharesResultStorages() throws IOException, ExperimentConfigurationException {
+		String header = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<config xmlns=\"experimentconfig\">\n";
+		Files.write(folder.newFile("partial.xml").toPath(),
+				(header + " <storage name=\"CountingResultStorage\" />\n</config>").getBytes(StandardCharsets.UTF_8));
+		File configFile = folder.newFile("config.xml");
+		Files.write(configFile.toPath(), (header + " <partialconfig path=\"partial.xml\" />\n"
+				+ " <storage name=\"CountingResultStorage\" />\n</config>").getBytes(StandardCharsets.UTF_8));
+
+		int instances = CountingResultStorage.instances();
+		ExperimentConfiguration config = new ExperimentConfiguration(configFile);
+		assertEquals(instances + 2, CountingResultStorage.instances());
+		assertEquals(1, config.getResultStorages().size());
+
+		ExperimentConfiguration copy = config.copy();
+		assertEquals(instances + 2, CountingResultStorage.instances());
+		assertSame(config.getResultStorages(), copy.getResultStorages());
+	}
+
 }
@@ -4,10 +4,16 @@ import static org.junit.Assert.*;
 
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
 import java.util.Set;
 
+import org.apache.commons.collections4.list.SetUniqueList;
+import org.apache.commons.math3.util.MathArrays;
 import org.junit.Test;
 
+import de.ugoe.cs.cpdp.util.ArrayUtils;
 import de.ugoe.cs.cpdp.versions.SoftwareVersion;
 import weka.core.Attribute;
 import weka.core.DenseInstance;
@@ -60,4 +66,61 @@ public class TurhanFilterTest {
 		assertTrue(selectedSet.contains(8.0));
 	}
 
+	@Test
+	public void testApply_sameAsLinearScan() {
+		ArrayList<Attribute> attributes = new ArrayList<>();
+		attributes.add(new Attribute("attr1"));
+		attributes.add(new Attribute("attr2"));
+		attributes.add(new Attribute("class"));
+
+		Random random = new Random(1);
+		Instances testdata = new Instances("test", attributes, 0);
+		testdata.setClassIndex(2);
+		for (int i = 0; i < 50; i++) {
+			testdata.add(new DenseInstance(1.0, new double[]{random.nextInt(20), random.nextInt(20), 0.0}));
+		}
+		Instances traindata = new Instances("train", attributes, 0);
+		traindata.setClassIndex(2);
+		for (int i = 0; i < 3000; i++) {
+			traindata.add(new DenseInstance(1.0, new double[]{random.nextInt(20), random.nextInt(20), 0.0}));
+		}
+
+		// linear scan of the original implementation
+		List<Integer> expected = SetUniqueList.setUniqueList(new LinkedList<Integer>());
+		for (int i = 0; i < testdata.numInstances(); i++) {
+			double[] target = new double[]{testdata.instance(i).value(0), testdata.instance(i).value(1)};
+			double farthestClosestDistance = Double.MAX_VALUE;
+			int farthestClosestIndex = 0;
+			double[] closestDistances = new double[5];
+			for (int m = 0; m < closestDistances.length; m++) {
+				closestDistances[m] = Double.MAX_VALUE;
+			}
+			int[] closestIndex = new int[5];
+			for (int n = 0; n < traindata.numInstances(); n++) {
+				double distance = MathArrays.distance(target,
+						new double[]{traindata.instance(n).value(0), traindata.instance(n).value(1)});
+				if (distance < farthestClosestDistance) {
+					closestIndex[farthestClosestIndex] = n;
+					closestDistances[farthestClosestIndex] = distance;
+					farthestClosestIndex = ArrayUtils.findMax(closestDistances);
+					farthestClosestDistance = closestDistances[farthestClosestIndex];
+				}
+			}
+			for (int index : closestIndex) {
+				expected.add(index);
+			}
+		}
+
+		SoftwareVersion testversion = new SoftwareVersion("foo", "bar", "2.0", testdata, null, null, null, null, null);
+		SoftwareVersion trainversion = new SoftwareVersion("foo", "bar", "1.0", traindata, null, null, null, null, null);
+		TurhanFilter filter = new TurhanFilter();
+		filter.setParameter("5");
+		Instances selected = filter.apply(testversion, trainversion).getInstancesReadOnly();
+
+		assertEquals(expected.size(), selected.numInstances());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(traindata.instance(expected.get(i)).toString(), selected.instance(i).toString());
+		}
+	}
+
 }
@@ -0,0 +1,76 @@
+package de.ugoe.cs.cpdp.eval;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import weka.classifiers.Classifier;
+import weka.classifiers.Evaluation;
+import weka.classifiers.bayes.NaiveBayes;
+import weka.classifiers.functions.Logistic;
+import weka.classifiers.trees.J48;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+
+public class CVWekaEvaluationTest {
+
+	private static Instances createData(int numInstances, long seed) {
+		Random random = new Random(seed);
+		ArrayList<Attribute> attributes = new ArrayList<>();
+		for (int j = 0; j < 3; j++) {
+			attributes.add(new Attribute("attr" + j));
+		}
+		attributes.add(new Attribute("bug", Arrays.asList("0", "1")));
+		Instances data = new Instances("test", attributes, numInstances);
+		data.setClassIndex(3);
+		for (int i = 0; i < numInstances; i++) {
+			double[] values = new double[4];
+			values[3] = random.nextInt(3) == 0 ? 1 : 0;
+			for (int j = 0; j < 3; j++) {
+				values[j] = random.nextGaussian() + values[3] * j;
+			}
+			data.add(new DenseInstance(1.0, values));
+		}
+		return data;
+	}
+
+	private static void assertSameEvaluation(Classifier classifier, Instances data) throws Exception {
+		CVWekaEvaluation cvEvaluation = new CVWekaEvaluation();
+		cvEvaluation.setSeed(17);
+		Evaluation actual = cvEvaluation.createEvaluator(data, classifier);
+
+		Evaluation expected = new Evaluation(data);
+		expected.crossValidateModel(classifier, data, 10, new Random(17));
+
+		assertEquals(expected.numInstances(), actual.numInstances(), 0.0);
+		assertArrayEquals(expected.confusionMatrix()[0], actual.confusionMatrix()[0], 0.0);
+		assertArrayEquals(expected.confusionMatrix()[1], actual.confusionMatrix()[1], 0.0);
+		assertEquals(expected.areaUnderROC(1), actual.areaUnderROC(1), 0.0);
+		assertEquals(expected.meanAbsoluteError(), actual.meanAbsoluteError(), 0.0);
+		assertEquals(expected.SFMeanSchemeEntropy(), actual.SFMeanSchemeEntropy(), 0.0);
+	}
+
+	@Test
+	public void testCreateEvaluator_sameAsCrossValidateModel() throws Exception {
+		Instances data = createData(205, 42);
+		assertSameEvaluation(new Logistic(), data);
+		assertSameEvaluation(new J48(), data);
+		assertSameEvaluation(new NaiveBayes(), data);
+	}
+
+	@Test
+	public void testCreateEvaluator_seedReproducible() throws Exception {
+		Instances data = createData(100, 43);
+		CVWekaEvaluation cvEvaluation = new CVWekaEvaluation();
+		cvEvaluation.setSeed(3);
+		Evaluation first = cvEvaluation.createEvaluator(data, new J48());
+		Evaluation second = cvEvaluation.createEvaluator(data, new J48());
+		assertEquals(first.pctCorrect(), second.pctCorrect(), 0.0);
+		assertEquals(first.areaUnderROC(1), second.areaUnderROC(1), 0.0);
+	}
+}
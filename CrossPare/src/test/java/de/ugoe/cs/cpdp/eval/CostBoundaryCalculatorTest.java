@@ -17,6 +17,7 @@ import weka.core.Attribute;
 import weka.core.DenseInstance;
 import weka.core.Instance;
 import weka.core.Instances;
+import weka.core.SparseInstance;
 
 public class CostBoundaryCalculatorTest {
 
@@ -208,4 +209,68 @@ public class CostBoundaryCalculatorTest {
 		assertEquals(-1.0, costCalc.getLowerConst1to1(), 0.00001);
 		assertEquals(-1.0, costCalc.getLowerSizeNtoM(), 0.00001);
 	}
+
+	@SuppressWarnings("serial")
+	@Test
+	public void testWithProbQAFailure() throws Exception {
+		ArrayList<Attribute> attributes = new ArrayList<>();
+		attributes.add(new Attribute("another"));
+		attributes.add(new Attribute("bug", Arrays.asList("0", "1")));
+		Instances testdata = new Instances("testdata", attributes, 0);
+		testdata.setClassIndex(1);
+		testdata.add(new DenseInstance(1.0, new double[] {1.0, 1.0}));
+		testdata.add(new DenseInstance(1.0, new double[] {2.0, 1.0}));
+		testdata.add(new DenseInstance(1.0, new double[] {3.0, 0.0}));
+		testdata.add(new DenseInstance(1.0, new double[] {4.0, 1.0}));
+
+		ArrayList<Attribute> bugAttributes = new ArrayList<>();
+		bugAttributes.add(new Attribute("MRM-797_major_2007-05-26 08:42:10"));
+		bugAttributes.add(new Attribute("MRM-797_major_2007-06-26 08:42:10"));
+		bugAttributes.add(new Attribute("MRM-797_major_2008-05-26 08:42:10"));
+		Instances bugMatrix = new Instances("bugmatrix", bugAttributes, 0);
+		bugMatrix.add(new DenseInstance(1.0, new double[] {1.0, 0.0, 1.0}));
+		bugMatrix.add(new DenseInstance(1.0, new double[] {0.0, 1.0, 0.0}));
+		bugMatrix.add(new DenseInstance(1.0, new double[] {0.0, 0.0, 0.0}));
+		bugMatrix.add(new DenseInstance(1.0, new double[] {0.0, 0.0, 1.0}));
+		Instances sparseBugMatrix = new Instances("bugmatrix", bugAttributes, 0);
+		for (Instance instance : bugMatrix) {
+			sparseBugMatrix.add(new SparseInstance(instance));
+		}
+
+		Classifier classifier = new AbstractClassifier() {
+			@Override
+			public void buildClassifier(Instances data) throws Exception {
+				// empty
+			}
+			@Override
+			public double classifyInstance(Instance instance) throws Exception {
+				return instance.value(0)>2.0 ? 0.0 : 1.0;
+			}
+		};
+		List<Double> efforts = Arrays.asList(new Double[]{1.0, 2.0, 3.0, 4.0});
+
+		Evaluation eval = new Evaluation(testdata);
+		eval.evaluateModel(classifier, testdata);
+
+		CostBoundaryCalculator costCalc = new CostBoundaryCalculator(testdata, classifier, efforts, bugMatrix, eval, 0.0);
+		CostBoundaryCalculator[] levels = costCalc.withProbQAFailures(0.1, 0.3, 0.5);
+		assertEquals(3, levels.length);
+		for (CostBoundaryCalculator level : levels) {
+			for (Instances matrix : Arrays.asList(bugMatrix, sparseBugMatrix)) {
+				CostBoundaryCalculator expected = new CostBoundaryCalculator(testdata, classifier, efforts, matrix, eval, level.getProbQAFailure());
+				assertEquals(expected.getLowerConst1to1(), level.getLowerConst1to1(), 0.0);
+				assertEquals(expected.getUpperConst1to1(), level.getUpperConst1to1(), 0.0);
+				assertEquals(expected.getLowerSize1toM(), level.getLowerSize1toM(), 0.0);
+				assertEquals(expected.getUpperSize1toM(), level.getUpperSize1toM(), 0.0);
+				assertEquals(expected.getLowerConstNtoM(), level.getLowerConstNtoM(), 0.0);
+				assertEquals(expected.getUpperConstNtoM(), level.getUpperConstNtoM(), 0.0);
+				assertEquals(expected.getLowerSizeNtoM(), level.getLowerSizeNtoM(), 0.0);
+				assertEquals(expected.getUpperSizeNtoM(), level.getUpperSizeNtoM(), 0.0);
+			}
+		}
+
+		// two bugs found with one affected instance, one bug missed with two affected instances
+		assertEquals(3.0, levels[2].getLowerSizeNtoM(), 0.00001);
+		assertEquals(28.0, levels[2].getUpperSizeNtoM(), 0.00001);
+	}
 }
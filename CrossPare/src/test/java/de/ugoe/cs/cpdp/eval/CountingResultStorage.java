@@ -0,0 +1,42 @@
+package de.ugoe.cs.cpdp.eval;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ * Result storage for tests that counts how often it is instantiated and discards all results.
+ * </p>
+ */
+public class CountingResultStorage implements IResultStorage {
+
+	private static final AtomicInteger INSTANCES = new AtomicInteger();
+
+	public CountingResultStorage() {
+		INSTANCES.incrementAndGet();
+	}
+
+	public static int instances() {
+		return INSTANCES.get();
+	}
+
+	@Override
+	public void addResult(ExperimentResult result) {
+		// results are discarded
+	}
+
+	@Override
+	public int containsResult(String experimentName, String productName, String classifierName) {
+		return 0;
+	}
+
+	@Override
+	public int containsHeterogeneousResult(String experimentName, String productName, String classifierName,
+			String trainProductName) {
+		return 0;
+	}
+
+	@Override
+	public void close() {
+		// nothing to close
+	}
+}
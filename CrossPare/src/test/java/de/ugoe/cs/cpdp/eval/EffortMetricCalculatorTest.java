@@ -0,0 +1,137 @@
+package de.ugoe.cs.cpdp.eval;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+
+public class EffortMetricCalculatorTest {
+
+	private static Instances createData(int numInstances) {
+		ArrayList<Attribute> attributes = new ArrayList<>();
+		attributes.add(new Attribute("another"));
+		attributes.add(new Attribute("bug", Arrays.asList("0", "1")));
+		Instances testdata = new Instances("testdata", attributes, numInstances);
+		testdata.setClassIndex(1);
+		for (int i = 0; i < numInstances; i++) {
+			testdata.add(new DenseInstance(1.0, new double[] {i, 0.0}));
+		}
+		return testdata;
+	}
+
+	/**
+	 * straightforward calculation of the metrics by walking through the sorted instances
+	 */
+	private static double[] expectedMetrics(double[][] distributions, List<Double> efforts, List<Double> numBugs, double effortCutoff, double bugCutoff) {
+		List<double[]> scores = new ArrayList<>();
+		double totalEffort = 0.0;
+		double totalBugs = 0.0;
+		for (int i = 0; i < distributions.length; i++) {
+			scores.add(new double[] {distributions[i][1], efforts.get(i), numBugs.get(i), distributions[i][1]>distributions[i][0] ? 1.0 : 0.0});
+			totalEffort += efforts.get(i);
+			totalBugs += numBugs.get(i);
+		}
+		// sort by score (descending), in case of equal scores use size (ascending)
+		Collections.sort(scores, (a, b) -> a[0]!=b[0] ? Double.compare(b[0], a[0]) : Double.compare(a[1], b[1]));
+
+		double aucec = 0.0;
+		double relativeBugsFound = 0.0;
+		for (double[] score : scores) {
+			relativeBugsFound += score[2] / totalBugs;
+			aucec += score[1] / totalEffort * relativeBugsFound;
+		}
+
+		double nofb = 0.0;
+		double relb = 0.0;
+		double relativeEffort = 0.0;
+		for (double[] score : scores) {
+			relativeEffort += score[1] / totalEffort;
+			if (relativeEffort + score[1] / totalEffort > effortCutoff) {
+				break;
+			}
+			nofb += score[2];
+			relb += score[2] / totalBugs;
+		}
+
+		relativeBugsFound = 0.0;
+		relativeEffort = 0.0;
+		int nofi = 0;
+		for (double[] score : scores) {
+			if (relativeBugsFound > bugCutoff) {
+				break;
+			}
+			relativeBugsFound += score[2] / totalBugs;
+			relativeEffort += score[1] / totalEffort;
+			nofi++;
+		}
+
+		double nofbPredicted = 0.0;
+		double nofbMissed = 0.0;
+		for (double[] score : scores) {
+			if (score[3]==1.0) {
+				nofbPredicted += score[2];
+			} else {
+				nofbMissed += score[2];
+			}
+		}
+		return new double[] {aucec, nofb, relb, nofi, nofi / (double) scores.size(), relativeEffort, nofbPredicted, nofbMissed};
+	}
+
+	@Test
+	public void testMetrics_sameAsSortedWalk() {
+		Random random = new Random(42);
+		for (int run = 0; run < 50; run++) {
+			int numInstances = 1 + random.nextInt(200);
+			Instances testdata = createData(numInstances);
+			double[][] distributions = new double[numInstances][];
+			List<Double> efforts = new ArrayList<>();
+			List<Double> numBugs = new ArrayList<>();
+			for (int i = 0; i < numInstances; i++) {
+				// few distinct scores and efforts to get ties
+				double score = random.nextInt(10) / 10.0;
+				distributions[i] = new double[] {1.0 - score, score};
+				efforts.add((double) random.nextInt(20));
+				numBugs.add(random.nextInt(3) == 0 ? (double) random.nextInt(4) : 0.0);
+			}
+			EffortMetricCalculator calculator = new EffortMetricCalculator(testdata, distributions, efforts, numBugs);
+
+			double[] expected = expectedMetrics(distributions, efforts, numBugs, 0.2, 0.8);
+			assertEquals(expected[0], calculator.getAUCEC(), 0.0);
+			assertEquals(expected[1], calculator.getNofb20(), 0.0);
+			assertEquals(expected[2], calculator.getRelb20(), 0.0);
+			assertEquals(expected[3], calculator.getNofi80(), 0.0);
+			assertEquals(expected[4], calculator.getReli80(), 0.0);
+			assertEquals(expected[5], calculator.getRele80(), 0.0);
+			assertEquals(expected[6], calculator.getNofBPredicted(), 0.0);
+			assertEquals(expected[7], calculator.getNofBMissed(), 0.0);
+
+			for (double cutoff : new double[] {0.0, 0.05, 0.5, 0.95, 1.0}) {
+				expected = expectedMetrics(distributions, efforts, numBugs, cutoff, cutoff);
+				assertEquals(expected[1], calculator.getNofb(cutoff), 0.0);
+				assertEquals(expected[2], calculator.getRelb(cutoff), 0.0);
+				assertEquals(expected[3], calculator.getNofi(cutoff), 0.0);
+				assertEquals(expected[4], calculator.getReli(cutoff), 0.0);
+				assertEquals(expected[5], calculator.getRele(cutoff), 0.0);
+			}
+		}
+	}
+
+	@Test
+	public void testMetrics_noEfforts() {
+		Instances testdata = createData(3);
+		EffortMetricCalculator calculator = new EffortMetricCalculator(testdata, (double[][]) null, null, null);
+		assertEquals(-1.0, calculator.getAUCEC(), 0.0);
+		assertEquals(-1.0, calculator.getNofb20(), 0.0);
+		assertEquals(-1.0, calculator.getReli80(), 0.0);
+		assertEquals(-1.0, calculator.getRele(0.5), 0.0);
+	}
+}
@@ -0,0 +1,157 @@
+package de.ugoe.cs.cpdp.loader;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import de.ugoe.cs.cpdp.versions.SoftwareVersion;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+import weka.core.SparseInstance;
+
+public class BinaryVersionCacheTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static SoftwareVersion createVersion() {
+		ArrayList<Attribute> attributes = new ArrayList<>();
+		attributes.add(new Attribute("loc"));
+		attributes.add(new Attribute("bug", Arrays.asList("0", "1")));
+		Instances instances = new Instances("v1", attributes, 0);
+		instances.setClassIndex(1);
+		instances.add(new DenseInstance(1.0, new double[] { 10.0, 1.0 }));
+		instances.add(new SparseInstance(2.0, new double[] { 0.0, 0.0 }));
+		instances.add(new DenseInstance(1.0, new double[] { 30.0, 0.0 }));
+
+		ArrayList<Attribute> bugAttributes = new ArrayList<>();
+		bugAttributes.add(new Attribute("BUG-1"));
+		bugAttributes.add(new Attribute("BUG-2"));
+		Instances bugMatrix = new Instances("bugmatrix", bugAttributes, 0);
+		bugMatrix.add(new SparseInstance(1.0, new double[] { 0.0, 1.0 }));
+		bugMatrix.add(new SparseInstance(1.0, new double[] { 0.0, 0.0 }));
+		bugMatrix.add(new DenseInstance(1.0, new double[] { 1.0, 1.0 }));
+
+		List<OffsetDateTime> committerDates = Arrays.asList(
+				OffsetDateTime.of(2018, 1, 2, 3, 4, 5, 6, ZoneOffset.ofHours(2)),
+				OffsetDateTime.of(2018, 2, 3, 4, 5, 6, 0, ZoneOffset.UTC),
+				OffsetDateTime.of(2019, 3, 4, 5, 6, 7, 0, ZoneOffset.ofHours(-5)));
+		return new SoftwareVersion("ds", "p", "v1", instances, bugMatrix, Arrays.asList(10.0, 0.0, 30.0),
+				Arrays.asList(1.0, 0.0, 0.0), LocalDateTime.of(2019, 5, 6, 7, 8, 9), committerDates);
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		File sourceFile = folder.newFile("v1.csv");
+		List<File> sourceFiles = Collections.singletonList(sourceFile);
+		File cacheFile = BinaryVersionCache.getCacheFile(sourceFile, "config");
+		SoftwareVersion version = createVersion();
+
+		assertTrue(BinaryVersionCache.write(cacheFile, sourceFiles, "config", version));
+		SoftwareVersion cached = BinaryVersionCache.read(cacheFile, sourceFiles, "config", "ds", "p");
+
+		assertNotNull(cached);
+		assertEquals("ds", cached.getDataset());
+		assertEquals("p", cached.getProject());
+		assertEquals("v1", cached.getVersion());
+		Instances instances = cached.getInstancesReadOnly();
+		assertNull(instances.equalHeadersMsg(version.getInstancesReadOnly()));
+		assertEquals(1, instances.classIndex());
+		assertEquals(3, instances.numInstances());
+		for (int i = 0; i < instances.numInstances(); i++) {
+			assertArrayEquals(version.getInstancesReadOnly().instance(i).toDoubleArray(),
+					instances.instance(i).toDoubleArray(), 0.0);
+		}
+		assertTrue(instances.instance(1) instanceof SparseInstance);
+		assertEquals(2.0, instances.instance(1).weight(), 0.0);
+		Instances bugMatrix = cached.getBugMatrixReadOnly();
+		assertEquals("BUG-2", bugMatrix.attribute(1).name());
+		assertArrayEquals(new double[] { 0.0, 1.0 }, bugMatrix.instance(0).toDoubleArray(), 0.0);
+		assertArrayEquals(new double[] { 1.0, 1.0 }, bugMatrix.instance(2).toDoubleArray(), 0.0);
+		assertEquals(version.getEffortsReadOnly(), cached.getEffortsReadOnly());
+		assertEquals(version.getNumBugsReadOnly(), cached.getNumBugsReadOnly());
+		assertEquals(version.getReleaseDate(), cached.getReleaseDate());
+		assertEquals(version.getCommitterDatesReadOnly(), cached.getCommitterDatesReadOnly());
+	}
+
+	@Test
+	public void testOutdatedCache() throws IOException {
+		File sourceFile = folder.newFile("v1.csv");
+		List<File> sourceFiles = Collections.singletonList(sourceFile);
+		File cacheFile = BinaryVersionCache.getCacheFile(sourceFile, "config");
+		assertTrue(BinaryVersionCache.write(cacheFile, sourceFiles, "config", createVersion()));
+
+		assertNull(BinaryVersionCache.read(cacheFile, sourceFiles, "other", "ds", "p"));
+		Files.write(sourceFile.toPath(), "changed".getBytes(StandardCharsets.UTF_8));
+		assertNull(BinaryVersionCache.read(cacheFile, sourceFiles, "config", "ds", "p"));
+	}
+
+	@Test
+	public void testCorruptCache() throws IOException {
+		File sourceFile = folder.newFile("v1.csv");
+		List<File> sourceFiles = Collections.singletonList(sourceFile);
+		File cacheFile = BinaryVersionCache.getCacheFile(sourceFile, "config");
+		assertTrue(BinaryVersionCache.write(cacheFile, sourceFiles, "config", createVersion()));
+
+		byte[] content = Files.readAllBytes(cacheFile.toPath());
+		Files.write(cacheFile.toPath(), Arrays.copyOf(content, content.length - 10));
+
+		assertNull(BinaryVersionCache.read(cacheFile, sourceFiles, "config", "ds", "p"));
+	}
+
+	@Test
+	public void testFolderLoader() throws IOException {
+		File projectDir = folder.newFolder("JURECZKO", "ant");
+		File versionFile = new File(projectDir, "ant-1.3.csv");
+		Files.copy(new File("testdata/JURECZKO/ant/ant-1.3.csv").toPath(), versionFile.toPath(),
+				StandardCopyOption.COPY_ATTRIBUTES);
+		CSVFolderLoader loader = new CSVFolderLoader();
+		loader.setLocation(projectDir.getParent());
+		loader.setBinaryCache(true);
+
+		List<SoftwareVersion> parsed = loader.load();
+		assertTrue(new File(projectDir, BinaryVersionCache.CACHE_DIRECTORY).isDirectory());
+		List<SoftwareVersion> cached = loader.load();
+
+		assertEquals(1, parsed.size());
+		assertEquals(1, cached.size());
+		assertEquals(parsed.get(0).getVersion(), cached.get(0).getVersion());
+		Instances parsedInstances = parsed.get(0).getInstancesReadOnly();
+		Instances cachedInstances = cached.get(0).getInstancesReadOnly();
+		assertNull(cachedInstances.equalHeadersMsg(parsedInstances));
+		assertEquals(parsedInstances.numInstances(), cachedInstances.numInstances());
+		for (int i = 0; i < parsedInstances.numInstances(); i++) {
+			assertArrayEquals(parsedInstances.instance(i).toDoubleArray(), cachedInstances.instance(i).toDoubleArray(),
+					0.0);
+		}
+		assertEquals(parsed.get(0).getEffortsReadOnly(), cached.get(0).getEffortsReadOnly());
+		assertEquals(parsed.get(0).getNumBugsReadOnly(), cached.get(0).getNumBugsReadOnly());
+	}
+
+	@Test
+	public void testFolderLoader_disabledByDefault() throws IOException {
+		File projectDir = folder.newFolder("JURECZKO", "ant");
+		Files.copy(new File("testdata/JURECZKO/ant/ant-1.3.csv").toPath(), new File(projectDir, "ant-1.3.csv").toPath());
+		CSVFolderLoader loader = new CSVFolderLoader();
+		loader.setLocation(projectDir.getParent());
+
+		assertEquals(1, loader.load().size());
+		assertFalse(new File(projectDir, BinaryVersionCache.CACHE_DIRECTORY).exists());
+	}
+}
@@ -0,0 +1,57 @@
+package de.ugoe.cs.cpdp.loader;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import de.ugoe.cs.cpdp.versions.SoftwareVersion;
+
+public class VersionCacheTest {
+
+	@Test
+	public void testAcquireSharesVersions() {
+		CSVFolderLoader loader1 = new CSVFolderLoader();
+		loader1.setLocation("testdata/JURECZKO");
+		CSVFolderLoader loader2 = new CSVFolderLoader();
+		loader2.setLocation("testdata/JURECZKO");
+		List<IVersionLoader> loaders1 = Arrays.asList(loader1);
+		List<IVersionLoader> loaders2 = Arrays.asList(loader2);
+		
+		List<SoftwareVersion> versions1 = VersionCache.acquire(loaders1);
+		List<SoftwareVersion> versions2 = VersionCache.acquire(loaders2);
+		assertEquals(65, versions1.size());
+		assertEquals(versions1.size(), versions2.size());
+		for (int i = 0; i < versions1.size(); i++) {
+			assertSame(versions1.get(i), versions2.get(i));
+		}
+		
+		VersionCache.release(loaders1);
+		List<SoftwareVersion> versions3 = VersionCache.acquire(loaders1);
+		assertSame(versions1.get(0), versions3.get(0));
+		
+		VersionCache.release(loaders1);
+		VersionCache.release(loaders2);
+		List<SoftwareVersion> versions4 = VersionCache.acquire(loaders1);
+		assertNotSame(versions1.get(0), versions4.get(0));
+		VersionCache.release(loaders1);
+	}
+	
+	@Test
+	public void testDifferentParametersAreNotShared() {
+		CSVFolderLoader loader1 = new CSVFolderLoader();
+		loader1.setLocation("testdata/JURECZKO");
+		CSVFolderLoader loader2 = new CSVFolderLoader();
+		loader2.setLocation("testdata/JURECZKO");
+		loader2.setClassType("numeric");
+		
+		List<SoftwareVersion> versions1 = VersionCache.acquire(loader1);
+		List<SoftwareVersion> versions2 = VersionCache.acquire(loader2);
+		assertNotSame(versions1.get(0), versions2.get(0));
+		VersionCache.release(loader1);
+		VersionCache.release(loader2);
+	}
+
+}
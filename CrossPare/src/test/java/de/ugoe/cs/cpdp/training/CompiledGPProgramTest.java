@@ -0,0 +1,90 @@
+package de.ugoe.cs.cpdp.training;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.jgap.gp.IGPProgram;
+import org.jgap.gp.terminal.Variable;
+import org.junit.Test;
+
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+
+public class CompiledGPProgramTest {
+
+	private static Instances createData(int numInstances, long seed) {
+		Random random = new Random(seed);
+		ArrayList<Attribute> attributes = new ArrayList<>();
+		for (int j = 0; j < 4; j++) {
+			attributes.add(new Attribute("attr" + j));
+		}
+		attributes.add(new Attribute("bug", Arrays.asList("0", "1")));
+		Instances data = new Instances("test", attributes, numInstances);
+		data.setClassIndex(4);
+		for (int i = 0; i < numInstances; i++) {
+			double[] values = new double[5];
+			for (int j = 0; j < 4; j++) {
+				// negative values and zeros to get NaN and infinite results
+				values[j] = random.nextInt(10) == 0 ? 0.0 : random.nextGaussian() * 50;
+			}
+			values[4] = random.nextInt(2);
+			data.add(new DenseInstance(1.0, values));
+		}
+		return data;
+	}
+
+	@Test
+	public void testExecute_sameAsJGAP() throws Exception {
+		Instances data = createData(200, 42);
+		GPTraining.GPRun run = new GPTraining().new GPRun();
+		run.configure(50, 2, 6, 7, 5, 15, 20, 100);
+		run.buildClassifier(data);
+
+		Variable[] variables = run.getVariables();
+		double[][] columns = new double[variables.length][data.numInstances()];
+		for (int i = 0; i < data.numInstances(); i++) {
+			for (int j = 0; j < variables.length; j++) {
+				columns[j][i] = data.instance(i).value(j);
+			}
+		}
+
+		int numCompiled = 0;
+		for (IGPProgram program : run.getGp().getGPPopulation().getGPPrograms()) {
+			CompiledGPProgram compiled = CompiledGPProgram.compile(program, variables);
+			assertNotNull(compiled);
+			double[][] buffers = new double[compiled.getStackSize()][data.numInstances()];
+			double[] values = compiled.execute(columns, data.numInstances(), buffers);
+			for (int i = 0; i < data.numInstances(); i++) {
+				for (int j = 0; j < variables.length; j++) {
+					variables[j].set(data.instance(i).value(j));
+				}
+				double expected = program.execute_double(0, variables);
+				assertEquals(Double.doubleToLongBits(expected), Double.doubleToLongBits(values[i]));
+			}
+			numCompiled++;
+		}
+		assertEquals(50, numCompiled);
+	}
+
+	@Test
+	public void testCompile_unknownVariable() throws Exception {
+		Instances data = createData(20, 43);
+		GPTraining.GPRun run = new GPTraining().new GPRun();
+		run.configure(10, 2, 6, 7, 1, 15, 20, 100);
+		run.buildClassifier(data);
+
+		for (IGPProgram program : run.getGp().getGPPopulation().getGPPrograms()) {
+			boolean usesVariable = false;
+			for (int k = 0; k < program.getChromosome(0).size(); k++) {
+				usesVariable |= program.getChromosome(0).getGene(k) instanceof Variable;
+			}
+			if (usesVariable) {
+				assertNull(CompiledGPProgram.compile(program, new Variable[0]));
+			}
+		}
+	}
+}
@@ -0,0 +1,70 @@
+package de.ugoe.cs.cpdp.training;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.commons.math3.exception.InsufficientDataException;
+import org.apache.commons.math3.stat.inference.KolmogorovSmirnovTest;
+import org.junit.Test;
+
+public class MetricMatchingTrainingTest {
+
+	private static double[] createSample(Random random, int size, int numDistinct) {
+		double[] sample = new double[size];
+		for (int i = 0; i < size; i++) {
+			switch (random.nextInt(20)) {
+				case 0:
+					sample[i] = -0.0;
+					break;
+				case 1:
+					sample[i] = Double.NaN;
+					break;
+				default:
+					sample[i] = numDistinct > 0 ? random.nextInt(numDistinct) : random.nextGaussian();
+			}
+		}
+		return sample;
+	}
+
+	private static void assertSameStatistic(double[] x, double[] y) {
+		double expected = new KolmogorovSmirnovTest().kolmogorovSmirnovStatistic(x, y);
+		double[] sortedX = x.clone();
+		double[] sortedY = y.clone();
+		Arrays.sort(sortedX);
+		Arrays.sort(sortedY);
+		double actual = MetricMatchingTraining.kolmogorovSmirnovStatistic(sortedX, sortedY);
+		assertEquals(Double.doubleToLongBits(expected), Double.doubleToLongBits(actual));
+	}
+
+	@Test
+	public void testKolmogorovSmirnovStatistic_distinctValues() {
+		Random random = new Random(42);
+		for (int k = 0; k < 200; k++) {
+			assertSameStatistic(createSample(random, 2 + random.nextInt(100), 0),
+					createSample(random, 2 + random.nextInt(100), 0));
+		}
+	}
+
+	@Test
+	public void testKolmogorovSmirnovStatistic_ties() {
+		Random random = new Random(43);
+		for (int k = 0; k < 200; k++) {
+			int numDistinct = 1 + random.nextInt(10);
+			assertSameStatistic(createSample(random, 2 + random.nextInt(100), numDistinct),
+					createSample(random, 2 + random.nextInt(100), numDistinct));
+		}
+	}
+
+	@Test
+	public void testKolmogorovSmirnovStatistic_sameSample() {
+		double[] sample = new double[] { 0.0, 1.0, 1.0, 2.0, 3.0, 3.0, 3.0 };
+		assertSameStatistic(sample, sample);
+	}
+
+	@Test(expected = InsufficientDataException.class)
+	public void testKolmogorovSmirnovStatistic_insufficientData() {
+		MetricMatchingTraining.kolmogorovSmirnovStatistic(new double[] { 1.0 }, new double[] { 1.0, 2.0 });
+	}
+}
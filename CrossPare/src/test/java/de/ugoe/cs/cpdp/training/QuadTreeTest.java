@@ -0,0 +1,75 @@
+package de.ugoe.cs.cpdp.training;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+
+import org.junit.Test;
+
+import de.ugoe.cs.cpdp.training.WekaLocalFQTraining.QuadTreePayload;
+import weka.core.Instance;
+
+public class QuadTreeTest {
+
+	private static QuadTree createTree(Random random) {
+		WekaLocalFQTraining training = new WekaLocalFQTraining();
+		ArrayList<QuadTreePayload<Instance>> payload = new ArrayList<>();
+		for (int i = 0; i < 500; i++) {
+			// rounded values to get points on the borders of the quadrants
+			payload.add(training.new QuadTreePayload<Instance>(Math.round(random.nextGaussian() * 10) / 2.0,
+					Math.round(random.nextGaussian() * 10) / 2.0, null));
+		}
+		double[] x = { Double.MAX_VALUE, 0 };
+		double[] y = { Double.MAX_VALUE, 0 };
+		for (QuadTreePayload<Instance> item : payload) {
+			x[0] = Math.min(x[0], item.x);
+			x[1] = Math.max(x[1], item.x);
+			y[0] = Math.min(y[0], item.y);
+			y[1] = Math.max(y[1], item.y);
+		}
+		QuadTree tree = new QuadTree(payload, x, y, Math.sqrt(payload.size()));
+		tree.build();
+		return tree;
+	}
+
+	@Test
+	public void testBuild_allInstancesClustered() {
+		QuadTree tree = createTree(new Random(1));
+		int numInstances = 0;
+		for (ArrayList<QuadTreePayload<Instance>> cluster : tree.getClusters()) {
+			numInstances += cluster.size();
+		}
+		assertEquals(500, numInstances);
+		assertTrue(tree.getClusters().size() > 1);
+		assertEquals(tree.getClusters().size(), tree.getClusterSizes().size());
+	}
+
+	@SuppressWarnings("boxing")
+	@Test
+	public void testFindCluster_sameAsBoxes() {
+		Random random = new Random(2);
+		QuadTree tree = createTree(random);
+		HashMap<Integer, ArrayList<Double[][]>> csize = tree.getClusterSizes();
+		for (int i = 0; i < 2000; i++) {
+			double x = Math.round(random.nextGaussian() * 12) / 2.0;
+			double y = Math.round(random.nextGaussian() * 12) / 2.0;
+			int expected = -1;
+			for (int cnumber = 0; cnumber < csize.size() && expected == -1; cnumber++) {
+				for (Double[][] current : csize.get(cnumber)) {
+					if (x >= current[0][0] && x <= current[0][1] && y >= current[1][0] && y <= current[1][1]) {
+						expected = cnumber;
+					}
+				}
+			}
+			assertEquals(expected, tree.findCluster(x, y));
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testFindCluster_notBuilt() {
+		new QuadTree(new ArrayList<QuadTreePayload<Instance>>(), new double[] { 0, 1 }, new double[] { 0, 1 }, 1)
+				.findCluster(0, 0);
+	}
+}
@@ -0,0 +1,71 @@
+package de.ugoe.cs.cpdp.util;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import org.junit.Test;
+
+public class DoubleListTest {
+
+	@Test
+	public void testListOperations() {
+		DoubleList list = new DoubleList(1);
+		list.add(1.0);
+		list.addDouble(2.0);
+		list.add(0, 0.5);
+		list.set(2, 3.0);
+
+		assertEquals(Arrays.asList(0.5, 1.0, 3.0), list);
+		assertEquals(1.0, list.remove(1), 0.0);
+		assertEquals(Arrays.asList(0.5, 3.0), list);
+		assertEquals(3.0, list.getDouble(1), 0.0);
+	}
+
+	@Test
+	public void testRetain() {
+		DoubleList list = new DoubleList(new double[] { 0.0, 1.0, 2.0, 3.0, 4.0 });
+		BitSet rows = new BitSet();
+		rows.set(1);
+		rows.set(3);
+		rows.set(4);
+
+		list.retain(rows);
+
+		assertArrayEquals(new double[] { 1.0, 3.0, 4.0 }, list.toDoubleArray(), 0.0);
+	}
+
+	@Test
+	public void testSelect() {
+		DoubleList list = new DoubleList(new double[] { 0.0, 1.0, 2.0 });
+
+		assertArrayEquals(new double[] { 2.0, 0.0, 2.0 }, list.select(new int[] { 2, 0, 2 }).toDoubleArray(), 0.0);
+	}
+
+	@Test
+	public void testSubListClear() {
+		DoubleList list = new DoubleList(new double[] { 0.0, 1.0, 2.0, 3.0 });
+
+		list.subList(1, 3).clear();
+
+		assertArrayEquals(new double[] { 0.0, 3.0 }, list.toDoubleArray(), 0.0);
+	}
+
+	@Test
+	public void testToDoubleArray() {
+		DoubleList list = new DoubleList(Arrays.asList(1.0, 2.0));
+
+		assertArrayEquals(new double[] { 1.0, 2.0 }, DoubleList.toDoubleArray(list), 0.0);
+		assertArrayEquals(new double[] { 1.0, 2.0 }, DoubleList.toDoubleArray(DoubleList.unmodifiable(list)), 0.0);
+		assertArrayEquals(new double[] { 1.0, 2.0 }, DoubleList.toDoubleArray(Arrays.asList(1.0, 2.0)), 0.0);
+		assertNull(DoubleList.toDoubleArray(null));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testUnmodifiable() {
+		List<Double> list = DoubleList.unmodifiable(new DoubleList(new double[] { 1.0 }));
+		list.set(0, 2.0);
+	}
+}
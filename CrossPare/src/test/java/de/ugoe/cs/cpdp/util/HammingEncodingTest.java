@@ -0,0 +1,89 @@
+package de.ugoe.cs.cpdp.util;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.Test;
+
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.Utils;
+
+public class HammingEncodingTest {
+
+	private static Instances createInstances(int numInstances, int numAttributes, int numValues, long seed) {
+		ArrayList<Attribute> attributes = new ArrayList<>();
+		for (int j = 0; j < numAttributes; j++) {
+			attributes.add(new Attribute("attr" + j));
+		}
+		attributes.add(new Attribute("class"));
+		Instances instances = new Instances("test", attributes, 0);
+		instances.setClassIndex(numAttributes);
+		Random random = new Random(seed);
+		for (int i = 0; i < numInstances; i++) {
+			double[] values = new double[numAttributes + 1];
+			for (int j = 0; j < numAttributes; j++) {
+				int value = random.nextInt(numValues + 1);
+				values[j] = value == numValues ? Utils.missingValue() : value;
+			}
+			values[numAttributes] = random.nextInt(2);
+			instances.add(new DenseInstance(1.0, values));
+		}
+		return instances;
+	}
+
+	@Test
+	public void testDistance() {
+		// 700 different values require multiple words
+		for (int numValues : new int[] { 2, 700 }) {
+			Instances traindata = createInstances(300, 13, numValues, 1);
+			Instances testdata = createInstances(50, 13, numValues, 2);
+			HammingEncoding encoding = new HammingEncoding(traindata);
+			for (Instance instance : testdata) {
+				long[] encoded = encoding.encode(instance);
+				for (int i = 0; i < traindata.size(); i++) {
+					assertEquals(WekaUtils.hammingDistance(instance, traindata.get(i)), encoding.distance(encoded, i), 0.0);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testClosest() {
+		Instances traindata = createInstances(300, 6, 3, 3);
+		Instances testdata = createInstances(50, 6, 3, 4);
+		HammingEncoding encoding = new HammingEncoding(traindata);
+		for (Instance instance : testdata) {
+			double minDistance = Double.MAX_VALUE;
+			for (Instance traininstance : traindata) {
+				minDistance = Math.min(minDistance, WekaUtils.hammingDistance(instance, traininstance));
+			}
+			ArrayList<Integer> expected = new ArrayList<>();
+			for (int i = 0; i < traindata.size(); i++) {
+				if (WekaUtils.hammingDistance(instance, traindata.get(i)) <= minDistance) {
+					expected.add(i);
+				}
+			}
+			int[] closest = encoding.closest(encoding.encode(instance));
+			assertEquals(expected.size(), closest.length);
+			for (int i = 0; i < closest.length; i++) {
+				assertEquals(expected.get(i).intValue(), closest[i]);
+			}
+		}
+	}
+
+	@Test
+	public void testClosest_ignoresInstance() {
+		Instances traindata = createInstances(100, 4, 3, 5);
+		HammingEncoding encoding = new HammingEncoding(traindata);
+		for (int row = 0; row < traindata.size(); row++) {
+			for (int index : encoding.closest(row)) {
+				assertNotEquals(row, index);
+			}
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package de.ugoe.cs.cpdp.util;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.math3.util.MathArrays;
+import org.junit.Test;
+
+public class KDTreeTest {
+
+	private static double[][] createPoints(int numPoints, int numDimensions, long seed) {
+		Random random = new Random(seed);
+		double[][] points = new double[numPoints][numDimensions];
+		for (int i = 0; i < numPoints; i++) {
+			for (int j = 0; j < numDimensions; j++) {
+				// few distinct values to get many ties
+				points[i][j] = random.nextInt(5);
+			}
+		}
+		return points;
+	}
+
+	@Test
+	public void testNearest() {
+		double[][] points = createPoints(1000, 3, 42);
+		double[][] queries = createPoints(200, 3, 43);
+		KDTree tree = new KDTree(points);
+		for (double[] query : queries) {
+			double minDistance = Double.MAX_VALUE;
+			int minIndex = -1;
+			for (int i = 0; i < points.length; i++) {
+				double distance = MathArrays.distance(query, points[i]);
+				if (distance < minDistance) {
+					minDistance = distance;
+					minIndex = i;
+				}
+			}
+			assertEquals(minIndex, tree.nearest(query));
+		}
+	}
+
+	@Test
+	public void testWithinDistance() {
+		double[][] points = createPoints(1000, 4, 44);
+		double[][] queries = createPoints(50, 4, 45);
+		KDTree tree = new KDTree(points, 100, 900);
+		for (double[] query : queries) {
+			for (double radius : new double[] { 0.5, 1.0, 2.0, Double.MAX_VALUE }) {
+				List<Integer> expected = new ArrayList<>();
+				for (int i = 100; i < 900; i++) {
+					if (MathArrays.distance(query, points[i]) < radius) {
+						expected.add(i);
+					}
+				}
+				int[] result = tree.withinDistance(query, radius);
+				assertEquals(expected.size(), result.length);
+				for (int i = 0; i < result.length; i++) {
+					assertEquals(expected.get(i).intValue(), result[i]);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testEmpty() {
+		KDTree tree = new KDTree(new double[0][]);
+		assertEquals(0, tree.size());
+		assertEquals(-1, tree.nearest(new double[] { 1.0 }));
+		assertEquals(0, tree.withinDistance(new double[] { 1.0 }, 1.0).length);
+	}
+}
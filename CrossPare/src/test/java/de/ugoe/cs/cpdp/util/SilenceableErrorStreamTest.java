@@ -0,0 +1,34 @@
+package de.ugoe.cs.cpdp.util;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class SilenceableErrorStreamTest {
+
+	@Test
+	public void testSilenced_restoresErrorStream() throws Exception {
+		PrintStream original = System.err;
+		ByteArrayOutputStream written = new ByteArrayOutputStream();
+		PrintStream errorStream = new PrintStream(written, true, "UTF-8");
+		System.setErr(errorStream);
+		try {
+			String result = SilenceableErrorStream.silenced(() -> {
+				assertNotSame(errorStream, System.err);
+				System.err.print("silenced");
+				return "result";
+			});
+			System.err.print("visible");
+
+			assertEquals("result", result);
+			assertSame(errorStream, System.err);
+			assertEquals("visible", new String(written.toByteArray(), StandardCharsets.UTF_8));
+		} finally {
+			System.setErr(original);
+		}
+	}
+}
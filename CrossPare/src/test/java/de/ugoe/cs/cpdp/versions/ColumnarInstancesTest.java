@@ -0,0 +1,87 @@
+package de.ugoe.cs.cpdp.versions;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+import weka.core.SparseInstance;
+import weka.core.Utils;
+
+public class ColumnarInstancesTest {
+
+	private static Instances createData() {
+		ArrayList<Attribute> attributes = new ArrayList<>();
+		attributes.add(new Attribute("attr1"));
+		attributes.add(new Attribute("bug", Arrays.asList("0", "1")));
+		attributes.add(new Attribute("attr2"));
+		Instances data = new Instances("test", attributes, 0);
+		data.setClassIndex(1);
+		data.add(new DenseInstance(1.0, new double[] { 1.0, 0.0, 2.0 }));
+		data.add(new SparseInstance(2.0, new double[] { 0.0, 1.0, 3.0 }));
+		data.add(new DenseInstance(0.5, new double[] { 4.0, 1.0, Utils.missingValue() }));
+		return data;
+	}
+
+	@Test
+	public void testColumns() {
+		ColumnarInstances columnar = new ColumnarInstances(createData());
+
+		assertEquals(3, columnar.numInstances());
+		assertEquals(3, columnar.numAttributes());
+		assertEquals(1, columnar.classIndex());
+		assertEquals("attr2", columnar.attribute(2).name());
+		assertEquals(0, columnar.header().numInstances());
+		assertArrayEquals(new double[] { 1.0, 0.0, 4.0 }, columnar.column(0), 0.0);
+		assertArrayEquals(new double[] { 0.0, 1.0, 1.0 }, columnar.classColumn(), 0.0);
+		assertArrayEquals(new double[] { 1.0, 2.0, 0.5 }, columnar.weights(), 0.0);
+		assertEquals(3.0, columnar.value(1, 2), 0.0);
+		assertTrue(Double.isNaN(columnar.value(2, 2)));
+	}
+
+	@Test
+	public void testToRows() {
+		ColumnarInstances columnar = new ColumnarInstances(createData());
+
+		double[][] rows = columnar.toRows(1);
+		assertEquals(3, rows.length);
+		assertArrayEquals(new double[] { 1.0, 2.0 }, rows[0], 0.0);
+		assertArrayEquals(new double[] { 0.0, 3.0 }, rows[1], 0.0);
+
+		assertArrayEquals(new double[] { 0.0, 1.0, 3.0 }, columnar.toRows(-1)[1], 0.0);
+	}
+
+	@Test
+	public void testToInstances() {
+		Instances data = createData();
+		Instances converted = new ColumnarInstances(data).toInstances();
+
+		assertEquals(data.numInstances(), converted.numInstances());
+		assertEquals(data.classIndex(), converted.classIndex());
+		for (int i = 0; i < data.numInstances(); i++) {
+			assertArrayEquals(data.instance(i).toDoubleArray(), converted.instance(i).toDoubleArray(), 0.0);
+			assertEquals(data.instance(i).weight(), converted.instance(i).weight(), 0.0);
+		}
+	}
+
+	@Test
+	public void testSoftwareVersion_cached() {
+		SoftwareVersion version = new SoftwareVersion("ds", "project", "version", createData(), null, null, null,
+				null, null);
+		SoftwareVersion copy = new SoftwareVersion(version);
+
+		ColumnarInstances columnar = version.getColumnarInstancesReadOnly();
+		assertSame(columnar, version.getColumnarInstancesReadOnly());
+		assertSame(columnar, copy.getColumnarInstancesReadOnly());
+
+		copy.getInstances().instance(0).setValue(0, 10.0);
+		assertEquals(10.0, copy.getColumnarInstancesReadOnly().value(0, 0), 0.0);
+		assertSame(columnar, version.getColumnarInstancesReadOnly());
+		assertEquals(1.0, version.getColumnarInstancesReadOnly().value(0, 0), 0.0);
+	}
+}
@@ -0,0 +1,129 @@
+package de.ugoe.cs.cpdp.versions;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import org.junit.Test;
+
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+import weka.core.SparseInstance;
+
+public class ConcatenatedVersionsTest {
+
+	private static SoftwareVersion createVersion(String name, int numInstances, String... bugs) {
+		ArrayList<Attribute> attributes = new ArrayList<>();
+		attributes.add(new Attribute("attr1"));
+		attributes.add(new Attribute("bug", Arrays.asList("0", "1")));
+		Instances instances = new Instances(name, attributes, 0);
+		instances.setClassIndex(1);
+
+		ArrayList<Attribute> bugAttributes = new ArrayList<>();
+		for (String bug : bugs) {
+			bugAttributes.add(new Attribute(bug));
+		}
+		Instances bugMatrix = new Instances("bugmatrix", bugAttributes, 0);
+		List<Double> efforts = new ArrayList<>();
+		List<Double> numBugs = new ArrayList<>();
+		for (int i = 0; i < numInstances; i++) {
+			instances.add(new DenseInstance(1.0, new double[] {name.hashCode() + i, i % 2}));
+			double[] bugValues = new double[bugs.length];
+			for (int j = 0; j < bugs.length; j++) {
+				bugValues[j] = (i + j) % 3 == 0 ? 1.0 : 0.0;
+			}
+			bugMatrix.add(i % 2 == 0 ? new DenseInstance(1.0, bugValues) : new SparseInstance(1.0, bugValues));
+			efforts.add(10.0 * i);
+			numBugs.add((double) (i % 2));
+		}
+		return new SoftwareVersion("ds", name, name, instances, bugMatrix, efforts, numBugs, null, null);
+	}
+
+	@Test
+	public void testConcatenation() {
+		List<SoftwareVersion> versions = Arrays.asList(createVersion("a", 3, "b1", "b2"), createVersion("b", 0, "b3"),
+				createVersion("c", 4, "b2", "b4"));
+		ConcatenatedVersions concatenation = new ConcatenatedVersions(versions);
+
+		assertEquals(3, concatenation.numVersions());
+		assertEquals(7, concatenation.numInstances());
+		assertEquals(0, concatenation.versionIndex(2));
+		assertEquals(2, concatenation.versionIndex(3));
+		assertSame(versions.get(2).getInstancesReadOnly().instance(1), concatenation.instance(4));
+		assertEquals(10.0, concatenation.effort(4), 0.0);
+		assertEquals(1.0, concatenation.numBugs(4), 0.0);
+
+		Instances instances = concatenation.getInstances(null);
+		assertEquals("a", instances.relationName());
+		assertEquals(7, instances.numInstances());
+		assertEquals(1, instances.classIndex());
+		assertArrayEquals(versions.get(2).getInstancesReadOnly().instance(3).toDoubleArray(),
+				instances.instance(6).toDoubleArray(), 0.0);
+
+		// columns with the same name are merged
+		Instances bugMatrix = concatenation.getBugMatrix(null);
+		assertEquals(4, bugMatrix.numAttributes());
+		assertEquals("b2", bugMatrix.attribute(1).name());
+		assertEquals("b4", bugMatrix.attribute(3).name());
+		assertArrayEquals(new double[] {0.0, 0.0, 0.0, 1.0}, bugMatrix.instance(5).toDoubleArray(), 0.0);
+		// sparse row
+		assertArrayEquals(new double[] {0.0, 1.0, 0.0, 0.0}, bugMatrix.instance(6).toDoubleArray(), 0.0);
+		assertArrayEquals(new double[] {0.0, 1.0, 0.0, 0.0}, concatenation.bugs(6), 0.0);
+		assertArrayEquals(new double[] {1.0, 0.0, 0.0, 0.0}, bugMatrix.instance(0).toDoubleArray(), 0.0);
+
+		assertEquals(Arrays.asList(0.0, 10.0, 20.0, 0.0, 10.0, 20.0, 30.0), concatenation.getEfforts(null));
+	}
+
+	@Test
+	public void testSelectedRows() {
+		List<SoftwareVersion> versions = Arrays.asList(createVersion("a", 3, "b1"), createVersion("c", 4, "b2"));
+		ConcatenatedVersions concatenation = new ConcatenatedVersions(versions);
+		BitSet rows = new BitSet();
+		rows.set(1);
+		rows.set(3);
+		rows.set(6);
+
+		SoftwareVersion selected = concatenation.toSoftwareVersion("ds", "p", "v", rows);
+		rows.clear();
+		assertEquals(3, selected.getInstancesReadOnly().numInstances());
+		assertEquals(versions.get(0).getInstancesReadOnly().instance(1).value(0),
+				selected.getInstancesReadOnly().instance(0).value(0), 0.0);
+		assertEquals(Arrays.asList(10.0, 0.0, 30.0), selected.getEffortsReadOnly());
+		assertEquals(Arrays.asList(1.0, 0.0, 1.0), selected.getNumBugsReadOnly());
+		assertEquals(3, selected.getBugMatrixReadOnly().numInstances());
+		assertEquals(2, selected.getBugMatrixReadOnly().numAttributes());
+	}
+
+	@Test
+	public void testToSoftwareVersion_lazy() {
+		SoftwareVersion member = createVersion("a", 3, "b1");
+		SoftwareVersion version = new ConcatenatedVersions(Arrays.asList(member)).toSoftwareVersion("ds", "p", "v");
+		SoftwareVersion copy = new SoftwareVersion(version);
+
+		Instances instances = version.getInstancesReadOnly();
+		assertNotSame(member.getInstancesReadOnly(), instances);
+		assertSame(instances, copy.getInstancesReadOnly());
+
+		// the copy is modified, the original keeps its data
+		copy.getInstances().instance(0).setValue(0, -1.0);
+		copy.getEfforts().set(0, -1.0);
+		assertSame(instances, version.getInstances());
+		assertEquals(member.getInstancesReadOnly().instance(0).value(0), instances.instance(0).value(0), 0.0);
+		assertEquals(0.0, version.getEffortsReadOnly().get(0), 0.0);
+	}
+
+	@Test
+	public void testMissingBugMatrix() {
+		SoftwareVersion withoutBugMatrix = new SoftwareVersion("ds", "x", "x",
+				createVersion("x", 2).getInstancesReadOnly(), null, null, null, null, null);
+		ConcatenatedVersions concatenation = new ConcatenatedVersions(
+				Arrays.asList(createVersion("a", 3, "b1"), withoutBugMatrix));
+		assertEquals(5, concatenation.getInstances(null).numInstances());
+		assertNull(concatenation.getBugMatrix(null));
+		assertNull(concatenation.getEfforts(null));
+	}
+}
@@ -0,0 +1,122 @@
+package de.ugoe.cs.cpdp.versions;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import org.junit.Test;
+
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+
+public class SoftwareVersionTest {
+
+	private static Instances createInstances() {
+		ArrayList<Attribute> attributes = new ArrayList<>();
+		attributes.add(new Attribute("attr1"));
+		List<String> classAttVals = new ArrayList<>();
+		classAttVals.add("0");
+		classAttVals.add("1");
+		attributes.add(new Attribute("bug", classAttVals));
+
+		Instances instances = new Instances("test", attributes, 0);
+		instances.setClassIndex(1);
+		instances.add(new DenseInstance(1.0, new double[]{1.0, 0.0}));
+		instances.add(new DenseInstance(1.0, new double[]{2.0, 1.0}));
+		return instances;
+	}
+
+	@Test
+	public void testCopy_sharedUntilModified() {
+		Instances instances = createInstances();
+		List<Double> efforts = new ArrayList<>();
+		efforts.add(1.0);
+		efforts.add(2.0);
+		SoftwareVersion version = new SoftwareVersion("foo", "bar", "1.0", instances, null, efforts, null, null, null);
+		SoftwareVersion copy = new SoftwareVersion(version);
+
+		assertSame(instances, copy.getInstancesReadOnly());
+		assertNull(copy.getBugMatrixReadOnly());
+		assertNull(copy.getNumBugsReadOnly());
+
+		Instances copyInstances = copy.getInstances();
+		assertNotSame(instances, copyInstances);
+		copyInstances.instance(0).setValue(0, 5.0);
+		copy.getEfforts().set(0, 5.0);
+
+		assertEquals(1.0, instances.instance(0).value(0), 0.0);
+		assertEquals(1.0, efforts.get(0), 0.0);
+		assertSame(instances, version.getInstances());
+		assertSame(efforts, version.getEfforts());
+	}
+
+	@Test
+	public void testCopy_originKeepsData() {
+		Instances instances = createInstances();
+		SoftwareVersion version = new SoftwareVersion("foo", "bar", "1.0", instances, null, null, null, null, null);
+		SoftwareVersion copy = new SoftwareVersion(version);
+
+		assertSame(instances, version.getInstances());
+		instances.instance(0).setValue(0, 5.0);
+
+		assertNotSame(instances, copy.getInstancesReadOnly());
+		assertEquals(1.0, copy.getInstancesReadOnly().instance(0).value(0), 0.0);
+	}
+
+	@Test
+	public void testCopy_modifiedDataCopied() {
+		Instances instances = createInstances();
+		SoftwareVersion version = new SoftwareVersion("foo", "bar", "1.0", instances, null, null, null, null, null);
+		version.getInstances();
+		SoftwareVersion copy = new SoftwareVersion(version);
+
+		assertNotSame(instances, copy.getInstancesReadOnly());
+		assertEquals(instances.numInstances(), copy.getInstancesReadOnly().numInstances());
+	}
+
+	private static SoftwareVersion createVersion() {
+		Instances instances = createInstances();
+		instances.add(new DenseInstance(1.0, new double[]{3.0, 1.0}));
+		List<Double> efforts = new ArrayList<>(Arrays.asList(10.0, 20.0, 30.0));
+		List<Double> numBugs = new ArrayList<>(Arrays.asList(0.0, 1.0, 2.0));
+		return new SoftwareVersion("foo", "bar", "1.0", instances, null, efforts, numBugs, null, null);
+	}
+
+	@Test
+	public void testRetainRows() {
+		SoftwareVersion version = createVersion();
+		SoftwareVersion copy = new SoftwareVersion(version);
+		BitSet rows = new BitSet();
+		rows.set(0);
+		rows.set(2);
+
+		copy.retainRows(rows);
+
+		assertEquals(2, copy.getInstancesReadOnly().numInstances());
+		assertEquals(1.0, copy.getInstancesReadOnly().instance(0).value(0), 0.0);
+		assertEquals(3.0, copy.getInstancesReadOnly().instance(1).value(0), 0.0);
+		assertEquals(Arrays.asList(10.0, 30.0), copy.getEffortsReadOnly());
+		assertEquals(Arrays.asList(0.0, 2.0), copy.getNumBugsReadOnly());
+		assertEquals(3, version.getInstancesReadOnly().numInstances());
+		assertEquals(3, version.getEffortsReadOnly().size());
+	}
+
+	@Test
+	public void testSelectRows() {
+		SoftwareVersion version = createVersion();
+
+		SoftwareVersion selected = version.selectRows(new int[]{2, 0, 2});
+
+		assertEquals(3, selected.getInstancesReadOnly().numInstances());
+		assertEquals(3.0, selected.getInstancesReadOnly().instance(0).value(0), 0.0);
+		assertEquals(1.0, selected.getInstancesReadOnly().instance(1).value(0), 0.0);
+		assertEquals(Arrays.asList(30.0, 10.0, 30.0), selected.getEffortsReadOnly());
+		assertEquals(Arrays.asList(2.0, 0.0, 2.0), selected.getNumBugsReadOnly());
+		assertNull(selected.getBugMatrixReadOnly());
+		assertEquals(3, version.getInstancesReadOnly().numInstances());
+	}
+}
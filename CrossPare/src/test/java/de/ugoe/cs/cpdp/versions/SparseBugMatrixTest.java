@@ -0,0 +1,81 @@
+package de.ugoe.cs.cpdp.versions;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+import weka.core.SparseInstance;
+
+public class SparseBugMatrixTest {
+
+	private static Instances createBugMatrix() {
+		ArrayList<Attribute> attributes = new ArrayList<>();
+		attributes.add(new Attribute("b1"));
+		attributes.add(new Attribute("b2"));
+		attributes.add(new Attribute("b3"));
+		Instances bugMatrix = new Instances("bugmatrix", attributes, 0);
+		bugMatrix.add(new DenseInstance(1.0, new double[] { 1.0, 0.0, 2.0 }));
+		bugMatrix.add(new SparseInstance(1.0, new double[] { 0.0, 0.0, 0.0 }));
+		bugMatrix.add(new SparseInstance(1.0, new double[] { 0.0, 1.0, 0.0 }));
+		return bugMatrix;
+	}
+
+	@Test
+	public void testSparseFormat() {
+		SparseBugMatrix matrix = new SparseBugMatrix(createBugMatrix());
+
+		assertEquals("bugmatrix", matrix.name());
+		assertEquals(3, matrix.numRows());
+		assertEquals(3, matrix.numBugs());
+		assertEquals(3, matrix.numNonZeros());
+		assertEquals(0, matrix.rowStart(0));
+		assertEquals(2, matrix.rowEnd(0));
+		assertEquals(2, matrix.columnAt(1));
+		assertEquals(2.0, matrix.valueAt(1), 0.0);
+		assertEquals(matrix.rowStart(1), matrix.rowEnd(1));
+		assertEquals(3.0, matrix.bugCount(0), 0.0);
+		assertEquals(0.0, matrix.bugCount(1), 0.0);
+		assertEquals(1.0, matrix.value(2, 1), 0.0);
+		assertEquals(0.0, matrix.value(2, 2), 0.0);
+		assertEquals(1, matrix.column("b2"));
+		assertEquals(-1, matrix.column("b4"));
+		assertEquals("b3", matrix.bugId(2));
+	}
+
+	@Test
+	public void testToInstances() {
+		Instances bugMatrix = createBugMatrix();
+
+		Instances converted = new SparseBugMatrix(bugMatrix).toInstances();
+
+		assertEquals(bugMatrix.numAttributes(), converted.numAttributes());
+		assertEquals(bugMatrix.numInstances(), converted.numInstances());
+		for (int i = 0; i < bugMatrix.numInstances(); i++) {
+			assertTrue(converted.instance(i) instanceof SparseInstance);
+			assertArrayEquals(bugMatrix.instance(i).toDoubleArray(), converted.instance(i).toDoubleArray(), 0.0);
+		}
+	}
+
+	@Test
+	public void testCachedInVersion() {
+		ArrayList<Attribute> attributes = new ArrayList<>();
+		attributes.add(new Attribute("attr1"));
+		Instances instances = new Instances("test", attributes, 0);
+		for (int i = 0; i < 3; i++) {
+			instances.add(new DenseInstance(1.0, new double[] { i }));
+		}
+		SoftwareVersion version = new SoftwareVersion("ds", "p", "v", instances, createBugMatrix(),
+				Arrays.asList(1.0, 2.0, 3.0), Arrays.asList(3.0, 0.0, 1.0), null, null);
+
+		SparseBugMatrix matrix = version.getSparseBugMatrixReadOnly();
+
+		assertSame(matrix, version.getSparseBugMatrixReadOnly());
+		assertEquals(3, matrix.numNonZeros());
+	}
+}